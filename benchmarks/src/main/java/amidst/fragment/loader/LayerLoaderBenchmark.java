@@ -0,0 +1,115 @@
+package amidst.fragment.loader;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import amidst.fragment.Fragment;
+import amidst.fragment.colorprovider.BackgroundColorProvider;
+import amidst.fragment.colorprovider.BiomeColorProvider;
+import amidst.fragment.colorprovider.MinetestMountainColorProvider;
+import amidst.fragment.colorprovider.MinetestOceanColorProvider;
+import amidst.fragment.colorprovider.MinetestRiverColorProvider;
+import amidst.fragment.colorprovider.TheEndColorProvider;
+import amidst.fragment.constructor.ImageConstructor;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.fragment.layer.LayerIds;
+import amidst.gui.main.viewer.BiomeSelection;
+import amidst.minetest.world.mapgen.MapgenV7Params;
+import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
+import amidst.minetest.world.oracle.BiomeDataOracleV7;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.settings.Settings;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * The loaders the Minetest viewer draws the layers of the biome data with.
+ * The biome data is generated once by the v7 oracle, so only the colouring
+ * and the copy into the images are measured.
+ *
+ * MINETEST_RIVER, MINETEST_OCEAN and MINETEST_MOUNTAIN measure
+ * MinetestBitplaneImageLoader with only that layer visible, MINETEST_ALL with
+ * all three visible. BACKGROUND measures BackgroundLoader in the overworld,
+ * which only marks the background to be coloured, since the BackgroundDrawer
+ * colours it from the biome palette when it is drawn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LayerLoaderBenchmark {
+	private static final long SEED = 123456789L;
+	private static final Resolution RESOLUTION = Resolution.QUARTER;
+
+	@Param({ "BACKGROUND", "MINETEST_RIVER", "MINETEST_OCEAN", "MINETEST_MOUNTAIN", "MINETEST_ALL" })
+	public String layer;
+
+	private Fragment fragment;
+	private FragmentLoader loader;
+
+	@Setup
+	public void setup() {
+		BiomeProfileSelection biomeProfileSelection = new BiomeProfileSelection(
+				MinetestBiomeProfileImpl.getDefaultProfiles().iterator().next());
+		int size = RESOLUTION.getStepsPerFragment();
+
+		fragment = new Fragment(LayerIds.NUMBER_OF_LAYERS);
+		new ImageConstructor(RESOLUTION, LayerIds.BACKGROUND).construct(fragment);
+		fragment.initBiomeData(size, size);
+		fragment.setCorner(CoordinatesInWorld.from(-512, 1024));
+		fragment.populateBiomeData(
+				new BiomeDataOracleV7(false, new MapgenV7Params(), biomeProfileSelection, SEED));
+
+		if (layer.equals("BACKGROUND")) {
+			loader = new BackgroundLoader(
+					createDeclaration(LayerIds.BACKGROUND, true),
+					RESOLUTION,
+					new BackgroundColorProvider(
+							new BiomeColorProvider(new BiomeSelection(), biomeProfileSelection),
+							new TheEndColorProvider()));
+		} else {
+			boolean isAll = layer.equals("MINETEST_ALL");
+			loader = new MinetestBitplaneImageLoader(
+					createDeclaration(LayerIds.MINETEST_RIVER, isAll || layer.equals("MINETEST_RIVER")),
+					createDeclaration(LayerIds.MINETEST_OCEAN, isAll || layer.equals("MINETEST_OCEAN")),
+					createDeclaration(LayerIds.MINETEST_MOUNTAIN, isAll || layer.equals("MINETEST_MOUNTAIN")),
+					RESOLUTION,
+					new MinetestRiverColorProvider(WorldType.V7, RESOLUTION),
+					new MinetestOceanColorProvider(),
+					new MinetestMountainColorProvider(RESOLUTION));
+		}
+	}
+
+	private static LayerDeclaration createDeclaration(int layerId, boolean isVisible) {
+		LayerDeclaration result = new LayerDeclaration(
+				layerId,
+				null,
+				false,
+				true,
+				Settings.createImmutable(isVisible),
+				Settings.createImmutable(false));
+		result.update(Dimension.OVERWORLD);
+		return result;
+	}
+
+	@Benchmark
+	public Fragment load() {
+		loader.load(Dimension.OVERWORLD, fragment);
+		return fragment;
+	}
+}
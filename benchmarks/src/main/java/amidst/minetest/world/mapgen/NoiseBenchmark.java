@@ -0,0 +1,98 @@
+package amidst.minetest.world.mapgen;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The noise functions the oracles are built on. The single point functions
+ * are measured per point, the map functions per map (MAP_SIZE points on each
+ * axis in 2D, MAP_SIZE_3D in 3D).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class NoiseBenchmark {
+	private static final int SEED = 1234567;
+	private static final int POINTS = 1024;
+	private static final int MAP_SIZE = 80;
+	private static final int MAP_SIZE_3D = 16;
+
+	private final MapgenV7Params params = new MapgenV7Params();
+	private final float[] pointsX = new float[POINTS];
+	private final float[] pointsY = new float[POINTS];
+	private final float[] pointsZ = new float[POINTS];
+
+	private Noise noise2D;
+	private Noise noise3D;
+	private float[] stridedResult;
+	private NoiseBuffers stridedBuffers;
+	private int mapX;
+
+	@Setup
+	public void setup() throws InvalidNoiseParamsException {
+		// a fixed walk, so every fork measures the same points
+		for (int i = 0; i < POINTS; i++) {
+			pointsX[i] = i * 37 % 4096 - 2048;
+			pointsY[i] = i * 13 % 256 - 128;
+			pointsZ[i] = i * 61 % 4096 - 2048;
+		}
+		noise2D = new Noise(params.np_terrain_base, SEED, MAP_SIZE, MAP_SIZE);
+		noise3D = new Noise(params.np_mountain, SEED, MAP_SIZE_3D, MAP_SIZE_3D, MAP_SIZE_3D);
+		stridedResult = new float[MAP_SIZE * MAP_SIZE];
+		stridedBuffers = new NoiseBuffers();
+	}
+
+	private int nextMapX() {
+		// move the map along, so each call samples a different area
+		mapX = (mapX + MAP_SIZE) & 0x7FFF;
+		return mapX - 0x4000;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public void noisePerlin2D(Blackhole blackhole) {
+		NoiseParams np = params.np_terrain_base;
+		for (int i = 0; i < POINTS; i++) {
+			blackhole.consume(Noise.NoisePerlin2D(np, pointsX[i], pointsZ[i], SEED));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public void noisePerlin3D(Blackhole blackhole) {
+		NoiseParams np = params.np_mountain;
+		for (int i = 0; i < POINTS; i++) {
+			blackhole.consume(Noise.NoisePerlin3D(np, pointsX[i], pointsY[i], pointsZ[i], SEED));
+		}
+	}
+
+	@Benchmark
+	public float[] perlinMap2D() {
+		return noise2D.perlinMap2D(nextMapX(), 0, null);
+	}
+
+	@Benchmark
+	public float[] perlinMap2DStrided() {
+		return noise2D.perlinMap2DStrided(nextMapX(), 0, 4, 4, MAP_SIZE, MAP_SIZE, 0, 0, null, stridedResult, stridedBuffers);
+	}
+
+	@Benchmark
+	public float[] perlinMap3D() {
+		return noise3D.perlinMap3D(nextMapX(), -MAP_SIZE_3D / 2, 0, null);
+	}
+}
@@ -0,0 +1,88 @@
+package amidst.minetest.world.oracle;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import amidst.minetest.world.mapgen.AotearoaBiomes;
+import amidst.minetest.world.mapgen.DefaultBiomes;
+import amidst.minetest.world.mapgen.MapgenFlatParams;
+import amidst.minetest.world.mapgen.MinetestBiome;
+
+/**
+ * calcBiomeFromNoise() on its own, measured per sample. The samples are
+ * spread over the heat, humidity and heights a map usually covers, and are
+ * the same in every run. The biome classifier is built once in the setup,
+ * like the oracles build it once per biome profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class BiomeClassificationBenchmark {
+	private static final int SAMPLES = 4096;
+
+	@Param({ "DefaultBiomes", "MineCloneBiomes", "AotearoaBiomes" })
+	public String profile;
+
+	private final float[] heat = new float[SAMPLES];
+	private final float[] humidity = new float[SAMPLES];
+	private final int[] y = new int[SAMPLES];
+	private BiomeClassifier biomeClassifier;
+	private MinetestBiomeDataOracle oracle;
+
+	@Setup
+	public void setup() {
+		biomeClassifier = new BiomeClassifier(getBiomes(profile));
+		oracle = new BiomeDataOracleFlat(new MapgenFlatParams(), null, 0);
+		Random random = new Random(42);
+		for (int i = 0; i < SAMPLES; i++) {
+			heat[i] = 50 + (float) random.nextGaussian() * 35;
+			humidity[i] = 50 + (float) random.nextGaussian() * 35;
+			y[i] = random.nextInt(4) == 0 ? random.nextInt(512) - 256 : random.nextInt(40) - 8;
+		}
+	}
+
+	/**
+	 * The biome sets get their indexes when DefaultBiomes creates them, so
+	 * they are taken from there rather than from the getBiomeList() of each
+	 * class.
+	 */
+	private static MinetestBiome[] getBiomes(String profile) {
+		Map<String, MinetestBiome[]> biomeSets = DefaultBiomes.getDefaultBiomeSets();
+		switch (profile) {
+		case "DefaultBiomes":
+			return biomeSets.get(DefaultBiomes.BIOMEPROFILENAME_MINETEST_GAME);
+		case "MineCloneBiomes":
+			return biomeSets.get("MineClone 2");
+		case "AotearoaBiomes":
+			return biomeSets.get("Aotearoa (New Zealand) " + AotearoaBiomes.getVersion());
+		default:
+			throw new IllegalArgumentException("unknown profile: " + profile);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void calcBiomeFromNoise(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(oracle.calcBiomeFromNoise(biomeClassifier, heat[i], humidity[i], y[i]));
+		}
+	}
+}
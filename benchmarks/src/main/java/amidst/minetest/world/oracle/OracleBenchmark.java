@@ -0,0 +1,117 @@
+package amidst.minetest.world.oracle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import amidst.fragment.AdaptiveBiomeDataSampler;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.BiomeDataPlane;
+import amidst.minetest.world.mapgen.MapgenCarpathianParams;
+import amidst.minetest.world.mapgen.MapgenFlatParams;
+import amidst.minetest.world.mapgen.MapgenHallelujahParams;
+import amidst.minetest.world.mapgen.MapgenV5Params;
+import amidst.minetest.world.mapgen.MapgenV6Params;
+import amidst.minetest.world.mapgen.MapgenV7Params;
+import amidst.minetest.world.mapgen.MapgenValleysParams;
+import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * One fragment of biome data per operation, from each of the Minetest
+ * oracles. QUARTER is the resolution the viewer uses. At WORLD resolution a
+ * fragment would be 512x512 samples, so the same number of samples as at
+ * QUARTER resolution are taken from a 128x128 area instead, which makes the
+ * two resolutions directly comparable. ADAPTIVE sampling is what the viewer
+ * does with adaptive biome sampling enabled, EXACT is what the exporter and
+ * the biome data disk cache do. At WORLD resolution both are exact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class OracleBenchmark {
+	private static final long SEED = 123456789L;
+	private static final int SIZE = Resolution.QUARTER.getStepsPerFragment();
+	private static final long[][] CORNERS = {
+			{ 0, 0 },
+			{ -512, 1024 },
+			{ 30720, -2048 },
+			{ 2048, 30720 },
+			{ -8192, -8192 },
+			{ 4096, -4096 } };
+
+	@Param({ "V5", "V6", "V7", "V7Floatlands", "Carpathian", "Valleys", "Flat", "Hallelujah" })
+	public String mapgen;
+
+	@Param({ "QUARTER", "WORLD" })
+	public Resolution resolution;
+
+	@Param({ "EXACT", "ADAPTIVE" })
+	public String sampling;
+
+	private MinetestBiomeDataOracle oracle;
+	private AdaptiveBiomeDataSampler sampler;
+	private BiomeDataBuffer result;
+	private int cornerIndex;
+
+	@Setup
+	public void setup() {
+		BiomeProfileSelection biomeProfileSelection = new BiomeProfileSelection(
+				MinetestBiomeProfileImpl.getDefaultProfiles().iterator().next());
+		oracle = createOracle(mapgen, biomeProfileSelection);
+		sampler = sampling.equals("EXACT")
+				? AdaptiveBiomeDataSampler.EXACT
+				: new AdaptiveBiomeDataSampler(AdaptiveBiomeDataSampler.DEFAULT_VERIFICATION_DENSITY);
+		result = new BiomeDataBuffer(SIZE, SIZE);
+	}
+
+	private static MinetestBiomeDataOracle createOracle(String mapgen, BiomeProfileSelection biomeProfileSelection) {
+		switch (mapgen) {
+		case "V5":
+			return new BiomeDataOracleV5(new MapgenV5Params(), biomeProfileSelection, SEED);
+		case "V6":
+			return new BiomeDataOracleV6(new MapgenV6Params(), biomeProfileSelection, SEED);
+		case "V7":
+			return new BiomeDataOracleV7(false, new MapgenV7Params(), biomeProfileSelection, SEED);
+		case "V7Floatlands":
+			return new BiomeDataOracleV7(true, new MapgenV7Params(), biomeProfileSelection, SEED);
+		case "Carpathian":
+			return new BiomeDataOracleCarpathian(new MapgenCarpathianParams(), biomeProfileSelection, SEED);
+		case "Valleys":
+			return new BiomeDataOracleValleys(new MapgenValleysParams(), biomeProfileSelection, SEED);
+		case "Flat":
+			return new BiomeDataOracleFlat(new MapgenFlatParams(), biomeProfileSelection, SEED);
+		case "Hallelujah":
+			return new BiomeDataOracleHallelujah(new MapgenHallelujahParams(), biomeProfileSelection, SEED);
+		default:
+			throw new IllegalArgumentException("unknown mapgen: " + mapgen);
+		}
+	}
+
+	@Benchmark
+	public short populateArray() {
+		long[] corner = CORNERS[cornerIndex];
+		cornerIndex = (cornerIndex + 1) % CORNERS.length;
+		return sampler.populateArray(
+				oracle,
+				CoordinatesInWorld.from(corner[0], corner[1]),
+				result,
+				resolution,
+				BiomeDataPlane.ALL);
+	}
+}
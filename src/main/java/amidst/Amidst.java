@@ -75,6 +75,9 @@ public class Amidst {
 			parser.printUsage(System.out);
 		} else if (parameters.printVersion) {
 			System.out.println(versionString);
+		} else if (parameters.renderFile != null) {
+			AmidstLogger.info(versionString);
+			renderHeadless(parameters);
 		} else {
 			AmidstLogger.info(versionString);
 			logTimeAndProperties();
@@ -83,6 +86,15 @@ public class Amidst {
 		}
 	}
 
+	/**
+	 * Renders the map without creating any windows, so it also works on
+	 * machines without a display.
+	 */
+	private static void renderHeadless(CommandLineParameters parameters) {
+		System.setProperty("java.awt.headless", "true");
+		System.exit(new HeadlessRenderer(parameters).run() ? 0 : 1);
+	}
+
 	private static void initFileLogger(String filename) {
 		if (filename != null) {
 			AmidstLogger.info("using log file: '" + filename + "'");
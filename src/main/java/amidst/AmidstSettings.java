@@ -3,6 +3,7 @@ package amidst;
 import java.util.prefs.Preferences;
 
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
 import amidst.mojangapi.world.Dimension;
@@ -34,6 +35,9 @@ public class AmidstSettings {
 
 	public final Setting<Boolean> smoothScrolling;
 	public final Setting<Boolean> fragmentFading;
+	public final Setting<Boolean> adaptiveBiomeSampling;
+	public final Setting<String> adaptiveBiomeSamplingVerification;
+	public final Setting<Boolean> retainBiomeClimate;
 	public final Setting<Boolean> maxZoom;
 	public final Setting<Boolean> showFPS;
 	public final Setting<Boolean> showScale;
@@ -49,8 +53,11 @@ public class AmidstSettings {
 	 */
 	public final BiomeProfileSelection biomeProfileSelection;
 
+	private final Preferences preferences;
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public AmidstSettings(Preferences preferences) {
+		this.preferences = preferences;
 		// @formatter:off
 		dimension                  = Settings.createDimension(preferences, "dimension",            Dimension.OVERWORLD);
 		showGrid                   = Settings.createBoolean(  preferences, "grid",                 false);
@@ -72,6 +79,9 @@ public class AmidstSettings {
 		
 		smoothScrolling            = Settings.createBoolean(  preferences, "mapFlicking",          true);
 		fragmentFading             = Settings.createBoolean(  preferences, "mapFading",            true);
+		adaptiveBiomeSampling      = Settings.createBoolean(  preferences, "adaptiveBiomeSampling", false);
+		adaptiveBiomeSamplingVerification = Settings.createString(   preferences, "adaptiveBiomeSamplingVerification", "25%");
+		retainBiomeClimate         = Settings.createBoolean(  preferences, "retainBiomeClimate",   false);
 		maxZoom                    = Settings.createBoolean(  preferences, "maxZoom",              true);
 		showFPS                    = Settings.createBoolean(  preferences, "showFPS",              true);
 		showScale                  = Settings.createBoolean(  preferences, "showScale",            true);
@@ -84,4 +94,13 @@ public class AmidstSettings {
 		biomeProfileSelection = new BiomeProfileSelection(BiomeProfileImpl.getDefaultProfiles().iterator().next());
 		// @formatter:on
 	}
+
+	/**
+	 * The listener is called by the preference event dispatch thread, after
+	 * any of the persisted settings was set.
+	 */
+	@CalledByAny
+	public void addChangeListener(Runnable listener) {
+		preferences.addPreferenceChangeListener(event -> listener.run());
+	}
 }
@@ -31,7 +31,40 @@ public class CommandLineParameters {
 
 	@Option(name = "-log",                    usage = "location of the log file",                            metaVar = "<file>")
 	public volatile String logFile;
+
+	@Option(name = "-biome-cache",            usage = "location of the directory that caches generated Minetest biome data, no biome data is cached if omitted", metaVar = "<directory>")
+	public volatile String biomeCacheDirectory;
+
+	@Option(name = "-biome-cache-size",       usage = "maximum size of the biome cache directory in megabytes, defaults to 256", metaVar = "<megabytes>")
+	public volatile int biomeCacheSize;
+
+	@Option(name = "-fragment-cache-size",    usage = "memory used to keep map fragments in megabytes, defaults to half of the maximum heap size", metaVar = "<megabytes>")
+	public volatile int fragmentCacheSize;
+
+	@Option(name = "-loader-threads",         usage = "number of threads used to load fragments, defaults to one less than the number of processors, or to all of them with -render", metaVar = "<count>")
+	public volatile int fragmentLoaderThreads;
 	
+	@Option(name = "-render",                 usage = "renders a Minetest map to a .png or .tif file without opening a window, then exits", metaVar = "<file>")
+	public volatile String renderFile;
+
+	@Option(name = "-render-seed",            usage = "seed of the rendered map",                            metaVar = "<seed>",       depends = { "-render" })
+	public volatile String renderSeed;
+
+	@Option(name = "-render-world-type",      usage = "mapgen of the rendered map, e.g. v7 or valleys, defaults to v7", metaVar = "<mapgen>", depends = { "-render" })
+	public volatile String renderWorldType = "v7";
+
+	@Option(name = "-render-area",            usage = "rendered area in Minetest coordinates, defaults to the whole world", metaVar = "<x1,z1,x2,z2>", depends = { "-render" })
+	public volatile String renderArea;
+
+	@Option(name = "-render-scale",           usage = "blocks per pixel of the rendered map, either 1 or 4, defaults to 4", metaVar = "<blocks>", depends = { "-render" })
+	public volatile int renderScale = 4;
+
+	@Option(name = "-render-biome-profile",   usage = "name of the biome profile used to render the map, defaults to the first Minetest profile", metaVar = "<name>", depends = { "-render" })
+	public volatile String renderBiomeProfile;
+
+	@Option(name = "-render-overlays",        usage = "draws the ocean, river and mountain layers of the mapgen over the biomes", depends = { "-render" })
+	public volatile boolean renderOverlays;
+
 	@Option(name = "-help",                   usage = "print usage information")
 	public volatile boolean printHelp;
 
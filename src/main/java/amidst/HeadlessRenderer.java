@@ -0,0 +1,187 @@
+package amidst;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.BiomeDataDiskCache;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.fragment.colorprovider.BackgroundColorProvider;
+import amidst.fragment.colorprovider.BiomeColorProvider;
+import amidst.fragment.colorprovider.ColorProvider;
+import amidst.fragment.colorprovider.MinetestMountainColorProvider;
+import amidst.fragment.colorprovider.MinetestOceanColorProvider;
+import amidst.fragment.colorprovider.MinetestRiverColorProvider;
+import amidst.fragment.colorprovider.TheEndColorProvider;
+import amidst.fragment.layer.LayerIds;
+import amidst.gameengineabstraction.GameEngineDetails;
+import amidst.gameengineabstraction.GameEngineType;
+import amidst.gui.main.viewer.BiomeSelection;
+import amidst.logging.AmidstLogger;
+import amidst.minetest.MinetestMapgenInterface;
+import amidst.minetest.world.MinetestVersionFeatures;
+import amidst.minetest.world.mapgen.MapgenV7Params;
+import amidst.mojangapi.minecraftinterface.RecognisedVersion;
+import amidst.mojangapi.world.WorldSeed;
+import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.mojangapi.world.export.ImageStripWriter;
+import amidst.mojangapi.world.export.MapImageRenderer;
+import amidst.mojangapi.world.export.WorldExporterConfiguration;
+import amidst.settings.biomeprofile.BiomeProfileDirectory;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * Renders a Minetest map to an image file, as requested by the -render
+ * command line parameters, without creating any windows.
+ */
+@NotThreadSafe
+public class HeadlessRenderer {
+	// Minetest world boundaries are X=30927, X=-30912, Z=30927 and Z=-30912
+	private static final long WORLD_MIN = -30912;
+	private static final long WORLD_MAX = 30927;
+
+	private final CommandLineParameters parameters;
+
+	public HeadlessRenderer(CommandLineParameters parameters) {
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return true if the image was written
+	 */
+	@CalledOnlyBy(AmidstThread.STARTUP)
+	public boolean run() {
+		try {
+			render();
+			return true;
+		} catch (IllegalArgumentException | IOException e) {
+			AmidstLogger.error(e, "unable to render the map to '" + parameters.renderFile + "'");
+			return false;
+		}
+	}
+
+	private void render() throws IOException {
+		Resolution resolution = getResolution(parameters.renderScale);
+		long[] area = parseArea(parameters.renderArea);
+		// Amidst uses right-handed coordinates, so the Minetest Z axis is flipped
+		CoordinatesInWorld corner = CoordinatesInWorld.from(area[0], -area[3]);
+		long width = (area[2] - area[0]) / resolution.getStep() + 1;
+		long height = (area[3] - area[1]) / resolution.getStep() + 1;
+		if (width > Integer.MAX_VALUE / 3 || height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("the rendered area is too large: " + width + "x" + height + " pixels");
+		}
+
+		WorldType worldType = getWorldType(parameters.renderWorldType);
+		WorldSeed worldSeed = WorldSeed
+				.fromUserInput(parameters.renderSeed == null ? "" : parameters.renderSeed, GameEngineType.MINETEST);
+		MinetestMapgenInterface mapgenInterface = new MinetestMapgenInterface(new MapgenV7Params());
+		GameEngineDetails gameEngineDetails = mapgenInterface.getGameEngineDetails();
+		MinetestVersionFeatures versionFeatures = (MinetestVersionFeatures) gameEngineDetails
+				.getVersionFeatures(worldType, RecognisedVersion.UNKNOWN);
+		BiomeProfileSelection biomeProfileSelection = createBiomeProfileSelection(gameEngineDetails);
+		IBiomeDataOracle biomeDataOracle = versionFeatures
+				.getFactory_BiomeDataOracle(worldType)
+				.apply(worldSeed.getLong(), mapgenInterface.params, biomeProfileSelection);
+
+		int numberOfThreads = parameters.fragmentLoaderThreads > 0
+				? parameters.fragmentLoaderThreads
+				: Runtime.getRuntime().availableProcessors();
+		MapImageRenderer renderer = new MapImageRenderer(
+				biomeDataOracle,
+				BiomeDataDiskCache.from(parameters.biomeCacheDirectory, parameters.biomeCacheSize),
+				resolution,
+				() -> createColorProviders(versionFeatures, worldType, resolution, biomeProfileSelection),
+				numberOfThreads);
+
+		File file = new File(parameters.renderFile);
+		AmidstLogger.info(
+				"rendering " + worldType.getName() + " map of seed " + worldSeed.getLong() + " with "
+						+ biomeProfileSelection.getCurrentBiomeProfile().getName() + " biomes to '" + file + "' ("
+						+ width + "x" + height + " pixels, " + numberOfThreads + " threads)");
+		long start = System.currentTimeMillis();
+		try (ImageStripWriter writer = ImageStripWriter.create(file, (int) width, (int) height)) {
+			renderer.render(corner, writer, AmidstLogger::info);
+		}
+		AmidstLogger.info("rendered the map in " + (System.currentTimeMillis() - start) / 1000 + " seconds");
+	}
+
+	private static Resolution getResolution(int scale) {
+		if (scale == Resolution.WORLD.getStep()) {
+			return Resolution.WORLD;
+		} else if (scale == Resolution.QUARTER.getStep()) {
+			return Resolution.QUARTER;
+		} else {
+			throw new IllegalArgumentException("unsupported scale: " + scale);
+		}
+	}
+
+	/**
+	 * @return the area as { x1, z1, x2, z2 } with x1 <= x2 and z1 <= z2, the
+	 *         whole world if no area is given
+	 */
+	private static long[] parseArea(String area) {
+		if (area == null) {
+			return new long[] { WORLD_MIN, WORLD_MIN, WORLD_MAX, WORLD_MAX };
+		}
+		return WorldExporterConfiguration.parseArea(area);
+	}
+
+	private static WorldType getWorldType(String name) {
+		MinetestVersionFeatures versionFeatures = (MinetestVersionFeatures) new MinetestMapgenInterface(null)
+				.getGameEngineDetails()
+				.getVersionFeatures(RecognisedVersion.UNKNOWN);
+		for (WorldType worldType : WorldType.values()) {
+			if ((worldType.getName().equalsIgnoreCase(name) || worldType.getFilenameText().equalsIgnoreCase(name))
+					&& versionFeatures.getFactory_BiomeDataOracle(worldType) != null) {
+				return worldType;
+			}
+		}
+		throw new IllegalArgumentException("unknown Minetest mapgen: " + name);
+	}
+
+	private BiomeProfileSelection createBiomeProfileSelection(GameEngineDetails gameEngineDetails) {
+		BiomeProfileDirectory biomeProfileDirectory = BiomeProfileDirectory.create(parameters.biomeProfilesDirectory);
+		biomeProfileDirectory.selectGameEngine(
+				gameEngineDetails.getType().getAbbreviatedName().toLowerCase(),
+				gameEngineDetails.getBiomeProfileImplementation());
+		BiomeProfileSelection result = new BiomeProfileSelection(
+				biomeProfileDirectory.getProfile(parameters.renderBiomeProfile));
+		if (parameters.renderBiomeProfile != null
+				&& !parameters.renderBiomeProfile.equals(result.getCurrentBiomeProfile().getName())) {
+			AmidstLogger.warn(
+					"unable to find the biome profile '" + parameters.renderBiomeProfile + "', using '"
+							+ result.getCurrentBiomeProfile().getName() + "' instead");
+		}
+		return result;
+	}
+
+	private List<ColorProvider> createColorProviders(
+			MinetestVersionFeatures versionFeatures,
+			WorldType worldType,
+			Resolution resolution,
+			BiomeProfileSelection biomeProfileSelection) {
+		List<ColorProvider> result = new ArrayList<>();
+		result.add(
+				new BackgroundColorProvider(
+						new BiomeColorProvider(new BiomeSelection(), biomeProfileSelection),
+						new TheEndColorProvider()));
+		if (parameters.renderOverlays) {
+			if (versionFeatures.hasLayer(LayerIds.MINETEST_OCEAN)) {
+				result.add(new MinetestOceanColorProvider());
+			}
+			if (versionFeatures.hasLayer(LayerIds.MINETEST_RIVER)) {
+				result.add(new MinetestRiverColorProvider(worldType, resolution));
+			}
+			if (versionFeatures.hasLayer(LayerIds.MINETEST_MOUNTAIN)) {
+				result.add(new MinetestMountainColorProvider(resolution));
+			}
+		}
+		return result;
+	}
+}
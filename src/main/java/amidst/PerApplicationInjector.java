@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.util.Optional;
 
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
+import amidst.fragment.BiomeDataDiskCache;
 import amidst.fragment.FragmentManager;
 import amidst.fragment.layer.LayerBuilder;
 import amidst.gameengineabstraction.GameEngineDetails;
@@ -86,12 +88,18 @@ public class PerApplicationInjector {
 		this.worldBuilder = new WorldBuilder(playerInformationProvider, seedHistoryLogger);
 		this.launcherProfileRunner = new LauncherProfileRunner(worldBuilder);
 		this.biomeAuthority = new BiomeAuthority(parameters.biomeProfilesDirectory, settings.biomeProfileSelection);
-		this.threadMaster = new ThreadMaster();
+		this.threadMaster = new ThreadMaster(parameters.fragmentLoaderThreads);
 		this.versionListProvider = VersionListProvider
 				.createLocalAndStartDownloadingRemote(threadMaster.getWorkerExecutor());
-		this.layerBuilder = new LayerBuilder();
+		this.layerBuilder = new LayerBuilder(
+				BiomeDataDiskCache.from(parameters.biomeCacheDirectory, parameters.biomeCacheSize));
 		this.zoom = new Zoom(settings.maxZoom);
-		this.fragmentManager = new FragmentManager(layerBuilder.getConstructors(), layerBuilder.getNumberOfLayers());
+		this.fragmentManager = new FragmentManager(
+				layerBuilder.getConstructors(),
+				layerBuilder.getNumberOfLayers(),
+				parameters.fragmentCacheSize * 1024L * 1024L,
+				threadMaster::wakeUpFragmentLoader);
+		settings.addChangeListener(this::onSettingsChanged);
 		this.application = new Application(
 				preferredLauncherProfile,
 				launcherProfileRunner,
@@ -102,6 +110,16 @@ public class PerApplicationInjector {
 				this::createLicenseWindow);
 	}
 
+	/**
+	 * Most settings change what is loaded or drawn, e.g. the dimension or the
+	 * visibility of a layer.
+	 */
+	@CalledByAny
+	private void onSettingsChanged() {
+		threadMaster.wakeUpFragmentLoader();
+		threadMaster.requestRepaint();
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	private UpdatePrompt createNoisyUpdatePrompt(MainWindowDialogs dialogs) {
 		return UpdatePrompt.from(metadata.getVersion(), threadMaster.getWorkerExecutor(), dialogs, false);
@@ -151,7 +169,7 @@ public class PerApplicationInjector {
 	private ViewerFacade createViewerFacade(World world, Actions actions) {
 		return new PerViewerFacadeInjector(
 				settings,
-				threadMaster.getWorkerExecutor(),
+				threadMaster,
 				zoom,
 				layerBuilder,
 				fragmentManager,
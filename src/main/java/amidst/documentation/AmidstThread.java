@@ -15,8 +15,8 @@ public enum AmidstThread {
 	STARTUP,
 
 	/**
-	 * This thread constantly causes the EDT to repaint the map, however it does
-	 * not execute any other code by itself.
+	 * This thread causes the EDT to repaint the map whenever a repaint was
+	 * requested, however it does not execute any other code by itself.
 	 */
 	REPAINTER,
 
@@ -29,10 +29,13 @@ public enum AmidstThread {
 	EDT,
 
 	/**
-	 * This thread constantly loads, reloads and recycles fragments, because it
-	 * takes to long to do this in the EDT. Since this thread and the EDT
-	 * constantly read from and write to the fragments and fragment graph, extra
-	 * care must be used in this part of the application.
+	 * This thread loads, reloads and recycles fragments whenever it is woken
+	 * up, because it takes to long to do this in the EDT. Since this thread
+	 * and the EDT constantly read from and write to the fragments and fragment
+	 * graph, extra care must be used in this part of the application. The actual loading
+	 * may be split between this thread and a pool of fragment loader workers,
+	 * but this thread waits for the workers, so they are treated as part of
+	 * this thread.
 	 */
 	FRAGMENT_LOADER,
 
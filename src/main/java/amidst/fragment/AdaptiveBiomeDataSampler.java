@@ -0,0 +1,409 @@
+package amidst.fragment;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import amidst.documentation.CalledByAny;
+import amidst.documentation.ThreadSafe;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * Fills a biome data buffer without asking the oracle for every sample. The
+ * buffer is divided into cells of CELL_SIZE x CELL_SIZE samples and the
+ * corners of all cells are generated in one call. A cell whose four corners
+ * have the same value, including the bitplanes, is filled with that value.
+ * Any other cell is divided into four cells by generating the five samples
+ * in between, until the cells have the final size. All samples of a final
+ * cell that isn't uniform are generated.
+ *
+ * Features that are smaller than a cell can be missed, e.g. a thin river
+ * that crosses a cell without touching its corners. To find some of them,
+ * the center of a uniform cell is generated as well with the probability
+ * given by the verification density, and the cell is divided if the center
+ * is different. Whether a cell is verified only depends on its position in
+ * the world, so fragments always look the same.
+ *
+ * Each call of the oracle has to set up its noise maps, so the cells are
+ * divided one size after the other, and the samples each size needs are
+ * generated with one strided call per run of neighbouring cells in a row.
+ * On a Minetest biome border most cells aren't uniform, so the calls, not
+ * the samples, would otherwise take most of the time.
+ *
+ * The result is an approximation, so it must not be used where exact biome
+ * data is needed, like the biome data disk cache. Callers that need exact
+ * biome data, like the world exporter, use EXACT.
+ */
+@ThreadSafe
+public class AdaptiveBiomeDataSampler {
+	public static final int CELL_SIZE = 8;
+	private static final int CELL_SHIFT = 3;
+	/**
+	 * Runs of cells that are at most this many cells apart are generated with
+	 * a single call, since a call costs about as much as a few samples.
+	 */
+	private static final int MAX_CELLS_BETWEEN_RUNS = 2;
+	/**
+	 * Cells of this size are not divided any further. If they are not uniform,
+	 * all of their samples are generated with one call per run of cells,
+	 * since most of the smaller cells on a biome border aren't uniform
+	 * either.
+	 */
+	private static final int FINAL_CELL_SHIFT = 2;
+
+	public static final double DEFAULT_VERIFICATION_DENSITY = 0.25;
+
+	/**
+	 * Generates every sample with a single call of the oracle.
+	 */
+	public static final AdaptiveBiomeDataSampler EXACT = new AdaptiveBiomeDataSampler(true, 1);
+
+	/**
+	 * @param verificationDensity
+	 *            a percentage like "25%"
+	 * @return the verification density from 0 to 1, or the default if the
+	 *         text can't be parsed
+	 */
+	public static double parseVerificationDensity(String verificationDensity) {
+		String percentage = verificationDensity.trim();
+		if (percentage.endsWith("%")) {
+			percentage = percentage.substring(0, percentage.length() - 1);
+		}
+		try {
+			return Math.max(0, Math.min(1, Double.parseDouble(percentage) / 100));
+		} catch (NumberFormatException e) {
+			return DEFAULT_VERIFICATION_DENSITY;
+		}
+	}
+
+	private final boolean isExact;
+	private final double verificationDensity;
+
+	/**
+	 * @param verificationDensity
+	 *            the fraction of uniform cells whose center is generated, from
+	 *            0 to 1
+	 */
+	public AdaptiveBiomeDataSampler(double verificationDensity) {
+		this(false, verificationDensity);
+	}
+
+	private AdaptiveBiomeDataSampler(boolean isExact, double verificationDensity) {
+		this.isExact = isExact;
+		this.verificationDensity = verificationDensity;
+	}
+
+	/**
+	 * True if every sample is generated, so the result can be cached.
+	 */
+	public boolean isExact() {
+		return isExact;
+	}
+
+	/**
+	 * Buffers that are not divisible into cells, resolutions without the
+	 * matching coarser resolutions, and oracles that can't sample the coarser
+	 * resolutions natively are generated exactly.
+	 *
+	 * @return the biome-index mask, see IBiomeDataOracle.populateArray()
+	 */
+	@CalledByAny
+	public short populateArray(
+			IBiomeDataOracle biomeDataOracle,
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution,
+			Set<BiomeDataPlane> planes) {
+		int width = result.getWidth();
+		int height = result.getHeight();
+		Resolution[] strides = getStrides(resolution);
+		if (isExact
+				|| strides == null
+				|| width % CELL_SIZE != 0
+				|| height % CELL_SIZE != 0
+				|| !biomeDataOracle.isSamplingCoarseResolutionsNatively()) {
+			return biomeDataOracle.populateArray(corner, result, resolution, planes);
+		}
+		return new Sampling(biomeDataOracle, corner, result, strides, planes).populate();
+	}
+
+	/**
+	 * @return the resolution of each stride from 1 to CELL_SIZE samples,
+	 *         indexed by the shift of the stride, or null if one of them
+	 *         doesn't exist
+	 */
+	private static Resolution[] getStrides(Resolution resolution) {
+		Resolution[] result = new Resolution[CELL_SHIFT + 1];
+		for (Resolution candidate : Resolution.values()) {
+			int shift = candidate.getShift() - resolution.getShift();
+			if (shift >= 0 && shift <= CELL_SHIFT) {
+				result[shift] = candidate;
+			}
+		}
+		for (Resolution stride : result) {
+			if (stride == null) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The samples on the corners of the cells, including the ones on the
+	 * right and bottom edge of the buffer.
+	 */
+	private class Sampling {
+		private final IBiomeDataOracle biomeDataOracle;
+		private final CoordinatesInWorld corner;
+		private final BiomeDataBuffer result;
+		private final Resolution[] strides;
+		private final Set<BiomeDataPlane> planes;
+		private final int width;
+		private final int height;
+		private final int latticeWidth;
+		private final short[] lattice;
+		private final boolean[] isGenerated;
+		/**
+		 * The buffers of the calls, indexed by the number of samples.
+		 */
+		private final BiomeDataBuffer[][] runs;
+		private short biomeDataIndexMask;
+
+		private Sampling(
+				IBiomeDataOracle biomeDataOracle,
+				CoordinatesInWorld corner,
+				BiomeDataBuffer result,
+				Resolution[] strides,
+				Set<BiomeDataPlane> planes) {
+			this.biomeDataOracle = biomeDataOracle;
+			this.corner = corner;
+			this.result = result;
+			this.strides = strides;
+			this.planes = planes;
+			this.width = result.getWidth();
+			this.height = result.getHeight();
+			this.latticeWidth = width + 1;
+			this.lattice = new short[latticeWidth * (height + 1)];
+			this.isGenerated = new boolean[lattice.length];
+			this.runs = new BiomeDataBuffer[1 << FINAL_CELL_SHIFT][latticeWidth + 1];
+		}
+
+		private short populate() {
+			int columns = width / CELL_SIZE;
+			int rows = height / CELL_SIZE;
+			BiomeDataBuffer cellCorners = new BiomeDataBuffer(columns + 1, rows + 1);
+			biomeDataIndexMask = biomeDataOracle.populateArray(corner, cellCorners, strides[CELL_SHIFT], planes);
+			for (int row = 0; row <= rows; row++) {
+				for (int column = 0; column <= columns; column++) {
+					store(column * CELL_SIZE, row * CELL_SIZE, cellCorners.get(column, row));
+				}
+			}
+			boolean[] cells = new boolean[columns * rows];
+			Arrays.fill(cells, true);
+			for (int shift = CELL_SHIFT; shift >= FINAL_CELL_SHIFT; shift--) {
+				cells = divideCells(cells, columns, rows, shift);
+				columns *= 2;
+				rows *= 2;
+			}
+			return biomeDataIndexMask;
+		}
+
+		/**
+		 * Fills the given cells that are uniform and generates the samples
+		 * that divide the other ones, or all of their samples if they have the
+		 * final size.
+		 *
+		 * @return the cells of half the size that have to be looked at next
+		 */
+		private boolean[] divideCells(boolean[] cells, int columns, int rows, int shift) {
+			int size = 1 << shift;
+			int half = size / 2;
+			boolean[] isVerified = new boolean[cells.length];
+			boolean isAnyVerified = false;
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					int index = row * columns + column;
+					if (cells[index]) {
+						int left = column * size;
+						int top = row * size;
+						if (isUniform(left, top, size)) {
+							cells[index] = false;
+							if (isVerified(left, top, size)) {
+								isVerified[index] = true;
+								isAnyVerified = true;
+							} else {
+								fill(left, top, size, get(left, top));
+							}
+						}
+					}
+				}
+			}
+			if (isAnyVerified) {
+				// the centers of the verified cells
+				for (int row = 0; row < rows; row++) {
+					generateRuns(isVerified, row * columns, columns, half, row * size + half, size, 1, 0, 1);
+				}
+				for (int index = 0; index < cells.length; index++) {
+					if (isVerified[index]) {
+						int left = (index % columns) * size;
+						int top = (index / columns) * size;
+						short value = get(left, top);
+						if (get(left + half, top + half) == value) {
+							fill(left, top, size, value);
+						} else {
+							cells[index] = true;
+						}
+					}
+				}
+			}
+			boolean isFinal = shift == FINAL_CELL_SHIFT;
+			if (isFinal) {
+				// all rows of each cell between its top and bottom edge
+				for (int row = 0; row < rows; row++) {
+					generateRuns(cells, row * columns, columns, 0, row * size + 1, 1, size, 1, size - 1);
+				}
+			} else {
+				// the left, center and right sample of the middle row of each cell
+				for (int row = 0; row < rows; row++) {
+					generateRuns(cells, row * columns, columns, 0, row * size + half, half, 2, 1, 1);
+				}
+			}
+			// the top and bottom edge of each cell between its corners
+			boolean[] edgeCells = new boolean[columns];
+			for (int edge = 0; edge <= rows; edge++) {
+				for (int column = 0; column < columns; column++) {
+					edgeCells[column] = edge > 0 && cells[(edge - 1) * columns + column]
+							|| edge < rows && cells[edge * columns + column];
+				}
+				if (isFinal) {
+					generateRuns(edgeCells, 0, columns, 1, edge * size, 1, size, -1, 1);
+				} else {
+					generateRuns(edgeCells, 0, columns, half, edge * size, size, 1, 0, 1);
+				}
+			}
+			return isFinal ? null : getChildren(cells, columns, rows);
+		}
+
+		private boolean isUniform(int left, int top, int size) {
+			short value = get(left, top);
+			return get(left + size, top) == value
+					&& get(left, top + size) == value
+					&& get(left + size, top + size) == value;
+		}
+
+		private boolean[] getChildren(boolean[] cells, int columns, int rows) {
+			int childColumns = columns * 2;
+			boolean[] result = new boolean[cells.length * 4];
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					if (cells[row * columns + column]) {
+						int child = row * 2 * childColumns + column * 2;
+						result[child] = true;
+						result[child + 1] = true;
+						result[child + childColumns] = true;
+						result[child + childColumns + 1] = true;
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Generates the samples of the marked cells in the row with one call
+		 * per run of marked cells. The samples of the cell in the given column
+		 * start at x = offset + column * samplesPerCell * step, the run ends
+		 * with additionalSamples more samples. Each call generates the given
+		 * number of rows of samples, one step apart.
+		 */
+		private void generateRuns(
+				boolean[] cells,
+				int firstIndex,
+				int columns,
+				int offset,
+				int y,
+				int step,
+				int samplesPerCell,
+				int additionalSamples,
+				int samplesPerColumn) {
+			int column = 0;
+			while (column < columns) {
+				if (!cells[firstIndex + column]) {
+					column++;
+					continue;
+				}
+				int first = column;
+				int last = column;
+				for (column++; column < columns && column - last <= MAX_CELLS_BETWEEN_RUNS + 1; column++) {
+					if (cells[firstIndex + column]) {
+						last = column;
+					}
+				}
+				column = last + 1;
+				generateRun(
+						offset + first * samplesPerCell * step,
+						y,
+						step,
+						(last - first + 1) * samplesPerCell + additionalSamples,
+						samplesPerColumn);
+			}
+		}
+
+		private void generateRun(int x, int y, int step, int count, int samplesPerColumn) {
+			BiomeDataBuffer run = runs[samplesPerColumn][count];
+			if (run == null) {
+				run = new BiomeDataBuffer(count, samplesPerColumn);
+				runs[samplesPerColumn][count] = run;
+			}
+			biomeDataOracle.populateArray(
+					corner.add(strides[0].convertFromThisToWorld(x), strides[0].convertFromThisToWorld(y)),
+					run,
+					strides[Integer.numberOfTrailingZeros(step)],
+					planes);
+			for (int j = 0; j < samplesPerColumn; j++) {
+				for (int i = 0; i < count; i++) {
+					store(x + i * step, y + j * step, run.get(i, j));
+				}
+			}
+		}
+
+		private boolean isVerified(int left, int top, int size) {
+			if (verificationDensity <= 0) {
+				return false;
+			} else if (verificationDensity >= 1) {
+				return true;
+			}
+			long x = corner.getX() + strides[0].convertFromThisToWorld(left);
+			long y = corner.getY() + strides[0].convertFromThisToWorld(top);
+			long hash = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + size;
+			hash ^= hash >>> 31;
+			hash *= 0xBF58476D1CE4E5B9L;
+			hash ^= hash >>> 29;
+			return (hash >>> 11) * 0x1.0p-53 < verificationDensity;
+		}
+
+		private void fill(int left, int top, int size, short value) {
+			int right = Math.min(left + size, width);
+			int bottom = Math.min(top + size, height);
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					if (!isGenerated[y * latticeWidth + x]) {
+						result.set(x, y, value);
+					}
+				}
+			}
+		}
+
+		private short get(int x, int y) {
+			return lattice[y * latticeWidth + x];
+		}
+
+		private void store(int x, int y, short value) {
+			int index = y * latticeWidth + x;
+			lattice[index] = value;
+			isGenerated[index] = true;
+			if (x < width && y < height) {
+				result.set(x, y, value);
+			}
+		}
+	}
+}
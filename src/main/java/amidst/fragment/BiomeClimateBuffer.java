@@ -0,0 +1,88 @@
+package amidst.fragment;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * The climate that decided the biome of each sample of a BiomeDataBuffer:
+ * the heat, the humidity and the height the biome was chosen for. The values
+ * are stored in the same order as the biome data, see BiomeDataBuffer.
+ *
+ * Samples whose biome was not chosen from a climate, e.g. because they are
+ * outside the world, are not recorded and keep their biome data when it is
+ * reclassified.
+ */
+@NotThreadSafe
+public class BiomeClimateBuffer {
+	/**
+	 * The height of a sample that is not recorded.
+	 */
+	private static final short NOT_RECORDED = Short.MIN_VALUE;
+
+	private final int width;
+	private final int height;
+	private final float[] heat;
+	private final float[] humidity;
+	private final short[] y;
+
+	public BiomeClimateBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.heat = new float[width * height];
+		this.humidity = new float[width * height];
+		this.y = new short[width * height];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Forgets all samples.
+	 */
+	public void clear() {
+		for (int i = 0; i < y.length; i++) {
+			y[i] = NOT_RECORDED;
+		}
+	}
+
+	public void clear(int index) {
+		y[index] = NOT_RECORDED;
+	}
+
+	/**
+	 * The height is clamped to the range of a short, which is far beyond the
+	 * height of any world.
+	 */
+	public void set(int index, float heat, float humidity, int y) {
+		this.heat[index] = heat;
+		this.humidity[index] = humidity;
+		this.y[index] = (short) Math.max(NOT_RECORDED + 1, Math.min(Short.MAX_VALUE, y));
+	}
+
+	public boolean isRecorded(int index) {
+		return y[index] != NOT_RECORDED;
+	}
+
+	public float getHeat(int index) {
+		return heat[index];
+	}
+
+	public float getHumidity(int index) {
+		return humidity[index];
+	}
+
+	public int getY(int index) {
+		return y[index];
+	}
+
+	/**
+	 * An estimate of the memory used by this buffer in bytes.
+	 */
+	public long getMemoryUsage() {
+		return y.length * 10L;
+	}
+}
@@ -0,0 +1,108 @@
+package amidst.fragment;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * The biome data of a rectangular area. The values are stored row by row in
+ * a single array, so the value at (x, y) is at index y * width + x. This is
+ * the order the oracles generate the data in and the order the images are
+ * drawn in.
+ */
+@NotThreadSafe
+public class BiomeDataBuffer {
+	private final int width;
+	private final int height;
+	private final short[] data;
+
+	public BiomeDataBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.data = new short[width * height];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * The backing array, see getIndex().
+	 */
+	public short[] getData() {
+		return data;
+	}
+
+	public int getIndex(int x, int y) {
+		return y * width + x;
+	}
+
+	public short get(int x, int y) {
+		return data[y * width + x];
+	}
+
+	public void set(int x, int y, short value) {
+		data[y * width + x] = value;
+	}
+
+	public void fill(short value) {
+		for (int i = 0; i < data.length; i++) {
+			data[i] = value;
+		}
+	}
+
+	/**
+	 * True if all values are the same, e.g. because the area is outside of
+	 * the world or covered by a single biome.
+	 */
+	public boolean isUniform() {
+		short first = data[0];
+		for (int i = 1; i < data.length; i++) {
+			if (data[i] != first) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fills this buffer with the values of a smaller buffer that covers the
+	 * same area, so each value of source is repeated in a rectangle of
+	 * values. The width and height of this buffer must be multiples of the
+	 * ones of source.
+	 */
+	public void scaleFrom(BiomeDataBuffer source) {
+		int scaleX = width / source.width;
+		int scaleY = height / source.height;
+		for (int y = 0, i = 0; y < height; y++) {
+			int sourceRow = (y / scaleY) * source.width;
+			for (int x = 0; x < width; x++, i++) {
+				data[i] = source.data[sourceRow + x / scaleX];
+			}
+		}
+	}
+
+	/**
+	 * Replaces the bits of mask with the ones of source, which must have the
+	 * same size as this buffer.
+	 */
+	public void copyBitsFrom(BiomeDataBuffer source, int mask) {
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (short) ((data[i] & ~mask) | (source.data[i] & mask));
+		}
+	}
+
+	/**
+	 * Copies the data to an array indexed by [x][y].
+	 */
+	public void copyTo(short[][] result) {
+		for (int x = 0; x < width; x++) {
+			short[] column = result[x];
+			for (int y = 0, i = x; y < height; y++, i += width) {
+				column[y] = data[i];
+			}
+		}
+	}
+}
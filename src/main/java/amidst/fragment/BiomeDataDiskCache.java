@@ -0,0 +1,362 @@
+package amidst.fragment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.ThreadSafe;
+import amidst.logging.AmidstLogger;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * Stores the biome data of fragments on disk, so it does not have to be
+ * generated again when the same world is opened later.
+ *
+ * The cache has one directory per cache key (see ICacheableBiomeDataOracle),
+ * named after a hash of the key. Each directory contains region files of
+ * REGION_SIZE * REGION_SIZE fragments. A region file starts with a header
+ * that holds the offset and length of every fragment in the file, followed by
+ * the deflate-compressed biome data of the fragments in the order they were
+ * written.
+ *
+ * When the total size of the region files exceeds the maximum size, the least
+ * recently used region files are deleted.
+ */
+@ThreadSafe
+public class BiomeDataDiskCache {
+	/**
+	 * Part of the directory hash, so changing the file format or the way the
+	 * oracles generate biome data invalidates the old files.
+	 */
+	private static final int FORMAT_VERSION = 2;
+	private static final int DEFAULT_MAX_SIZE_IN_MEGABYTES = 256;
+
+	private static final int REGION_SIZE = 16;
+	private static final int HEADER_LENGTH = REGION_SIZE * REGION_SIZE * 8;
+	private static final String REGION_FILE_PREFIX = "r.";
+	private static final String REGION_FILE_SUFFIX = ".bin";
+
+	/**
+	 * Returns null if directory is null or cannot be used.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public static BiomeDataDiskCache from(String directory, int maxSizeInMegabytes) {
+		if (directory == null) {
+			return null;
+		}
+		File root = new File(directory);
+		if (!root.isDirectory() && !root.mkdirs()) {
+			AmidstLogger.warn("Unable to create the biome cache directory: " + root);
+			return null;
+		}
+		if (maxSizeInMegabytes <= 0) {
+			maxSizeInMegabytes = DEFAULT_MAX_SIZE_IN_MEGABYTES;
+		}
+		BiomeDataDiskCache result = new BiomeDataDiskCache(root, maxSizeInMegabytes * 1024L * 1024L);
+		AmidstLogger.info(
+				"using biome cache directory " + root + " (" + (result.getSize() / 1024 / 1024) + " of "
+						+ maxSizeInMegabytes + " MB used)");
+		return result;
+	}
+
+	private final File root;
+	private final long maxSize;
+	/**
+	 * The size of every region file, in least recently used order.
+	 */
+	private final LinkedHashMap<File, Long> regionSizes = new LinkedHashMap<>(16, 0.75f, true);
+	private final Set<File> touchedRegions = new HashSet<>();
+	private final Map<String, File> keyDirectories = new HashMap<>();
+	private long size = 0;
+
+	public BiomeDataDiskCache(File root, long maxSize) {
+		this.root = root;
+		this.maxSize = maxSize;
+		scanRegionFiles();
+	}
+
+	private void scanRegionFiles() {
+		List<File> regions = new ArrayList<>();
+		File[] directories = root.listFiles(File::isDirectory);
+		if (directories != null) {
+			for (File directory : directories) {
+				File[] files = directory.listFiles(BiomeDataDiskCache::isRegionFile);
+				if (files != null) {
+					for (File file : files) {
+						regions.add(file);
+					}
+				}
+			}
+		}
+		regions.sort(Comparator.comparingLong(File::lastModified));
+		for (File region : regions) {
+			long length = region.length();
+			regionSizes.put(region, length);
+			size += length;
+		}
+	}
+
+	private static boolean isRegionFile(File file) {
+		String name = file.getName();
+		return file.isFile() && name.startsWith(REGION_FILE_PREFIX) && name.endsWith(REGION_FILE_SUFFIX);
+	}
+
+	/**
+	 * The total size of all region files in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Fills result with the cached biome data of the fragment at corner, or
+	 * lets the oracle generate it and stores it in the cache. Oracles that are
+	 * not cacheable and corners that are not fragment corners bypass the cache.
+	 *
+	 * @return the biome-index mask, see IBiomeDataOracle.populateArray()
+	 */
+	@CalledByAny
+	public short populateArray(
+			IBiomeDataOracle biomeDataOracle,
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			boolean useQuarterResolution) {
+		String key = getCacheKey(biomeDataOracle);
+		if (key == null || corner.getXRelativeToFragment() != 0 || corner.getYRelativeToFragment() != 0) {
+			return biomeDataOracle.populateArray(corner, result, useQuarterResolution);
+		}
+		long fragmentX = corner.getXAs(Resolution.FRAGMENT);
+		long fragmentY = corner.getYAs(Resolution.FRAGMENT);
+		long regionX = Math.floorDiv(fragmentX, REGION_SIZE);
+		long regionY = Math.floorDiv(fragmentY, REGION_SIZE);
+		int entry = (int) ((fragmentY - regionY * REGION_SIZE) * REGION_SIZE + (fragmentX - regionX * REGION_SIZE));
+		File region = new File(
+				getKeyDirectory(key, useQuarterResolution),
+				REGION_FILE_PREFIX + regionX + "." + regionY + REGION_FILE_SUFFIX);
+
+		byte[] data = readEntry(region, entry);
+		if (data != null) {
+			try {
+				return decode(data, result);
+			} catch (DataFormatException | IllegalArgumentException e) {
+				AmidstLogger.warn("Ignoring corrupt biome cache entry " + entry + " in " + region + ": " + e.getMessage());
+			}
+		}
+		short biomeDataIndexMask = biomeDataOracle.populateArray(corner, result, useQuarterResolution);
+		// don't store the biome data if it might have been generated with a different key
+		if (key.equals(getCacheKey(biomeDataOracle))) {
+			writeEntry(region, entry, encode(biomeDataIndexMask, result));
+		}
+		return biomeDataIndexMask;
+	}
+
+	private String getCacheKey(IBiomeDataOracle biomeDataOracle) {
+		if (biomeDataOracle instanceof ICacheableBiomeDataOracle) {
+			return ((ICacheableBiomeDataOracle) biomeDataOracle).getBiomeDataCacheKey();
+		} else {
+			return null;
+		}
+	}
+
+	private synchronized File getKeyDirectory(String key, boolean useQuarterResolution) {
+		String fullKey = FORMAT_VERSION + "\n" + useQuarterResolution + "\n" + key;
+		File result = keyDirectories.get(fullKey);
+		if (result == null) {
+			result = new File(root, hash(fullKey));
+			keyDirectories.put(fullKey, result);
+		}
+		return result;
+	}
+
+	private static String hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder result = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has to support SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+
+	private synchronized byte[] readEntry(File region, int entry) {
+		if (!regionSizes.containsKey(region)) {
+			return null;
+		}
+		touch(region);
+		try (RandomAccessFile file = new RandomAccessFile(region, "r")) {
+			file.seek(entry * 8);
+			int offset = file.readInt();
+			int length = file.readInt();
+			if (offset < HEADER_LENGTH || length <= 0 || (long) offset + length > file.length()) {
+				return null;
+			}
+			byte[] result = new byte[length];
+			file.seek(offset);
+			file.readFully(result);
+			return result;
+		} catch (IOException e) {
+			AmidstLogger.warn(e, "Unable to read from the biome cache file " + region);
+			return null;
+		}
+	}
+
+	private synchronized void writeEntry(File region, int entry, byte[] data) {
+		region.getParentFile().mkdirs();
+		long length;
+		try (RandomAccessFile file = new RandomAccessFile(region, "rw")) {
+			if (file.length() < HEADER_LENGTH) {
+				file.setLength(0);
+				file.write(new byte[HEADER_LENGTH]);
+			}
+			long offset = file.length();
+			file.seek(offset);
+			file.write(data);
+			file.seek(entry * 8);
+			file.writeInt((int) offset);
+			file.writeInt(data.length);
+			length = file.length();
+		} catch (IOException e) {
+			AmidstLogger.warn(e, "Unable to write to the biome cache file " + region);
+			return;
+		}
+		Long previousLength = regionSizes.put(region, length);
+		size += length - (previousLength == null ? 0 : previousLength);
+		touch(region);
+		evict(region);
+	}
+
+	/**
+	 * Updates the last modified time of the region once per session, so the
+	 * least recently used order is still known when the cache is opened again.
+	 */
+	private void touch(File region) {
+		regionSizes.get(region);
+		if (touchedRegions.add(region)) {
+			region.setLastModified(System.currentTimeMillis());
+		}
+	}
+
+	private void evict(File keep) {
+		Iterator<Map.Entry<File, Long>> iterator = regionSizes.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Map.Entry<File, Long> eldest = iterator.next();
+			File region = eldest.getKey();
+			if (!region.equals(keep)) {
+				if (region.delete() || !region.exists()) {
+					iterator.remove();
+					touchedRegions.remove(region);
+					size -= eldest.getValue();
+					// only succeeds if this was the last region file of the key
+					region.getParentFile().delete();
+				}
+			}
+		}
+	}
+
+	private static byte[] encode(short biomeDataIndexMask, BiomeDataBuffer biomeData) {
+		int width = biomeData.getWidth();
+		int height = biomeData.getHeight();
+		byte[] raw = new byte[10 + width * height * 2];
+		int i = 0;
+		raw[i++] = (byte) (biomeDataIndexMask >> 8);
+		raw[i++] = (byte) biomeDataIndexMask;
+		i = writeInt(raw, i, width);
+		i = writeInt(raw, i, height);
+		for (short value : biomeData.getData()) {
+			raw[i++] = (byte) (value >> 8);
+			raw[i++] = (byte) value;
+		}
+		Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			byte[] buffer = new byte[raw.length + 64];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					byte[] newBuffer = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, newBuffer, 0, length);
+					buffer = newBuffer;
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			byte[] result = new byte[length];
+			System.arraycopy(buffer, 0, result, 0, length);
+			return result;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static int writeInt(byte[] buffer, int i, int value) {
+		buffer[i++] = (byte) (value >> 24);
+		buffer[i++] = (byte) (value >> 16);
+		buffer[i++] = (byte) (value >> 8);
+		buffer[i++] = (byte) value;
+		return i;
+	}
+
+	private static int readInt(byte[] buffer, int i) {
+		return ((buffer[i] & 0xFF) << 24) | ((buffer[i + 1] & 0xFF) << 16) | ((buffer[i + 2] & 0xFF) << 8)
+				| (buffer[i + 3] & 0xFF);
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the dimensions of the stored biome data are not the
+	 *             dimensions of result
+	 */
+	private static short decode(byte[] data, BiomeDataBuffer result) throws DataFormatException {
+		int width = result.getWidth();
+		int height = result.getHeight();
+		byte[] raw = new byte[10 + width * height * 2];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			int length = 0;
+			while (length < raw.length && !inflater.finished()) {
+				int inflated = inflater.inflate(raw, length, raw.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			if (length != raw.length) {
+				throw new IllegalArgumentException("unexpected length");
+			}
+		} finally {
+			inflater.end();
+		}
+		if (readInt(raw, 2) != width || readInt(raw, 6) != height) {
+			throw new IllegalArgumentException("unexpected dimensions");
+		}
+		short[] values = result.getData();
+		for (int j = 0, i = 10; j < values.length; j++, i += 2) {
+			values[j] = (short) ((raw[i] << 8) | (raw[i + 1] & 0xFF));
+		}
+		return (short) ((raw[0] << 8) | (raw[1] & 0xFF));
+	}
+}
@@ -0,0 +1,44 @@
+package amidst.fragment;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import amidst.documentation.Immutable;
+import amidst.minetest.world.oracle.MinetestBiomeDataOracle;
+
+/**
+ * The 1-bit overlay layers that can be stored in the biome data next to the
+ * biome index. An oracle only needs to compute the planes that are requested,
+ * see IBiomeDataOracle.populateArray().
+ */
+@Immutable
+public enum BiomeDataPlane {
+	OCEAN(MinetestBiomeDataOracle.BITPLANE_OCEAN),
+	RIVER(MinetestBiomeDataOracle.BITPLANE_RIVER),
+	MOUNTAIN(MinetestBiomeDataOracle.BITPLANE_MOUNTAIN);
+
+	public static final Set<BiomeDataPlane> ALL = Collections.unmodifiableSet(EnumSet.allOf(BiomeDataPlane.class));
+	public static final Set<BiomeDataPlane> NONE = Collections.unmodifiableSet(EnumSet.noneOf(BiomeDataPlane.class));
+
+	private final int mask;
+
+	private BiomeDataPlane(int mask) {
+		this.mask = mask;
+	}
+
+	/**
+	 * The bit of this plane in the biome data.
+	 */
+	public int getMask() {
+		return mask;
+	}
+
+	public static int getMask(Set<BiomeDataPlane> planes) {
+		int result = 0;
+		for (BiomeDataPlane plane : planes) {
+			result |= plane.mask;
+		}
+		return result;
+	}
+}
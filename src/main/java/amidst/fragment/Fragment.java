@@ -1,8 +1,13 @@
 package amidst.fragment;
 
+import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import amidst.documentation.AmidstThread;
@@ -38,6 +43,10 @@ import amidst.mojangapi.world.oracle.EndIsland;
  * the fragment. While the fragment is constructed it will only be accessible by
  * one thread. An exception to that rule is the instance variable alpha. It is
  * altered from the drawing thread, however this should not cause any issues.
+ * Another exception is the background image of the overworld. It is coloured
+ * from the biome data by the drawing thread, see BiomePalette. The drawing
+ * thread synchronizes on the image and only colours it while it is still the
+ * background image of the fragment.
  * 
  * Immediately after a new instance of this class is created, it is passed to
  * all FragmentConstructors. At that point in time, no other thread can access
@@ -74,6 +83,13 @@ import amidst.mojangapi.world.oracle.EndIsland;
  * enqueued in the recycle queue. Therefore, there cannot be a race condition
  * because the isInitialized variable will only be set to false when it is
  * recycled.
+ * 
+ * The fragment loading thread can hand the loading of several different
+ * fragments to a pool of fragment loader workers. It waits for all of them to
+ * finish before it reads the dimension again or recycles any fragment, so a
+ * fragment is never loaded by two threads at the same time and never recycled
+ * while it is being loaded. The workers count as the fragment loading thread
+ * in the rules above.
  */
 @NotThreadSafe
 public class Fragment {
@@ -84,7 +100,7 @@ public class Fragment {
 	private volatile CoordinatesInWorld corner;
 
 	private volatile float alpha;
-	private volatile short[][] biomeData;	
+	private volatile BiomeDataBuffer biomeData;	
 	/**
 	 * a mask to apply to biomeData if you wish to use it like a biome index.
 	 * This will remove any bits from the integer that are being used
@@ -93,12 +109,58 @@ public class Fragment {
 	 */
 	private volatile short biomeDataIndexMask; 
 	private volatile CoordinateSystem biomeDataCoordinateSystem = CoordinateSystem.RIGHT_HANDED;
+	private volatile Resolution biomeDataResolution = Resolution.QUARTER;
+	/**
+	 * The planes that are stored in the biome data.
+	 */
+	private volatile Set<BiomeDataPlane> biomeDataPlanes = BiomeDataPlane.ALL;
+	/**
+	 * The climate of the biome data samples, so the biomes can be chosen
+	 * again without generating the terrain. null while the climate is not
+	 * retained.
+	 */
+	private volatile BiomeClimateBuffer biomeClimate;
+	/**
+	 * The samples the climate was recorded for. This is biomeData itself,
+	 * unless the biome data is sampled coarsely.
+	 */
+	private volatile BiomeDataBuffer biomeClimateSamples;
+	/**
+	 * The corner and the resolution the climate was recorded at, so a
+	 * recycled fragment or a different resolution can't use it.
+	 */
+	private volatile CoordinatesInWorld biomeClimateCorner;
+	private volatile Resolution biomeClimateResolution;
+	/**
+	 * True if all values of the biome data are the same, so the layers that
+	 * are drawn from it can be drawn with a single colour.
+	 */
+	private volatile boolean isBiomeDataUniform = false;
 	private volatile List<EndIsland> endIslands;
+	/**
+	 * Incremented whenever the background has to be coloured from the biome
+	 * data again.
+	 */
+	private volatile int backgroundBiomeDataVersion = 0;
+	private volatile boolean isBackgroundColoredByBiomePalette = false;
+	private int backgroundColoredBiomeDataVersion = -1;
+	private int backgroundColoredPaletteVersion = -1;
 	private final AtomicReferenceArray<BufferedImage> images;
+	/**
+	 * The colour of the layers that are drawn with a single colour instead of
+	 * an image, see getAndSetUniformColor().
+	 */
+	private final AtomicReferenceArray<Color> uniformColors;
+	/**
+	 * Incremented whenever an image is replaced, or the background has to be
+	 * coloured again.
+	 */
+	private final AtomicInteger imageVersion = new AtomicInteger();
 	private final AtomicReferenceArray<List<WorldIcon>> worldIcons;
 
 	public Fragment(int numberOfLayers) {
 		this.images = new AtomicReferenceArray<>(numberOfLayers);
+		this.uniformColors = new AtomicReferenceArray<>(numberOfLayers);
 		this.worldIcons = new AtomicReferenceArray<>(numberOfLayers);
 	}
 
@@ -111,17 +173,235 @@ public class Fragment {
 	}
 
 	public void initBiomeData(int width, int height) {
-		biomeData = new short[width][height];
+		biomeData = new BiomeDataBuffer(width, height);
+	}
+
+	/**
+	 * The resolution the biome data is sampled at by the next call of
+	 * populateBiomeData(). The biome data keeps its size, so the samples of
+	 * a coarser resolution are repeated. A coarser resolution is reset to the
+	 * quarter resolution for oracles that can't sample it natively. Biome
+	 * data of the world resolution must be as large as a fragment.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void setBiomeDataResolution(Resolution biomeDataResolution) {
+		this.biomeDataResolution = biomeDataResolution;
+	}
+
+	public Resolution getBiomeDataResolution() {
+		return biomeDataResolution;
+	}
+
+	public boolean isBiomeDataCoarserThan(Resolution resolution) {
+		return biomeDataResolution.getShift() > resolution.getShift();
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	public void populateBiomeData(IBiomeDataOracle biomeDataOracle) {
-		biomeDataIndexMask = biomeDataOracle.populateArray(corner, biomeData, true);
+		populateBiomeData(biomeDataOracle, BiomeDataPlane.ALL);
+	}
+
+	/**
+	 * Only the given planes are generated, see addBiomeDataPlanes().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void populateBiomeData(IBiomeDataOracle biomeDataOracle, Set<BiomeDataPlane> planes) {
+		discardBiomeClimate();
+		limitBiomeDataResolution(biomeDataOracle);
+		if (isBiomeDataSampledCoarsely()) {
+			populateCoarseBiomeData(biomeDataOracle, planes);
+		} else {
+			biomeDataIndexMask = biomeDataOracle.populateArray(corner, biomeData, biomeDataResolution, planes);
+		}
+		biomeDataPlanes = planes;
+		biomeDataCoordinateSystem = biomeDataOracle.getNativeCoordinateSystem();
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * Coarse biome data is cheap to sample, so it is not cached on disk.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void populateBiomeData(IBiomeDataOracle biomeDataOracle, BiomeDataDiskCache biomeDataDiskCache) {
+		discardBiomeClimate();
+		limitBiomeDataResolution(biomeDataOracle);
+		if (isBiomeDataSampledCoarsely()) {
+			populateCoarseBiomeData(biomeDataOracle, BiomeDataPlane.ALL);
+		} else {
+			biomeDataIndexMask = biomeDataDiskCache.populateArray(
+					biomeDataOracle,
+					corner,
+					biomeData,
+					biomeDataResolution == Resolution.QUARTER);
+		}
+		biomeDataPlanes = BiomeDataPlane.ALL;
+		biomeDataCoordinateSystem = biomeDataOracle.getNativeCoordinateSystem();
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * The sampler only approximates the biome data, so it is not cached on
+	 * disk. Only the given planes are generated, see addBiomeDataPlanes().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void populateBiomeData(
+			IBiomeDataOracle biomeDataOracle,
+			AdaptiveBiomeDataSampler adaptiveSampler,
+			Set<BiomeDataPlane> planes) {
+		discardBiomeClimate();
+		limitBiomeDataResolution(biomeDataOracle);
+		if (isBiomeDataSampledCoarsely()) {
+			populateCoarseBiomeData(biomeDataOracle, planes);
+		} else {
+			biomeDataIndexMask = adaptiveSampler
+					.populateArray(biomeDataOracle, corner, biomeData, biomeDataResolution, planes);
+		}
+		biomeDataPlanes = planes;
+		biomeDataCoordinateSystem = biomeDataOracle.getNativeCoordinateSystem();
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * The retained climate is not cached on disk, so the biome data is always
+	 * generated.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void populateBiomeDataRetainingClimate(
+			IReclassifiableBiomeDataOracle biomeDataOracle,
+			Set<BiomeDataPlane> planes) {
+		limitBiomeDataResolution(biomeDataOracle);
+		BiomeDataBuffer samples = biomeData;
+		if (isBiomeDataSampledCoarsely()) {
+			int size = biomeDataResolution.getStepsPerFragment();
+			samples = new BiomeDataBuffer(size, size);
+		}
+		BiomeClimateBuffer climate = biomeClimate;
+		if (climate == null || climate.getWidth() != samples.getWidth() || climate.getHeight() != samples.getHeight()) {
+			climate = new BiomeClimateBuffer(samples.getWidth(), samples.getHeight());
+		}
+		biomeDataIndexMask = biomeDataOracle.populateArray(corner, samples, biomeDataResolution, planes, climate);
+		if (samples != biomeData) {
+			biomeData.scaleFrom(samples);
+		}
+		biomeDataPlanes = planes;
 		biomeDataCoordinateSystem = biomeDataOracle.getNativeCoordinateSystem();
+		biomeClimate = climate;
+		biomeClimateSamples = samples;
+		biomeClimateCorner = corner;
+		biomeClimateResolution = biomeDataResolution;
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * @return true if the biome data was populated with
+	 *         populateBiomeDataRetainingClimate() at the current corner and
+	 *         resolution
+	 */
+	public boolean canReclassifyBiomeData() {
+		return biomeClimate != null
+				&& corner.equals(biomeClimateCorner)
+				&& biomeDataResolution == biomeClimateResolution;
+	}
+
+	/**
+	 * Chooses the biomes again from the retained climate, see
+	 * canReclassifyBiomeData().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void reclassifyBiomeData(IReclassifiableBiomeDataOracle biomeDataOracle) {
+		BiomeDataBuffer samples = biomeClimateSamples;
+		biomeDataIndexMask = biomeDataOracle.reclassify(biomeClimate, samples);
+		if (samples != biomeData) {
+			biomeData.scaleFrom(samples);
+		}
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * @return the planes that are requested, but not stored in the biome data
+	 */
+	public Set<BiomeDataPlane> getMissingBiomeDataPlanes(Set<BiomeDataPlane> requestedPlanes) {
+		Set<BiomeDataPlane> result = EnumSet.noneOf(BiomeDataPlane.class);
+		result.addAll(requestedPlanes);
+		result.removeAll(biomeDataPlanes);
+		return result;
+	}
+
+	/**
+	 * Generates the given planes and adds them to the biome data, without
+	 * changing the biome indices or the other planes.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void addBiomeDataPlanes(IBiomeDataOracle biomeDataOracle, Set<BiomeDataPlane> planes) {
+		int size = biomeDataResolution.getStepsPerFragment();
+		BiomeDataBuffer samples = new BiomeDataBuffer(size, size);
+		biomeDataOracle.populateArray(corner, samples, biomeDataResolution, planes);
+		int mask = BiomeDataPlane.getMask(planes);
+		BiomeDataBuffer climateSamples = biomeClimateSamples;
+		if (climateSamples != null && climateSamples != biomeData) {
+			climateSamples.copyBitsFrom(samples, mask);
+		}
+		if (isBiomeDataSampledCoarsely()) {
+			BiomeDataBuffer scaledSamples = new BiomeDataBuffer(biomeData.getWidth(), biomeData.getHeight());
+			scaledSamples.scaleFrom(samples);
+			samples = scaledSamples;
+		}
+		biomeData.copyBitsFrom(samples, mask);
+		Set<BiomeDataPlane> newPlanes = EnumSet.noneOf(BiomeDataPlane.class);
+		newPlanes.addAll(biomeDataPlanes);
+		newPlanes.addAll(planes);
+		biomeDataPlanes = newPlanes;
+		updateBiomeDataUniformity();
+	}
+
+	/**
+	 * A coarser resolution is not cheaper for oracles that can't sample it
+	 * natively, so their biome data is never populated coarser than quarter
+	 * resolution and never needs to be refined.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void limitBiomeDataResolution(IBiomeDataOracle biomeDataOracle) {
+		if (!biomeDataOracle.isSamplingCoarseResolutionsNatively() && isBiomeDataCoarserThan(Resolution.QUARTER)) {
+			biomeDataResolution = Resolution.QUARTER;
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void discardBiomeClimate() {
+		biomeClimate = null;
+		biomeClimateSamples = null;
+		biomeClimateCorner = null;
+		biomeClimateResolution = null;
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void updateBiomeDataUniformity() {
+		isBiomeDataUniform = biomeData.isUniform();
+	}
+
+	/**
+	 * True if all values of the biome data are the same, e.g. because the
+	 * fragment is outside of the world. The layers that are drawn from the
+	 * biome data can then be drawn with a single colour instead of an image.
+	 */
+	public boolean isBiomeDataUniform() {
+		return isBiomeDataUniform;
+	}
+
+	private boolean isBiomeDataSampledCoarsely() {
+		return biomeDataResolution.getStepsPerFragment() < biomeData.getWidth();
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void populateCoarseBiomeData(IBiomeDataOracle biomeDataOracle, Set<BiomeDataPlane> planes) {
+		int size = biomeDataResolution.getStepsPerFragment();
+		BiomeDataBuffer samples = new BiomeDataBuffer(size, size);
+		biomeDataIndexMask = biomeDataOracle.populateArray(corner, samples, biomeDataResolution, planes);
+		biomeData.scaleFrom(samples);
 	}
 
 	public short getBiomeIndexAt(int x, int y) {
-		return (short)(biomeData[x][y] & biomeDataIndexMask);
+		return (short)(biomeData.get(x, y) & biomeDataIndexMask);
 	}
 
 	/**
@@ -130,7 +410,15 @@ public class Fragment {
 	 * bitplanes so should not be treated as a short integer index.
 	 */
 	public short getBiomeDataAt(int x, int y) {
-		return biomeData[x][y];
+		return biomeData.get(x, y);
+	}
+
+	/**
+	 * The raw data of getBiomeDataAt(), for colour providers that need to
+	 * look at several values.
+	 */
+	public BiomeDataBuffer getBiomeData() {
+		return biomeData;
 	}
 
 	public CoordinateSystem getBiomeDataCoordinateSystem() {
@@ -145,18 +433,112 @@ public class Fragment {
 		return endIslands;
 	}
 
+	/**
+	 * @param isColoredByBiomePalette
+	 *            true, if the drawing thread colours the background from the
+	 *            biome data, false if the background image is drawn by the
+	 *            fragment loading thread. If this is true, the background is
+	 *            coloured again, because the biome data might have changed.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void setBackgroundColoredByBiomePalette(boolean isColoredByBiomePalette) {
+		if (isColoredByBiomePalette) {
+			this.backgroundBiomeDataVersion++;
+		}
+		this.isBackgroundColoredByBiomePalette = isColoredByBiomePalette;
+		imageVersion.incrementAndGet();
+	}
+
+	public boolean isBackgroundColoredByBiomePalette() {
+		return isBackgroundColoredByBiomePalette;
+	}
+
+	public int getBackgroundBiomeDataVersion() {
+		return backgroundBiomeDataVersion;
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean isBackgroundColoredWith(int paletteVersion, int biomeDataVersion) {
+		return backgroundColoredPaletteVersion == paletteVersion
+				&& backgroundColoredBiomeDataVersion == biomeDataVersion;
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void setBackgroundColoredWith(int paletteVersion, int biomeDataVersion) {
+		this.backgroundColoredPaletteVersion = paletteVersion;
+		this.backgroundColoredBiomeDataVersion = biomeDataVersion;
+	}
+
 	public BufferedImage getAndSetImage(int layerId, BufferedImage image) {
-		return images.getAndSet(layerId, image);
+		BufferedImage result = images.getAndSet(layerId, image);
+		uniformColors.set(layerId, null);
+		imageVersion.incrementAndGet();
+		return result;
 	}
 
 	public void putImage(int layerId, BufferedImage image) {
 		images.set(layerId, image);
+		uniformColors.set(layerId, null);
+		imageVersion.incrementAndGet();
+	}
+
+	/**
+	 * Draws the layer with a single colour instead of an image, until the
+	 * next image is set. The colour is set before the image is removed, so
+	 * the drawing thread always sees one of them.
+	 * 
+	 * @return the image of the layer, so it can be reused
+	 */
+	public BufferedImage getAndSetUniformColor(int layerId, Color color) {
+		uniformColors.set(layerId, color);
+		BufferedImage result = images.getAndSet(layerId, null);
+		imageVersion.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * @return null, if the layer is drawn from its image
+	 */
+	public Color getUniformColor(int layerId) {
+		return uniformColors.get(layerId);
+	}
+
+	/**
+	 * Changes whenever the images of this fragment change, except for the
+	 * colours of the biome palette, see FragmentDrawer.getVersion().
+	 */
+	public int getImageVersion() {
+		return imageVersion.get();
 	}
 
 	public BufferedImage getImage(int layerId) {
 		return images.get(layerId);
 	}
 
+	/**
+	 * An estimate of the memory used by the biome data, the retained climate
+	 * and the images of this fragment in bytes.
+	 */
+	public long getMemoryUsage() {
+		long result = 0;
+		BiomeDataBuffer biomeData = this.biomeData;
+		if (biomeData != null) {
+			result += biomeData.getData().length * 2L;
+		}
+		BiomeClimateBuffer biomeClimate = this.biomeClimate;
+		if (biomeClimate != null) {
+			result += biomeClimate.getMemoryUsage();
+		}
+		for (int i = 0; i < images.length(); i++) {
+			BufferedImage image = images.get(i);
+			if (image != null) {
+				DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+				result += (long) dataBuffer.getSize() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+			}
+		}
+		return result;
+	}
+
 	public void putWorldIcons(int layerId, List<WorldIcon> icons) {
 		worldIcons.set(layerId, icons);
 	}
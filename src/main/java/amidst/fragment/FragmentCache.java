@@ -1,53 +1,94 @@
 package amidst.fragment;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
 import amidst.fragment.constructor.FragmentConstructor;
 import amidst.logging.AmidstLogger;
 
+/**
+ * The pool of all fragments. It grows in small steps when the viewer needs
+ * more fragments than are available. Unused fragments are released when the
+ * pool did not grow for a while, or immediately when the pool uses more than
+ * the maximum memory. The maximum memory is not a hard limit: the viewer can
+ * still get all the fragments it displays, but unused fragments are never
+ * kept beyond it.
+ */
 @ThreadSafe
 public class FragmentCache {
-	private static final int NEW_FRAGMENTS_PER_REQUEST = 1024;
+	private static final int NEW_FRAGMENTS_PER_REQUEST = 64;
+	/**
+	 * The number of unused fragments that are kept when the cache shrinks.
+	 */
+	private static final int IDLE_FRAGMENTS_TO_KEEP = NEW_FRAGMENTS_PER_REQUEST;
+	private static final long IDLE_MILLIS_BEFORE_SHRINKING = 30000;
+	private static final long MILLIS_BETWEEN_SHRINKING = 1000;
 
-	private final List<Fragment> cache = new LinkedList<>();
+	private final Set<Fragment> cache = new HashSet<>();
 	private volatile int cacheSize = 0;
+	private volatile long bytesPerFragment = 0;
+	private volatile long recycledCount = 0;
+	private volatile long releasedCount = 0;
+	private volatile long lastIncreaseTime = 0;
+	private long lastShrinkTime = 0;
+	private boolean isMaxMemoryExceeded = false;
 
 	private final ConcurrentLinkedQueue<Fragment> availableQueue;
-	private final ConcurrentLinkedQueue<Fragment> loadingQueue;
+	private final FragmentLoadingQueue loadingQueue;
 	private final Iterable<FragmentConstructor> constructors;
 	private final int numberOfLayers;
+	private final long maxMemory;
 
+	/**
+	 * @param maxMemory
+	 *            the maximum memory used by fragments in bytes, or a value <= 0
+	 *            to use half of the maximum heap size
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	public FragmentCache(
 			ConcurrentLinkedQueue<Fragment> availableQueue,
-			ConcurrentLinkedQueue<Fragment> loadingQueue,
+			FragmentLoadingQueue loadingQueue,
 			Iterable<FragmentConstructor> constructors,
-			int numberOfLayers) {
+			int numberOfLayers,
+			long maxMemory) {
 		this.availableQueue = availableQueue;
 		this.loadingQueue = loadingQueue;
 		this.constructors = constructors;
 		this.numberOfLayers = numberOfLayers;
+		this.maxMemory = maxMemory > 0 ? maxMemory : Runtime.getRuntime().maxMemory() / 2;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public synchronized void increaseSize() {
-		AmidstLogger.info(
-				"increasing fragment cache size from " + cache.size() + " to "
-						+ (cache.size() + NEW_FRAGMENTS_PER_REQUEST));
-		requestNewFragments();
+		int count = NEW_FRAGMENTS_PER_REQUEST;
+		long maxSize = getMaxSize();
+		if (cache.size() + count > maxSize) {
+			// the viewer still gets the fragments it needs, but nothing more
+			count = (int) Math.max(1, Math.min(count, maxSize - cache.size()));
+			if (!isMaxMemoryExceeded && cache.size() + count > maxSize) {
+				isMaxMemoryExceeded = true;
+				AmidstLogger.info("fragment cache exceeds the maximum memory of " + toMegabytes(maxMemory) + " MB");
+			}
+		}
+		AmidstLogger.info("increasing fragment cache size from " + cache.size() + " to " + (cache.size() + count));
+		requestNewFragments(count);
+		lastIncreaseTime = System.currentTimeMillis();
 		AmidstLogger.info("fragment cache size increased to " + cache.size());
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
-	private void requestNewFragments() {
-		for (int i = 0; i < NEW_FRAGMENTS_PER_REQUEST; i++) {
+	private void requestNewFragments(int count) {
+		for (int i = 0; i < count; i++) {
 			Fragment fragment = new Fragment(numberOfLayers);
 			construct(fragment);
+			if (bytesPerFragment == 0) {
+				bytesPerFragment = fragment.getMemoryUsage();
+			}
 			cache.add(fragment);
 			availableQueue.offer(fragment);
 		}
@@ -61,16 +102,112 @@ public class FragmentCache {
 		}
 	}
 
+	/**
+	 * Makes the recycled fragment available again, or releases it if the
+	 * cache uses more than the maximum memory.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public synchronized void recycle(Fragment fragment) {
+		recycledCount++;
+		// the loaders only create the images of visible layers, so the
+		// fragments can grow after they were constructed
+		bytesPerFragment = Math.max(bytesPerFragment, fragment.getMemoryUsage());
+		if (cache.size() > getMaxSize()) {
+			release(fragment);
+			cacheSize = cache.size();
+		} else {
+			availableQueue.offer(fragment);
+		}
+	}
+
+	/**
+	 * Releases unused fragments, if the cache did not need to grow for a
+	 * while. The fragment loader thread only calls this after it was woken
+	 * up, so an idle viewer keeps its fragments until the next time it loads
+	 * or recycles fragments.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public synchronized void shrinkIfIdle() {
+		long now = System.currentTimeMillis();
+		if (now - lastIncreaseTime < IDLE_MILLIS_BEFORE_SHRINKING || now - lastShrinkTime < MILLIS_BETWEEN_SHRINKING) {
+			return;
+		}
+		lastShrinkTime = now;
+		int count = availableQueue.size() - IDLE_FRAGMENTS_TO_KEEP;
+		if (count > 0) {
+			int oldSize = cache.size();
+			Fragment fragment;
+			while (count-- > 0 && (fragment = availableQueue.poll()) != null) {
+				release(fragment);
+			}
+			cacheSize = cache.size();
+			if (cacheSize <= getMaxSize()) {
+				isMaxMemoryExceeded = false;
+			}
+			AmidstLogger.info("fragment cache size decreased from " + oldSize + " to " + cacheSize);
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void release(Fragment fragment) {
+		cache.remove(fragment);
+		releasedCount++;
+	}
+
+	private long getMaxSize() {
+		long bytesPerFragment = this.bytesPerFragment;
+		return bytesPerFragment == 0 ? Long.MAX_VALUE : Math.max(1, maxMemory / bytesPerFragment);
+	}
+
+	private static long toMegabytes(long bytes) {
+		return bytes / (1024 * 1024);
+	}
+
+	/**
+	 * Fragments that are not initialized are skipped, they are enqueued when
+	 * the viewer requests them.
+	 */
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	public synchronized void reloadAll() {
 		loadingQueue.clear();
 		for (Fragment fragment : cache) {
-			loadingQueue.offer(fragment);
+			if (fragment.isInitialized()) {
+				loadingQueue.offer(fragment);
+			}
 		}
 	}
 
-	@CalledOnlyBy(AmidstThread.EDT)
+	@CalledByAny
 	public int size() {
 		return cacheSize;
 	}
+
+	/**
+	 * The estimated memory used by all fragments in bytes.
+	 */
+	@CalledByAny
+	public long getMemoryUsage() {
+		return cacheSize * bytesPerFragment;
+	}
+
+	@CalledByAny
+	public long getMaxMemory() {
+		return maxMemory;
+	}
+
+	/**
+	 * The number of fragments that were recycled since the cache was created.
+	 */
+	@CalledByAny
+	public long getRecycledCount() {
+		return recycledCount;
+	}
+
+	/**
+	 * The number of fragments that were released since the cache was created.
+	 */
+	@CalledByAny
+	public long getReleasedCount() {
+		return releasedCount;
+	}
 }
@@ -7,6 +7,7 @@ import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
 import amidst.fragment.layer.LayerDeclaration;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.mojangapi.world.icon.WorldIcon;
 import amidst.util.Lazy;
 
@@ -51,6 +52,27 @@ public class FragmentGraph implements Iterable<FragmentGraphItem> {
 				.replaceWithValue(f -> f.adjustRowsAndColumns(newAbove, newBelow, newLeft, newRight, fragmentManager));
 	}
 
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void setViewport(CoordinatesInWorld topLeft, CoordinatesInWorld bottomRight) {
+		fragmentManager.setViewport(topLeft, bottomRight);
+	}
+
+	/**
+	 * When the resolution becomes finer, the loaded fragments with coarser
+	 * biome data are loaded again.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void setBiomeDataResolution(Resolution biomeDataResolution) {
+		if (fragmentManager.setBiomeDataResolution(biomeDataResolution)) {
+			for (FragmentGraphItem fragmentGraphItem : this) {
+				Fragment fragment = fragmentGraphItem.getFragment();
+				if (fragment.isLoaded() && fragment.isBiomeDataCoarserThan(biomeDataResolution)) {
+					fragmentManager.reloadFragment(fragment);
+				}
+			}
+		}
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void dispose() {
 		recycleAll();
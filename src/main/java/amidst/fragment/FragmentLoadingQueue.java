@@ -0,0 +1,206 @@
+package amidst.fragment;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.Immutable;
+import amidst.documentation.ThreadSafe;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+
+/**
+ * The fragments that wait to be loaded, ordered by the distance between their
+ * center and the center of the viewport, so the visible fragments are loaded
+ * from the center outwards. Fragments that are not visible, like the ones
+ * that are prefetched around the viewport, are loaded after all visible
+ * fragments. Fragments with the same distance in whole fragments are loaded
+ * in the order they were enqueued.
+ *
+ * Each distance has its own linked list, so enqueueing, polling and removing
+ * a fragment take constant time. When the viewport moves, the fragments are
+ * sorted into the lists again before the next one is polled. A fragment is
+ * only enqueued once, enqueueing it again does nothing.
+ */
+@ThreadSafe
+public class FragmentLoadingQueue {
+	/**
+	 * Fragments that are further away share the last list of their half. The
+	 * viewer never displays that many fragments.
+	 */
+	private static final int NUMBER_OF_DISTANCES = 512;
+	/**
+	 * The lists of the fragments that are not visible are behind the lists of
+	 * the visible ones.
+	 */
+	private static final int INVISIBLE_DISTANCE_OFFSET = NUMBER_OF_DISTANCES / 2;
+
+	@Immutable
+	private static class Viewport {
+		private final CoordinatesInWorld topLeft;
+		private final CoordinatesInWorld bottomRight;
+		private final CoordinatesInWorld center;
+
+		private Viewport(CoordinatesInWorld topLeft, CoordinatesInWorld bottomRight) {
+			this.topLeft = topLeft;
+			this.bottomRight = bottomRight;
+			this.center = CoordinatesInWorld.from(
+					(topLeft.getX() + bottomRight.getX()) / 2,
+					(topLeft.getY() + bottomRight.getY()) / 2);
+		}
+
+		private boolean isSameAs(Viewport other) {
+			return topLeft.equals(other.topLeft) && bottomRight.equals(other.bottomRight);
+		}
+
+		private boolean isVisible(CoordinatesInWorld corner) {
+			return corner.getX() + Fragment.SIZE > topLeft.getX() && corner.getX() < bottomRight.getX()
+					&& corner.getY() + Fragment.SIZE > topLeft.getY() && corner.getY() < bottomRight.getY();
+		}
+	}
+
+	private static class Node {
+		private final Fragment fragment;
+		private Node previous;
+		private Node next;
+		private int distance;
+
+		private Node(Fragment fragment) {
+			this.fragment = fragment;
+		}
+	}
+
+	private final Node[] heads = new Node[NUMBER_OF_DISTANCES];
+	private final Node[] tails = new Node[NUMBER_OF_DISTANCES];
+	private final Map<Fragment, Node> nodes = new IdentityHashMap<>();
+	private int lowestDistance = NUMBER_OF_DISTANCES;
+	private volatile Viewport viewport = new Viewport(CoordinatesInWorld.origin(), CoordinatesInWorld.origin());
+	private Viewport sortedViewport = viewport;
+	private volatile int size = 0;
+
+	/**
+	 * Sets the world coordinates of the visible area.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void setViewport(CoordinatesInWorld topLeft, CoordinatesInWorld bottomRight) {
+		this.viewport = new Viewport(topLeft, bottomRight);
+	}
+
+	@CalledByAny
+	public synchronized void offer(Fragment fragment) {
+		if (!nodes.containsKey(fragment)) {
+			Node node = new Node(fragment);
+			nodes.put(fragment, node);
+			append(node, getDistance(fragment, sortedViewport));
+			size = nodes.size();
+		}
+	}
+
+	/**
+	 * @return the fragment that is closest to the center of the viewport, or
+	 *         null if the queue is empty
+	 */
+	@CalledByAny
+	public synchronized Fragment poll() {
+		sortIfViewportMoved();
+		while (lowestDistance < NUMBER_OF_DISTANCES && heads[lowestDistance] == null) {
+			lowestDistance++;
+		}
+		if (lowestDistance == NUMBER_OF_DISTANCES) {
+			return null;
+		}
+		Node node = heads[lowestDistance];
+		unlink(node);
+		nodes.remove(node.fragment);
+		size = nodes.size();
+		return node.fragment;
+	}
+
+	@CalledByAny
+	public synchronized void remove(Fragment fragment) {
+		Node node = nodes.remove(fragment);
+		if (node != null) {
+			unlink(node);
+			size = nodes.size();
+		}
+	}
+
+	@CalledByAny
+	public synchronized void clear() {
+		nodes.clear();
+		for (int i = 0; i < NUMBER_OF_DISTANCES; i++) {
+			heads[i] = null;
+			tails[i] = null;
+		}
+		lowestDistance = NUMBER_OF_DISTANCES;
+		size = 0;
+	}
+
+	@CalledByAny
+	public int size() {
+		return size;
+	}
+
+	private void sortIfViewportMoved() {
+		Viewport viewport = this.viewport;
+		if (!viewport.isSameAs(sortedViewport)) {
+			sortedViewport = viewport;
+			for (Node node : nodes.values()) {
+				int distance = getDistance(node.fragment, viewport);
+				if (distance != node.distance) {
+					unlink(node);
+					append(node, distance);
+				}
+			}
+		}
+	}
+
+	private void append(Node node, int distance) {
+		node.distance = distance;
+		node.previous = tails[distance];
+		node.next = null;
+		if (tails[distance] == null) {
+			heads[distance] = node;
+		} else {
+			tails[distance].next = node;
+		}
+		tails[distance] = node;
+		lowestDistance = Math.min(lowestDistance, distance);
+	}
+
+	private void unlink(Node node) {
+		if (node.previous == null) {
+			heads[node.distance] = node.next;
+		} else {
+			node.previous.next = node.next;
+		}
+		if (node.next == null) {
+			tails[node.distance] = node.previous;
+		} else {
+			node.next.previous = node.previous;
+		}
+		node.previous = null;
+		node.next = null;
+	}
+
+	/**
+	 * @return the distance between the center of the fragment and the center
+	 *         of the viewport in whole fragments, plus the offset if the
+	 *         fragment is not visible
+	 */
+	private static int getDistance(Fragment fragment, Viewport viewport) {
+		CoordinatesInWorld corner = fragment.getCorner();
+		if (corner == null) {
+			return NUMBER_OF_DISTANCES - 1;
+		}
+		double distance = viewport.center
+				.getDistance(corner.getX() + Fragment.SIZE / 2, corner.getY() + Fragment.SIZE / 2);
+		int result = (int) Math.min(INVISIBLE_DISTANCE_OFFSET - 1, distance / Fragment.SIZE);
+		if (viewport.isVisible(corner)) {
+			return result;
+		} else {
+			return INVISIBLE_DISTANCE_OFFSET + result;
+		}
+	}
+}
@@ -3,24 +3,43 @@ package amidst.fragment;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
 import amidst.fragment.constructor.FragmentConstructor;
 import amidst.fragment.layer.LayerManager;
 import amidst.mojangapi.world.Dimension;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.Setting;
+import amidst.threading.FragmentLoaderPool;
 
 @NotThreadSafe
 public class FragmentManager {
 	private final ConcurrentLinkedQueue<Fragment> availableQueue = new ConcurrentLinkedQueue<>();
-	private final ConcurrentLinkedQueue<Fragment> loadingQueue = new ConcurrentLinkedQueue<>();
+	private final FragmentLoadingQueue loadingQueue = new FragmentLoadingQueue();
+	private final FragmentLoadingQueue refinementQueue = new FragmentLoadingQueue();
 	private final ConcurrentLinkedQueue<Fragment> recycleQueue = new ConcurrentLinkedQueue<>();
 	private final FragmentCache cache;
+	private final Runnable wakeUpFragmentLoader;
+	private volatile Resolution biomeDataResolution = Resolution.QUARTER;
 
+	/**
+	 * @param maxMemory
+	 *            the maximum memory used by fragments in bytes, see
+	 *            FragmentCache
+	 * @param wakeUpFragmentLoader
+	 *            called whenever a fragment was enqueued to be loaded or
+	 *            recycled
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
-	public FragmentManager(Iterable<FragmentConstructor> constructors, int numberOfLayers) {
-		this.cache = new FragmentCache(availableQueue, loadingQueue, constructors, numberOfLayers);
+	public FragmentManager(
+			Iterable<FragmentConstructor> constructors,
+			int numberOfLayers,
+			long maxMemory,
+			Runnable wakeUpFragmentLoader) {
+		this.cache = new FragmentCache(availableQueue, loadingQueue, constructors, numberOfLayers, maxMemory);
+		this.wakeUpFragmentLoader = wakeUpFragmentLoader;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -32,23 +51,76 @@ public class FragmentManager {
 		fragment.setCorner(coordinates);
 		fragment.setInitialized();
 		loadingQueue.offer(fragment);
+		wakeUpFragmentLoader.run();
 		return fragment;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void recycleFragment(Fragment fragment) {
 		recycleQueue.offer(fragment);
+		wakeUpFragmentLoader.run();
 	}
 
+	/**
+	 * Loads a loaded fragment again, so the layers that are coarser than
+	 * needed are reloaded. This happens after all fragments that are not
+	 * loaded yet.
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
-	public FragmentQueueProcessor createQueueProcessor(LayerManager layerManager, Setting<Dimension> dimensionSetting) {
+	public void reloadFragment(Fragment fragment) {
+		refinementQueue.offer(fragment);
+		wakeUpFragmentLoader.run();
+	}
+
+	/**
+	 * The resolution of the biome data of the fragments that are loaded from
+	 * now on. Fragments with coarser biome data are not reloaded by this.
+	 * 
+	 * @return true, if the resolution is finer than before
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean setBiomeDataResolution(Resolution biomeDataResolution) {
+		Resolution previous = this.biomeDataResolution;
+		this.biomeDataResolution = biomeDataResolution;
+		return biomeDataResolution.getShift() < previous.getShift();
+	}
+
+	@CalledByAny
+	public Resolution getBiomeDataResolution() {
+		return biomeDataResolution;
+	}
+
+	/**
+	 * The visible fragments are loaded first, starting with the ones closest
+	 * to the center of the viewport.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void setViewport(CoordinatesInWorld topLeft, CoordinatesInWorld bottomRight) {
+		loadingQueue.setViewport(topLeft, bottomRight);
+		refinementQueue.setViewport(topLeft, bottomRight);
+	}
+
+	/**
+	 * @param onFragmentsLoaded
+	 *            called by the fragment loader thread after each batch of
+	 *            loaded fragments
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public FragmentQueueProcessor createQueueProcessor(
+			LayerManager layerManager,
+			Setting<Dimension> dimensionSetting,
+			FragmentLoaderPool fragmentLoaderPool,
+			Runnable onFragmentsLoaded) {
 		return new FragmentQueueProcessor(
-				availableQueue,
 				loadingQueue,
+				refinementQueue,
 				recycleQueue,
 				cache,
 				layerManager,
-				dimensionSetting);
+				dimensionSetting,
+				this::getBiomeDataResolution,
+				fragmentLoaderPool,
+				onFragmentsLoaded);
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -61,6 +133,11 @@ public class FragmentManager {
 		return loadingQueue.size();
 	}
 
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getRefinementQueueSize() {
+		return refinementQueue.size();
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public int getRecycleQueueSize() {
 		return recycleQueue.size();
@@ -70,4 +147,33 @@ public class FragmentManager {
 	public int getCacheSize() {
 		return cache.size();
 	}
+
+	/**
+	 * The number of fragments that are neither available nor recycled, i.e.
+	 * the fragments that are used by the viewer.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getInUseCount() {
+		return Math.max(0, cache.size() - availableQueue.size() - recycleQueue.size());
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public long getCacheMemoryUsage() {
+		return cache.getMemoryUsage();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public long getCacheMaxMemory() {
+		return cache.getMaxMemory();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public long getRecycledCount() {
+		return cache.getRecycledCount();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public long getReleasedCount() {
+		return cache.getReleasedCount();
+	}
 }
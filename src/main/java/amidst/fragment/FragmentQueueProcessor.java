@@ -1,6 +1,9 @@
 package amidst.fragment;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 
 import amidst.documentation.AmidstThread;
 import amidst.documentation.CalledByAny;
@@ -8,51 +11,168 @@ import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
 import amidst.fragment.layer.LayerManager;
 import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.Setting;
+import amidst.threading.FragmentLoaderPool;
 
 @NotThreadSafe
 public class FragmentQueueProcessor {
-	private final ConcurrentLinkedQueue<Fragment> availableQueue;
-	private final ConcurrentLinkedQueue<Fragment> loadingQueue;
+	/**
+	 * A fragment that is not loaded yet is first loaded with biome data of
+	 * this resolution, i.e. every 8th quarter resolution sample in each
+	 * direction. This costs about 1/64 of the quarter resolution, so the
+	 * whole viewport is filled quickly. The fragments are refined after all
+	 * previews are loaded. Oracles that can't sample this resolution natively
+	 * load the quarter resolution right away, see Fragment.
+	 */
+	private static final Resolution PREVIEW_RESOLUTION = Resolution.CHUNK_2X2;
+
+	private final FragmentLoadingQueue loadingQueue;
+	private final FragmentLoadingQueue refinementQueue;
 	private final ConcurrentLinkedQueue<Fragment> recycleQueue;
 	private final FragmentCache cache;
 	private final LayerManager layerManager;
 	private final Setting<Dimension> dimensionSetting;
+	private final Supplier<Resolution> biomeDataResolutionSupplier;
+	private final FragmentLoaderPool fragmentLoaderPool;
+	private final Runnable onFragmentsLoaded;
+	private final int batchSize;
+	private final List<Fragment> batch;
+	private final List<Runnable> tasks;
+	/**
+	 * A fragment that was polled from the loading queue, but has to be loaded
+	 * in the next batch, because it was already part of the current batch.
+	 */
+	private Fragment pending;
 
 	@CalledByAny
 	public FragmentQueueProcessor(
-			ConcurrentLinkedQueue<Fragment> availableQueue,
-			ConcurrentLinkedQueue<Fragment> loadingQueue,
+			FragmentLoadingQueue loadingQueue,
+			FragmentLoadingQueue refinementQueue,
 			ConcurrentLinkedQueue<Fragment> recycleQueue,
 			FragmentCache cache,
 			LayerManager layerManager,
-			Setting<Dimension> dimensionSetting) {
-		this.availableQueue = availableQueue;
+			Setting<Dimension> dimensionSetting,
+			Supplier<Resolution> biomeDataResolutionSupplier,
+			FragmentLoaderPool fragmentLoaderPool,
+			Runnable onFragmentsLoaded) {
 		this.loadingQueue = loadingQueue;
+		this.refinementQueue = refinementQueue;
 		this.recycleQueue = recycleQueue;
 		this.cache = cache;
 		this.layerManager = layerManager;
 		this.dimensionSetting = dimensionSetting;
+		this.biomeDataResolutionSupplier = biomeDataResolutionSupplier;
+		this.fragmentLoaderPool = fragmentLoaderPool;
+		this.onFragmentsLoaded = onFragmentsLoaded;
+		this.batchSize = Math.max(1, Math.min(fragmentLoaderPool.getNumberOfLoaders(), layerManager.getNumberOfLoaders()));
+		this.batch = new ArrayList<>(batchSize);
+		this.tasks = new ArrayList<>(batchSize);
 	}
 
 	/**
 	 * It is important that the dimension setting is the same while a fragment
 	 * is loaded by different fragment loaders. This is why the dimension
 	 * setting is read by the fragment loader thread.
+	 * 
+	 * Fragments are loaded in batches of up to one fragment per layer loader.
+	 * The fragments of a batch are loaded in parallel, and the batch is
+	 * finished before the dimension is read again and before any fragment is
+	 * recycled. Thus, from the perspective of the fragment life-cycle, the
+	 * whole batch is loaded by the fragment loader thread. The viewer is
+	 * notified after each batch, so the fragments appear while the rest of
+	 * the queue is loaded.
+	 * 
+	 * Like the dimension, the resolution of the biome data is read once per
+	 * batch. Loaded fragments with coarser biome data than needed get their
+	 * biome data reloaded, e.g. after the user zoomed in or after a preview
+	 * was loaded.
 	 */
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	public void processQueues() {
 		Dimension dimension = dimensionSetting.get();
 		updateLayerManager(dimension);
 		processRecycleQueue();
-		Fragment fragment;
-		while ((fragment = loadingQueue.poll()) != null) {
-			loadFragment(dimension, fragment);
+		while (pollBatch()) {
+			loadBatch(dimension, biomeDataResolutionSupplier.get());
+			onFragmentsLoaded.run();
 			dimension = dimensionSetting.get();
 			updateLayerManager(dimension);
 			processRecycleQueue();
 		}
 		layerManager.clearInvalidatedLayers();
+		cache.shrinkIfIdle();
+	}
+
+	/**
+	 * A fragment can be enqueued again while it is part of the current batch,
+	 * however it must never be loaded by two loaders at the same time.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private boolean pollBatch() {
+		batch.clear();
+		Fragment fragment = pending;
+		pending = null;
+		if (fragment == null) {
+			fragment = pollNext();
+		}
+		while (fragment != null) {
+			if (batch.contains(fragment)) {
+				pending = fragment;
+				break;
+			}
+			batch.add(fragment);
+			if (batch.size() == batchSize) {
+				break;
+			}
+			fragment = pollNext();
+		}
+		return !batch.isEmpty();
+	}
+
+	/**
+	 * Fragments are only refined when no fragment waits to be loaded.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private Fragment pollNext() {
+		Fragment result = loadingQueue.poll();
+		if (result == null) {
+			result = refinementQueue.poll();
+		}
+		return result;
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void loadBatch(Dimension dimension, Resolution biomeDataResolution) {
+		if (batch.size() == 1) {
+			loadFragment(0, dimension, biomeDataResolution, batch.get(0));
+		} else {
+			tasks.clear();
+			for (int i = 0; i < batch.size(); i++) {
+				int loaderIndex = i;
+				Fragment fragment = batch.get(i);
+				tasks.add(() -> loadFragment(loaderIndex, dimension, biomeDataResolution, fragment));
+			}
+			fragmentLoaderPool.runAll(tasks);
+		}
+		reloadIfTooCoarse();
+		batch.clear();
+	}
+
+	/**
+	 * The previews and the fragments of the batch that were loaded with a
+	 * previous resolution are enqueued again here. The viewer only reloads
+	 * the fragments that are already loaded when the resolution becomes
+	 * finer.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void reloadIfTooCoarse() {
+		Resolution biomeDataResolution = biomeDataResolutionSupplier.get();
+		for (Fragment fragment : batch) {
+			if (fragment.isLoaded() && fragment.isBiomeDataCoarserThan(biomeDataResolution)) {
+				refinementQueue.offer(fragment);
+			}
+		}
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
@@ -71,31 +191,44 @@ public class FragmentQueueProcessor {
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	private void loadFragment(Dimension dimension, Fragment fragment) {
+	private void loadFragment(
+			int loaderIndex,
+			Dimension dimension,
+			Resolution biomeDataResolution,
+			Fragment fragment) {
 		if (fragment.isInitialized()) {
 			if (fragment.isLoaded()) {
-				layerManager.reloadInvalidated(dimension, fragment);
+				layerManager.reloadInvalidated(loaderIndex, dimension, fragment);
+				if (fragment.isBiomeDataCoarserThan(biomeDataResolution)) {
+					fragment.setBiomeDataResolution(biomeDataResolution);
+					layerManager.reloadBiomeData(loaderIndex, dimension, fragment);
+				}
 			} else {
-				layerManager.loadAll(dimension, fragment);
+				fragment.setBiomeDataResolution(getPreviewResolution(biomeDataResolution));
+				layerManager.loadAll(loaderIndex, dimension, fragment);
 				fragment.setLoaded();
 			}
 		}
 	}
 
-	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	private void recycleFragment(Fragment fragment) {
-		fragment.recycle();
-		removeFromLoadingQueue(fragment);
-		availableQueue.offer(fragment);
+	private static Resolution getPreviewResolution(Resolution biomeDataResolution) {
+		if (biomeDataResolution.getShift() < PREVIEW_RESOLUTION.getShift()) {
+			return PREVIEW_RESOLUTION;
+		} else {
+			return biomeDataResolution;
+		}
 	}
 
-	// TODO: Check performance with and without this. It is not needed, since
-	// loadFragment checks for isInitialized(). It helps to keep the
-	// loadingQueue small, but it costs time to remove fragments from the queue.
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	private void removeFromLoadingQueue(Object fragment) {
-		while (loadingQueue.remove(fragment)) {
-			// noop
+	private void recycleFragment(Fragment fragment) {
+		fragment.recycle();
+		if (pending == fragment) {
+			pending = null;
 		}
+		// not needed, since loadFragment checks for isInitialized(), but it
+		// keeps the loading queue small
+		loadingQueue.remove(fragment);
+		refinementQueue.remove(fragment);
+		cache.recycle(fragment);
 	}
 }
@@ -1,7 +1,10 @@
 package amidst.fragment;
 
+import java.util.Set;
+
 import amidst.gameengineabstraction.CoordinateSystem;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
 
 public interface IBiomeDataOracle {
 
@@ -21,9 +24,82 @@ public interface IBiomeDataOracle {
 	 */
 	public short populateArray(
 			CoordinatesInWorld corner, 
-			short[][] result,
+			BiomeDataBuffer result,
 			boolean useQuarterResolution
 	);		
+
+	/**
+	 * The same as populateArray() with a boolean, but the samples of result
+	 * are the given resolution apart. This allows the viewer to sample the
+	 * biomes more coarsely when it is zoomed out.
+	 * 
+	 * Oracles that can only generate the world and quarter resolution
+	 * generate the whole area at quarter resolution with a single call and
+	 * pick the samples of the coarser resolution from it, because each call
+	 * is expensive. This is not cheaper than the quarter resolution, see
+	 * isSamplingCoarseResolutionsNatively().
+	 */
+	public default short populateArray(
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution
+	) {
+		int width = result.getWidth();
+		int height = result.getHeight();
+		if (resolution.getShift() <= Resolution.QUARTER.getShift() || width == 0 || height == 0) {
+			return populateArray(corner, result, resolution == Resolution.QUARTER);
+		}
+		int factor = 1 << (resolution.getShift() - Resolution.QUARTER.getShift());
+		BiomeDataBuffer quarterResolution = new BiomeDataBuffer((width - 1) * factor + 1, (height - 1) * factor + 1);
+		short biomeDataIndexMask = populateArray(corner, quarterResolution, true);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				result.set(x, y, quarterResolution.get(x * factor, y * factor));
+			}
+		}
+		return biomeDataIndexMask;
+	}
+
+	/**
+	 * True if populateArray() with a resolution coarser than the quarter
+	 * resolution only generates the samples of that resolution, so it is
+	 * cheaper than the quarter resolution. The viewer only samples the biome
+	 * data of such oracles more coarsely when it is zoomed out.
+	 */
+	public default boolean isSamplingCoarseResolutionsNatively() {
+		return false;
+	}
+
+	/**
+	 * The same as populateArray() with a resolution, but only the given
+	 * planes are needed, so an oracle can skip the work that only serves the
+	 * other planes. The bits of the other planes can be missing from result,
+	 * but the biome index must be the same as if all planes were requested.
+	 */
+	public default short populateArray(
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution,
+			Set<BiomeDataPlane> planes
+	) {
+		return populateArray(corner, result, resolution);
+	}
+
+	/**
+	 * Adapter for callers that use an array indexed by [x][y]. It fills a
+	 * temporary BiomeDataBuffer and copies it to result.
+	 */
+	public default short populateArray(
+			CoordinatesInWorld corner, 
+			short[][] result,
+			boolean useQuarterResolution
+	) {
+		int width = result.length;
+		BiomeDataBuffer buffer = new BiomeDataBuffer(width, width > 0 ? result[0].length : 0);
+		short biomeDataIndexMask = populateArray(corner, buffer, useQuarterResolution);
+		buffer.copyTo(result);
+		return biomeDataIndexMask;
+	}
 	
 	/**
 	 * Gets the native coordinate system of the game-engine this biome
@@ -0,0 +1,21 @@
+package amidst.fragment;
+
+/**
+ * A biome data oracle whose results only depend on the state described by
+ * its cache key, so they can be stored in a BiomeDataDiskCache.
+ */
+public interface ICacheableBiomeDataOracle extends IBiomeDataOracle {
+
+	/**
+	 * Returns a string that describes everything populateArray() depends on,
+	 * apart from the arguments passed to it, e.g. the seed, the mapgen
+	 * settings and the biomes. Two oracles with equal cache keys must produce
+	 * exactly the same biome data.
+	 *
+	 * The key can change while the oracle is in use, e.g. when the biome
+	 * profile is changed, so it should be requested for every fragment.
+	 *
+	 * @return the cache key, or null if the biome data should not be cached
+	 */
+	public String getBiomeDataCacheKey();
+}
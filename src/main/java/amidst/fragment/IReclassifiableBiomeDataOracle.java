@@ -0,0 +1,42 @@
+package amidst.fragment;
+
+import java.util.Set;
+
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * A biome data oracle that chooses biomes from a climate, and can choose them
+ * again from the recorded climate without generating the terrain again, e.g.
+ * when the biome profile is changed.
+ */
+public interface IReclassifiableBiomeDataOracle extends IBiomeDataOracle {
+
+	/**
+	 * @return false if this oracle doesn't record the climate, e.g. because
+	 *         its biomes don't depend on a climate
+	 */
+	public boolean canReclassify();
+
+	/**
+	 * The same as populateArray() with planes, but also records the climate
+	 * of each sample in climate, which must have the same size as result.
+	 */
+	public short populateArray(
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution,
+			Set<BiomeDataPlane> planes,
+			BiomeClimateBuffer climate);
+
+	/**
+	 * Chooses the biomes of the recorded samples again, using the current
+	 * biomes of this oracle. The biome data of the samples that are not
+	 * recorded, and any bits that are not part of the biome index, are kept.
+	 *
+	 * @param result
+	 *            the biome data that climate was recorded for
+	 * @return the biome-index mask, see populateArray()
+	 */
+	public short reclassify(BiomeClimateBuffer climate, BiomeDataBuffer result);
+}
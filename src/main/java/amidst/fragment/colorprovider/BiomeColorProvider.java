@@ -35,7 +35,7 @@ public class BiomeColorProvider implements ColorProvider {
 		return last_color;		
 	}
 
-	private int getColor(int biomeIndex) {
+	int getColor(int biomeIndex) {
 		if (biomeSelection.isSelected(biomeIndex)) {
 			return getBiomeColor(biomeIndex).getRGB();
 		} else {
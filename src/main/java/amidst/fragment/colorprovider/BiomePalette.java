@@ -0,0 +1,94 @@
+package amidst.fragment.colorprovider;
+
+import java.awt.Color;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.gui.main.viewer.BiomeSelection;
+import amidst.mojangapi.world.biome.Biome;
+import amidst.settings.biomeprofile.BiomeProfile;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * The colours of the biome indices in the background layer of the overworld,
+ * including the selection and highlight state. The background is coloured
+ * with this palette when it is drawn, so a change of the biome selection only
+ * needs a repaint instead of a reload of the background layer.
+ */
+@NotThreadSafe
+public class BiomePalette {
+	private final BiomeColorProvider biomeColorProvider;
+	private final BiomeProfileSelection biomeProfileSelection;
+	private final int[] colors = new int[Biome.getBiomesLength()];
+	private final boolean[] isColorKnown = new boolean[colors.length];
+	private final Color[] colorObjects = new Color[colors.length];
+	private BiomeProfile biomeProfile;
+	private int version = 0;
+
+	public BiomePalette(BiomeSelection biomeSelection, BiomeProfileSelection biomeProfileSelection) {
+		this.biomeColorProvider = new BiomeColorProvider(biomeSelection, biomeProfileSelection);
+		this.biomeProfileSelection = biomeProfileSelection;
+	}
+
+	/**
+	 * Call this after the biome selection was changed.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void update() {
+		for (int i = 0; i < isColorKnown.length; i++) {
+			isColorKnown[i] = false;
+			colorObjects[i] = null;
+		}
+		version++;
+	}
+
+	/**
+	 * The version changes whenever the colours change, so it can be used to
+	 * tell whether an image is up to date. This must be called before the
+	 * colours are read, because it also notices a change of the biome
+	 * profile.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getVersion() {
+		BiomeProfile currentBiomeProfile = biomeProfileSelection.getCurrentBiomeProfile();
+		if (biomeProfile != currentBiomeProfile) {
+			biomeProfile = currentBiomeProfile;
+			update();
+		}
+		return version;
+	}
+
+	/**
+	 * The colours are only looked up when they are used, so an index that is
+	 * unknown to the biome profile is only reported if it is actually drawn.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getColor(int biomeIndex) {
+		if (biomeIndex >= 0 && biomeIndex < colors.length) {
+			if (!isColorKnown[biomeIndex]) {
+				colors[biomeIndex] = biomeColorProvider.getColor(biomeIndex);
+				isColorKnown[biomeIndex] = true;
+			}
+			return colors[biomeIndex];
+		} else {
+			return biomeColorProvider.getColor(biomeIndex);
+		}
+	}
+
+	/**
+	 * The same as getColor, but as a Color object. It is kept until the
+	 * colours change, so drawing a uniform fragment doesn't create a new one.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public Color getColorObject(int biomeIndex) {
+		if (biomeIndex >= 0 && biomeIndex < colors.length) {
+			if (colorObjects[biomeIndex] == null) {
+				colorObjects[biomeIndex] = new Color(getColor(biomeIndex), true);
+			}
+			return colorObjects[biomeIndex];
+		} else {
+			return new Color(getColor(biomeIndex), true);
+		}
+	}
+}
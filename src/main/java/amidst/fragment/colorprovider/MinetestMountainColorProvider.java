@@ -1,5 +1,7 @@
 package amidst.fragment.colorprovider;
 
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
 import amidst.fragment.Fragment;
 import amidst.mojangapi.world.Dimension;
@@ -12,6 +14,10 @@ public class MinetestMountainColorProvider implements ColorProvider {
 	private static final int MOUNTAIN_EDGE_COLOR = 0x80D0D0D0; // 0xAARRGGBB
 	private static final int NOT_MOUNTAIN_COLOR  = 0x00000000; // 0xAARRGGBB
 
+	private static final int NOT_MOUNTAIN_COLOR_INDEX = 0;
+	private static final int MOUNTAIN_COLOR_INDEX     = 1;
+	private static final int[] COLORS = { NOT_MOUNTAIN_COLOR, MOUNTAIN_COLOR };
+
 	private static final int OCEAN_RIVER_MASK = MinetestBiomeDataOracle.BITPLANE_RIVER | MinetestBiomeDataOracle.BITPLANE_OCEAN;
 	private static int FRAGSIZE_MINUS1;
 				
@@ -21,8 +27,20 @@ public class MinetestMountainColorProvider implements ColorProvider {
 	
 	@Override
 	public int getColorAt(Dimension dimension, Fragment fragment, long cornerX, long cornerY, int x, int y) {
-		
-		if ((fragment.getBiomeDataAt(x, y) & MinetestBiomeDataOracle.BITPLANE_MOUNTAIN) > 0) {
+		return getColor(fragment.getBiomeDataAt(x, y));
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColor(short biomeData) {
+		return COLORS[getColorIndex(biomeData)];
+	}
+
+	/**
+	 * The index of the colour in getColors().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColorIndex(short biomeData) {
+		if ((biomeData & MinetestBiomeDataOracle.BITPLANE_MOUNTAIN) > 0) {
 			/* Commented out because I haven't found a way to use 1px outlines on mountains that I 
 			 * feel is worth the mountain coloring being 4x slower
 			// draw using an edge colour if we're next to a location that isn't mountain.
@@ -34,9 +52,13 @@ public class MinetestMountainColorProvider implements ColorProvider {
 			} else {			
 				return MOUNTAIN_COLOR;
 			}*/
-			return MOUNTAIN_COLOR;
+			return MOUNTAIN_COLOR_INDEX;
 		} else {
-			return NOT_MOUNTAIN_COLOR;
+			return NOT_MOUNTAIN_COLOR_INDEX;
 		}
 	}
+
+	public int[] getColors() {
+		return COLORS.clone();
+	}
 }
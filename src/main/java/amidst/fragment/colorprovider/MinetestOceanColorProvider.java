@@ -1,5 +1,7 @@
 package amidst.fragment.colorprovider;
 
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
 import amidst.fragment.Fragment;
 import amidst.mojangapi.world.Dimension;
@@ -10,13 +12,33 @@ public class MinetestOceanColorProvider implements ColorProvider {
 	private static final int OCEAN_COLOR     = 0xF0041750; // 0xAARRGGBB
 	private static final int NOT_OCEAN_COLOR = 0x00000000; // 0xAARRGGBB
 
+	private static final int NOT_OCEAN_COLOR_INDEX = 0;
+	private static final int OCEAN_COLOR_INDEX     = 1;
+	private static final int[] COLORS = { NOT_OCEAN_COLOR, OCEAN_COLOR };
+
 	@Override
 	public int getColorAt(Dimension dimension, Fragment fragment, long cornerX, long cornerY, int x, int y) {
-		
-		if ((fragment.getBiomeDataAt(x, y) & MinetestBiomeDataOracle.BITPLANE_OCEAN) > 0) {
-			return OCEAN_COLOR;
+		return getColor(fragment.getBiomeDataAt(x, y));
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColor(short biomeData) {
+		return COLORS[getColorIndex(biomeData)];
+	}
+
+	/**
+	 * The index of the colour in getColors().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColorIndex(short biomeData) {
+		if ((biomeData & MinetestBiomeDataOracle.BITPLANE_OCEAN) > 0) {
+			return OCEAN_COLOR_INDEX;
 		} else {
-			return NOT_OCEAN_COLOR;
+			return NOT_OCEAN_COLOR_INDEX;
 		}
 	}
+
+	public int[] getColors() {
+		return COLORS.clone();
+	}
 }
@@ -1,6 +1,9 @@
 package amidst.fragment.colorprovider;
 
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
+import amidst.fragment.BiomeDataBuffer;
 import amidst.fragment.Fragment;
 import amidst.mojangapi.world.Dimension;
 import amidst.mojangapi.world.WorldType;
@@ -17,7 +20,12 @@ public class MinetestRiverColorProvider implements ColorProvider {
 	private static final int OCEAN_RIVER_MASK = MinetestBiomeDataOracle.BITPLANE_RIVER | MinetestBiomeDataOracle.BITPLANE_OCEAN;
 	private static int FRAGSIZE_MINUS1;
 	
+	private static final int NOT_RIVER_COLOR_INDEX  = 0;
+	private static final int RIVER_COLOR_INDEX      = 1;
+	private static final int RIVERS_EDGE_COLOR_INDEX = 2;
+
 	private int riversEdgeColor;
+	private final int[] colors;
 				
 	public MinetestRiverColorProvider(WorldType world_type, Resolution resolution) {
 		FRAGSIZE_MINUS1 = resolution.getStepsPerFragment() - 1;
@@ -30,23 +38,46 @@ public class MinetestRiverColorProvider implements ColorProvider {
 		} else {
 			riversEdgeColor = RIVERS_EDGE_COLOR;			
 		}
+		colors = new int[] { NOT_RIVER_COLOR, RIVER_COLOR, riversEdgeColor };
 	}
 			
 	@Override
 	public int getColorAt(Dimension dimension, Fragment fragment, long cornerX, long cornerY, int x, int y) {
 		
-		if ((fragment.getBiomeDataAt(x, y) & MinetestBiomeDataOracle.BITPLANE_RIVER) > 0) {
+		BiomeDataBuffer biomeData = fragment.getBiomeData();
+		return getColor(biomeData.getData(), biomeData.getWidth(), biomeData.getIndex(x, y), x, y);
+	}
+
+	/**
+	 * The colour of the sample at index in data, which is at (x, y) in a
+	 * fragment of the resolution this provider was created for.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColor(short[] data, int width, int index, int x, int y) {
+		return colors[getColorIndex(data, width, index, x, y)];
+	}
+
+	/**
+	 * The index of the colour in getColors().
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public int getColorIndex(short[] data, int width, int index, int x, int y) {
+		if ((data[index] & MinetestBiomeDataOracle.BITPLANE_RIVER) > 0) {
 			// draw using a river's edge colour if we're next to a location that isn't river or ocean.
-			if ((x >               0 && (fragment.getBiomeDataAt(x - 1, y) & OCEAN_RIVER_MASK) == 0) ||
-			    (x < FRAGSIZE_MINUS1 && (fragment.getBiomeDataAt(x + 1, y) & OCEAN_RIVER_MASK) == 0) ||
-			    (y >               0 && (fragment.getBiomeDataAt(x, y - 1) & OCEAN_RIVER_MASK) == 0) ||
-			    (y < FRAGSIZE_MINUS1 && (fragment.getBiomeDataAt(x, y + 1) & OCEAN_RIVER_MASK) == 0)) {				
-				return riversEdgeColor;
+			if ((x >               0 && (data[index - 1]     & OCEAN_RIVER_MASK) == 0) ||
+			    (x < FRAGSIZE_MINUS1 && (data[index + 1]     & OCEAN_RIVER_MASK) == 0) ||
+			    (y >               0 && (data[index - width] & OCEAN_RIVER_MASK) == 0) ||
+			    (y < FRAGSIZE_MINUS1 && (data[index + width] & OCEAN_RIVER_MASK) == 0)) {				
+				return RIVERS_EDGE_COLOR_INDEX;
 			} else {			
-				return RIVER_COLOR;
+				return RIVER_COLOR_INDEX;
 			}
 		} else {
-			return NOT_RIVER_COLOR;
+			return NOT_RIVER_COLOR_INDEX;
 		}
 	}
+
+	public int[] getColors() {
+		return colors.clone();
+	}
 }
@@ -8,6 +8,11 @@ import amidst.documentation.NotThreadSafe;
 import amidst.fragment.Fragment;
 import amidst.fragment.layer.LayerDeclaration;
 
+/**
+ * Fades in a fragment after its preview was loaded. The images of a refined
+ * fragment replace the ones of the preview at once, since a fragment is not
+ * faded in again.
+ */
 @NotThreadSafe
 public class AlphaUpdater extends FragmentDrawer {
 	public AlphaUpdater(LayerDeclaration declaration) {
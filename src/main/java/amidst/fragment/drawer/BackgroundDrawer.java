@@ -0,0 +1,91 @@
+package amidst.fragment.drawer;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.Fragment;
+import amidst.fragment.colorprovider.BiomePalette;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.gui.main.viewer.Graphics2DAccelerationCounter;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * Colours the background from the biome data of the fragment before it is
+ * drawn, if the biome data or the biome palette changed since it was coloured
+ * the last time. If all of the biome data is the same, the background is
+ * filled with the colour of that biome instead.
+ */
+@NotThreadSafe
+public class BackgroundDrawer extends ImageDrawer {
+	private final BiomePalette biomePalette;
+	private final int size;
+	private final int[] rgbArray;
+
+	public BackgroundDrawer(
+			LayerDeclaration declaration,
+			Resolution resolution,
+			BiomePalette biomePalette,
+			Graphics2DAccelerationCounter accelerationCounter) {
+		super(declaration, resolution, accelerationCounter);
+		this.biomePalette = biomePalette;
+		this.size = resolution.getStepsPerFragment();
+		this.rgbArray = new int[size * size];
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	@Override
+	public int getVersion() {
+		return biomePalette.getVersion();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	@Override
+	public void draw(Fragment fragment, Graphics2D g2d, float time) {
+		if (fragment.isBackgroundColoredByBiomePalette()) {
+			if (fragment.isBiomeDataUniform()) {
+				drawUniformColor(biomePalette.getColorObject(fragment.getBiomeIndexAt(0, 0)), g2d);
+				return;
+			}
+			updateColors(fragment);
+		}
+		super.draw(fragment, g2d, time);
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void updateColors(Fragment fragment) {
+		int paletteVersion = biomePalette.getVersion();
+		// read before the biome data, so a concurrent change of the biome
+		// data is noticed the next time
+		int biomeDataVersion = fragment.getBackgroundBiomeDataVersion();
+		if (!fragment.isBackgroundColoredWith(paletteVersion, biomeDataVersion)) {
+			BufferedImage image = fragment.getImage(declaration.getLayerId());
+			synchronized (image) {
+				if (fragment.getImage(declaration.getLayerId()) == image
+						&& fragment.isBackgroundColoredByBiomePalette()) {
+					drawToCache(fragment);
+					image.getRaster().setDataElements(0, 0, size, size, rgbArray);
+					fragment.setBackgroundColoredWith(paletteVersion, biomeDataVersion);
+				}
+			}
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void drawToCache(Fragment fragment) {
+		int lastBiomeIndex = Integer.MIN_VALUE;
+		int lastColor = 0;
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				int biomeIndex = fragment.getBiomeIndexAt(x, y);
+				if (biomeIndex != lastBiomeIndex) {
+					lastBiomeIndex = biomeIndex;
+					lastColor = biomePalette.getColor(biomeIndex);
+				}
+				rgbArray[x + y * size] = lastColor;
+			}
+		}
+	}
+}
@@ -26,6 +26,25 @@ public abstract class FragmentDrawer {
 		return declaration.isDrawUnloaded();
 	}
 
+	/**
+	 * If this is true, the drawer only draws the images of the fragment, so
+	 * the result can be merged with the neighbouring fragments into a tile,
+	 * see TilePyramid. The drawer has to draw the fragment the same way as
+	 * long as the image version of the fragment and getVersion() don't
+	 * change.
+	 */
+	public boolean isDrawnIntoTiles() {
+		return false;
+	}
+
+	/**
+	 * Changes whenever the drawer draws the same fragment differently.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getVersion() {
+		return 0;
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public abstract void draw(Fragment fragment, Graphics2D g2d, float time);
 }
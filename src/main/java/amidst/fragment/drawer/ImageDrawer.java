@@ -1,5 +1,6 @@
 package amidst.fragment.drawer;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
@@ -26,20 +27,45 @@ public class ImageDrawer extends FragmentDrawer {
 		this.accelerationCounter = accelerationCounter;
 	}
 
+	@Override
+	public boolean isDrawnIntoTiles() {
+		return true;
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	@Override
 	public void draw(Fragment fragment, Graphics2D g2d, float time) {
+		Color uniformColor = fragment.getUniformColor(declaration.getLayerId());
+		if (uniformColor != null) {
+			drawUniformColor(uniformColor, g2d);
+			return;
+		}
+		BufferedImage image = fragment.getImage(declaration.getLayerId());
+		if (image == null) {
+			// the layer became visible, but the fragment was not reloaded yet
+			return;
+		}
 		int scale = resolution.getStep();
 		g2d.scale(scale, scale);
 		Object oldHint = g2d.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
 		Object newHint = getRenderingHint(g2d);
 		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, newHint);
-		BufferedImage image = fragment.getImage(declaration.getLayerId());
 		accelerationCounter.log(image);
 		g2d.drawImage(image, 0, 0, null);
 		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldHint);
 	}
 
+	/**
+	 * Nothing is drawn for a transparent colour, e.g. outside of the world.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	protected void drawUniformColor(Color color, Graphics2D g2d) {
+		if (color.getAlpha() != 0) {
+			g2d.setColor(color);
+			g2d.fillRect(0, 0, Fragment.SIZE, Fragment.SIZE);
+		}
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	private Object getRenderingHint(Graphics2D g2d) {
 		if (g2d.getTransform().getScaleX() < 1.0f) {
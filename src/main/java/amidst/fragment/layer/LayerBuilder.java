@@ -1,14 +1,22 @@
 package amidst.fragment.layer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import amidst.AmidstSettings;
 import amidst.documentation.Immutable;
+import amidst.fragment.AdaptiveBiomeDataSampler;
+import amidst.fragment.BiomeDataDiskCache;
+import amidst.fragment.BiomeDataPlane;
 import amidst.fragment.Fragment;
 import amidst.fragment.colorprovider.BackgroundColorProvider;
 import amidst.fragment.colorprovider.BiomeColorProvider;
+import amidst.fragment.colorprovider.BiomePalette;
 import amidst.fragment.colorprovider.MinetestMountainColorProvider;
 import amidst.fragment.colorprovider.MinetestOceanColorProvider;
 import amidst.fragment.colorprovider.MinetestRiverColorProvider;
@@ -19,15 +27,19 @@ import amidst.fragment.constructor.EndIslandsConstructor;
 import amidst.fragment.constructor.FragmentConstructor;
 import amidst.fragment.constructor.ImageConstructor;
 import amidst.fragment.drawer.AlphaUpdater;
+import amidst.fragment.drawer.BackgroundDrawer;
 import amidst.fragment.drawer.FragmentDrawer;
 import amidst.fragment.drawer.GridDrawer;
 import amidst.fragment.drawer.ImageDrawer;
 import amidst.fragment.drawer.WorldIconDrawer;
 import amidst.fragment.loader.AlphaInitializer;
+import amidst.fragment.loader.BackgroundLoader;
 import amidst.fragment.loader.BiomeDataLoader;
+import amidst.fragment.loader.BiomeDataPlaneLoader;
 import amidst.fragment.loader.EndIslandsLoader;
 import amidst.fragment.loader.FragmentLoader;
 import amidst.fragment.loader.ImageLoader;
+import amidst.fragment.loader.MinetestBitplaneImageLoader;
 import amidst.fragment.loader.WorldIconLoader;
 import amidst.gameengineabstraction.world.versionfeatures.IVersionFeatures;
 import amidst.gui.main.viewer.BiomeSelection;
@@ -43,24 +55,27 @@ import amidst.settings.Settings;
 @Immutable
 public class LayerBuilder {
 	private final Iterable<FragmentConstructor> constructors;
+	private final BiomeDataDiskCache biomeDataDiskCache;
 
-	public LayerBuilder() {
+	/**
+	 * @param biomeDataDiskCache
+	 *            can be null, if the biome data should not be cached on disk
+	 */
+	public LayerBuilder(BiomeDataDiskCache biomeDataDiskCache) {
 		this.constructors = createConstructors();
+		this.biomeDataDiskCache = biomeDataDiskCache;
 	}
 
 	/**
-	 * This also defines the construction order.
+	 * This also defines the construction order. The images of the other
+	 * layers are created by their loaders, when the layer is visible.
 	 */
 	private Iterable<FragmentConstructor> createConstructors() {
 		return Collections.unmodifiableList(
 				Arrays.asList(
 						new BiomeDataConstructor(Resolution.QUARTER),
 						new EndIslandsConstructor(),
-						new ImageConstructor(Resolution.QUARTER, LayerIds.BACKGROUND),
-						new ImageConstructor(Resolution.QUARTER, LayerIds.MINETEST_RIVER),
-						new ImageConstructor(Resolution.QUARTER, LayerIds.MINETEST_OCEAN),
-						new ImageConstructor(Resolution.QUARTER, LayerIds.MINETEST_MOUNTAIN),
-						new ImageConstructor(Resolution.CHUNK, LayerIds.SLIME)));
+						new ImageConstructor(Resolution.QUARTER, LayerIds.BACKGROUND)));
 	}
 
 	public Iterable<FragmentConstructor> getConstructors() {
@@ -71,20 +86,47 @@ public class LayerBuilder {
 		return LayerIds.NUMBER_OF_LAYERS;
 	}
 
+	/**
+	 * @param numberOfLoaders
+	 *            the number of fragments that will be loaded at the same time.
+	 *            Each of them gets its own set of loaders, because the loaders
+	 *            hold state that is used while loading a fragment.
+	 * @param onLayerInvalidated
+	 *            see LayerManager
+	 */
 	public LayerManager create(
 			AmidstSettings settings,
 			World world,
 			BiomeSelection biomeSelection,
 			WorldIconSelection worldIconSelection,
 			Zoom zoom,
-			Graphics2DAccelerationCounter accelerationCounter) {
+			Graphics2DAccelerationCounter accelerationCounter,
+			int numberOfLoaders,
+			Runnable onLayerInvalidated) {
 		List<LayerDeclaration> declarations = createDeclarations(settings, world.getVersionFeatures());
+		BiomePalette biomePalette = new BiomePalette(biomeSelection, settings.biomeProfileSelection);
 		return new LayerManager(
 				declarations,
-				new LayerLoader(
-						createLoaders(declarations, world, biomeSelection, settings),
-						LayerIds.NUMBER_OF_LAYERS),
-				createDrawers(declarations, zoom, worldIconSelection, accelerationCounter));
+				createLayerLoaders(declarations, world, biomeSelection, settings, numberOfLoaders),
+				createDrawers(declarations, zoom, worldIconSelection, biomePalette, accelerationCounter),
+				biomePalette,
+				onLayerInvalidated);
+	}
+
+	private List<LayerLoader> createLayerLoaders(
+			List<LayerDeclaration> declarations,
+			World world,
+			BiomeSelection biomeSelection,
+			AmidstSettings settings,
+			int numberOfLoaders) {
+		List<LayerLoader> result = new ArrayList<>(numberOfLoaders);
+		for (int i = 0; i < numberOfLoaders; i++) {
+			result.add(
+					new LayerLoader(
+							createLoaders(declarations, world, biomeSelection, settings),
+							LayerIds.NUMBER_OF_LAYERS));
+		}
+		return result;
 	}
 
 	private List<LayerDeclaration> createDeclarations(AmidstSettings settings, IVersionFeatures versionFeatures) {
@@ -141,15 +183,24 @@ public class LayerBuilder {
 			World world,
 			BiomeSelection biomeSelection,
 			AmidstSettings settings) {
+		Supplier<Set<BiomeDataPlane>> requestedPlanes = createRequestedBiomeDataPlanesSupplier(declarations);
 		// @formatter:off
 		return Collections.unmodifiableList(Arrays.asList(
 				new AlphaInitializer( declarations.get(LayerIds.ALPHA),             settings.fragmentFading),
-				new BiomeDataLoader(  declarations.get(LayerIds.BIOME_DATA),        world.getBiomeDataOracle()),
+				new BiomeDataLoader(  declarations.get(LayerIds.BIOME_DATA),        world.getBiomeDataOracle(), biomeDataDiskCache, createAdaptiveSamplerSupplier(settings), settings.retainBiomeClimate, requestedPlanes),
 				new EndIslandsLoader( declarations.get(LayerIds.END_ISLANDS),       world.getEndIslandOracle()),
-				new ImageLoader(	  declarations.get(LayerIds.BACKGROUND),        Resolution.QUARTER, new BackgroundColorProvider(new BiomeColorProvider(biomeSelection, settings.biomeProfileSelection), new TheEndColorProvider())),
-				new ImageLoader(      declarations.get(LayerIds.MINETEST_RIVER),    Resolution.QUARTER, new MinetestRiverColorProvider(world.getWorldType(), Resolution.QUARTER)),
-				new ImageLoader(      declarations.get(LayerIds.MINETEST_OCEAN),    Resolution.QUARTER, new MinetestOceanColorProvider()),
-				new ImageLoader(      declarations.get(LayerIds.MINETEST_MOUNTAIN), Resolution.QUARTER, new MinetestMountainColorProvider(Resolution.QUARTER)),
+				new BackgroundLoader( declarations.get(LayerIds.BACKGROUND),        Resolution.QUARTER, new BackgroundColorProvider(new BiomeColorProvider(biomeSelection, settings.biomeProfileSelection), new TheEndColorProvider())),
+				new BiomeDataPlaneLoader(declarations.get(LayerIds.MINETEST_RIVER), world.getBiomeDataOracle(), requestedPlanes),
+				new BiomeDataPlaneLoader(declarations.get(LayerIds.MINETEST_OCEAN), world.getBiomeDataOracle(), requestedPlanes),
+				new BiomeDataPlaneLoader(declarations.get(LayerIds.MINETEST_MOUNTAIN), world.getBiomeDataOracle(), requestedPlanes),
+				new MinetestBitplaneImageLoader(
+						declarations.get(LayerIds.MINETEST_RIVER),
+						declarations.get(LayerIds.MINETEST_OCEAN),
+						declarations.get(LayerIds.MINETEST_MOUNTAIN),
+						Resolution.QUARTER,
+						new MinetestRiverColorProvider(world.getWorldType(), Resolution.QUARTER),
+						new MinetestOceanColorProvider(),
+						new MinetestMountainColorProvider(Resolution.QUARTER)),
 				new ImageLoader(      declarations.get(LayerIds.SLIME),             Resolution.CHUNK,   new SlimeColorProvider(world.getSlimeChunkOracle())),
 				new WorldIconLoader<>(declarations.get(LayerIds.SPAWN),             world.getSpawnProducer()),
 				new WorldIconLoader<>(declarations.get(LayerIds.STRONGHOLD),        world.getStrongholdProducer()),
@@ -166,6 +217,48 @@ public class LayerBuilder {
 		// @formatter:on
 	}
 
+	/**
+	 * The exact sampler while adaptive sampling is off. Otherwise, the
+	 * verification density is the fraction of uniform cells that are checked
+	 * for features the adaptive sampling would miss, like thin rivers.
+	 */
+	private static Supplier<AdaptiveBiomeDataSampler> createAdaptiveSamplerSupplier(AmidstSettings settings) {
+		return () -> {
+			if (settings.adaptiveBiomeSampling.get()) {
+				return new AdaptiveBiomeDataSampler(
+						AdaptiveBiomeDataSampler
+								.parseVerificationDensity(settings.adaptiveBiomeSamplingVerification.get()));
+			} else {
+				return AdaptiveBiomeDataSampler.EXACT;
+			}
+		};
+	}
+
+	/**
+	 * The planes the visible layers are drawn from. The river layer also
+	 * needs the oceans, because it draws the river banks where a river meets
+	 * neither river nor ocean.
+	 */
+	private static Supplier<Set<BiomeDataPlane>> createRequestedBiomeDataPlanesSupplier(
+			List<LayerDeclaration> declarations) {
+		LayerDeclaration river = declarations.get(LayerIds.MINETEST_RIVER);
+		LayerDeclaration ocean = declarations.get(LayerIds.MINETEST_OCEAN);
+		LayerDeclaration mountain = declarations.get(LayerIds.MINETEST_MOUNTAIN);
+		return () -> {
+			Set<BiomeDataPlane> result = EnumSet.noneOf(BiomeDataPlane.class);
+			if (river.isVisible() || ocean.isVisible()) {
+				result.add(BiomeDataPlane.OCEAN);
+			}
+			if (river.isVisible()) {
+				result.add(BiomeDataPlane.RIVER);
+			}
+			if (mountain.isVisible()) {
+				result.add(BiomeDataPlane.MOUNTAIN);
+			}
+			return result;
+		};
+	}
+
 	/**
 	 * This also defines the rendering order.
 	 */
@@ -173,11 +266,12 @@ public class LayerBuilder {
 			List<LayerDeclaration> declarations,
 			Zoom zoom,
 			WorldIconSelection worldIconSelection,
+			BiomePalette biomePalette,
 			Graphics2DAccelerationCounter accelerationCounter) {
 		// @formatter:off
 		return Collections.unmodifiableList(Arrays.asList(
 				new AlphaUpdater(   declarations.get(LayerIds.ALPHA)),
-				new ImageDrawer(    declarations.get(LayerIds.BACKGROUND),        Resolution.QUARTER, accelerationCounter),
+				new BackgroundDrawer(declarations.get(LayerIds.BACKGROUND),       Resolution.QUARTER, biomePalette, accelerationCounter),
 				new ImageDrawer(    declarations.get(LayerIds.MINETEST_RIVER),    Resolution.QUARTER, accelerationCounter),
 				new ImageDrawer(    declarations.get(LayerIds.MINETEST_OCEAN),    Resolution.QUARTER, accelerationCounter),
 				new ImageDrawer(    declarations.get(LayerIds.MINETEST_MOUNTAIN), Resolution.QUARTER, accelerationCounter),
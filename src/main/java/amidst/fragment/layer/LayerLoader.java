@@ -43,14 +43,51 @@ public class LayerLoader {
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	public void reloadInvalidated(Dimension dimension, Fragment fragment) {
 		for (FragmentLoader loader : loaders) {
-			if (loader.isEnabled() && isInvalidated(loader.getLayerId())) {
+			if (loader.isEnabled() && isInvalidated(loader)) {
 				loader.reload(dimension, fragment);
 			}
 		}
 	}
 
+	/**
+	 * Reloads the biome data and the layers that are drawn from it, e.g.
+	 * because the biome data is needed at a finer resolution.
+	 */
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	private boolean isInvalidated(int layerId) {
-		return invalidatedLayers[layerId];
+	public void reloadBiomeData(Dimension dimension, Fragment fragment) {
+		for (FragmentLoader loader : loaders) {
+			if (loader.isEnabled() && isDrawnFromBiomeData(loader)) {
+				loader.reload(dimension, fragment);
+			}
+		}
+	}
+
+	@CalledByAny
+	private static boolean isDrawnFromBiomeData(FragmentLoader loader) {
+		for (int layerId = 0; layerId < LayerIds.NUMBER_OF_LAYERS; layerId++) {
+			if (loader.isLoading(layerId) && isDrawnFromBiomeData(layerId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@CalledByAny
+	private static boolean isDrawnFromBiomeData(int layerId) {
+		return layerId == LayerIds.BIOME_DATA
+				|| layerId == LayerIds.BACKGROUND
+				|| layerId == LayerIds.MINETEST_RIVER
+				|| layerId == LayerIds.MINETEST_OCEAN
+				|| layerId == LayerIds.MINETEST_MOUNTAIN;
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private boolean isInvalidated(FragmentLoader loader) {
+		for (int layerId = 0; layerId < invalidatedLayers.length; layerId++) {
+			if (invalidatedLayers[layerId] && loader.isLoading(layerId)) {
+				return true;
+			}
+		}
+		return false;
 	}
 }
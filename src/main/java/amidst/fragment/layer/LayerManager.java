@@ -1,5 +1,6 @@
 package amidst.fragment.layer;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import amidst.documentation.AmidstThread;
@@ -7,6 +8,7 @@ import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
 import amidst.fragment.Fragment;
+import amidst.fragment.colorprovider.BiomePalette;
 import amidst.fragment.drawer.FragmentDrawer;
 import amidst.mojangapi.world.Dimension;
 import amidst.mojangapi.world.World;
@@ -17,16 +19,33 @@ public class LayerManager {
 	private final TaskQueue invalidationOperations = new TaskQueue();
 
 	private final List<LayerDeclaration> declarations;
-	private final LayerLoader layerLoader;
+	private final List<LayerLoader> layerLoaders;
 	private final Iterable<FragmentDrawer> drawers;
+	private final BiomePalette biomePalette;
+	private final Runnable onLayerInvalidated;
 
+	/**
+	 * @param layerLoaders
+	 *            one independent layer loader for each fragment loader that
+	 *            can run at the same time
+	 * @param biomePalette
+	 *            the palette the background drawer colours the background of
+	 *            the overworld with
+	 * @param onLayerInvalidated
+	 *            called whenever a layer was invalidated, so the fragment
+	 *            loader can reload it
+	 */
 	public LayerManager(
 			List<LayerDeclaration> declarations,
-			LayerLoader layerLoader,
-			Iterable<FragmentDrawer> drawers) {
+			List<LayerLoader> layerLoaders,
+			Iterable<FragmentDrawer> drawers,
+			BiomePalette biomePalette,
+			Runnable onLayerInvalidated) {
 		this.declarations = declarations;
-		this.layerLoader = layerLoader;
+		this.layerLoaders = new ArrayList<>(layerLoaders);
 		this.drawers = drawers;
+		this.biomePalette = biomePalette;
+		this.onLayerInvalidated = onLayerInvalidated;
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
@@ -46,26 +65,44 @@ public class LayerManager {
 	@CalledByAny
 	public void invalidateLayer(int layerId) {
 		invalidationOperations.invoke(() -> doInvalidateLayer(layerId));
+		onLayerInvalidated.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	private void doInvalidateLayer(int layerId) {
-		layerLoader.invalidateLayer(layerId);
+		for (LayerLoader layerLoader : layerLoaders) {
+			layerLoader.invalidateLayer(layerId);
+		}
+	}
+
+	/**
+	 * The number of fragments that can be loaded at the same time, each one
+	 * using a different loaderIndex.
+	 */
+	public int getNumberOfLoaders() {
+		return layerLoaders.size();
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	public void loadAll(Dimension dimension, Fragment fragment) {
-		layerLoader.loadAll(dimension, fragment);
+	public void loadAll(int loaderIndex, Dimension dimension, Fragment fragment) {
+		layerLoaders.get(loaderIndex).loadAll(dimension, fragment);
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
-	public void reloadInvalidated(Dimension dimension, Fragment fragment) {
-		layerLoader.reloadInvalidated(dimension, fragment);
+	public void reloadInvalidated(int loaderIndex, Dimension dimension, Fragment fragment) {
+		layerLoaders.get(loaderIndex).reloadInvalidated(dimension, fragment);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void reloadBiomeData(int loaderIndex, Dimension dimension, Fragment fragment) {
+		layerLoaders.get(loaderIndex).reloadBiomeData(dimension, fragment);
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	public void clearInvalidatedLayers() {
-		layerLoader.clearInvalidatedLayers();
+		for (LayerLoader layerLoader : layerLoaders) {
+			layerLoader.clearInvalidatedLayers();
+		}
 	}
 
 	public Iterable<LayerDeclaration> getDeclarations() {
@@ -77,7 +114,7 @@ public class LayerManager {
 	}
 
 	public LayerReloader createLayerReloader(World world) {
-		return new LayerReloader(world, this);
+		return new LayerReloader(world, this, biomePalette);
 	}
 
 	/**
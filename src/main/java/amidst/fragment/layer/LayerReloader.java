@@ -1,22 +1,39 @@
 package amidst.fragment.layer;
 
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
+import amidst.fragment.colorprovider.BiomePalette;
 import amidst.mojangapi.world.World;
 
 @ThreadSafe
 public class LayerReloader {
 	private final World world;
 	private final LayerManager layerManager;
+	private final BiomePalette biomePalette;
 
-	public LayerReloader(World world, LayerManager layerManager) {
+	public LayerReloader(World world, LayerManager layerManager, BiomePalette biomePalette) {
 		this.world = world;
 		this.layerManager = layerManager;
+		this.biomePalette = biomePalette;
 	}
 
+	@CalledOnlyBy(AmidstThread.EDT)
 	public void reloadBackgroundLayer() {
+		biomePalette.update();
 		layerManager.invalidateLayer(LayerIds.BACKGROUND);
 	}
 
+	/**
+	 * Only the colours of the biomes changed, e.g. because the biome selection
+	 * was changed. The background of the overworld is coloured from the biome
+	 * palette when it is drawn, so it only needs a repaint.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void recolorBackgroundLayer() {
+		biomePalette.update();
+	}
+
 	public void reloadPlayerLayer() {
 		world.reloadPlayerWorldIcons();
 		layerManager.invalidateLayer(LayerIds.PLAYER);
@@ -0,0 +1,49 @@
+package amidst.fragment.loader;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.Fragment;
+import amidst.fragment.colorprovider.ColorProvider;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * The background of the overworld is coloured from the biome data when it is
+ * drawn, see BackgroundDrawer, so it is only marked to be coloured again. The
+ * background of the other dimensions is drawn by an image loader.
+ */
+@NotThreadSafe
+public class BackgroundLoader extends FragmentLoader {
+	private final ImageLoader imageLoader;
+
+	public BackgroundLoader(LayerDeclaration declaration, Resolution resolution, ColorProvider colorProvider) {
+		super(declaration);
+		this.imageLoader = new ImageLoader(declaration, resolution, colorProvider);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void load(Dimension dimension, Fragment fragment) {
+		doLoad(dimension, fragment);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void reload(Dimension dimension, Fragment fragment) {
+		doLoad(dimension, fragment);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void doLoad(Dimension dimension, Fragment fragment) {
+		if (dimension.equals(Dimension.OVERWORLD)) {
+			fragment.setBackgroundColoredByBiomePalette(true);
+		} else {
+			// this has to happen before the image is replaced, so the drawing
+			// thread doesn't colour the new image
+			fragment.setBackgroundColoredByBiomePalette(false);
+			imageLoader.load(dimension, fragment);
+		}
+	}
+}
@@ -1,20 +1,72 @@
 package amidst.fragment.loader;
 
+import java.util.Set;
+import java.util.function.Supplier;
+
 import amidst.documentation.AmidstThread;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
+import amidst.fragment.AdaptiveBiomeDataSampler;
+import amidst.fragment.BiomeDataDiskCache;
+import amidst.fragment.BiomeDataPlane;
 import amidst.fragment.Fragment;
 import amidst.fragment.IBiomeDataOracle;
+import amidst.fragment.IReclassifiableBiomeDataOracle;
 import amidst.fragment.layer.LayerDeclaration;
 import amidst.mojangapi.world.Dimension;
+import amidst.settings.Setting;
 
 @NotThreadSafe
 public class BiomeDataLoader extends FragmentLoader {
 	private final IBiomeDataOracle biomeDataOracle;
+	private final BiomeDataDiskCache biomeDataDiskCache;
+	private final Supplier<AdaptiveBiomeDataSampler> adaptiveSamplerSupplier;
+	/**
+	 * null, if the oracle can't reclassify its biome data
+	 */
+	private final IReclassifiableBiomeDataOracle reclassifiableBiomeDataOracle;
+	private final Setting<Boolean> retainBiomeClimateSetting;
+	private final Supplier<Set<BiomeDataPlane>> requestedPlanesSupplier;
 
-	public BiomeDataLoader(LayerDeclaration declaration, IBiomeDataOracle biomeDataOracle) {
+	/**
+	 * @param biomeDataDiskCache
+	 *            can be null, if the biome data should not be cached on disk
+	 * @param adaptiveSamplerSupplier
+	 *            unless this supplies AdaptiveBiomeDataSampler.EXACT, the
+	 *            adaptive sampler is used instead of the disk cache
+	 * @param retainBiomeClimateSetting
+	 *            while this is true, the fragments retain the climate of
+	 *            their biome data, so a biome profile change only chooses the
+	 *            biomes again. This takes precedence over the adaptive
+	 *            sampler and the disk cache.
+	 * @param requestedPlanesSupplier
+	 *            the planes of the visible layers, the other planes are not
+	 *            generated unless the disk cache is used, see
+	 *            BiomeDataPlaneLoader
+	 */
+	public BiomeDataLoader(
+			LayerDeclaration declaration,
+			IBiomeDataOracle biomeDataOracle,
+			BiomeDataDiskCache biomeDataDiskCache,
+			Supplier<AdaptiveBiomeDataSampler> adaptiveSamplerSupplier,
+			Setting<Boolean> retainBiomeClimateSetting,
+			Supplier<Set<BiomeDataPlane>> requestedPlanesSupplier) {
 		super(declaration);
 		this.biomeDataOracle = biomeDataOracle;
+		this.biomeDataDiskCache = biomeDataDiskCache;
+		this.adaptiveSamplerSupplier = adaptiveSamplerSupplier;
+		this.reclassifiableBiomeDataOracle = getReclassifiableBiomeDataOracle(biomeDataOracle);
+		this.retainBiomeClimateSetting = retainBiomeClimateSetting;
+		this.requestedPlanesSupplier = requestedPlanesSupplier;
+	}
+
+	private static IReclassifiableBiomeDataOracle getReclassifiableBiomeDataOracle(IBiomeDataOracle biomeDataOracle) {
+		if (biomeDataOracle instanceof IReclassifiableBiomeDataOracle
+				&& ((IReclassifiableBiomeDataOracle) biomeDataOracle).canReclassify()) {
+			return (IReclassifiableBiomeDataOracle) biomeDataOracle;
+		} else {
+			return null;
+		}
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
@@ -26,11 +78,28 @@ public class BiomeDataLoader extends FragmentLoader {
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	@Override
 	public void reload(Dimension dimension, Fragment fragment) {
-		doLoad(fragment);
+		if (isRetainingBiomeClimate() && fragment.canReclassifyBiomeData()) {
+			fragment.reclassifyBiomeData(reclassifiableBiomeDataOracle);
+		} else {
+			doLoad(fragment);
+		}
 	}
 
 	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 	private void doLoad(Fragment fragment) {
-		fragment.populateBiomeData(biomeDataOracle);
+		AdaptiveBiomeDataSampler adaptiveSampler = adaptiveSamplerSupplier.get();
+		if (isRetainingBiomeClimate()) {
+			fragment.populateBiomeDataRetainingClimate(reclassifiableBiomeDataOracle, requestedPlanesSupplier.get());
+		} else if (!adaptiveSampler.isExact()) {
+			fragment.populateBiomeData(biomeDataOracle, adaptiveSampler, requestedPlanesSupplier.get());
+		} else if (biomeDataDiskCache != null) {
+			fragment.populateBiomeData(biomeDataOracle, biomeDataDiskCache);
+		} else {
+			fragment.populateBiomeData(biomeDataOracle, requestedPlanesSupplier.get());
+		}
+	}
+
+	private boolean isRetainingBiomeClimate() {
+		return reclassifiableBiomeDataOracle != null && retainBiomeClimateSetting.get();
 	}
 }
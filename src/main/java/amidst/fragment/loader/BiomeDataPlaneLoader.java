@@ -0,0 +1,51 @@
+package amidst.fragment.loader;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.BiomeDataPlane;
+import amidst.fragment.Fragment;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.mojangapi.world.Dimension;
+
+/**
+ * Adds the planes a layer is drawn from to the biome data of fragments that
+ * were loaded while the layer was hidden. It must be placed before the loader
+ * of the layer, so the planes are there when the layer is drawn.
+ */
+@NotThreadSafe
+public class BiomeDataPlaneLoader extends FragmentLoader {
+	private final IBiomeDataOracle biomeDataOracle;
+	private final Supplier<Set<BiomeDataPlane>> requestedPlanesSupplier;
+
+	public BiomeDataPlaneLoader(
+			LayerDeclaration declaration,
+			IBiomeDataOracle biomeDataOracle,
+			Supplier<Set<BiomeDataPlane>> requestedPlanesSupplier) {
+		super(declaration);
+		this.biomeDataOracle = biomeDataOracle;
+		this.requestedPlanesSupplier = requestedPlanesSupplier;
+	}
+
+	/**
+	 * The biome data loader already generated the planes of all visible
+	 * layers.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void load(Dimension dimension, Fragment fragment) {
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void reload(Dimension dimension, Fragment fragment) {
+		Set<BiomeDataPlane> missingPlanes = fragment.getMissingBiomeDataPlanes(requestedPlanesSupplier.get());
+		if (!missingPlanes.isEmpty()) {
+			fragment.addBiomeDataPlanes(biomeDataOracle, missingPlanes);
+		}
+	}
+}
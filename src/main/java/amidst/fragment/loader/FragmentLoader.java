@@ -19,6 +19,14 @@ public abstract class FragmentLoader {
 		return declaration.getLayerId();
 	}
 
+	/**
+	 * A loader that loads several layers at once has to override this and
+	 * isEnabled().
+	 */
+	public boolean isLoading(int layerId) {
+		return layerId == getLayerId();
+	}
+
 	public boolean isEnabled() {
 		return declaration.isVisible();
 	}
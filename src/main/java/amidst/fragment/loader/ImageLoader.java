@@ -28,7 +28,6 @@ public class ImageLoader extends FragmentLoader {
 		this.colorProvider = colorProvider;
 		this.size = resolution.getStepsPerFragment();
 		this.rgbArray = new int[size * size];
-		this.bufferedImage = createBufferedImage();
 	}
 
 	@CalledByAny
@@ -54,7 +53,15 @@ public class ImageLoader extends FragmentLoader {
 		long cornerX = corner.getXAs(resolution);
 		long cornerY = corner.getYAs(resolution);
 		drawToCache(dimension, fragment, cornerX, cornerY);
-		bufferedImage.setRGB(0, 0, size, size, rgbArray, 0, size);
+		// the image is created when it is needed for the first time, because
+		// the fragments have no image for layers that were never visible
+		if (bufferedImage == null) {
+			bufferedImage = createBufferedImage();
+		}
+		// the drawing thread might still colour the image, see BackgroundDrawer
+		synchronized (bufferedImage) {
+			bufferedImage.setRGB(0, 0, size, size, rgbArray, 0, size);
+		}
 		bufferedImage = fragment.getAndSetImage(declaration.getLayerId(), bufferedImage);
 	}
 
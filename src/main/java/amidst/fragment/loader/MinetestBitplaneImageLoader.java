@@ -0,0 +1,204 @@
+package amidst.fragment.loader;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.Fragment;
+import amidst.fragment.colorprovider.MinetestMountainColorProvider;
+import amidst.fragment.colorprovider.MinetestOceanColorProvider;
+import amidst.fragment.colorprovider.MinetestRiverColorProvider;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * Loads the images of the Minetest river, ocean and mountain layers with a
+ * single pass over the biome data of the fragment, instead of one pass per
+ * layer. Only the images of the visible layers are drawn. When any of the
+ * layers is reloaded, all visible layers are drawn again, because the pass
+ * over the biome data is the expensive part.
+ * 
+ * Each layer only has a few colours, so the images store a colour index with
+ * 1 or 2 bits per pixel instead of a 32 bit colour. The images are only
+ * created for fragments that are loaded while the layer is visible. If all of
+ * the biome data of the fragment is the same, e.g. outside of the world, the
+ * layers are drawn with a single colour and the fragment keeps no image.
+ */
+@NotThreadSafe
+public class MinetestBitplaneImageLoader extends FragmentLoader {
+	@NotThreadSafe
+	private static class LayerImage {
+		private final LayerDeclaration declaration;
+		private final int size;
+		private final int[] colors;
+		private final IndexColorModel colorModel;
+		/**
+		 * One colour index per pixel, the image packs them.
+		 */
+		private final byte[] colorIndices;
+		private BufferedImage bufferedImage;
+		private boolean isDrawn;
+
+		@CalledByAny
+		public LayerImage(LayerDeclaration declaration, int size, int[] colors) {
+			this.declaration = declaration;
+			this.size = size;
+			this.colors = colors;
+			this.colorModel = createColorModel(colors);
+			this.colorIndices = new byte[size * size];
+		}
+
+		@CalledByAny
+		private static IndexColorModel createColorModel(int[] colors) {
+			int bits = colors.length <= 2 ? 1 : 2;
+			return new IndexColorModel(bits, colors.length, colors, 0, true, -1, DataBuffer.TYPE_BYTE);
+		}
+
+		/**
+		 * The raster is written as a whole instead of pixel by pixel, but not
+		 * via its data array, because that would prevent the image from being
+		 * accelerated. The fragment gets the image of the previous fragment
+		 * in exchange, or none if the layer was never drawn for it.
+		 */
+		@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+		public void putInto(Fragment fragment) {
+			if (bufferedImage == null) {
+				bufferedImage = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY, colorModel);
+			}
+			bufferedImage.getRaster().setDataElements(0, 0, size, size, colorIndices);
+			bufferedImage = fragment.getAndSetImage(declaration.getLayerId(), bufferedImage);
+		}
+
+		/**
+		 * The previous image of the fragment is kept, unless there is one
+		 * already.
+		 */
+		@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+		public void putUniformInto(Fragment fragment, int colorIndex) {
+			Color color = new Color(colors[colorIndex], true);
+			BufferedImage previousImage = fragment.getAndSetUniformColor(declaration.getLayerId(), color);
+			if (bufferedImage == null) {
+				bufferedImage = previousImage;
+			}
+		}
+	}
+
+	private final LayerImage river;
+	private final LayerImage ocean;
+	private final LayerImage mountain;
+	private final LayerImage[] layerImages;
+	private final MinetestRiverColorProvider riverColorProvider;
+	private final MinetestOceanColorProvider oceanColorProvider;
+	private final MinetestMountainColorProvider mountainColorProvider;
+	private final int size;
+
+	@CalledByAny
+	public MinetestBitplaneImageLoader(
+			LayerDeclaration riverDeclaration,
+			LayerDeclaration oceanDeclaration,
+			LayerDeclaration mountainDeclaration,
+			Resolution resolution,
+			MinetestRiverColorProvider riverColorProvider,
+			MinetestOceanColorProvider oceanColorProvider,
+			MinetestMountainColorProvider mountainColorProvider) {
+		super(riverDeclaration);
+		this.size = resolution.getStepsPerFragment();
+		this.river = new LayerImage(riverDeclaration, size, riverColorProvider.getColors());
+		this.ocean = new LayerImage(oceanDeclaration, size, oceanColorProvider.getColors());
+		this.mountain = new LayerImage(mountainDeclaration, size, mountainColorProvider.getColors());
+		this.layerImages = new LayerImage[] { river, ocean, mountain };
+		this.riverColorProvider = riverColorProvider;
+		this.oceanColorProvider = oceanColorProvider;
+		this.mountainColorProvider = mountainColorProvider;
+	}
+
+	@Override
+	public boolean isLoading(int layerId) {
+		return layerId == river.declaration.getLayerId()
+				|| layerId == ocean.declaration.getLayerId()
+				|| layerId == mountain.declaration.getLayerId();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return river.declaration.isVisible() || ocean.declaration.isVisible() || mountain.declaration.isVisible();
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void load(Dimension dimension, Fragment fragment) {
+		doLoad(fragment);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	@Override
+	public void reload(Dimension dimension, Fragment fragment) {
+		doLoad(fragment);
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void doLoad(Fragment fragment) {
+		river.isDrawn = river.declaration.isVisible();
+		ocean.isDrawn = ocean.declaration.isVisible();
+		mountain.isDrawn = mountain.declaration.isVisible();
+		if (fragment.isBiomeDataUniform()) {
+			putUniformInto(fragment, fragment.getBiomeData());
+			return;
+		}
+		drawToCache(fragment.getBiomeData());
+		for (LayerImage layerImage : layerImages) {
+			if (layerImage.isDrawn) {
+				layerImage.putInto(fragment);
+			}
+		}
+	}
+
+	/**
+	 * The river edge depends on the neighbours of a sample, which are the same
+	 * as the sample itself in uniform biome data.
+	 */
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void putUniformInto(Fragment fragment, BiomeDataBuffer biomeData) {
+		short[] data = biomeData.getData();
+		if (river.isDrawn) {
+			river.putUniformInto(fragment, riverColorProvider.getColorIndex(data, biomeData.getWidth(), 0, 0, 0));
+		}
+		if (ocean.isDrawn) {
+			ocean.putUniformInto(fragment, oceanColorProvider.getColorIndex(data[0]));
+		}
+		if (mountain.isDrawn) {
+			mountain.putUniformInto(fragment, mountainColorProvider.getColorIndex(data[0]));
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void drawToCache(BiomeDataBuffer biomeData) {
+		short[] data = biomeData.getData();
+		int width = biomeData.getWidth();
+		byte[] riverIndices = river.isDrawn ? river.colorIndices : null;
+		byte[] oceanIndices = ocean.isDrawn ? ocean.colorIndices : null;
+		byte[] mountainIndices = mountain.isDrawn ? mountain.colorIndices : null;
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				int dataIndex = biomeData.getIndex(x, y);
+				int index = x + y * size;
+				if (riverIndices != null) {
+					riverIndices[index] = (byte) riverColorProvider.getColorIndex(data, width, dataIndex, x, y);
+				}
+				if (oceanIndices != null) {
+					oceanIndices[index] = (byte) oceanColorProvider.getColorIndex(data[dataIndex]);
+				}
+				if (mountainIndices != null) {
+					mountainIndices[index] = (byte) mountainColorProvider.getColorIndex(data[dataIndex]);
+				}
+			}
+		}
+	}
+}
@@ -31,6 +31,7 @@ import amidst.minetest.world.mapgen.MapgenRelay;
 import amidst.mojangapi.world.WorldSeed;
 import amidst.mojangapi.world.WorldType;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.export.WorldExporterConfiguration;
 import amidst.mojangapi.world.icon.WorldIcon;
 import amidst.mojangapi.world.player.Player;
 import amidst.mojangapi.world.player.PlayerCoordinates;
@@ -130,7 +131,14 @@ public class Actions {
 	public void export() {
 		ViewerFacade viewerFacade = viewerFacadeSupplier.get();
 		if (viewerFacade != null) {
-			viewerFacade.export(dialogs.askForExportConfiguration());
+			String suggestedFilename = "export_" + viewerFacade.getWorldType().getFilenameText() + "_"
+					+ viewerFacade.getWorldSeed().getLongAsString() + ".csv";
+			WorldExporterConfiguration configuration = dialogs.askForExportConfiguration(
+					suggestedFilename,
+					viewerFacade.getBiomeDataOracle().getNativeCoordinateSystem());
+			if (configuration != null) {
+				viewerFacade.export(configuration);
+			}
 		}
 	}
 
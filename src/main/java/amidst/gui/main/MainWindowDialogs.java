@@ -1,6 +1,7 @@
 package amidst.gui.main;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.swing.JFileChooser;
@@ -11,6 +12,7 @@ import amidst.AmidstSettings;
 import amidst.documentation.AmidstThread;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
+import amidst.gameengineabstraction.CoordinateSystem;
 import amidst.gameengineabstraction.GameEngineType;
 import amidst.gameengineabstraction.world.WorldTypes;
 import amidst.gui.text.TextWindow;
@@ -21,6 +23,8 @@ import amidst.minetest.world.mapgen.MapgenRelay;
 import amidst.mojangapi.RunningLauncherProfile;
 import amidst.mojangapi.world.WorldSeed;
 import amidst.mojangapi.world.WorldType;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.mojangapi.world.export.WorldExporterConfiguration;
 import amidst.mojangapi.world.player.WorldPlayerType;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
@@ -199,10 +203,67 @@ public class MainWindowDialogs {
 		return JOptionPane.showInputDialog(frame, message, title, JOptionPane.QUESTION_MESSAGE);
 	}
 
+	/**
+	 * @return null if the user cancelled the export or entered an invalid
+	 *         region
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
-	public WorldExporterConfiguration askForExportConfiguration() {
-		// TODO: implement me!
-		// TODO: display gui to create configuration
-		return new WorldExporterConfiguration();
+	public WorldExporterConfiguration askForExportConfiguration(
+			String suggestedFilename,
+			CoordinateSystem coordinateSystem) {
+		JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setSelectedFile(new File(suggestedFilename));
+		File file = showSaveDialogAndGetSelectedFileOrNull(fileChooser);
+		if (file == null) {
+			return null;
+		}
+		Object region = JOptionPane.showInputDialog(
+				frame,
+				"Enter the region to export: x1,z1,x2,z2\n"
+						+ "The file is written as csv or geojson if it has that extension, otherwise as compressed binary data.",
+				"Export",
+				JOptionPane.QUESTION_MESSAGE,
+				null,
+				null,
+				"-1024,-1024,1023,1023");
+		if (region == null) {
+			return null;
+		}
+		long[] area = parseArea(region.toString());
+		if (area == null) {
+			displayError("Invalid region: " + region + "\nThe region must be entered as x1,z1,x2,z2");
+			return null;
+		}
+		String quarterResolution = "One biome sample every 4 blocks";
+		String worldResolution = "One biome sample every block";
+		String resolution = askForOptions("Export", "Resolution", Arrays.asList(quarterResolution, worldResolution));
+		if (resolution == null) {
+			return null;
+		}
+		long z1 = coordinateSystem.ConvertToRightHanded(area[1]);
+		long z2 = coordinateSystem.ConvertToRightHanded(area[3]);
+		return new WorldExporterConfiguration(
+				file,
+				WorldExporterConfiguration.Format.fromFile(file),
+				CoordinatesInWorld.from(area[0], Math.min(z1, z2)),
+				area[2] - area[0] + 1,
+				Math.abs(z2 - z1) + 1,
+				worldResolution.equals(resolution) ? Resolution.WORLD : Resolution.QUARTER,
+				true,
+				true,
+				true,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return the area as { x1, z1, x2, z2 } with x1 <= x2 and z1 <= z2, or
+	 *         null if it cannot be parsed
+	 */
+	private static long[] parseArea(String area) {
+		try {
+			return WorldExporterConfiguration.parseArea(area);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
 	}
 }
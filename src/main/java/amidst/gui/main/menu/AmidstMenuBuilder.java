@@ -135,6 +135,9 @@ public class AmidstMenuBuilder {
 		// @formatter:off
 		Menus.checkbox(result, settings.smoothScrolling,      "Smooth Scrolling");
 		Menus.checkbox(result, settings.fragmentFading,       "Fragment Fading");
+		Menus.checkbox(result, settings.adaptiveBiomeSampling, "Adaptive Biome Sampling");
+		result.add(create_Settings_AdaptiveBiomeSamplingVerification());
+		Menus.checkbox(result, settings.retainBiomeClimate,   "Fast Biome Profile Switching");
 		Menus.checkbox(result, settings.maxZoom,              "Restrict Maximum Zoom");
 		Menus.checkbox(result, settings.showFPS,              "Show Framerate");
 		Menus.checkbox(result, settings.showScale,            "Show Scale");
@@ -151,6 +154,18 @@ public class AmidstMenuBuilder {
 		return result;
 	}
 	
+	/**
+	 * The percentage of uniform cells the adaptive biome sampling checks for
+	 * smaller features, see AdaptiveBiomeDataSampler.
+	 */
+	private JMenu create_Settings_AdaptiveBiomeSamplingVerification() {
+		JMenu result = new JMenu("Adaptive Sampling Verification");
+		// @formatter:off
+		Menus.radios(result, settings.adaptiveBiomeSamplingVerification, "0%", "10%", "25%", "50%", "100%");
+		// @formatter:on
+		return result;
+	}
+
 	private JMenu create_Settings_BiomeProfile() {
 		JMenu result = new JMenu("Biome profile");
 		// @formatter:off
@@ -59,6 +59,8 @@ public class Drawer {
 	private final Setting<Dimension> dimensionSetting;
 	private final Graphics2DAccelerationCounter accelerationCounter;
 	private final TexturePaint voidTexturePaint, void2TexturePaint;
+	private final Runnable requestRepaint;
+	private final TilePyramid tilePyramid;
 
 	private Graphics2D g2d;
 	private int viewerWidth;
@@ -68,7 +70,15 @@ public class Drawer {
 
 	private long lastTime = System.currentTimeMillis();
 	private float time;
+	private boolean isFragmentFading;
+	private boolean isTilePyramidIncomplete;
 
+	/**
+	 * @param requestRepaint
+	 *            called after each frame that is part of an animation, like
+	 *            the movement or the fading of fragments and widgets, so the
+	 *            next frame is drawn
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	public Drawer(
 			WorldType worldType,
@@ -79,7 +89,8 @@ public class Drawer {
 			List<Widget> widgets,
 			Iterable<FragmentDrawer> drawers,
 			Setting<Dimension> dimensionSetting,
-			Graphics2DAccelerationCounter accelerationCounter) {
+			Graphics2DAccelerationCounter accelerationCounter,
+			Runnable requestRepaint) {
 		this.worldType = worldType;
 		this.graph = graph;
 		this.translator = translator;
@@ -95,7 +106,8 @@ public class Drawer {
 		this.void2TexturePaint = new TexturePaint(
 				VOID2_TEXTURE,
 				new Rectangle(0, 0, VOID2_TEXTURE.getWidth(), VOID2_TEXTURE.getHeight()));
-		
+		this.requestRepaint = requestRepaint;
+		this.tilePyramid = new TilePyramid(drawers, accelerationCounter);
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -137,6 +149,22 @@ public class Drawer {
 		drawFragments();
 		drawBorder();
 		drawWidgets();
+		if (isAnimating()) {
+			requestRepaint.run();
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private boolean isAnimating() {
+		if (isFragmentFading || zoom.isFading() || movement.isMoving() || isTilePyramidIncomplete) {
+			return true;
+		}
+		for (Widget widget : widgets) {
+			if (widget.isFading()) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -201,10 +229,25 @@ public class Drawer {
 		originalLayerMatrix.scale(scale, scale);
 	}
 
+	/**
+	 * When the map is zoomed out, the layers that can be drawn into tiles are
+	 * drawn by the tile pyramid, at the position of the first of them.
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	private void drawLayers() {
+		isFragmentFading = false;
+		isTilePyramidIncomplete = false;
+		int tileLevel = tilePyramid.getLevel(zoom.getCurrentValue());
+		boolean isTilePyramidDrawn = false;
 		for (FragmentDrawer drawer : drawers) {
-			if (drawer.isEnabled()) {
+			if (drawer.isEnabled() && tileLevel > 0 && drawer.isDrawnIntoTiles()) {
+				if (!isTilePyramidDrawn) {
+					isTilePyramidDrawn = true;
+					tilePyramid.draw(tileLevel, graph, g2d, originalLayerMatrix, time);
+					isFragmentFading |= tilePyramid.isFragmentFading();
+					isTilePyramidIncomplete = tilePyramid.isIncomplete();
+				}
+			} else if (drawer.isEnabled()) {
 				initLayerMatrix();
 				for (FragmentGraphItem fragmentGraphItem : graph) {
 					Fragment fragment = fragmentGraphItem.getFragment();
@@ -216,6 +259,7 @@ public class Drawer {
 						setAlphaComposite(fragment.getAlpha());
 						g2d.setTransform(layerMatrix);
 						drawer.draw(fragment, g2d, time);
+						isFragmentFading |= fragment.getAlpha() < 1.0f;
 					}
 					updateLayerMatrix(fragmentGraphItem, graph.getFragmentsPerRow());
 				}
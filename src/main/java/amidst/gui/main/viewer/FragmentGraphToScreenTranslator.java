@@ -8,9 +8,36 @@ import amidst.documentation.NotThreadSafe;
 import amidst.fragment.Fragment;
 import amidst.fragment.FragmentGraph;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
-
+import amidst.mojangapi.world.coordinates.Resolution;
+
+/**
+ * Besides the visible fragments, the fragment graph contains a prefetch ring
+ * of fragments that are about to become visible: the fragments in the
+ * direction the map moves, and the fragments around the viewport while
+ * zooming out. The ring is kept for a while after the movement stopped, so
+ * the fragments stay loaded when the movement continues.
+ */
 @NotThreadSafe
 public class FragmentGraphToScreenTranslator {
+	/**
+	 * The prefetched fragments cover the distance the map moves in this many
+	 * frames at its current speed. Smooth scrolling moves the map about this
+	 * far after the mouse is released.
+	 */
+	private static final int PREFETCH_FRAMES = 20;
+	private static final int MAX_PREFETCH_DEPTH = 4;
+	private static final long PREFETCH_KEEP_MILLIS = 1000;
+	/**
+	 * The resolutions of the biome data, from the finest to the coarsest.
+	 */
+	private static final Resolution[] BIOME_DATA_RESOLUTIONS = {
+			Resolution.QUARTER,
+			Resolution.NETHER,
+			Resolution.CHUNK,
+			Resolution.CHUNK_2X2,
+			Resolution.CHUNK_4X4,
+			Resolution.NETHER_CHUNK };
+
 	private final FragmentGraph graph;
 	private final Zoom zoom;
 
@@ -20,6 +47,14 @@ public class FragmentGraphToScreenTranslator {
 	private int viewerWidth;
 	private int viewerHeight;
 
+	private double movementX;
+	private double movementY;
+	private int prefetchLeft;
+	private int prefetchAbove;
+	private int prefetchRight;
+	private int prefetchBelow;
+	private long lastPrefetchGrowTime;
+
 	private boolean isFirstUpdate = true;
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -33,7 +68,10 @@ public class FragmentGraphToScreenTranslator {
 		this.viewerWidth = viewerWidth;
 		this.viewerHeight = viewerHeight;
 		centerOnOriginIfNecessary();
+		updatePrefetchDepths();
+		graph.setBiomeDataResolution(getBiomeDataResolution());
 		adjustNumberOfRowsAndColumns();
+		graph.setViewport(screenToWorld(new Point(0, 0)), screenToWorld(new Point(viewerWidth, viewerHeight)));
 	}
 
 	private void centerOnOriginIfNecessary() {
@@ -43,11 +81,80 @@ public class FragmentGraphToScreenTranslator {
 		}
 	}
 
+	/**
+	 * Moving the map to the right reveals the fragments on the left, so the
+	 * fragments are prefetched on the side the map moves away from. Zooming
+	 * out reveals the fragments on all sides.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void updatePrefetchDepths() {
+		double fragmentSizeOnScreen = zoom.worldToScreen(Fragment.SIZE);
+		int zoomOutX = getZoomOutPrefetchDepth(viewerWidth, fragmentSizeOnScreen);
+		int zoomOutY = getZoomOutPrefetchDepth(viewerHeight, fragmentSizeOnScreen);
+		int left = Math.max(zoomOutX, getMovementPrefetchDepth(movementX, fragmentSizeOnScreen));
+		int right = Math.max(zoomOutX, getMovementPrefetchDepth(-movementX, fragmentSizeOnScreen));
+		int above = Math.max(zoomOutY, getMovementPrefetchDepth(movementY, fragmentSizeOnScreen));
+		int below = Math.max(zoomOutY, getMovementPrefetchDepth(-movementY, fragmentSizeOnScreen));
+		long now = System.currentTimeMillis();
+		if (left > prefetchLeft || right > prefetchRight || above > prefetchAbove || below > prefetchBelow) {
+			lastPrefetchGrowTime = now;
+			prefetchLeft = Math.max(left, prefetchLeft);
+			prefetchRight = Math.max(right, prefetchRight);
+			prefetchAbove = Math.max(above, prefetchAbove);
+			prefetchBelow = Math.max(below, prefetchBelow);
+		} else if (now - lastPrefetchGrowTime >= PREFETCH_KEEP_MILLIS) {
+			prefetchLeft = left;
+			prefetchRight = right;
+			prefetchAbove = above;
+			prefetchBelow = below;
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private static int getMovementPrefetchDepth(double speed, double fragmentSizeOnScreen) {
+		if (speed <= 0) {
+			return 0;
+		}
+		return (int) Math.min(MAX_PREFETCH_DEPTH, Math.ceil(speed * PREFETCH_FRAMES / fragmentSizeOnScreen));
+	}
+
+	/**
+	 * @return the number of fragments that become visible on each side, when
+	 *         the zoom reaches its target
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private int getZoomOutPrefetchDepth(int viewerSize, double fragmentSizeOnScreen) {
+		double current = zoom.getCurrentValue();
+		double target = zoom.getTargetValue();
+		if (target >= current) {
+			return 0;
+		}
+		double revealedOnScreen = viewerSize * (current / target - 1) / 2;
+		return (int) Math.min(MAX_PREFETCH_DEPTH, Math.ceil(revealedOnScreen / fragmentSizeOnScreen));
+	}
+
+	/**
+	 * @return the coarsest resolution that still has at least one sample per
+	 *         pixel, when the zoom reaches its target
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private Resolution getBiomeDataResolution() {
+		double pixelsPerBlock = zoom.getTargetValue();
+		Resolution result = BIOME_DATA_RESOLUTIONS[0];
+		for (Resolution resolution : BIOME_DATA_RESOLUTIONS) {
+			if (resolution.getStep() * pixelsPerBlock <= 1) {
+				result = resolution;
+			}
+		}
+		return result;
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	private void adjustNumberOfRowsAndColumns() {
 		double fragmentSizeOnScreen = zoom.worldToScreen(Fragment.SIZE);
-		int desiredFragmentsPerRow = (int) (viewerWidth / fragmentSizeOnScreen + 2);
-		int desiredFragmentsPerColumn = (int) (viewerHeight / fragmentSizeOnScreen + 2);
+		int desiredFragmentsPerRow = (int) (viewerWidth / fragmentSizeOnScreen + 2) + prefetchLeft + prefetchRight;
+		int desiredFragmentsPerColumn = (int) (viewerHeight / fragmentSizeOnScreen + 2) + prefetchAbove
+				+ prefetchBelow;
 		int newColumns = desiredFragmentsPerRow - graph.getFragmentsPerRow();
 		int newRows = desiredFragmentsPerColumn - graph.getFragmentsPerColumn();
 		int newLeft = getNewLeft(fragmentSizeOnScreen);
@@ -58,21 +165,29 @@ public class FragmentGraphToScreenTranslator {
 		adjustTopLeftOnScreen(fragmentSizeOnScreen * -newLeft, fragmentSizeOnScreen * -newAbove);
 	}
 
+	/**
+	 * The prefetched columns are left of the screen.
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	private int getNewLeft(double fragmentSizeOnScreen) {
-		if (leftOnScreen > 0) {
-			return (int) (leftOnScreen / fragmentSizeOnScreen) + 1;
+		double left = leftOnScreen + prefetchLeft * fragmentSizeOnScreen;
+		if (left > 0) {
+			return (int) (left / fragmentSizeOnScreen) + 1;
 		} else {
-			return (int) (leftOnScreen / fragmentSizeOnScreen);
+			return (int) (left / fragmentSizeOnScreen);
 		}
 	}
 
+	/**
+	 * The prefetched rows are above the screen.
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	private int getNewAbove(double fragmentSizeOnScreen) {
-		if (topOnScreen > 0) {
-			return (int) (topOnScreen / fragmentSizeOnScreen) + 1;
+		double top = topOnScreen + prefetchAbove * fragmentSizeOnScreen;
+		if (top > 0) {
+			return (int) (top / fragmentSizeOnScreen) + 1;
 		} else {
-			return (int) (topOnScreen / fragmentSizeOnScreen);
+			return (int) (top / fragmentSizeOnScreen);
 		}
 	}
 
@@ -88,9 +203,15 @@ public class FragmentGraphToScreenTranslator {
 				yCenterOnScreen - zoom.worldToScreen(yFragmentRelative));
 	}
 
+	/**
+	 * Moves the map by whole pixels. The speed is also used to prefetch the
+	 * fragments that are about to become visible.
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
-	public void adjustToMovement(int deltaX, int deltaY) {
-		adjustTopLeftOnScreen(deltaX, deltaY);
+	public void adjustToMovement(double speedX, double speedY) {
+		adjustTopLeftOnScreen((int) speedX, (int) speedY);
+		this.movementX = speedX;
+		this.movementY = speedY;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
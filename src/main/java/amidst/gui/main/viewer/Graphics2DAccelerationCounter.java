@@ -21,10 +21,13 @@ public class Graphics2DAccelerationCounter {
 	private volatile int total = 0;
 	private volatile float acceleratedPercentage = 0;
 
-	private static final GraphicsConfiguration GC = GraphicsEnvironment
-			.getLocalGraphicsEnvironment()
-			.getDefaultScreenDevice()
-			.getDefaultConfiguration();
+	/**
+	 * null in a headless environment, e.g. in the tests, where nothing is
+	 * accelerated
+	 */
+	private static final GraphicsConfiguration GC = GraphicsEnvironment.isHeadless()
+			? null
+			: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
 
 	/**
 	 * Records that a graphics operation was performed, in this case with an
@@ -32,7 +35,7 @@ public class Graphics2DAccelerationCounter {
 	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void log(BufferedImage image) {
-		if (image.getCapabilities(GC).isAccelerated()) {
+		if (GC != null && image.getCapabilities(GC).isAccelerated()) {
 			accelerated++;
 		}
 		total++;
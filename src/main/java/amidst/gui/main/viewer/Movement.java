@@ -43,7 +43,7 @@ public class Movement {
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	private void adjustTranslator(FragmentGraphToScreenTranslator translator) {
-		translator.adjustToMovement((int) speedX, (int) speedY);
+		translator.adjustToMovement(speedX, speedY);
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -57,6 +57,15 @@ public class Movement {
 		}
 	}
 
+	/**
+	 * The map moves while it is dragged and until the speed of a flick is
+	 * throttled to less than one pixel per frame.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean isMoving() {
+		return lastMouse != null || Math.abs(speedX) >= 1 || Math.abs(speedY) >= 1;
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void setLastMouse(Point lastMouse) {
 		this.lastMouse = lastMouse;
@@ -6,6 +6,7 @@ import java.util.function.Supplier;
 
 import amidst.AmidstSettings;
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
 import amidst.fragment.FragmentGraph;
@@ -33,6 +34,8 @@ import amidst.mojangapi.world.World;
 import amidst.mojangapi.world.export.WorldExporter;
 import amidst.mojangapi.world.export.WorldExporterConfiguration;
 import amidst.settings.biomeprofile.BiomeAuthority;
+import amidst.threading.FragmentLoaderPool;
+import amidst.threading.ThreadMaster;
 import amidst.threading.WorkerExecutor;
 
 @NotThreadSafe
@@ -68,6 +71,7 @@ public class PerViewerFacadeInjector {
 		// @formatter:on
 	}
 
+	private final ThreadMaster threadMaster;
 	private final WorkerExecutor workerExecutor;
 	private final World world;
 	private final Graphics2DAccelerationCounter accelerationCounter;
@@ -89,24 +93,26 @@ public class PerViewerFacadeInjector {
 	@CalledOnlyBy(AmidstThread.EDT)
 	public PerViewerFacadeInjector(
 			AmidstSettings settings,
-			WorkerExecutor workerExecutor,
+			ThreadMaster threadMaster,
 			Zoom zoom,
 			LayerBuilder layerBuilder,
 			FragmentManager fragmentManager,
 			BiomeAuthority biomeAuthority,
 			World world,
 			Actions actions) {
-		this.workerExecutor = workerExecutor;
+		FragmentLoaderPool fragmentLoaderPool = threadMaster.getFragmentLoaderPool();
+		this.threadMaster = threadMaster;
+		this.workerExecutor = threadMaster.getWorkerExecutor();
 		this.world = world;
 		this.accelerationCounter = new Graphics2DAccelerationCounter();
 		this.movement = new Movement(settings.smoothScrolling);
 		this.worldIconSelection = new WorldIconSelection();
 		this.layerManager = layerBuilder
-				.create(settings, world, biomeAuthority.getBiomeSelection(), worldIconSelection, zoom, accelerationCounter);
+				.create(settings, world, biomeAuthority.getBiomeSelection(), worldIconSelection, zoom, accelerationCounter, fragmentLoaderPool.getNumberOfLoaders(), threadMaster::wakeUpFragmentLoader);
 		biomeAuthority.setLayerManager(layerManager);
 		this.graph = new FragmentGraph(layerManager.getDeclarations(), fragmentManager);
 		this.translator = new FragmentGraphToScreenTranslator(graph, zoom);
-		this.fragmentQueueProcessor = fragmentManager.createQueueProcessor(layerManager, settings.dimension);
+		this.fragmentQueueProcessor = fragmentManager.createQueueProcessor(layerManager, settings.dimension, fragmentLoaderPool, threadMaster::requestRepaint);
 		this.layerReloader = layerManager.createLayerReloader(world);
 		this.progressMessageHolder = new ProgressMessageHolder();
 		this.widgets = createWidgets(
@@ -130,9 +136,10 @@ public class PerViewerFacadeInjector {
 				widgets,
 				layerManager.getDrawers(),
 				settings.dimension,
-				accelerationCounter);
+				accelerationCounter,
+				threadMaster::requestRepaint);
 		this.widgetManager = new WidgetManager(widgets);
-		this.viewerMouseListener = new ViewerMouseListener(widgetManager, graph, translator, zoom, movement, actions);
+		this.viewerMouseListener = new ViewerMouseListener(widgetManager, graph, translator, zoom, movement, actions, threadMaster::requestRepaint);
 		this.viewer = new Viewer(viewerMouseListener, drawer);
 		this.viewerFacade = new ViewerFacade(
 				world,
@@ -145,6 +152,7 @@ public class PerViewerFacadeInjector {
 				layerManager,
 				workerExecutor,
 				this::createWorldExporter,
+				threadMaster::requestRepaint,
 				this::onRepainterTick,
 				this::onFragmentLoaderTick,
 				this::onPlayerFinishedLoading);
@@ -152,7 +160,17 @@ public class PerViewerFacadeInjector {
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public WorldExporter createWorldExporter(WorldExporterConfiguration configuration) {
-		return new WorldExporter(workerExecutor, world, configuration, progressMessageHolder::setProgressMessage);
+		return new WorldExporter(workerExecutor, world, configuration, this::onProgressMessage);
+	}
+
+	/**
+	 * The repainter only repaints when it is asked to, so the progress widget
+	 * would not show the new message otherwise.
+	 */
+	@CalledByAny
+	private void onProgressMessage(String progressMessage) {
+		progressMessageHolder.setProgressMessage(progressMessage);
+		threadMaster.requestRepaint();
 	}
 
 	@CalledOnlyBy(AmidstThread.REPAINTER)
@@ -0,0 +1,496 @@
+package amidst.gui.main.viewer;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.Fragment;
+import amidst.fragment.FragmentGraph;
+import amidst.fragment.FragmentGraphItem;
+import amidst.fragment.drawer.FragmentDrawer;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+
+/**
+ * Draws the image layers of the fragments when the map is zoomed out, so
+ * that a fragment is drawn smaller than its images. A tile of level 1 merges
+ * 2x2 fragments into one image of the size of a fragment image, and a tile of
+ * level n merges 2x2 tiles of level n - 1. The level is chosen so that the
+ * tiles are not drawn larger than their size, so each frame only draws one
+ * image per tile instead of one image per layer and fragment.
+ *
+ * The tiles are kept while they are visible. A tile is merged again when the
+ * images of its fragments, the visible layers or the drawers change. Tiles are
+ * only merged from fragments that are loaded and faded in completely. The
+ * parts of the map that are not covered by a tile are drawn fragment by
+ * fragment.
+ */
+@NotThreadSafe
+public class TilePyramid {
+	@NotThreadSafe
+	private static class TileKey {
+		private final int level;
+		private final long x;
+		private final long y;
+
+		public TileKey(int level, long x, long y) {
+			this.level = level;
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(level, x, y);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return level == other.level && x == other.x && y == other.y;
+		}
+	}
+
+	@NotThreadSafe
+	private static class Tile {
+		private BufferedImage image;
+		/**
+		 * The fragments or tiles the image was merged from, with their
+		 * versions.
+		 */
+		private final Object[] children = new Object[4];
+		private final int[] childVersions = new int[4];
+		/**
+		 * The drawer state the image was merged with, see
+		 * updateEnabledDrawers().
+		 */
+		private Object drawerState;
+		/**
+		 * Incremented whenever the image is merged again.
+		 */
+		private int version = 0;
+		private long checkedFrame = -1;
+		private boolean isValid = false;
+	}
+
+	private static final int TILE_SIZE = 128;
+	private static final int MAX_LEVEL = 8;
+	private static final int MAX_UNUSED_IMAGES = 64;
+	/**
+	 * The tiles that are not merged in time are drawn fragment by fragment in
+	 * this frame and merged in the next frames, to keep the viewer responsive.
+	 */
+	private static final long MAX_MERGE_NANOS_PER_FRAME = 10_000_000;
+
+	/**
+	 * The drawers that are drawn into tiles, with the state they had in the
+	 * last frame.
+	 */
+	private final FragmentDrawer[] tileDrawers;
+	private final boolean[] isTileDrawerEnabled;
+	private final int[] tileDrawerVersions;
+	private final Graphics2DAccelerationCounter accelerationCounter;
+	private final long maxMergeNanosPerFrame;
+	private final Map<TileKey, Tile> tiles = new HashMap<>();
+	private final Deque<BufferedImage> unusedImages = new ArrayDeque<>();
+	private final List<FragmentDrawer> enabledDrawers = new ArrayList<>();
+	private final AffineTransform transform = new AffineTransform();
+
+	private long frame = 0;
+	private long mergeStart;
+	/**
+	 * Replaced whenever a drawer is enabled, disabled or changes its version,
+	 * so the tiles can compare it by identity.
+	 */
+	private Object drawerState = new Object();
+	private Fragment[] grid = new Fragment[0];
+	private int gridColumns;
+	private int gridRows;
+	private long gridX;
+	private long gridY;
+	private Graphics2D g2d;
+	private AffineTransform layerMatrix;
+	private float time;
+	private boolean isFragmentFading;
+	private boolean isIncomplete;
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public TilePyramid(Iterable<FragmentDrawer> drawers, Graphics2DAccelerationCounter accelerationCounter) {
+		this(drawers, accelerationCounter, MAX_MERGE_NANOS_PER_FRAME);
+	}
+
+	/**
+	 * The tests pass their own merge time limit, so the result doesn't depend
+	 * on the speed of the machine.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	TilePyramid(
+			Iterable<FragmentDrawer> drawers,
+			Graphics2DAccelerationCounter accelerationCounter,
+			long maxMergeNanosPerFrame) {
+		List<FragmentDrawer> tileDrawers = new ArrayList<>();
+		for (FragmentDrawer drawer : drawers) {
+			if (drawer.isDrawnIntoTiles()) {
+				tileDrawers.add(drawer);
+			}
+		}
+		this.tileDrawers = tileDrawers.toArray(new FragmentDrawer[tileDrawers.size()]);
+		this.isTileDrawerEnabled = new boolean[this.tileDrawers.length];
+		this.tileDrawerVersions = new int[this.tileDrawers.length];
+		this.accelerationCounter = accelerationCounter;
+		this.maxMergeNanosPerFrame = maxMergeNanosPerFrame;
+	}
+
+	/**
+	 * @param zoom
+	 *            the number of pixels on the screen per block
+	 * @return the level of the tiles that matches the zoom, or 0 if the
+	 *         fragments should be drawn one by one
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public int getLevel(double zoom) {
+		int level = 0;
+		double blocksPerPixel = (double) Fragment.SIZE / TILE_SIZE;
+		while (level < MAX_LEVEL && blocksPerPixel * 2 * zoom <= 1) {
+			blocksPerPixel *= 2;
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Draws the layers of all fragments of the graph that are drawn into
+	 * tiles.
+	 *
+	 * @param layerMatrix
+	 *            the transformation from the graph to the screen, in blocks
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public void draw(
+			int level,
+			FragmentGraph graph,
+			Graphics2D g2d,
+			AffineTransform layerMatrix,
+			float time) {
+		this.g2d = g2d;
+		this.layerMatrix = layerMatrix;
+		this.time = time;
+		this.isFragmentFading = false;
+		this.isIncomplete = false;
+		this.frame++;
+		this.mergeStart = System.nanoTime();
+		updateEnabledDrawers();
+		updateGrid(graph);
+		drawTiles(level);
+		removeUnusedTiles();
+		g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+		this.g2d = null;
+	}
+
+	/**
+	 * True if a fragment that was drawn in the last frame is still fading in.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean isFragmentFading() {
+		return isFragmentFading;
+	}
+
+	/**
+	 * True if some tiles were not merged in the last frame, because it took
+	 * too long.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean isIncomplete() {
+		return isIncomplete;
+	}
+
+	/**
+	 * True if the tile was drawn from its image in the last frame.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	boolean isTileValid(int level, long x, long y) {
+		Tile tile = tiles.get(new TileKey(level, x, y));
+		return tile != null && tile.isValid;
+	}
+
+	/**
+	 * This is called every frame, so it only rebuilds the enabled drawers
+	 * when a drawer was enabled, disabled or changed its version.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void updateEnabledDrawers() {
+		boolean isChanged = false;
+		for (int i = 0; i < tileDrawers.length; i++) {
+			boolean isEnabled = tileDrawers[i].isEnabled();
+			int version = isEnabled ? tileDrawers[i].getVersion() : 0;
+			if (isEnabled != isTileDrawerEnabled[i] || version != tileDrawerVersions[i]) {
+				isTileDrawerEnabled[i] = isEnabled;
+				tileDrawerVersions[i] = version;
+				isChanged = true;
+			}
+		}
+		if (isChanged) {
+			enabledDrawers.clear();
+			for (int i = 0; i < tileDrawers.length; i++) {
+				if (isTileDrawerEnabled[i]) {
+					enabledDrawers.add(tileDrawers[i]);
+				}
+			}
+			drawerState = new Object();
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void updateGrid(FragmentGraph graph) {
+		gridColumns = graph.getFragmentsPerRow();
+		gridRows = graph.getFragmentsPerColumn();
+		if (grid.length != gridColumns * gridRows) {
+			grid = new Fragment[gridColumns * gridRows];
+		}
+		CoordinatesInWorld corner = graph.getCorner();
+		gridX = Math.floorDiv(corner.getX(), Fragment.SIZE);
+		gridY = Math.floorDiv(corner.getY(), Fragment.SIZE);
+		int index = 0;
+		for (FragmentGraphItem fragmentGraphItem : graph) {
+			grid[index++] = fragmentGraphItem.getFragment();
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void drawTiles(int level) {
+		long firstX = Math.floorDiv(gridX, 1L << level);
+		long firstY = Math.floorDiv(gridY, 1L << level);
+		long lastX = Math.floorDiv(gridX + gridColumns - 1, 1L << level);
+		long lastY = Math.floorDiv(gridY + gridRows - 1, 1L << level);
+		for (long y = firstY; y <= lastY; y++) {
+			for (long x = firstX; x <= lastX; x++) {
+				drawTile(level, x, y);
+			}
+		}
+	}
+
+	/**
+	 * Draws the tile, or its parts if it can't be merged.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void drawTile(int level, long x, long y) {
+		if (!isOverlappingGrid(level, x, y)) {
+			return;
+		} else if (level == 0) {
+			drawFragment(x, y);
+		} else {
+			Tile tile = getValidTile(level, x, y);
+			if (tile != null) {
+				drawTileImage(level, x, y, tile.image);
+			} else {
+				for (int i = 0; i < 4; i++) {
+					drawTile(level - 1, x * 2 + (i & 1), y * 2 + (i >> 1));
+				}
+			}
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private boolean isOverlappingGrid(int level, long x, long y) {
+		long left = x << level;
+		long top = y << level;
+		long size = 1L << level;
+		return left < gridX + gridColumns && left + size > gridX && top < gridY + gridRows && top + size > gridY;
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void drawTileImage(int level, long x, long y, BufferedImage image) {
+		double scale = (double) (Fragment.SIZE << level) / TILE_SIZE;
+		transform.setTransform(layerMatrix);
+		transform.translate(((x << level) - gridX) * Fragment.SIZE, ((y << level) - gridY) * Fragment.SIZE);
+		transform.scale(scale, scale);
+		g2d.setTransform(transform);
+		g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, getRenderingHint(transform));
+		accelerationCounter.log(image);
+		g2d.drawImage(image, 0, 0, null);
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private Object getRenderingHint(AffineTransform transform) {
+		if (transform.getScaleX() < 1.0f) {
+			return RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+		} else {
+			return RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void drawFragment(long x, long y) {
+		Fragment fragment = getFragment(x, y);
+		if (fragment != null && fragment.isLoaded()) {
+			g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, fragment.getAlpha()));
+			for (FragmentDrawer drawer : enabledDrawers) {
+				transform.setTransform(layerMatrix);
+				transform.translate((x - gridX) * Fragment.SIZE, (y - gridY) * Fragment.SIZE);
+				g2d.setTransform(transform);
+				drawer.draw(fragment, g2d, time);
+			}
+			isFragmentFading |= fragment.getAlpha() < 1.0f;
+		}
+	}
+
+	/**
+	 * @return null if the fragment is not part of the graph
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private Fragment getFragment(long x, long y) {
+		long column = x - gridX;
+		long row = y - gridY;
+		if (column >= 0 && column < gridColumns && row >= 0 && row < gridRows) {
+			return grid[(int) (row * gridColumns + column)];
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the tile, after merging it again if necessary, or null if it
+	 *         can't be merged in this frame
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private Tile getValidTile(int level, long x, long y) {
+		TileKey key = new TileKey(level, x, y);
+		Tile tile = tiles.get(key);
+		if (tile == null) {
+			tile = new Tile();
+			tiles.put(key, tile);
+		}
+		if (tile.checkedFrame != frame) {
+			tile.checkedFrame = frame;
+			tile.isValid = validate(tile, level, x, y);
+		}
+		return tile.isValid ? tile : null;
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private boolean validate(Tile tile, int level, long x, long y) {
+		Object[] children = new Object[4];
+		int[] childVersions = new int[4];
+		for (int i = 0; i < 4; i++) {
+			long childX = x * 2 + (i & 1);
+			long childY = y * 2 + (i >> 1);
+			if (level == 1) {
+				Fragment fragment = getFragment(childX, childY);
+				if (fragment == null || !fragment.isLoaded() || fragment.getAlpha() < 1.0f) {
+					return false;
+				}
+				children[i] = fragment;
+				childVersions[i] = fragment.getImageVersion();
+			} else {
+				Tile child = getValidTile(level - 1, childX, childY);
+				if (child == null) {
+					return false;
+				}
+				children[i] = child;
+				childVersions[i] = child.version;
+			}
+		}
+		if (tile.image != null && drawerState == tile.drawerState
+				&& Arrays.equals(children, tile.children)
+				&& Arrays.equals(childVersions, tile.childVersions)) {
+			return true;
+		} else if (System.nanoTime() - mergeStart > maxMergeNanosPerFrame) {
+			isIncomplete = true;
+			return false;
+		} else {
+			merge(tile, level, children);
+			System.arraycopy(children, 0, tile.children, 0, 4);
+			System.arraycopy(childVersions, 0, tile.childVersions, 0, 4);
+			tile.drawerState = drawerState;
+			tile.version++;
+			return true;
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void merge(Tile tile, int level, Object[] children) {
+		if (tile.image == null) {
+			tile.image = createImage();
+		}
+		Graphics2D g = tile.image.createGraphics();
+		try {
+			g.setBackground(new Color(0, 0, 0, 0));
+			g.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+			for (int i = 0; i < 4; i++) {
+				int offsetX = (i & 1) * TILE_SIZE / 2;
+				int offsetY = (i >> 1) * TILE_SIZE / 2;
+				if (level == 1) {
+					mergeFragment(g, (Fragment) children[i], offsetX, offsetY);
+				} else {
+					mergeTile(g, (Tile) children[i], offsetX, offsetY);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void mergeFragment(Graphics2D g, Fragment fragment, int offsetX, int offsetY) {
+		double scale = TILE_SIZE / 2.0 / Fragment.SIZE;
+		for (FragmentDrawer drawer : enabledDrawers) {
+			g.setTransform(new AffineTransform());
+			g.translate(offsetX, offsetY);
+			g.scale(scale, scale);
+			drawer.draw(fragment, g, time);
+		}
+	}
+
+	/**
+	 * Scaling by exactly one half with bilinear interpolation averages 2x2
+	 * pixels.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void mergeTile(Graphics2D g, Tile child, int offsetX, int offsetY) {
+		g.setTransform(new AffineTransform());
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(child.image, offsetX, offsetY, TILE_SIZE / 2, TILE_SIZE / 2, null);
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private BufferedImage createImage() {
+		BufferedImage result = unusedImages.poll();
+		if (result != null) {
+			return result;
+		} else {
+			return new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void removeUnusedTiles() {
+		Iterator<Tile> iterator = tiles.values().iterator();
+		while (iterator.hasNext()) {
+			Tile tile = iterator.next();
+			if (tile.checkedFrame != frame) {
+				iterator.remove();
+				if (tile.image != null && unusedImages.size() < MAX_UNUSED_IMAGES) {
+					unusedImages.offer(tile.image);
+				}
+			}
+		}
+	}
+}
@@ -41,6 +41,7 @@ public class ViewerFacade {
 	private final LayerManager layerManager;
 	private final WorkerExecutor workerExecutor;
 	private final Factory1<WorldExporterConfiguration, WorldExporter> worldExporterFactory;
+	private final Runnable requestRepaint;
 	private final Runnable onRepainterTick;
 	private final Runnable onFragmentLoaderTick;
 	private final Runnable onPlayerFinishedLoading;
@@ -57,6 +58,7 @@ public class ViewerFacade {
 			LayerManager layerManager,
 			WorkerExecutor workerExecutor,
 			Factory1<WorldExporterConfiguration, WorldExporter> worldExporterFactory,
+			Runnable requestRepaint,
 			Runnable onRepainterTick,
 			Runnable onFragmentLoaderTick,
 			Runnable onPlayerFinishedLoading) {
@@ -70,6 +72,7 @@ public class ViewerFacade {
 		this.layerManager = layerManager;
 		this.workerExecutor = workerExecutor;
 		this.worldExporterFactory = worldExporterFactory;
+		this.requestRepaint = requestRepaint;
 		this.onRepainterTick = onRepainterTick;
 		this.onFragmentLoaderTick = onFragmentLoaderTick;
 		this.onPlayerFinishedLoading = onPlayerFinishedLoading;
@@ -111,12 +114,14 @@ public class ViewerFacade {
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void centerOn(CoordinatesInWorld coordinates) {
 		translator.centerOn(coordinates);
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void centerOn(WorldIcon worldIcon) {
 		translator.centerOn(worldIcon.getCoordinates());
 		worldIconSelection.select(worldIcon);
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -127,16 +132,19 @@ public class ViewerFacade {
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void adjustZoom(int notches) {
 		zoom.adjustZoom(viewer.getMousePositionOrCenter(), notches);
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void adjustZoom(Point mousePosition, int notches) {
 		zoom.adjustZoom(mousePosition, notches);
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void selectWorldIcon(WorldIcon worldIcon) {
 		worldIconSelection.select(worldIcon);
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -4,6 +4,7 @@ import java.awt.Component;
 import java.awt.Point;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 
@@ -15,14 +16,20 @@ import amidst.gui.main.Actions;
 import amidst.gui.main.viewer.widget.WidgetManager;
 
 @NotThreadSafe
-public class ViewerMouseListener implements MouseListener, MouseWheelListener {
+public class ViewerMouseListener implements MouseListener, MouseMotionListener, MouseWheelListener {
 	private final WidgetManager widgetManager;
 	private final FragmentGraph graph;
 	private final FragmentGraphToScreenTranslator translator;
 	private final Zoom zoom;
 	private final Movement movement;
 	private final Actions actions;
+	private final Runnable requestRepaint;
 
+	/**
+	 * @param requestRepaint
+	 *            called for every mouse event, because the widgets display
+	 *            information about the mouse position
+	 */
 	@CalledOnlyBy(AmidstThread.EDT)
 	public ViewerMouseListener(
 			WidgetManager widgetManager,
@@ -30,13 +37,15 @@ public class ViewerMouseListener implements MouseListener, MouseWheelListener {
 			FragmentGraphToScreenTranslator translator,
 			Zoom zoom,
 			Movement movement,
-			Actions actions) {
+			Actions actions,
+			Runnable requestRepaint) {
 		this.widgetManager = widgetManager;
 		this.graph = graph;
 		this.translator = translator;
 		this.zoom = zoom;
 		this.movement = movement;
 		this.actions = actions;
+		this.requestRepaint = requestRepaint;
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -47,6 +56,7 @@ public class ViewerMouseListener implements MouseListener, MouseWheelListener {
 		if (!widgetManager.mouseWheelMoved(mousePosition, notches)) {
 			doMouseWheelMoved(mousePosition, notches);
 		}
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -58,6 +68,7 @@ public class ViewerMouseListener implements MouseListener, MouseWheelListener {
 		} else if (!widgetManager.mouseClicked(mousePosition)) {
 			doMouseClicked(mousePosition);
 		}
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -71,6 +82,7 @@ public class ViewerMouseListener implements MouseListener, MouseWheelListener {
 		} else if (!widgetManager.mousePressed(mousePosition)) {
 			doMousePressed(mousePosition);
 		}
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
@@ -82,18 +94,31 @@ public class ViewerMouseListener implements MouseListener, MouseWheelListener {
 		} else if (!widgetManager.mouseReleased()) {
 			doMouseReleased();
 		}
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	@Override
 	public void mouseEntered(MouseEvent e) {
-		// noop
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	@Override
 	public void mouseExited(MouseEvent e) {
-		// noop
+		requestRepaint.run();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	@Override
+	public void mouseDragged(MouseEvent e) {
+		requestRepaint.run();
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	@Override
+	public void mouseMoved(MouseEvent e) {
+		requestRepaint.run();
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
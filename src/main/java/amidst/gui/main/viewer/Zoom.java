@@ -69,6 +69,19 @@ public class Zoom {
 		return current;
 	}
 
+	/**
+	 * The value the current value fades to.
+	 */
+	@CalledOnlyBy(AmidstThread.EDT)
+	public double getTargetValue() {
+		return target;
+	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	public boolean isFading() {
+		return remainingTicks > 0;
+	}
+
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void skipFading() {
 		remainingTicks = 0;
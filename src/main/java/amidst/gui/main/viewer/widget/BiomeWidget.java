@@ -296,7 +296,7 @@ public class BiomeWidget extends Widget implements BiomeProfileUpdateListener {
 		}
 		updateScrollbarParameters(mouseX, mouseY);
 		if (processClick(mouseX, mouseY)) {
-			layerReloader.reloadBackgroundLayer();
+			layerReloader.recolorBackgroundLayer();
 		}
 		return true;
 	}
@@ -41,8 +41,14 @@ public class DebugWidget extends TextWidget {
 			return Arrays.asList(
 					"Fragment Manager:",
 					"Cache Size: " + fragmentManager.getCacheSize(),
+					"Cache Memory: " + toMegabytes(fragmentManager.getCacheMemoryUsage()) + " / "
+							+ toMegabytes(fragmentManager.getCacheMaxMemory()) + " MB",
+					"In Use: " + fragmentManager.getInUseCount(),
+					"Recycled: " + fragmentManager.getRecycledCount(),
+					"Released: " + fragmentManager.getReleasedCount(),
 					"Available Queue Size: " + fragmentManager.getAvailableQueueSize(),
 					"Loading Queue Size: " + fragmentManager.getLoadingQueueSize(),
+					"Refinement Queue Size: " + fragmentManager.getRefinementQueueSize(),
 					"Recycle Queue Size: " + fragmentManager.getRecycleQueueSize(),
 					"",
 					"Viewer:",
@@ -52,4 +58,9 @@ public class DebugWidget extends TextWidget {
 			return null;
 		}
 	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private static long toMegabytes(long bytes) {
+		return bytes / (1024 * 1024);
+	}
 }
@@ -339,6 +339,171 @@ public class Noise {
 		return _result;
 	}
 	
+	/**
+	 * A strided grid version of perlinMap2D(), used to fill a whole fragment in one pass.
+	 *
+	 * Unlike perlinMap2D(), the results are bit-identical to calling NoisePerlin2D()
+	 * at each point of the grid, because every sample's lattice coordinates are computed
+	 * the same way NoisePerlin2D() computes them, rather than by accumulating the step.
+	 * The speed-up comes from hashing each lattice point only once per octave instead
+	 * of four times per sample.
+	 *
+	 * The point sampled at grid position (i, j) is
+	 *   NoisePerlin2D(np, (x + i * step_x) + offset_x, (y + j * step_y) + offset_y, seed)
+	 * and its value is written to result[j * sx + i].
+	 *
+	 * This doesn't modify the Noise object, so it can be called from several threads
+	 * at once, provided each thread has its own result and buffers.
+	 *
+	 * @param step_x distance between samples on the x axis, can be negative
+	 * @param step_y distance between samples on the y axis, can be negative
+	 * @param offset_x float offset added to each x coordinate, e.g. 0.5f * np.spread.x
+	 * @param offset_y float offset added to each y coordinate
+	 * @param persistence_map can be null, otherwise a map of sx * sy per-sample persistence values
+	 * @param result an array of at least sx * sy floats, which will be overwritten
+	 * @param buffers scratch space for the calculation
+	 * @return result
+	 */
+	public float[] perlinMap2DStrided(
+			int x, int y,
+			int step_x, int step_y,
+			int sx, int sy,
+			float offset_x, float offset_y,
+			float[] persistence_map,
+			float[] result,
+			NoiseBuffers buffers)
+	{
+		float f = 1.0f, g = 1.0f;
+		int bufsize = sx * sy;
+		buffers.alloc(sx, sy);
+		float[] gradient_buf = buffers.gradient_buf;
+		float[] persist_buf  = buffers.persist_buf;
+
+		// NoisePerlin2D() divides the coordinate by the spread before applying each octave's frequency
+		for (int i = 0; i < sx; i++)
+			buffers.coord_x[i] = ((float)(x + i * step_x) + offset_x) / np.spread.x;
+		for (int j = 0; j < sy; j++)
+			buffers.coord_y[j] = ((float)(y + j * step_y) + offset_y) / np.spread.y;
+
+		for (int i = 0; i != bufsize; i++)
+			result[i] = 0.0f;
+
+		if (persistence_map != null) {
+			for (int i = 0; i != bufsize; i++)
+				persist_buf[i] = 1.0f;
+		}
+
+		boolean eased = (np.flags & (FLAG_DEFAULTS | FLAG_EASED)) > 0;
+		boolean absvalue = (np.flags & FLAG_ABSVALUE) > 0;
+		int seed = _seed + np.seed;
+
+		for (int oct = 0; oct < np.octaves; oct++) {
+			gradientMap2DStrided(f, sx, sy, seed + oct, eased, buffers);
+
+			// Same accumulation order as NoisePerlin2D(), so rounding is identical
+			if (persistence_map != null) {
+				for (int i = 0; i != bufsize; i++) {
+					float noiseval = absvalue ? Math.abs(gradient_buf[i]) : gradient_buf[i];
+					result[i] += persist_buf[i] * noiseval;
+					persist_buf[i] *= persistence_map[i];
+				}
+			} else {
+				for (int i = 0; i != bufsize; i++) {
+					float noiseval = absvalue ? Math.abs(gradient_buf[i]) : gradient_buf[i];
+					result[i] += g * noiseval;
+				}
+			}
+
+			f *= np.lacunarity;
+			g *= np.persist;
+		}
+
+		for (int i = 0; i != bufsize; i++)
+			result[i] = np.offset + result[i] * np.scale;
+
+		return result;
+	}
+
+	/**
+	 * Fills buffers.gradient_buf with noise2d_gradient() of every grid point at frequency f.
+	 * The lattice is hashed once into buffers.noise_buf, unless the octave is so fine that
+	 * the lattice would have more points than the grid has corners, in which case the
+	 * corners are hashed directly.
+	 */
+	private static void gradientMap2DStrided(float f, int sx, int sy, int seed, boolean eased, NoiseBuffers buffers)
+	{
+		float[] coord_x   = buffers.coord_x;
+		float[] coord_y   = buffers.coord_y;
+		int[]   lattice_x = buffers.lattice_x;
+		int[]   lattice_y = buffers.lattice_y;
+		float[] frac_x    = buffers.frac_x;
+		float[] frac_y    = buffers.frac_y;
+		float[] gradient_buf = buffers.gradient_buf;
+
+		int min_x = Integer.MAX_VALUE, max_x = Integer.MIN_VALUE;
+		for (int i = 0; i < sx; i++) {
+			float xf = coord_x[i] * f;
+			int x0 = ((xf) < 0.0 ? (int)(xf) - 1 : (int)(xf)); // x0 = myfloor(x), as per noise2d_gradient()
+			lattice_x[i] = x0;
+			frac_x[i] = xf - (float)x0;
+			if (x0 < min_x) min_x = x0;
+			if (x0 > max_x) max_x = x0;
+		}
+		int min_y = Integer.MAX_VALUE, max_y = Integer.MIN_VALUE;
+		for (int j = 0; j < sy; j++) {
+			float yf = coord_y[j] * f;
+			int y0 = ((yf) < 0.0 ? (int)(yf) - 1 : (int)(yf)); // y0 = myfloor(y)
+			lattice_y[j] = y0;
+			frac_y[j] = yf - (float)y0;
+			if (y0 < min_y) min_y = y0;
+			if (y0 > max_y) max_y = y0;
+		}
+
+		long nlx = (long)max_x - min_x + 2;
+		long nly = (long)max_y - min_y + 2;
+		int index = 0;
+
+		if (nlx * nly <= 4L * sx * sy) {
+			float[] noise_buf = buffers.noiseBuf((int)(nlx * nly));
+
+			for (int j = 0; j < nly; j++)
+				for (int i = 0; i < nlx; i++)
+					noise_buf[index++] = noise2d(min_x + i, min_y + j, seed);
+
+			int row = (int)nlx;
+			index = 0;
+			for (int j = 0; j < sy; j++) {
+				int row_index = (lattice_y[j] - min_y) * row - min_x;
+				float yl = frac_y[j];
+				for (int i = 0; i < sx; i++) {
+					int idx = row_index + lattice_x[i];
+					float v00 = noise_buf[idx];
+					float v10 = noise_buf[idx + 1];
+					float v01 = noise_buf[idx + row];
+					float v11 = noise_buf[idx + row + 1];
+					gradient_buf[index++] = eased ?
+						biLinearInterpolation(      v00, v10, v01, v11, frac_x[i], yl) :
+						biLinearInterpolationNoEase(v00, v10, v01, v11, frac_x[i], yl);
+				}
+			}
+		} else {
+			for (int j = 0; j < sy; j++) {
+				int y0 = lattice_y[j];
+				float yl = frac_y[j];
+				for (int i = 0; i < sx; i++) {
+					int x0 = lattice_x[i];
+					float v00 = noise2d(x0,     y0,     seed);
+					float v10 = noise2d(x0 + 1, y0,     seed);
+					float v01 = noise2d(x0,     y0 + 1, seed);
+					float v11 = noise2d(x0 + 1, y0 + 1, seed);
+					gradient_buf[index++] = eased ?
+						biLinearInterpolation(      v00, v10, v01, v11, frac_x[i], yl) :
+						biLinearInterpolationNoEase(v00, v10, v01, v11, frac_x[i], yl);
+				}
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param x
@@ -0,0 +1,48 @@
+package amidst.minetest.world.mapgen;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * Scratch space used by Noise.perlinMap2DStrided(). A Noise object holds no
+ * per-call state of its own for that function, so one Noise can be used by
+ * several threads at the same time, as long as each thread passes its own
+ * NoiseBuffers.
+ */
+@NotThreadSafe
+public class NoiseBuffers {
+	float[] coord_x   = new float[0];
+	float[] coord_y   = new float[0];
+	int[]   lattice_x = new int[0];
+	int[]   lattice_y = new int[0];
+	float[] frac_x    = new float[0];
+	float[] frac_y    = new float[0];
+	float[] noise_buf    = new float[0];
+	float[] gradient_buf = new float[0];
+	float[] persist_buf  = new float[0];
+
+	void alloc(int sx, int sy)
+	{
+		int bufsize = sx * sy;
+		if (gradient_buf.length < bufsize) {
+			gradient_buf = new float[bufsize];
+			persist_buf  = new float[bufsize];
+		}
+		if (coord_x.length < sx) {
+			coord_x   = new float[sx];
+			lattice_x = new int[sx];
+			frac_x    = new float[sx];
+		}
+		if (coord_y.length < sy) {
+			coord_y   = new float[sy];
+			lattice_y = new int[sy];
+			frac_y    = new float[sy];
+		}
+	}
+
+	float[] noiseBuf(int size)
+	{
+		if (noise_buf.length < size)
+			noise_buf = new float[size];
+		return noise_buf;
+	}
+}
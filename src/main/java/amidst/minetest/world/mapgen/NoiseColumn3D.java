@@ -0,0 +1,138 @@
+package amidst.minetest.world.mapgen;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * Evaluates Noise.NoisePerlin3D() at different heights of the same column,
+ * with exactly the same results.
+ *
+ * Everything that only depends on x and z is calculated once per column. For
+ * each octave, the noise values of the lattice corners are interpolated along
+ * x and kept until a height in a different lattice cell is requested, so
+ * searching the column for the surface mostly costs the interpolation along
+ * y and z.
+ */
+@NotThreadSafe
+public class NoiseColumn3D {
+	private final NoiseParams np;
+	private final int seed;
+	private final boolean eased;
+	private final boolean absValue;
+	private final int octaves;
+
+	private final float[] frequency;
+	private final float[] amplitude;
+	private final int[] x0;
+	private final int[] z0;
+	private final float[] tx;
+	private final float[] tz;
+	/**
+	 * The y of the lattice cell of the interpolated values below, per octave.
+	 */
+	private final int[] cachedY0;
+	private final boolean[] isCached;
+	// the corners of the lattice cell, interpolated along x
+	private final float[] u00;
+	private final float[] u10;
+	private final float[] u01;
+	private final float[] u11;
+
+	public NoiseColumn3D(NoiseParams np, int seed) {
+		this.np = np;
+		this.seed = seed + np.seed;
+		this.eased = (np.flags & Noise.FLAG_EASED) > 0;
+		this.absValue = (np.flags & Noise.FLAG_ABSVALUE) > 0;
+		this.octaves = Math.max(0, np.octaves);
+		this.frequency = new float[octaves];
+		this.amplitude = new float[octaves];
+		this.x0 = new int[octaves];
+		this.z0 = new int[octaves];
+		this.tx = new float[octaves];
+		this.tz = new float[octaves];
+		this.cachedY0 = new int[octaves];
+		this.isCached = new boolean[octaves];
+		this.u00 = new float[octaves];
+		this.u10 = new float[octaves];
+		this.u01 = new float[octaves];
+		this.u11 = new float[octaves];
+		float f = 1.0f;
+		float g = 1.0f;
+		for (int i = 0; i < octaves; i++) {
+			frequency[i] = f;
+			amplitude[i] = g;
+			f *= np.lacunarity;
+			g *= np.persist;
+		}
+	}
+
+	/**
+	 * Moves to the column at x and z and forgets the cached lattice cells.
+	 */
+	public void setColumn(float x, float z) {
+		x /= np.spread.x;
+		z /= np.spread.z;
+		for (int i = 0; i < octaves; i++) {
+			float xf = x * frequency[i];
+			float zf = z * frequency[i];
+			x0[i] = ((xf) < 0.0 ? (int) (xf) - 1 : (int) (xf)); // x0 = myfloor(x)
+			z0[i] = ((zf) < 0.0 ? (int) (zf) - 1 : (int) (zf)); // z0 = myfloor(z)
+			float xl = xf - (float) x0[i];
+			float zl = zf - (float) z0[i];
+			tx[i] = eased ? easeCurve(xl) : xl;
+			tz[i] = eased ? easeCurve(zl) : zl;
+			isCached[i] = false;
+		}
+	}
+
+	/**
+	 * @return the same as Noise.NoisePerlin3D(np, x, y, z, seed) for the x and
+	 *         z of the current column
+	 */
+	public float at(float y) {
+		float a = 0;
+		y /= np.spread.y;
+		for (int i = 0; i < octaves; i++) {
+			float yf = y * frequency[i];
+			int y0 = ((yf) < 0.0 ? (int) (yf) - 1 : (int) (yf)); // y0 = myfloor(y)
+			if (!isCached[i] || cachedY0[i] != y0) {
+				interpolateCorners(i, y0);
+			}
+			float yl = yf - (float) y0;
+			float ty = eased ? easeCurve(yl) : yl;
+			float u = u00[i] + (u10[i] - u00[i]) * ty;
+			float v = u01[i] + (u11[i] - u01[i]) * ty;
+			float noiseval = u + (v - u) * tz[i];
+
+			if (absValue)
+				noiseval = Math.abs(noiseval);
+
+			a += amplitude[i] * noiseval;
+		}
+		return np.offset + a * np.scale;
+	}
+
+	private void interpolateCorners(int i, int y0) {
+		int x = x0[i];
+		int z = z0[i];
+		int s = seed + i;
+		float t = tx[i];
+		float v000 = Noise.noise3d(x,     y0,     z,     s);
+		float v100 = Noise.noise3d(x + 1, y0,     z,     s);
+		float v010 = Noise.noise3d(x,     y0 + 1, z,     s);
+		float v110 = Noise.noise3d(x + 1, y0 + 1, z,     s);
+		float v001 = Noise.noise3d(x,     y0,     z + 1, s);
+		float v101 = Noise.noise3d(x + 1, y0,     z + 1, s);
+		float v011 = Noise.noise3d(x,     y0 + 1, z + 1, s);
+		float v111 = Noise.noise3d(x + 1, y0 + 1, z + 1, s);
+		u00[i] = v000 + (v100 - v000) * t;
+		u10[i] = v010 + (v110 - v010) * t;
+		u01[i] = v001 + (v101 - v001) * t;
+		u11[i] = v011 + (v111 - v011) * t;
+		cachedY0[i] = y0;
+		isCached[i] = true;
+	}
+
+	private static float easeCurve(float t) {
+		return t * t * t * (t * (6.f * t - 15.f) + 10.f);
+	}
+}
@@ -0,0 +1,261 @@
+package amidst.minetest.world.oracle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import amidst.documentation.Immutable;
+import amidst.minetest.world.mapgen.MinetestBiome;
+
+/**
+ * Finds the biome with the closest heat and humidity point among the biomes
+ * whose y range contains y, exactly like scanning all biomes does, but
+ * without scanning all biomes.
+ *
+ * The heights are divided into bands where the same biomes are in range. The
+ * climate of each band is divided into a grid of cells, and each cell lists
+ * the biomes that are the closest one for at least some climate within the
+ * cell, plus a margin for rounding errors. Most cells only list a single
+ * biome. A climate outside the grid scans all biomes of its band. Biomes are
+ * listed in the order of the biome array, so ties are resolved like the scan
+ * resolves them.
+ */
+@Immutable
+public class BiomeClassifier {
+	private static final float GRID_MIN = -64.0f;
+	private static final float CELL_SIZE = 4.0f;
+	private static final int CELLS_PER_ROW = 64;
+	private static final float GRID_MAX = GRID_MIN + CELL_SIZE * CELLS_PER_ROW;
+	/**
+	 * The cells are a bit larger than their part of the grid, so a climate
+	 * that is rounded into the wrong cell still gets the right biome.
+	 */
+	private static final double CELL_MARGIN = 0.01;
+	/**
+	 * The squared distances are compared with this much tolerance, since the
+	 * scan calculates them with float precision.
+	 */
+	private static final double RELATIVE_DISTANCE_MARGIN = 1.0e-4;
+	private static final double ABSOLUTE_DISTANCE_MARGIN = 1.0e-3;
+
+	@Immutable
+	private static class Band {
+		private final MinetestBiome[] biomes;
+		/**
+		 * null, if the band has fewer than two biomes
+		 */
+		private final MinetestBiome[][] cells;
+
+		private Band(MinetestBiome[] biomes, MinetestBiome[][] cells) {
+			this.biomes = biomes;
+			this.cells = cells;
+		}
+	}
+
+	/**
+	 * Band i contains the heights from bandStarts[i - 1] up to, but
+	 * excluding, bandStarts[i]. The first and the last band are unbounded.
+	 */
+	private final int[] bandStarts;
+	private final Band[] bands;
+
+	public BiomeClassifier(MinetestBiome[] biomes) {
+		TreeSet<Integer> starts = new TreeSet<>();
+		for (MinetestBiome biome : biomes) {
+			if (biome.y_min <= getTop(biome)) {
+				starts.add((int) biome.y_min);
+				starts.add(getTop(biome) + 1);
+			}
+		}
+		this.bandStarts = new int[starts.size()];
+		int index = 0;
+		for (int start : starts) {
+			bandStarts[index++] = start;
+		}
+		this.bands = new Band[bandStarts.length + 1];
+		Map<List<Integer>, MinetestBiome[]> internedLists = new HashMap<>();
+		for (int i = 0; i < bands.length; i++) {
+			bands[i] = i == 0 ? createBand(biomes, Integer.MIN_VALUE, internedLists)
+					: createBand(biomes, bandStarts[i - 1], internedLists);
+		}
+	}
+
+	/**
+	 * The same biomes are in range for all heights of a band, so the lowest
+	 * height is enough to find them.
+	 */
+	private static Band createBand(MinetestBiome[] biomes, int y, Map<List<Integer>, MinetestBiome[]> internedLists) {
+		List<Integer> inRange = new ArrayList<>();
+		for (int i = 0; i < biomes.length; i++) {
+			if (y >= biomes[i].y_min && y <= getTop(biomes[i])) {
+				inRange.add(i);
+			}
+		}
+		MinetestBiome[] bandBiomes = intern(biomes, inRange, internedLists);
+		if (bandBiomes.length < 2) {
+			return new Band(bandBiomes, null);
+		}
+		MinetestBiome[][] cells = new MinetestBiome[CELLS_PER_ROW * CELLS_PER_ROW][];
+		for (int row = 0; row < CELLS_PER_ROW; row++) {
+			for (int column = 0; column < CELLS_PER_ROW; column++) {
+				double minHeat = GRID_MIN + column * CELL_SIZE - CELL_MARGIN;
+				double minHumidity = GRID_MIN + row * CELL_SIZE - CELL_MARGIN;
+				double maxHeat = minHeat + CELL_SIZE + 2 * CELL_MARGIN;
+				double maxHumidity = minHumidity + CELL_SIZE + 2 * CELL_MARGIN;
+				cells[row * CELLS_PER_ROW + column] = intern(
+						biomes,
+						getCandidates(biomes, inRange, minHeat, maxHeat, minHumidity, maxHumidity),
+						internedLists);
+			}
+		}
+		return new Band(bandBiomes, cells);
+	}
+
+	/**
+	 * The scan skips the heights above y_max + vertical_blend, and only
+	 * considers the heights up to y_max.
+	 */
+	private static int getTop(MinetestBiome biome) {
+		return Math.min(biome.y_max, biome.y_max + biome.vertical_blend);
+	}
+
+	/**
+	 * A biome can only be the closest one for some climate in the rectangle,
+	 * if it is not further away from every climate in the rectangle than the
+	 * biome with the lowest maximal distance is from the furthest climate.
+	 */
+	private static List<Integer> getCandidates(
+			MinetestBiome[] biomes,
+			List<Integer> inRange,
+			double minHeat,
+			double maxHeat,
+			double minHumidity,
+			double maxHumidity) {
+		double lowestMaxDistance = Double.MAX_VALUE;
+		for (int i : inRange) {
+			double dHeat = Math.max(Math.abs(biomes[i].heat_point - minHeat), Math.abs(biomes[i].heat_point - maxHeat));
+			double dHumidity = Math.max(
+					Math.abs(biomes[i].humidity_point - minHumidity),
+					Math.abs(biomes[i].humidity_point - maxHumidity));
+			lowestMaxDistance = Math.min(lowestMaxDistance, dHeat * dHeat + dHumidity * dHumidity);
+		}
+		double limit = lowestMaxDistance * (1 + RELATIVE_DISTANCE_MARGIN) + ABSOLUTE_DISTANCE_MARGIN;
+		List<Integer> result = new ArrayList<>();
+		for (int i : inRange) {
+			double dHeat = Math.max(0, Math.max(minHeat - biomes[i].heat_point, biomes[i].heat_point - maxHeat));
+			double dHumidity = Math.max(
+					0,
+					Math.max(minHumidity - biomes[i].humidity_point, biomes[i].humidity_point - maxHumidity));
+			if (dHeat * dHeat + dHumidity * dHumidity <= limit) {
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
+	private static MinetestBiome[] intern(
+			MinetestBiome[] biomes,
+			List<Integer> indices,
+			Map<List<Integer>, MinetestBiome[]> internedLists) {
+		return internedLists.computeIfAbsent(indices, key -> {
+			MinetestBiome[] result = new MinetestBiome[key.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = biomes[key.get(i)];
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * @return the same as scan() with all biomes this classifier was created
+	 *         from
+	 */
+	public MinetestBiome classify(float heat, float humidity, int y) {
+		Band band = bands[getBandIndex(y)];
+		if (!(heat >= GRID_MIN && heat < GRID_MAX && humidity >= GRID_MIN && humidity < GRID_MAX)) {
+			// the scan finds no biome at all for NaN or infinite climates
+			return scanInRange(band.biomes, heat, humidity);
+		} else if (band.cells == null) {
+			return band.biomes.length == 1 ? band.biomes[0] : MinetestBiome.NONE;
+		} else {
+			int column = Math.min(CELLS_PER_ROW - 1, (int) ((heat - GRID_MIN) / CELL_SIZE));
+			int row = Math.min(CELLS_PER_ROW - 1, (int) ((humidity - GRID_MIN) / CELL_SIZE));
+			MinetestBiome[] cell = band.cells[row * CELLS_PER_ROW + column];
+			return cell.length == 1 ? cell[0] : scanInRange(cell, heat, humidity);
+		}
+	}
+
+	private int getBandIndex(int y) {
+		int index = Arrays.binarySearch(bandStarts, y);
+		return index >= 0 ? index + 1 : -index - 1;
+	}
+
+	/**
+	 * The same as scan(), for biomes that are all in range.
+	 */
+	private static MinetestBiome scanInRange(MinetestBiome[] biomes, float heat, float humidity) {
+		MinetestBiome biome_closest = null;
+		float dist_min = Float.MAX_VALUE;
+		for (MinetestBiome b : biomes) {
+			float d_heat = heat - b.heat_point;
+			float d_humidity = humidity - b.humidity_point;
+			float dist = (d_heat * d_heat) + (d_humidity * d_humidity);
+			if (dist < dist_min) {
+				dist_min = dist;
+				biome_closest = b;
+			}
+		}
+		return (biome_closest != null) ? biome_closest : MinetestBiome.NONE;
+	}
+
+	/**
+	 * Finds the biome by scanning all biomes, like Minetest does.
+	 */
+	public static MinetestBiome scan(MinetestBiome[] biomes, float heat, float humidity, int y)
+	{
+		MinetestBiome biome_closest = null;
+		MinetestBiome biome_closest_blend = null;
+		float dist_min = Float.MAX_VALUE;
+		float dist_min_blend = Float.MAX_VALUE;
+
+		short biomesArrayLength = (short)biomes.length;
+		for (short i = 0; i < biomesArrayLength; i++) {
+			MinetestBiome b = biomes[i];
+			if (y > b.y_max + b.vertical_blend || y < b.y_min)
+				continue;
+
+			float d_heat = heat - b.heat_point;
+			float d_humidity = humidity - b.humidity_point;
+			float dist = (d_heat * d_heat) + (d_humidity * d_humidity);
+
+			if (y <= b.y_max) { // Within y limits of biome b
+				if (dist < dist_min) {
+					dist_min = dist;
+					biome_closest = b;
+				}
+			/* skip vertical blending, map doesn't need it
+			} else if (dist < dist_min_blend) { // Blend area above biome b
+				dist_min_blend = dist;
+				biome_closest_blend = b;*/
+			}
+		}
+
+		/* skip vertical blending, map doesn't need it
+
+		// Carefully tune pseudorandom seed variation to avoid single node dither
+		// and create larger scale blending patterns similar to horizontal biome
+		// blend.
+		mysrand(y + (heat + humidity) / 2);
+
+		if (biome_closest_blend &&
+				myrand_range(0, biome_closest_blend->vertical_blend) >=
+				y - biome_closest_blend->y_max)
+			return biome_closest_blend;
+		*/
+
+		return (biome_closest != null) ? biome_closest : MinetestBiome.NONE;
+	}
+}
@@ -1,6 +1,7 @@
 package amidst.minetest.world.oracle;
 
 import amidst.documentation.Immutable;
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.Constants;
@@ -9,6 +10,8 @@ import amidst.minetest.world.mapgen.MapgenCarpathianParams;
 import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.Noise;
+import amidst.minetest.world.mapgen.NoiseBuffers;
+import amidst.minetest.world.mapgen.NoiseColumn3D;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
@@ -32,7 +35,30 @@ public class BiomeDataOracleCarpathian extends MinetestBiomeDataOracle {
 	
 	private int grad_wl;
 	
-	private boolean isMountains;
+	/**
+	 * The 2D terrain noise for the grid most recently passed to calcTerrainMaps(),
+	 * and whether the last call to terrainLevel() found mountains.
+	 */
+	static class CarpathianContext extends ThreadContext {
+		float[] groundMap;
+		float[] height1Map;
+		float[] height2Map;
+		float[] height3Map;
+		float[] height4Map;
+		float[] hterMap;
+		float[] rterMap;
+		float[] sterMap;
+		float[] hillsMap;
+		float[] ridgeMntMap;
+		float[] stepMntMap;
+
+		boolean isMountains;
+
+		/**
+		 * noise_mnt_var of the column searched by terrainLevel()
+		 */
+		NoiseColumn3D mntVarColumn;
+	}
 	
 	/**
 	 * @param mapgenCarpathianParams
@@ -87,27 +113,63 @@ public class BiomeDataOracleCarpathian extends MinetestBiomeDataOracle {
 		return (k + s) * w;
 	}
 		
-	float terrainLevelAtPoint(int x, int z)
+	@Override
+	protected ThreadContext createThreadContext() {
+		CarpathianContext context = new CarpathianContext();
+		context.mntVarColumn = new NoiseColumn3D(noise_mnt_var.np, seed);
+		return context;
+	}
+
+	/**
+	 * Evaluates all the 2D terrain noises over the whole grid in one pass, the
+	 * values for each sample are then read back by terrainLevel()
+	 */
+	void calcTerrainMaps(CarpathianContext context, int x, int z, int step_x, int step_z, int sx, int sz)
+	{
+		NoiseBuffers buffers = context.noiseBuffers;
+		int size = sx * sz;
+		context.groundMap   = noise_base.perlinMap2DStrided(         x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 0, size), buffers);
+		context.height1Map  = noise_height1.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 1, size), buffers);
+		context.height2Map  = noise_height2.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 2, size), buffers);
+		context.height3Map  = noise_height3.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 3, size), buffers);
+		context.height4Map  = noise_height4.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 4, size), buffers);
+		context.hterMap     = noise_hills_terrain.perlinMap2DStrided(x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 5, size), buffers);
+		context.rterMap     = noise_ridge_terrain.perlinMap2DStrided(x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 6, size), buffers);
+		context.sterMap     = noise_step_terrain.perlinMap2DStrided( x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 7, size), buffers);
+		context.hillsMap    = noise_hills.perlinMap2DStrided(        x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 8, size), buffers);
+		context.ridgeMntMap = noise_ridge_mnt.perlinMap2DStrided(    x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap( 9, size), buffers);
+		context.stepMntMap  = noise_step_mnt.perlinMap2DStrided(     x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(10, size), buffers);
+	}
+
+	/**
+	 * Side effect: sets context.isMountains
+	 *
+	 * @param x, z - world coordinates of the sample, used for the 3D noise
+	 * @param index2d - index of the sample in the maps filled by calcTerrainMaps()
+	 */
+	float terrainLevel(CarpathianContext context, int x, int z, int index2d)
 	{
-		float ground      = Noise.NoisePerlin2D(noise_base.np, x, z, seed);
-		float height1     = Noise.NoisePerlin2D(noise_height1.np, x, z, seed);
-		float height2     = Noise.NoisePerlin2D(noise_height2.np, x, z, seed);
-		float height3     = Noise.NoisePerlin2D(noise_height3.np, x, z, seed);
-		float height4     = Noise.NoisePerlin2D(noise_height4.np, x, z, seed);
-		float hter        = Noise.NoisePerlin2D(noise_hills_terrain.np, x, z, seed);
-		float rter        = Noise.NoisePerlin2D(noise_ridge_terrain.np, x, z, seed);
-		float ster        = Noise.NoisePerlin2D(noise_step_terrain.np, x, z, seed);
-		float n_hills     = Noise.NoisePerlin2D(noise_hills.np, x, z, seed);
-		float n_ridge_mnt = Noise.NoisePerlin2D(noise_ridge_mnt.np, x, z, seed);
-		float n_step_mnt  = Noise.NoisePerlin2D(noise_step_mnt.np, x, z, seed);
+		float ground      = context.groundMap[index2d];
+		float height1     = context.height1Map[index2d];
+		float height2     = context.height2Map[index2d];
+		float height3     = context.height3Map[index2d];
+		float height4     = context.height4Map[index2d];
+		float hter        = context.hterMap[index2d];
+		float rter        = context.rterMap[index2d];
+		float ster        = context.sterMap[index2d];
+		float n_hills     = context.hillsMap[index2d];
+		float n_ridge_mnt = context.ridgeMntMap[index2d];
+		float n_step_mnt  = context.stepMntMap[index2d];
 
 		int height = -Constants.MAX_MAP_GENERATION_LIMIT;
 
 		int searchInc = 1;
-		isMountains = false;
+		boolean isMountains = false;
+		NoiseColumn3D mntVarColumn = context.mntVarColumn;
+		mntVarColumn.setColumn(x, z);
 		
 		for (short y = 1; y <= 200; y += searchInc) { // we're going to break out of this loop when y is close to surface_level
-			float mnt_var = Noise.NoisePerlin3D(noise_mnt_var.np, x, y, z, seed);
+			float mnt_var = mntVarColumn.at(y);
 
 			// Gradient & shallow seabed
 			int grad = (y < params.water_level) ? grad_wl + (params.water_level - y) * 3 : 1 - y;
@@ -153,19 +215,19 @@ public class BiomeDataOracleCarpathian extends MinetestBiomeDataOracle {
 			if (y > 2 && searchInc < 12) searchInc += 2;
 		}
 
+		context.isMountains = isMountains;
 		return height;
 	}
 		
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// The Carpathian mapgen terrain is not yet stable.
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132						
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -173,9 +235,16 @@ public class BiomeDataOracleCarpathian extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
+
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			CarpathianContext context = (CarpathianContext)getThreadContext();
+			calcTerrainMaps(context, left, -top, step, -step, width, height);
+			calcClimateMaps(context, left, -top, step, -step, width, height);
 			
 			try {			
+				int index2d = 0;
 				for (int y = 0; y < height; y++) {
 					
 					world_z = top + (y << shift);
@@ -185,20 +254,20 @@ public class BiomeDataOracleCarpathian extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					for (int x = 0; x < width; x++) {
+					for (int x = 0; x < width; x++, index2d++) {
 						
 						biomeValue = 0;
 
 						// Add the ocean bitplane
-						int surface_y = (int)terrainLevelAtPoint(world_x, world_z);
+						int surface_y = (int)terrainLevel(context, world_x, world_z, index2d);
 						if (surface_y < carpathianParams.water_level) biomeValue |= BITPLANE_OCEAN;
-						if (isMountains) biomeValue |= BITPLANE_MOUNTAIN;
+						if (context.isMountains) biomeValue |= BITPLANE_MOUNTAIN;
 																		
 						// add the biome index
 						// (mask the bitplanes in case the biome returned is -1 (NONE)
-						biomeValue |= calcBiomeAtPoint(biomes, world_x, surface_y, world_z).getIndex() & MASK_BITPLANES;
+						biomeValue |= calcBiomeFromNoise(context, biomeClassifier, index2d, context.heatMap[index2d], context.humidityMap[index2d], surface_y).getIndex() & MASK_BITPLANES;
 						
-						result[x][y] = biomeValue;					
+						result.set(x, y, biomeValue);					
 						world_x += step;
 					}
 				}
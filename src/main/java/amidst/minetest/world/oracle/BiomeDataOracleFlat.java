@@ -1,5 +1,6 @@
 package amidst.minetest.world.oracle;
 
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.MapgenFlatParams;
@@ -29,15 +30,14 @@ public class BiomeDataOracleFlat extends MinetestBiomeDataOracle {
 	}
 
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// FYI: at the time of writing this, the mapgen for Flat is not yet officially stable
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132				
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -45,10 +45,14 @@ public class BiomeDataOracleFlat extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
+
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			ThreadContext context = getThreadContext();
+			calcClimateMaps(context, left, -top, step, -step, width, height);
 			
 			try {			
-				int index3d = 0;
 				int index2d = 0;
 				for (int z = 0; z < height; z++) {
 					
@@ -59,11 +63,11 @@ public class BiomeDataOracleFlat extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					for (int x = 0; x < width; x++, index2d++, index3d++) {
+					for (int x = 0; x < width; x++, index2d++) {
 						
 						// (noise_height 'offset' is the average level of terrain. At least 50% of
 						// terrain will be below this)						
-						result[x][z] = (short)calcBiomeAtPoint(biomes, world_x, flatParams.ground_level, world_z).getIndex();						
+						result.set(x, z, (short)(calcBiomeFromNoise(context, biomeClassifier, index2d, context.heatMap[index2d], context.humidityMap[index2d], flatParams.ground_level).getIndex() & MASK_BITPLANES));						
 						
 						world_x += step;
 					}
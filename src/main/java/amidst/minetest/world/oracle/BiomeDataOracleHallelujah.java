@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import amidst.documentation.Immutable;
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.Constants;
@@ -173,14 +174,56 @@ public class BiomeDataOracleHallelujah extends MinetestBiomeDataOracle {
 		}		
 		return result;
 	}
+
+	/**
+	 * The biome of a sample is the biome of the core of its island, which is not
+	 * recorded.
+	 */
+	@Override
+	public boolean canReclassify() {
+		return false;
+	}
+
+	/**
+	 * MapgenHallelujahParams.toString() leaves out the cores, so the key is
+	 * built from every param this oracle reads instead.
+	 */
+	@Override
+	protected String createParamsCacheKey() {
+		StringBuilder result = new StringBuilder();
+		result.append("chunk_length = ")
+			.append(hallelujahParams.chunk_length_x).append(' ')
+			.append(hallelujahParams.chunk_length_y).append(' ')
+			.append(hallelujahParams.chunk_length_z).append('\n');
+		result.append("cloudlands_altitude = ").append(hallelujahParams.cloudlands_altitude).append('\n');
+		result.append("required_density = ").append(Float.floatToIntBits(hallelujahParams.required_density)).append('\n');
+		for (CoreSize core : hallelujahParams.cores) {
+			result.append("core ")
+				.append(core.territorySize).append(' ')
+				.append(core.coresPerTerritory).append(' ')
+				.append(core.maxRadius).append(' ')
+				.append(core.maxThickness).append(' ')
+				.append(Float.floatToIntBits(core.frequency)).append(' ')
+				.append(Float.floatToIntBits(core.pondWallBuffer)).append(' ')
+				.append(core.requiresNexus).append(' ')
+				.append(core.exclusive).append('\n');
+		}
+		result.append(hallelujahParams.np_heat.toString(          "np_heat"));
+		result.append(hallelujahParams.np_humidity.toString(      "np_humidity"));
+		result.append(hallelujahParams.np_heat_blend.toString(    "np_heat_blend"));
+		result.append(hallelujahParams.np_humidity_blend.toString("np_humidity_blend"));
+		result.append(hallelujahParams.np_eddyField.toString(     "np_eddyField"));
+		result.append(hallelujahParams.np_surfaceMap.toString(    "np_surfaceMap"));
+		result.append(hallelujahParams.np_density.toString(       "np_density"));
+		return result.toString();
+	}
 		
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -188,7 +231,7 @@ public class BiomeDataOracleHallelujah extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
 			
 			List<Core> cores = getCores(left, -(top + (height << shift)), left + (width << shift), -top); 
 			
@@ -265,7 +308,7 @@ public class BiomeDataOracleHallelujah extends MinetestBiomeDataOracle {
 									if ((biomeValue & MASK_BITPLANES) == 0) {
 										// (mask the bitplanes in case the biome returned is -1 (NONE)
 										biomeValue = (short)(biomeValue & ~MASK_BITPLANES);
-										biomeValue |= calcBiomeAtPoint(biomes, core.x, surface_y, core.z).getIndex() & MASK_BITPLANES;
+										biomeValue |= calcBiomeAtPoint(biomeClassifier, core.x, surface_y, core.z).getIndex() & MASK_BITPLANES;
 									}
 								}
 								
@@ -300,7 +343,7 @@ public class BiomeDataOracleHallelujah extends MinetestBiomeDataOracle {
 							biomeValue = (short) MinetestBiome.VOID.getIndex();							
 						}						
 						
-						result[x][y] = biomeValue;					
+						result.set(x, y, biomeValue);					
 						world_x += step;
 					}
 				}
@@ -1,5 +1,6 @@
 package amidst.minetest.world.oracle;
 
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.InvalidNoiseParamsException;
@@ -7,6 +8,7 @@ import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MapgenV5Params;
 import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.Noise;
+import amidst.minetest.world.mapgen.NoiseBuffers;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
@@ -42,16 +44,33 @@ public class BiomeDataOracleV5 extends MinetestBiomeDataOracle {
 		}
 	}
 
+	/**
+	 * The 3D terrain of a column: ground where the noise of noise_ground
+	 * outweighs the height above the 2D noise of noise_height.
+	 */
+	private class GroundSurfaceFinder extends SurfaceFinder {
+		float f;
+		float h;
+
+		GroundSurfaceFinder() {
+			super(noise_ground.np, seed);
+		}
+
+		@Override
+		protected boolean isGround(int y) {
+			return !(noise.at(y) * f < y - h);
+		}
+	}
+
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 
 		// The v5 mapgen terrain became officially stable in Minetest v5, Dec 2018
 		// See https://github.com/minetest/minetest/commit/40007351569413fd9dcff861ee00562d0c405722
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -59,16 +78,20 @@ public class BiomeDataOracleV5 extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
-
-			/* part of (faster) version of oceans not working yet
-			noise_factor.perlinMap2D(left, top, null);
-			noise_height.perlinMap2D(left, top, null);
-			noise_ground.perlinMap3D(left, 1, top, null);
-			*/
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
+
+			// Calculate 2D noise for a whole fragment at a time
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			ThreadContext context = getThreadContext();
+			NoiseBuffers buffers = context.noiseBuffers;
+			int size = width * height;
+			float[] factorMap = noise_factor.perlinMap2DStrided(left, -top, step, -step, width, height, 0, 0, null, context.getMap(0, size), buffers);
+			float[] heightMap = noise_height.perlinMap2DStrided(left, -top, step, -step, width, height, 0, 0, null, context.getMap(1, size), buffers);
+			calcClimateMaps(context, left, -top, step, -step, width, height);
+			GroundSurfaceFinder groundSurfaceFinder = new GroundSurfaceFinder();
 
 			try {
-				int index3d = 0;
 				int index2d = 0;
 				for (int z = 0; z < height; z++) {
 
@@ -79,24 +102,24 @@ public class BiomeDataOracleV5 extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 
-					int lastHeight = Short.MIN_VALUE; // minvalue will be the "not-known" value
+					int lastHeight = SurfaceFinder.UNKNOWN;
 
-					for (int x = 0; x < width; x++, index2d++, index3d++) {
+					for (int x = 0; x < width; x++, index2d++) {
 
 						biomeValue = 0;
 
-						//float f = 0.55f + noise_factor._result[index2d];
-						float f = 0.55f + Noise.NoisePerlin2D(noise_factor.np, world_x, world_z, seed);
+						float f = 0.55f + factorMap[index2d];
 						if (f < 0.01) {
 							f = 0.01f;
 						} else if (f >= 1.0) {
 							f *= 1.6f;
 						}
-						//float h = noise_height._result[index2d];
-						float h = Noise.NoisePerlin2D(noise_height.np, world_x, world_z, seed);
+						float h = heightMap[index2d];
+						groundSurfaceFinder.f = f;
+						groundSurfaceFinder.h = h;
+						groundSurfaceFinder.setColumn(world_x, world_z);
 
-						// boolean isOcean = (noise_ground._result[index3d] * f < - h)
-						boolean isOcean = Noise.NoisePerlin3D(noise_ground.np, world_x, params.water_level, world_z, seed) * f < params.water_level - h;
+						boolean isOcean = !groundSurfaceFinder.isGround(params.water_level);
 
 						// Very roughly calculate the surface height
 						int surface_y;
@@ -107,59 +130,18 @@ public class BiomeDataOracleV5 extends MinetestBiomeDataOracle {
 						} else {
 							// Figure out exact height. so that beaches are drawn correctly, and in the case of mods like Ethereal,
 							// alpine and mountain biomes are found correctly.
-							// Do this via a logarithmic-ish search for some ground with air directly above.
-							// (If it's the top of a floating island or ground beneath an underhang then tough, but because we start
-							// low, it should find what the player will consider the ground most of the time)
-
-							int highestGround = params.water_level; // We already know there is ground at sea level
-							int lowestAir     = Short.MAX_VALUE;    // We don't know where the air starts
-							int testHeight    = highestGround + 4;  // Seems like a good start point if we don't know anything else (most of the time this value is overwritten with lastAirHeight, so it's not too important).
-
-							if (lastHeight != Short.MIN_VALUE) {
-								// Perhaps the height hasn't changed and we can save some tests with this information: We can check if
-								// height is the same with only two tests (and only 1 will be needed if lastHeight was sea level).
-								int lastAirHeight = lastHeight + 1;
-								boolean isAir = Noise.NoisePerlin3D(noise_ground.np, world_x, lastAirHeight, world_z, seed) * f < lastAirHeight - h;
-								if (isAir) {
-									lowestAir = lastAirHeight;
-									testHeight = lastHeight;
-								} else {
-									// Nope, height has changed, we will have to do a proper search
-									highestGround = lastAirHeight;
-									testHeight = lastAirHeight + 1; // perhaps the land has only raised by 1, we can live in hope
-								}
-							}
-
-							while (highestGround + 1 < lowestAir) {
-								boolean isAir = Noise.NoisePerlin3D(noise_ground.np, world_x, testHeight, world_z, seed) * f < testHeight - h;
-								if (isAir) {
-									lowestAir = testHeight;
-									testHeight -= ((testHeight - highestGround) / 2);
-								} else {
-									int previousHighestGround = highestGround;
-									highestGround = testHeight;
-									if (lowestAir == Short.MAX_VALUE) {
-										testHeight += 2 * (testHeight - previousHighestGround);
-									} else {
-										testHeight += (lowestAir - testHeight) / 2;
-									}
-								}
-							}
-							// In theory we have now found the height
-							surface_y = highestGround;
+							// We already know there is ground at sea level.
+							surface_y = groundSurfaceFinder.findSurface(lastHeight, params.water_level);
 							lastHeight = surface_y;
-
-							if (highestGround + 1 != lowestAir) {
-								AmidstLogger.error("Ground search alg failed! highestGround: " + highestGround + ", lowestAir: " + lowestAir);
-							}
 						}
 
 						// Add the biome index.
+						// (mask the bitplanes in case the biome returned is -1 (NONE)
 						// (noise_height 'offset' is the average level of terrain. At least 50% of
 						// terrain will be below this)
-						biomeValue |= calcBiomeAtPoint(biomes, world_x, surface_y, world_z).getIndex();
+						biomeValue |= calcBiomeFromNoise(context, biomeClassifier, index2d, context.heatMap[index2d], context.humidityMap[index2d], surface_y).getIndex() & MASK_BITPLANES;
 
-						result[x][z] = biomeValue;
+						result.set(x, z, biomeValue);
 						world_x += step;
 					}
 				}
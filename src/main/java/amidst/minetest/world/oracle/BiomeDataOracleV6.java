@@ -2,12 +2,12 @@ package amidst.minetest.world.oracle;
 
 import java.io.Console;
 
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.InvalidNoiseParamsException;
 import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MapgenV6Params;
-import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.Noise;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
@@ -47,10 +47,21 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 	private Noise noise_biome;
 	private Noise noise_humidity;
 	
-	/**
-	 * Annoying that Java doesn't have an efficient way to pass primitives by reference / return more than one value
-	 */
-	private boolean lastTerrainLevelWasMountains = false;
+	static class V6Context extends ThreadContext {
+		/**
+		 * Annoying that Java doesn't have an efficient way to pass primitives by reference / return more than one value
+		 */
+		boolean lastTerrainLevelWasMountains = false;
+	}
+
+	// indexes of the noise maps in the ThreadContext
+	private static final int MAP_TERRAIN_BASE   = 0;
+	private static final int MAP_TERRAIN_HIGHER = 1;
+	private static final int MAP_STEEPNESS      = 2;
+	private static final int MAP_HEIGHT_SELECT  = 3;
+	private static final int MAP_BIOME          = 4;
+	private static final int MAP_HUMIDITY       = 5;
+	private static final int MAP_MUD            = 6;
 	
 	public BiomeDataOracleV6(MapgenParams params, BiomeProfileSelection biomeProfileSelection, long seed) {
 		super(params, biomeProfileSelection, seed);
@@ -80,7 +91,23 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 	}
 
 	
-	float baseTerrainLevel(float terrain_base, float terrain_higher,
+	@Override
+	protected ThreadContext createThreadContext() {
+		return new V6Context();
+	}
+
+	/**
+	 * The v6 biomes are chosen by the mapgen, not by the biome profile.
+	 */
+	@Override
+	public boolean canReclassify() {
+		return false;
+	}
+
+	/**
+	 * Side effect: sets context.lastTerrainLevelWasMountains
+	 */
+	float baseTerrainLevel(V6Context context, float terrain_base, float terrain_higher,
 			float steepness, float height_select)
 	{
 		float base   = 1 + terrain_base;
@@ -108,37 +135,29 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 		float additionalHeight = higherGround * higherGroundWeight;
 		
 		// V6 doesn't really have mountains, but we can indicate some approximation
-		lastTerrainLevelWasMountains = additionalHeight > 20 && higherGroundWeight > 0.9;
+		context.lastTerrainLevelWasMountains = additionalHeight > 20 && higherGroundWeight > 0.9;
 		
 		return base * (1.0f - higherGroundWeight) + additionalHeight;
 	}
 	
-	float baseTerrainLevelFromNoise(int x, int z)
+	/**
+	 * Evaluates one of the v6 terrain noises over the whole grid, with the coordinate
+	 * offsets v6 uses. The returned array is owned by the Noise object.
+	 */
+	private float[] terrainNoiseMap(V6Context context, int mapIndex, Noise noise, int x, int z, int step_x, int step_z, int sx, int sz)
 	{
-		if ((v6params.spflags & MapgenV6Params.FLAG_V6_FLAT) > 0)	return params.water_level;
-
-		float terrain_base   = Noise.NoisePerlin2D(noise_terrain_base.np,
-								x + 0.5f * noise_terrain_base.np.spread.x, z + 0.5f * noise_terrain_base.np.spread.y, seed);
-		float terrain_higher = Noise.NoisePerlin2D(noise_terrain_higher.np,
-								x + 0.5f * noise_terrain_higher.np.spread.x, z + 0.5f * noise_terrain_higher.np.spread.y, seed);
-		float steepness      = Noise.NoisePerlin2D(noise_steepness.np,
-								x + 0.5f * noise_steepness.np.spread.x, z + 0.5f * noise_steepness.np.spread.y, seed);
-		float height_select  = Noise.NoisePerlin2D(noise_height_select.np,
-								x + 0.5f * noise_height_select.np.spread.x, z + 0.5f * noise_height_select.np.spread.y, seed);
-
-		return baseTerrainLevel(terrain_base, terrain_higher, steepness, height_select);
+		return noise.perlinMap2DStrided(x, z, step_x, step_z, sx, sz,
+				0.5f * noise.np.spread.x, 0.5f * noise.np.spread.y, null,
+				context.getMap(mapIndex, sx * sz), context.noiseBuffers);
 	}
 	
-	protected BiomeV6Type calcBiomeAtPoint(MinetestBiome[] biomes, int x, int z)
+	/**
+	 * @param x, z - world coordinates of the sample, used for the biome blend noise
+	 * @param d - biome noise at the sample
+	 * @param humidity - humidity noise at the sample
+	 */
+	protected BiomeV6Type calcBiome(int x, int z, float d, float humidity)
 	{
-		//float d = Noise.NoisePerlin2D(noise_biome.np,
-		//		x + 0.5f * noise_biome.np.spread.x, z + 0.5f * noise_biome.np.spread.y, seed);
-		//float humidity = Noise.NoisePerlin2D(noise_humidity.np,
-		//		x + 0.5f * noise_humidity.np.spread.x, z + 0.5f * noise_humidity.np.spread.y, seed);
-		float d = Noise.NoisePerlin2D(noise_biome.np,
-				x + 0.6f * noise_biome.np.spread.x, z + 0.2f * noise_biome.np.spread.y, seed);
-		float humidity = Noise.NoisePerlin2D(noise_humidity.np, x, z, seed);
-
 		if ((v6params.spflags & MapgenV6Params.FLAG_V6_SNOWBIOMES) > 0) {
 			
 			float blend = ((v6params.spflags & MapgenV6Params.FLAG_V6_BIOMEBLEND) > 0) ? Noise.noise2d(x, z, seed) / 40 : 0;
@@ -180,15 +199,14 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 	}
 	
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// The v6 mapgen has been officially stable since 2012
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132						
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -196,9 +214,27 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			// Calculate noise for a whole fragment at a time
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			V6Context context = (V6Context)getThreadContext();
+			int size = width * height;
+			boolean flat = (v6params.spflags & MapgenV6Params.FLAG_V6_FLAT) > 0;
+			float[] terrain_base   = flat ? null : terrainNoiseMap(context, MAP_TERRAIN_BASE,   noise_terrain_base,   left, -top, step, -step, width, height);
+			float[] terrain_higher = flat ? null : terrainNoiseMap(context, MAP_TERRAIN_HIGHER, noise_terrain_higher, left, -top, step, -step, width, height);
+			float[] steepness      = flat ? null : terrainNoiseMap(context, MAP_STEEPNESS,      noise_steepness,      left, -top, step, -step, width, height);
+			float[] height_select  = flat ? null : terrainNoiseMap(context, MAP_HEIGHT_SELECT,  noise_height_select,  left, -top, step, -step, width, height);
+			float[] biome_noise    = noise_biome.perlinMap2DStrided(left, -top, step, -step, width, height,
+					0.6f * noise_biome.np.spread.x, 0.2f * noise_biome.np.spread.y, null,
+					context.getMap(MAP_BIOME, size), context.noiseBuffers);
+			float[] humidity       = noise_humidity.perlinMap2DStrided(left, -top, step, -step, width, height, 0, 0, null,
+					context.getMap(MAP_HUMIDITY, size), context.noiseBuffers);
+			// The v6 mud noise is sampled at the pixel index rather than the world
+			// position, so its grid starts at 0 with a step of 1.
+			float[] mud            = terrainNoiseMap(context, MAP_MUD, noise_mud, 0, 0, 1, 1, width, height);
 			
 			try {			
+				int index2d = 0;
 				for (int z = 0; z < height; z++) {
 					
 					world_z = top + (z << shift);
@@ -208,26 +244,27 @@ public class BiomeDataOracleV6 extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					for (int x = 0; x < width; x++) {
+					for (int x = 0; x < width; x++, index2d++) {
 						
 						biomeValue = 0;
-						BiomeV6Type biome = calcBiomeAtPoint(biomes, world_x, world_z);
+						BiomeV6Type biome = calcBiome(world_x, world_z, biome_noise[index2d], humidity[index2d]);
 					
-						float mudAmount = Noise.NoisePerlin2D(noise_mud.np,
-								x + 0.5f * noise_mud.np.spread.x, z + 0.5f * noise_mud.np.spread.y, seed);
+						float mudAmount = mud[index2d];
 						int mud_add_amount = (int)(mudAmount / 2.0f + 0.5f);
 
-						int surface_y = (int)baseTerrainLevelFromNoise(world_x, world_z) + mud_add_amount;
+						float terrainLevel = flat ? params.water_level : baseTerrainLevel(context,
+								terrain_base[index2d], terrain_higher[index2d], steepness[index2d], height_select[index2d]);
+						int surface_y = (int)terrainLevel + mud_add_amount;
 						boolean ocean = surface_y <= params.water_level;
 						if (ocean) biomeValue |= BITPLANE_OCEAN;
-						if (lastTerrainLevelWasMountains) biomeValue |= BITPLANE_MOUNTAIN;
+						if (context.lastTerrainLevelWasMountains) biomeValue |= BITPLANE_MOUNTAIN;
 						
 						if (!ocean && biome != BiomeV6Type.BT_DESERT && surface_y <= v6params.water_level + 2 && haveBeach(world_x, world_z)) {
 							biome = BiomeV6Type.BT_BEACH;
 						}
 						biomeValue |= biome.ordinal();
 						
-						result[x][z] = biomeValue;					
+						result.set(x, z, biomeValue);					
 						world_x += step;
 					}
 				}
@@ -1,6 +1,8 @@
 package amidst.minetest.world.oracle;
 
 import amidst.documentation.Immutable;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.BiomeDataPlane;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.Constants;
@@ -9,6 +11,7 @@ import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MapgenV7Params;
 import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.Noise;
+import amidst.minetest.world.mapgen.NoiseBuffers;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
@@ -28,6 +31,16 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 	private Noise noise_floatland_base;
 	private Noise noise_float_base_height;
 	private Noise noise_mountain;
+
+	// indexes of the noise maps in the ThreadContext
+	private static final int MAP_TERRAIN_PERSIST   = 0;
+	private static final int MAP_TERRAIN_BASE      = 1;
+	private static final int MAP_TERRAIN_ALT       = 2;
+	private static final int MAP_HEIGHT_SELECT     = 3;
+	private static final int MAP_MOUNT_HEIGHT      = 4;
+	private static final int MAP_RIDGE_UWATER      = 5;
+	private static final int MAP_FLOATLAND_BASE    = 6;
+	private static final int MAP_FLOAT_BASE_HEIGHT = 7;
 	//private Noise noise_ridge;
 	//private Noise noise_filler_depth; // commented out because it shouldn't been needed for the surface
 
@@ -67,7 +80,7 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 		float_mount_height = v7params.float_mount_height;
 
 		// 2D noise
-		// TODO: Set these to the fragment size, rather than minetest's chunklength, and use the faster noise funcs (set scale appropriately)
+		// (populateArray() uses the strided noise maps, which size their own buffers to the fragment)
 		try {
 			if (isFloatlands) {
 				noise_floatland_base    = new Noise(v7params.np_floatland_base,    this.seed, params.chunk_length_x, params.chunk_length_z);
@@ -95,118 +108,96 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 		}		
 	}	
 	
-	float baseTerrainLevelFromMap(int index)
+	float baseTerrainLevel(float hselect, float height_base, float height_alt)
 	{
 		// #define rangelim(d, min, max) ((d) < (min) ? (min) : ((d) > (max) ? (max) : (d)))
 		// float hselect     = rangelim(noise_height_select->result[index], 0.0, 1.0);
-		float hselect = noise_height_select._result[index];		
 		hselect = (hselect < 0.0f) ? 0.0f : ((hselect > 1.0f) ? 1.0f : hselect);
-		
-		float height_base = noise_terrain_base._result[index];
-		float height_alt  = noise_terrain_alt._result[index];
 
 		if (height_alt > height_base)
 			return height_alt;
 
 		return (height_base * hselect) + (height_alt * (1.0f - hselect));
 	}
-	
-	float baseTerrainLevelAtPoint(int x, int z)
-	{
-		float hselect = Noise.NoisePerlin2D(noise_height_select.np, x, z, seed);
-		hselect = (hselect < 0.0f) ? 0.0f : ((hselect > 1.0f) ? 1.0f : hselect);
-
-		float persist = Noise.NoisePerlin2D(noise_terrain_persist.np, x, z, seed);
 
-		noise_terrain_base.np.persist = persist;
-		float height_base = Noise.NoisePerlin2D(noise_terrain_base.np, x, z, seed);
+	/**
+	 * The mountains of a column: ground where the 3D mountain noise outweighs
+	 * the density gradient, which depends on the 2D noise of noise_mount_height.
+	 */
+	private class MountainSurfaceFinder extends SurfaceFinder {
+		/**
+		 * The 2D perlin noise of noise_mount_height for the column
+		 */
+		float mnt_h_n;
 
-		noise_terrain_alt.np.persist = persist;
-		float height_alt = Noise.NoisePerlin2D(noise_terrain_alt.np, x, z, seed);
+		MountainSurfaceFinder() {
+			super(noise_mountain.np, seed);
+		}
 
-		if (height_alt > height_base)
-			return height_alt;
+		@Override
+		protected boolean isGround(int y) {
+			float density_gradient = -((float)(y - mount_zero_level) / mnt_h_n);
+			float mnt_n = noise.at(y);
+			return !(mnt_n + density_gradient < 0.0f);
+		}
+	}
 
-		return (height_base * hselect) + (height_alt * (1.0f - hselect));
+	@Override
+	protected String createBiomeDataCacheKey(MinetestBiome[] biomes) {
+		return super.createBiomeDataCacheKey(biomes) + "floatlands = " + isFloatlands + "\n";
 	}
 
 	/**
-	 * A logarithmic-ish search for some ground with air directly above.
-	 * (If it's the top of a floating island or ground beneath an underhang then tough, but because we start
-	 * low, it should find what the player will consider the ground most of the time)
-	 * @param lastHeight - the height of the previously calculated adjacent coord. set to Short.MIN_VALUE if not known
-	 * @param mnt_h_n - the 2D perlin noise of noise_mount_height for the location
-	 * @param highestGround - highest known ground height
-	 * @param lowestAir - lowest known air height.
-	 * @return height of the first highest level of ground located with air directly above.
+	 * MapgenV7Params.toString() leaves out the floatland params, so the key
+	 * is built from every param this oracle reads instead.
 	 */
-	int findMountainHeight(int lastHeight, float mnt_h_n, int highestGround, int x, int z) {
-		
-		int lowestAir     = Short.MAX_VALUE;    // We don't know where the air starts
-		int testHeight    = highestGround + 4;  // Seems like a good start point if we don't know anything else (most of the time this value is overwritten with lastAirHeight, so it's not too important).
-
-		if (lastHeight != Short.MIN_VALUE) {
-			// Perhaps the height hasn't changed and we can save some tests with this information: We can check if
-			// height is the same with only two tests (and only 1 will be needed if lastHeight was highestGround).
-			int lastAirHeight = lastHeight + 1;
-			
-			float density_gradient = -((float)(lastAirHeight - mount_zero_level) / mnt_h_n);
-			float mnt_n = Noise.NoisePerlin3D(noise_mountain.np, x, lastAirHeight, z, seed);			
-			boolean isAir = mnt_n + density_gradient < 0.0f;
-			
-			if (isAir) {
-				lowestAir = lastAirHeight;
-				testHeight = lastHeight;
-			} else {
-				// Nope, height has changed, we will have to do a proper search
-				highestGround = lastAirHeight;
-				testHeight = lastAirHeight + 1; // perhaps the land has only raised by 1, we can live in hope
-			}
-		}
-
-		while (highestGround + 1 < lowestAir) {
-			float density_gradient = -((float)(testHeight - mount_zero_level) / mnt_h_n);
-			float mnt_n = Noise.NoisePerlin3D(noise_mountain.np, x, testHeight, z, seed);			
-			boolean isAir = mnt_n + density_gradient < 0.0f;
-			
-			if (isAir) {
-				lowestAir = testHeight;
-				testHeight -= ((testHeight - highestGround) / 2);
-			} else {
-				int previousHighestGround = highestGround;
-				highestGround = testHeight;
-				if (lowestAir == Short.MAX_VALUE) {
-					testHeight += 2 * (testHeight - previousHighestGround);
-				} else {
-					testHeight += (lowestAir - testHeight) / 2;
-				}
-			}
-		}
-		if (highestGround + 1 != lowestAir) {
-			AmidstLogger.error("Ground search alg failed! highestGround: " + highestGround + ", lowestAir: " + lowestAir);
-		}
-		
-		return highestGround;		
+	@Override
+	protected String createParamsCacheKey() {
+		StringBuilder result = new StringBuilder();
+		result.append("spflags = ").append(v7params.spflags).append('\n');
+		result.append("water_level = ").append(v7params.water_level).append('\n');
+		result.append("chunk_length = ")
+			.append(v7params.chunk_length_x).append(' ')
+			.append(v7params.chunk_length_y).append(' ')
+			.append(v7params.chunk_length_z).append('\n');
+		result.append("float_mount_height = ").append(Float.floatToIntBits(float_mount_height)).append('\n');
+		result.append("float_mount_density = ").append(Float.floatToIntBits(float_mount_density)).append('\n');
+		result.append("float_mount_exponent = ").append(Float.floatToIntBits(float_mount_exponent)).append('\n');
+		result.append("floatland_level = ").append(floatland_level).append('\n');
+		result.append("mount_zero_level = ").append(mount_zero_level).append('\n');
+		result.append(v7params.np_heat.toString(             "np_heat"));
+		result.append(v7params.np_humidity.toString(         "np_humidity"));
+		result.append(v7params.np_heat_blend.toString(       "np_heat_blend"));
+		result.append(v7params.np_humidity_blend.toString(   "np_humidity_blend"));
+		result.append(v7params.np_terrain_base.toString(     "np_terrain_base"));
+		result.append(v7params.np_terrain_alt.toString(      "np_terrain_alt"));
+		result.append(v7params.np_terrain_persist.toString(  "np_terrain_persist"));
+		result.append(v7params.np_height_select.toString(    "np_height_select"));
+		result.append(v7params.np_mount_height.toString(     "np_mount_height"));
+		result.append(v7params.np_mountain.toString(         "np_mountain"));
+		result.append(v7params.np_ridge_uwater.toString(     "np_ridge_uwater"));
+		result.append(v7params.np_floatland_base.toString(   "np_floatland_base"));
+		result.append(v7params.np_float_base_height.toString("np_float_base_height"));
+		return result.toString();
 	}
-	
+
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		return isFloatlands ? 
-				populateArray_floatlands(corner, result, useQuarterResolution) :
-				populateArray_groundlevel(corner, result, useQuarterResolution);
+				populateArray_floatlands(corner, result, resolution) :
+				populateArray_groundlevel(corner, result, resolution);
 	}
 	
-	public short populateArray_groundlevel(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_groundlevel(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// The v7 mapgen terrain has been officially stable since 0.4.16 when it was made the default 
 		// mapgen, however the optional floatlands (disabled by default) are not stable yet, maybe they 
 		// will be for 0.5.0.
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132						
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -215,17 +206,28 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
-			
-			/* part of (faster) version of oceans not working yet
-			//// Calculate noise for terrain generation
-			noise_terrain_persist.perlinMap2D((float)left, (float)top, null);
-			float[] persistmap = noise_terrain_persist._result;
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
 
-			noise_terrain_base.perlinMap2D(   (float)left, (float)top, persistmap);
-			noise_terrain_alt.perlinMap2D(    (float)left, (float)top, persistmap);
-			noise_height_select.perlinMap2D(  (float)left, (float)top, null);
-			*/
+			//// Calculate noise for terrain generation, a whole fragment at a time
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			ThreadContext context = getThreadContext();
+			NoiseBuffers buffers = context.noiseBuffers;
+			int size = width * height;
+			float[] persistmap  = noise_terrain_persist.perlinMap2DStrided(left, -top, step, -step, width, height, 0, 0, null,       context.getMap(MAP_TERRAIN_PERSIST, size), buffers);
+			float[] height_base = noise_terrain_base.perlinMap2DStrided(   left, -top, step, -step, width, height, 0, 0, persistmap, context.getMap(MAP_TERRAIN_BASE,    size), buffers);
+			float[] height_alt  = noise_terrain_alt.perlinMap2DStrided(    left, -top, step, -step, width, height, 0, 0, persistmap, context.getMap(MAP_TERRAIN_ALT,     size), buffers);
+			float[] hselect     = noise_height_select.perlinMap2DStrided(  left, -top, step, -step, width, height, 0, 0, null,       context.getMap(MAP_HEIGHT_SELECT,   size), buffers);
+			float[] mount_h     = noise_mount_height.perlinMap2DStrided(   left, -top, step, -step, width, height, 0, 0, null,       context.getMap(MAP_MOUNT_HEIGHT,    size), buffers);
+			boolean isRiverRequested = context.isRequested(BiomeDataPlane.RIVER);
+			float[] uwater      = isRiverRequested ?
+			                      noise_ridge_uwater.perlinMap2DStrided(   left, -top, step, -step, width, height, 0, 0, null,       context.getMap(MAP_RIDGE_UWATER,    size), buffers) : null;
+			calcClimateMaps(context, left, -top, step, -step, width, height);
+			MountainSurfaceFinder mountainSurfaceFinder = new MountainSurfaceFinder();
+			// Without the mountains flag the mountains don't change the surface, so the
+			// search is only needed for the mountains bitplane.
+			boolean isMountainSearchNeeded =
+				(v7params.spflags & MapgenV7Params.FLAG_V7_MOUNTAINS) > 0 || context.isRequested(BiomeDataPlane.MOUNTAIN);
 
 			try {			
 				int index2d = 0;
@@ -238,32 +240,26 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					int lastMountainHeight = Short.MIN_VALUE; // minvalue will be the "not-known" value
+					int lastMountainHeight = SurfaceFinder.UNKNOWN;
 					
 					for (int x = 0; x < width; x++, index2d++) {
 						
 						biomeValue = 0;
 
-						/* this (faster) version of oceans not working yet
-						if ((x < params.chunk_length_x) && (y < params.chunk_length_z)) {
-							index2d = y * params.chunk_length_x + x;
-							short surface_y = (short)baseTerrainLevelFromMap(index2d);
-							if (surface_y < params.water_level) biomeValue |= BITPLANE_OCEAN;
-						}//*/
-						
 						// Add the ocean bitplane
-						int surface_y = (int)baseTerrainLevelAtPoint(world_x, world_z);
+						int surface_y = (int)baseTerrainLevel(hselect[index2d], height_base[index2d], height_alt[index2d]);
 						if (surface_y < params.water_level) biomeValue |= BITPLANE_OCEAN;
 												
 						// Add the mountains bitplane
 						int surfaceOrSeaLevel = Math.max(surface_y, params.water_level);
-						float mnt_h_n = Math.max(Noise.NoisePerlin2D(noise_mount_height.np, world_x, world_z, seed), 1.0f);
-						float density_gradient = -((float)(surfaceOrSeaLevel - mount_zero_level) / mnt_h_n);
-						float mnt_n1 = Noise.NoisePerlin3D(noise_mountain.np, world_x, surfaceOrSeaLevel, world_z, seed);
-												
-						if (mnt_n1 + density_gradient >= 0.0) {							
+						if (isMountainSearchNeeded) {
+							mountainSurfaceFinder.mnt_h_n = Math.max(mount_h[index2d], 1.0f);
+							mountainSurfaceFinder.setColumn(world_x, world_z);
+						}
+
+						if (isMountainSearchNeeded && mountainSurfaceFinder.isGround(surfaceOrSeaLevel)) {							
 							// Mountains are here
-							int mountainHeight = findMountainHeight(lastMountainHeight, mnt_h_n, surfaceOrSeaLevel, world_x, world_z);
+							int mountainHeight = mountainSurfaceFinder.findSurface(lastMountainHeight, surfaceOrSeaLevel);
 							lastMountainHeight = mountainHeight;
 																			
 							// since we only have a 1-bit plane to represent them, lets
@@ -280,18 +276,20 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 								}
 							}
 						} else {
-							lastMountainHeight = Short.MIN_VALUE; // minvalue will be the "not-known" value
+							lastMountainHeight = SurfaceFinder.UNKNOWN;
 						}
 						
 						// add the river bitplane
-						float uwatern = Noise.NoisePerlin2D(noise_ridge_uwater.np, world_x, world_z, seed) * 2;						
-						if (Math.abs(uwatern) <= river_width) biomeValue |= BITPLANE_RIVER;
+						if (isRiverRequested) {
+							float uwatern = uwater[index2d] * 2;
+							if (Math.abs(uwatern) <= river_width) biomeValue |= BITPLANE_RIVER;
+						}
 						
 						// add the biome index
 						// (mask the bitplanes in case the biome returned is -1 (NONE)
-						biomeValue |= calcBiomeAtPoint(biomes, world_x, surface_y, world_z).getIndex() & MASK_BITPLANES;
+						biomeValue |= calcBiomeFromNoise(context, biomeClassifier, index2d, context.heatMap[index2d], context.humidityMap[index2d], surface_y).getIndex() & MASK_BITPLANES;
 						
-						result[x][y] = biomeValue;					
+						result.set(x, y, biomeValue);					
 						world_x += step;
 					}
 				}
@@ -309,17 +307,16 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 		return floatn + density_gradient >= 0.0f;
 	}
 	
-	public short populateArray_floatlands(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_floatlands(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// The v7 mapgen terrain has been officially stable since 0.4.16 when it was made the default 
 		// mapgen, however the optional floatlands (disabled by default) are not stable yet, maybe they 
 		// will be for 0.5.0.
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132						
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -327,9 +324,17 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
+
+			ThreadContext context = getThreadContext();
+			NoiseBuffers buffers = context.noiseBuffers;
+			int size = width * height;
+			float[] base_map        = noise_floatland_base.perlinMap2DStrided(   left, -top, step, -step, width, height, 0, 0, null, context.getMap(MAP_FLOATLAND_BASE,    size), buffers);
+			float[] base_height_map = noise_float_base_height.perlinMap2DStrided(left, -top, step, -step, width, height, 0, 0, null, context.getMap(MAP_FLOAT_BASE_HEIGHT, size), buffers);
+			calcClimateMaps(context, left, -top, step, -step, width, height);
 			
 			try {			
+				int index2d = 0;
 				for (int z = 0; z < height; z++) {
 					
 					world_z = top + (z << shift);
@@ -339,16 +344,16 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					for (int x = 0; x < width; x++) {
+					for (int x = 0; x < width; x++, index2d++) {
 						
 						biomeValue = 0;
 
 						short surface_y = Constants.MAX_MAP_GENERATION_LIMIT;
 	
 						// Calculate floatland plains
-						float n_base = Noise.NoisePerlin2D(noise_floatland_base.np, world_x, world_z, seed);
+						float n_base = base_map[index2d];
 						if (n_base > 0.0f) {
-							float n_base_height = Math.max(1.0f, Noise.NoisePerlin2D(noise_float_base_height.np, world_x, world_z, seed));
+							float n_base_height = Math.max(1.0f, base_height_map[index2d]);
 							float amp = n_base * n_base_height;
 							float ridge = n_base_height / 3.0f;
 	
@@ -397,13 +402,13 @@ public class BiomeDataOracleV7 extends MinetestBiomeDataOracle {
 						if (surface_y < Constants.MAX_MAP_GENERATION_LIMIT) {
 							// add the biome index
 							// (mask the bitplanes in case the biome returned is -1 (NONE)
-							biomeValue |= calcBiomeAtPoint(biomes, world_x, surface_y, world_z).getIndex() & MASK_BITPLANES;
+							biomeValue |= calcBiomeFromNoise(context, biomeClassifier, index2d, context.heatMap[index2d], context.humidityMap[index2d], surface_y).getIndex() & MASK_BITPLANES;
 						} else {
 							// It's a long fall
 							biomeValue = (short) MinetestBiome.VOID.getIndex();							
 						}
 						
-						result[x][z] = biomeValue;					
+						result.set(x, z, biomeValue);					
 						world_x += step;
 					}
 				}
@@ -3,6 +3,7 @@ package amidst.minetest.world.oracle;
 import javax.vecmath.Point2d;
 
 import amidst.documentation.Immutable;
+import amidst.fragment.BiomeDataBuffer;
 import amidst.logging.AmidstLogger;
 import amidst.logging.AmidstMessageBox;
 import amidst.minetest.world.mapgen.ClimateHistogram_ValleysHumidRivers;
@@ -13,6 +14,7 @@ import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MapgenValleysParams;
 import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.Noise;
+import amidst.minetest.world.mapgen.NoiseBuffers;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
@@ -54,11 +56,43 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 
 
 	/**
-	 * Reusable instance of TerrainNoise, to save unnecessary construction/mem-fragmentation 
+	 * The 2D terrain noise for the grid most recently passed to calcTerrainMaps()
 	 */
-	TerrainNoise tempTerrainNoise = new TerrainNoise();
+	static class ValleysContext extends ThreadContext {
+		float[] terrainHeightMap;
+		float[] riversMap;
+		float[] valleyDepthMap;
+		float[] valleyProfileMap;
+		float[] interValleySlopeMap;
+
+		/**
+		 * Reusable instance of TerrainNoise, to save unnecessary construction/mem-fragmentation 
+		 */
+		final TerrainNoise tempTerrainNoise = new TerrainNoise();
+
+		InterValleyFillSurfaceFinder interValleyFillSurfaceFinder;
+	}
+
+	/**
+	 * The terrain of a column between the valleys: ground where the 3D noise
+	 * of noise_inter_valley_fill, scaled by the slope, reaches above mount.
+	 */
+	class InterValleyFillSurfaceFinder extends SurfaceFinder {
+		float mount;
+		float slope;
+
+		InterValleyFillSurfaceFinder() {
+			super(noise_inter_valley_fill.np, seed);
+		}
+
+		@Override
+		protected boolean isGround(int y) {
+			float fill = noise.at(y);
+			return fill * slope >= y - mount;
+		}
+	}
 		
-	class TerrainNoise {
+	static class TerrainNoise {
 		int x;
 		int z;
 		float terrain_height;
@@ -215,15 +249,74 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 		// anyway, so for now we just use humidRiversHistogram, which is a subclass of ClimateHistogram.
 		return new ValleysClimateHistogram(humidRiversHistogram, altitude);
 	}	
+
+	/**
+	 * MapgenValleysParams.toString() leaves out the noise params, so the key
+	 * is built from every param this oracle reads instead.
+	 */
+	@Override
+	protected String createParamsCacheKey() {
+		StringBuilder result = new StringBuilder();
+		result.append("spflags = ").append(valleysParams.spflags).append('\n');
+		result.append("water_level = ").append(valleysParams.water_level).append('\n');
+		result.append("chunk_length = ")
+			.append(valleysParams.chunk_length_x).append(' ')
+			.append(valleysParams.chunk_length_y).append(' ')
+			.append(valleysParams.chunk_length_z).append('\n');
+		result.append("altitude_chill = ").append(valleysParams.altitude_chill).append('\n');
+		result.append("river_depth = ").append(valleysParams.river_depth).append('\n');
+		result.append("river_size = ").append(valleysParams.river_size).append('\n');
+		result.append(valleysParams.np_heat.toString(              "np_heat"));
+		result.append(valleysParams.np_humidity.toString(          "np_humidity"));
+		result.append(valleysParams.np_heat_blend.toString(        "np_heat_blend"));
+		result.append(valleysParams.np_humidity_blend.toString(    "np_humidity_blend"));
+		result.append(valleysParams.np_filler_depth.toString(      "np_filler_depth"));
+		result.append(valleysParams.np_inter_valley_fill.toString( "np_inter_valley_fill"));
+		result.append(valleysParams.np_inter_valley_slope.toString("np_inter_valley_slope"));
+		result.append(valleysParams.np_rivers.toString(            "np_rivers"));
+		result.append(valleysParams.np_terrain_height.toString(    "np_terrain_height"));
+		result.append(valleysParams.np_valley_depth.toString(      "np_valley_depth"));
+		result.append(valleysParams.np_valley_profile.toString(    "np_valley_profile"));
+		result.append(valleysParams.np_cave1.toString(             "np_cave1"));
+		result.append(valleysParams.np_cave2.toString(             "np_cave2"));
+		result.append(valleysParams.np_cavern.toString(            "np_cavern"));
+		return result.toString();
+	}
 		
-	float terrainLevelAtPoint(int x, int z)
+	@Override
+	protected ThreadContext createThreadContext() {
+		ValleysContext context = new ValleysContext();
+		context.interValleyFillSurfaceFinder = new InterValleyFillSurfaceFinder();
+		return context;
+	}
+
+	/**
+	 * Evaluates all the 2D terrain noises (and the climate noises) over the whole
+	 * grid in one pass, the values for each sample are then read back by terrainLevel()
+	 */
+	void calcTerrainMaps(ValleysContext context, int x, int z, int step_x, int step_z, int sx, int sz)
+	{
+		NoiseBuffers buffers = context.noiseBuffers;
+		int size = sx * sz;
+		context.terrainHeightMap    = noise_terrain_height.perlinMap2DStrided(    x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(0, size), buffers);
+		context.riversMap           = noise_rivers.perlinMap2DStrided(            x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(1, size), buffers);
+		context.valleyDepthMap      = noise_valley_depth.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(2, size), buffers);
+		context.valleyProfileMap    = noise_valley_profile.perlinMap2DStrided(    x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(3, size), buffers);
+		context.interValleySlopeMap = noise_inter_valley_slope.perlinMap2DStrided(x, z, step_x, step_z, sx, sz, 0, 0, null, context.getMap(4, size), buffers);
+		calcClimateMaps(context, x, z, step_x, step_z, sx, sz);
+	}
+
+	/**
+	 * Side effect: fills context.tempTerrainNoise with the noise of the sample
+	 *
+	 * @param x, z - world coordinates of the sample, used for the 3D noise
+	 * @param index2d - index of the sample in the maps filled by calcTerrainMaps()
+	 */
+	float terrainLevel(ValleysContext context, int x, int z, int index2d)
 	{
-		tempTerrainNoise.heat =
-				Noise.NoisePerlin2D(params.np_heat,           x, z, seed) +
-				Noise.NoisePerlin2D(params.np_heat_blend,     x, z, seed);
-		tempTerrainNoise.humidity =
-				Noise.NoisePerlin2D(params.np_humidity,       x, z, seed) +
-				Noise.NoisePerlin2D(params.np_humidity_blend, x, z, seed);
+		TerrainNoise tempTerrainNoise = context.tempTerrainNoise;
+		tempTerrainNoise.heat     = context.heatMap[index2d];
+		tempTerrainNoise.humidity = context.humidityMap[index2d];
 			
 		// Altitude chill tends to reduce the average heat.
 		if (use_altitude_chill) tempTerrainNoise.heat += 5.0f;
@@ -232,14 +325,14 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 		
 		tempTerrainNoise.x                 = x;
 		tempTerrainNoise.z                 = z;
-		tempTerrainNoise.terrain_height    = Noise.NoisePerlin2D(noise_terrain_height.np, x, z, seed);
-		tempTerrainNoise.rivers            = Noise.NoisePerlin2D(noise_rivers.np, x, z, seed);
-		tempTerrainNoise.valley            = Noise.NoisePerlin2D(noise_valley_depth.np, x, z, seed);
-		tempTerrainNoise.valley_profile    = Noise.NoisePerlin2D(noise_valley_profile.np, x, z, seed);
-		tempTerrainNoise.slope             = Noise.NoisePerlin2D(noise_inter_valley_slope.np, x, z, seed);
+		tempTerrainNoise.terrain_height    = context.terrainHeightMap[index2d];
+		tempTerrainNoise.rivers            = context.riversMap[index2d];
+		tempTerrainNoise.valley            = context.valleyDepthMap[index2d];
+		tempTerrainNoise.valley_profile    = context.valleyProfileMap[index2d];
+		tempTerrainNoise.slope             = context.interValleySlopeMap[index2d];
 		//tempTerrainNoise.inter_valley_fill = 0.f;
 		
-		float terrain_height = adjustedTerrainLevelFromNoise(tempTerrainNoise);
+		float terrain_height = adjustedTerrainLevelFromNoise(context, tempTerrainNoise);
 		
 		// Note that tempTerrainNoise.slope, tempTerrainNoise.rivers, and 
 		// tempTerrainNoise.valley have now been updated with new values.
@@ -287,29 +380,19 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 	 * This avoids duplicating the code in terrainLevelFromNoise, adding
 	 * only the final step of terrain generation without a noise map.
 	 */
-	float adjustedTerrainLevelFromNoise(TerrainNoise tn)
+	float adjustedTerrainLevelFromNoise(ValleysContext context, TerrainNoise tn)
 	{
 		float mount = terrainLevelFromNoise(tn);
-		float result = mount;
 		
 		int y_start = (int)(mount < 0.f ? (mount - 0.5f) : (mount + 0.5f)); // was "myround(muount);", s32 myround(f32 f) { return (s32)(f < 0.f ? (f - 0.5f) : (f + 0.5f)); }
 
-		float fill = Noise.NoisePerlin3D(noise_inter_valley_fill.np, tn.x, y_start, tn.z, seed);
-		boolean isGround = fill * tn.slope >= y_start - mount;
-		int searchDirection = isGround ? 1 : -1;
-		
-		for (int i = 1; i <= 1000; i++) {
-			int y = y_start + (i * searchDirection);
-			fill = Noise.NoisePerlin3D(noise_inter_valley_fill.np, tn.x, y, tn.z, seed);			
-
-			boolean wasGround = isGround;
-			isGround = fill * tn.slope >= y - mount;			
-			if (isGround) result = y;
-			if (isGround != wasGround) break;
-		}		
-		
-		return result;
-	}	
+		InterValleyFillSurfaceFinder surfaceFinder = context.interValleyFillSurfaceFinder;
+		surfaceFinder.mount = mount;
+		surfaceFinder.slope = tn.slope;
+		surfaceFinder.setColumn(tn.x, tn.z);
+		int surface = surfaceFinder.walkToSurface(y_start, 1000);
+		return surface == SurfaceFinder.UNKNOWN ? mount : surface;
+	}
 		
 	/**
 	 * Side effect warning: Updates tn.slope, tn.rivers, tn.valley
@@ -374,15 +457,14 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 	
 	
 	@Override
-	public short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 		
 		// The Valleys mapgen terrain is not yet stable.
 		// See https://forum.minetest.net/viewtopic.php?f=18&t=19132						
 		
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int shift = resolution.getShift();
@@ -390,9 +472,16 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 			int world_z;
 			int world_x;
 			short biomeValue;
-			MinetestBiome[] biomes = getBiomeArray();
+			BiomeClassifier biomeClassifier = getBiomeClassifier();
+
+			// Use -top and -step because Minetest uses left-handed coordinates, while Minecraft
+			// and Amidst use right-handed coordinates.
+			ValleysContext context = (ValleysContext)getThreadContext();
+			TerrainNoise tempTerrainNoise = context.tempTerrainNoise;
+			calcTerrainMaps(context, left, -top, step, -step, width, height);
 			
 			try {			
+				int index2d = 0;
 				for (int y = 0; y < height; y++) {
 					
 					world_z = top + (y << shift);
@@ -402,21 +491,21 @@ public class BiomeDataOracleValleys extends MinetestBiomeDataOracle implements I
 					// and Amidst use right-handed coordinates.
 					world_z = -world_z;
 					
-					for (int x = 0; x < width; x++) {
+					for (int x = 0; x < width; x++, index2d++) {
 						
 						biomeValue = 0;
 
 						// Add the ocean bitplane
-						int surface_y = (int)terrainLevelAtPoint(world_x, world_z);
+						int surface_y = (int)terrainLevel(context, world_x, world_z, index2d);
 						if (surface_y < valleysParams.water_level) biomeValue |= BITPLANE_OCEAN;
 						if (tempTerrainNoise.isRiver) biomeValue |= BITPLANE_RIVER;
 						//if (isMountains) biomeValue |= BITPLANE_MOUNTAIN;
 																		
 						// add the biome index
 						// (mask the bitplanes in case the biome returned is -1 (NONE)
-						biomeValue |= calcBiomeFromNoise(biomes, tempTerrainNoise.heat, tempTerrainNoise.humidity, surface_y).getIndex() & MASK_BITPLANES;
+						biomeValue |= calcBiomeFromNoise(context, biomeClassifier, index2d, tempTerrainNoise.heat, tempTerrainNoise.humidity, surface_y).getIndex() & MASK_BITPLANES;
 						
-						result[x][y] = biomeValue;					
+						result.set(x, y, biomeValue);					
 						world_x += step;
 					}
 				}
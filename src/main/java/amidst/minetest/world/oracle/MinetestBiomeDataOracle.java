@@ -1,25 +1,34 @@
 package amidst.minetest.world.oracle;
 
 import java.util.Collection;
+import java.util.Set;
 
-import amidst.fragment.IBiomeDataOracle;
+import amidst.documentation.NotThreadSafe;
+import amidst.fragment.BiomeClimateBuffer;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.BiomeDataPlane;
+import amidst.fragment.ICacheableBiomeDataOracle;
+import amidst.fragment.IReclassifiableBiomeDataOracle;
 import amidst.gameengineabstraction.CoordinateSystem;
 import amidst.gameengineabstraction.world.biome.IBiome;
 import amidst.logging.AmidstLogger;
 import amidst.minetest.world.mapgen.ClimateHistogram;
 import amidst.minetest.world.mapgen.IHistogram2D;
 import amidst.minetest.world.mapgen.IHistogram2DTransformationProvider;
+import amidst.minetest.world.mapgen.InvalidNoiseParamsException;
 import amidst.minetest.world.mapgen.MapgenParams;
 import amidst.minetest.world.mapgen.MinetestBiome;
 import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
 import amidst.minetest.world.mapgen.Noise;
+import amidst.minetest.world.mapgen.NoiseBuffers;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
 import amidst.settings.biomeprofile.BiomeProfile;
 import amidst.settings.biomeprofile.BiomeProfileSelection;
 import amidst.settings.biomeprofile.BiomeProfileUpdateListener;
 
-public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, BiomeProfileUpdateListener {
+public abstract class MinetestBiomeDataOracle
+		implements ICacheableBiomeDataOracle, IReclassifiableBiomeDataOracle, BiomeProfileUpdateListener {
 	protected final int seed;
 	protected MapgenParams params;
 	protected ClimateHistogram climateHistogram;
@@ -27,7 +36,97 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 	 * Updated by onBiomeProfileUpdate event, can be null.
 	 */
 	protected volatile BiomeProfile biomeProfile;
-	
+
+	private Noise noise_heat;
+	private Noise noise_heat_blend;
+	private Noise noise_humidity;
+	private Noise noise_humidity_blend;
+
+	/**
+	 * All the state that is written to while generating terrain, so the
+	 * oracle itself can be used by several threads at the same time.
+	 * Each thread gets its own ThreadContext.
+	 */
+	@NotThreadSafe
+	protected static class ThreadContext {
+		public final NoiseBuffers noiseBuffers = new NoiseBuffers();
+
+		/**
+		 * The heat and humidity of every sample in the grid most recently passed
+		 * to calcClimateMaps(), indexed by (z * width + x)
+		 */
+		public float[] heatMap     = new float[0];
+		public float[] humidityMap = new float[0];
+		private float[] blendMap   = new float[0];
+
+		private float[][] maps = new float[0][];
+
+		/**
+		 * Where calcBiomeFromNoise() records the climate of the samples, or
+		 * null while the climate is not recorded.
+		 */
+		private BiomeClimateBuffer climate;
+
+		/**
+		 * The planes requested from the current populateArray() call.
+		 */
+		private Set<BiomeDataPlane> planes = BiomeDataPlane.ALL;
+
+		public boolean isRequested(BiomeDataPlane plane) {
+			return planes.contains(plane);
+		}
+
+		/**
+		 * Returns the noise map with the given index, large enough to hold
+		 * size values. Its contents are whatever was last written to it.
+		 */
+		public float[] getMap(int index, int size) {
+			if (index >= maps.length) {
+				float[][] newMaps = new float[index + 1][];
+				System.arraycopy(maps, 0, newMaps, 0, maps.length);
+				maps = newMaps;
+			}
+			if (maps[index] == null || maps[index].length < size) {
+				maps[index] = new float[size];
+			}
+			return maps[index];
+		}
+	}
+
+	private final ThreadLocal<ThreadContext> threadContext = ThreadLocal.withInitial(this::createThreadContext);
+
+	/**
+	 * The cache key together with the biome profile it was created from, so
+	 * a biome profile update makes it stale without needing a lock.
+	 */
+	private static class BiomeDataCacheKey {
+		final BiomeProfile biomeProfile;
+		final String key;
+
+		BiomeDataCacheKey(BiomeProfile biomeProfile, String key) {
+			this.biomeProfile = biomeProfile;
+			this.key = key;
+		}
+	}
+
+	private volatile BiomeDataCacheKey biomeDataCacheKey;
+
+	/**
+	 * The biome classifier together with the biome profile it was created
+	 * from, see BiomeDataCacheKey.
+	 */
+	private static class BiomeClassifierHolder {
+		final BiomeProfile biomeProfile;
+		final BiomeClassifier biomeClassifier;
+
+		BiomeClassifierHolder(BiomeProfile biomeProfile, BiomeClassifier biomeClassifier) {
+			this.biomeProfile = biomeProfile;
+			this.biomeClassifier = biomeClassifier;
+		}
+	}
+
+	private volatile BiomeClassifierHolder biomeClassifierHolder;
+
 	public static final int BITPLANE_RIVER       = 0x4000;
 	public static final int BITPLANE_OCEAN       = 0x2000;
 	public static final int BITPLANE_MOUNTAIN    = 0x1000;
@@ -48,25 +147,56 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 			this.biomeProfile = biomeProfileSelection.getCurrentBiomeProfile();
 			biomeProfileSelection.addUpdateListener(this);			
 		}		
+
+		try {
+			noise_heat           = new Noise(params.np_heat,           this.seed, params.chunk_length_x, params.chunk_length_z);
+			noise_heat_blend     = new Noise(params.np_heat_blend,     this.seed, params.chunk_length_x, params.chunk_length_z);
+			noise_humidity       = new Noise(params.np_humidity,       this.seed, params.chunk_length_x, params.chunk_length_z);
+			noise_humidity_blend = new Noise(params.np_humidity_blend, this.seed, params.chunk_length_x, params.chunk_length_z);
+		} catch (InvalidNoiseParamsException ex) {
+			AmidstLogger.error("Invalid biome noise params from Minetest game. " + ex);
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Subclasses that need more per-thread state than the noise maps can override
+	 * this to return a subclass of ThreadContext.
+	 */
+	protected ThreadContext createThreadContext() {
+		return new ThreadContext();
+	}
+
+	protected ThreadContext getThreadContext() {
+		return threadContext.get();
 	}
 
 	/**
 	 * The same as populateArray(), but if a subclass implements this instead of overriding
 	 * populateArray() then clipping to Minetest world boundaries will get handled by the superclass.
 	 */
-	protected abstract short populateArray_unbounded(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution);
+	protected abstract short populateArray_unbounded(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution);
+
 
+	@Override
+	public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, boolean useQuarterResolution) {
+		return populateArray(corner, result, Resolution.from(useQuarterResolution));
+	}
 
-	public short populateArray(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	/**
+	 * All Minetest oracles sample their noise maps with the step of the
+	 * resolution, so coarser resolutions are computed natively.
+	 */
+	@Override
+	public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
 
 		// invoke populateArray_unbounded() then clip the results to world boundaries
 		short ret = MASK_BITPLANES;
 
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
 			// Minetest world boundaries are X=30927, X=−30912, Z=30927 and Z=−30912
-			Resolution resolution = Resolution.from(useQuarterResolution);
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left   = (int) corner.getX();
 			int top    = (int) corner.getY();
 			int step   = resolution.getStep();
@@ -79,39 +209,122 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 			bottom = -bottom;
 
 			if (right >= -30912 && left <= 30927 && top >= -30912 && bottom <= 30927) {
-				ret = populateArray_unbounded(corner, result, useQuarterResolution);
+				ret = populateArray_unbounded(corner, result, resolution);
 
 				if (left < -30912 || right > 30927 || bottom < -30912 || top > 30927) {
 					// part of this fragment is outside the world-bounds, erase that part
 					short blank_index = (short) MinetestBiome.VOID.getIndex();
+					BiomeClimateBuffer climate = getThreadContext().climate;
 					int world_z = top;
 					for (int z = 0; z < height; z++, world_z -= step) {
 						int world_x = left;						
 						for (int x = 0; x < width; x++, world_x += step) {
 							if (world_x < -30912 || world_x > 30927 || world_z < -30912 || world_z > 30927) {
-								result[x][z] = blank_index;
+								result.set(x, z, blank_index);
+								if (climate != null) {
+									climate.clear(result.getIndex(x, z));
+								}
 							}
 						}
 					}
 				}
 			} else {
 				// the entire fragment is outside the world-bounds
-				short blank_index = (short) MinetestBiome.VOID.getIndex();
-				for (int y = 0; y < height; y++) {
-					for (int x = 0; x < width; x++) {
-						result[x][y] = blank_index;
-					}
-				}
+				result.fill((short) MinetestBiome.VOID.getIndex());
 			}
 		}
 		return ret;
 	}
 
+	@Override
+	public boolean isSamplingCoarseResolutionsNatively() {
+		return true;
+	}
+
+	/**
+	 * Oracles that don't choose their biomes with calcBiomeFromNoise() must
+	 * override this to return false.
+	 */
+	@Override
+	public boolean canReclassify() {
+		return true;
+	}
+
+	/**
+	 * Subclasses can skip the planes that are not requested, see
+	 * ThreadContext.isRequested().
+	 */
+	@Override
+	public short populateArray(
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution,
+			Set<BiomeDataPlane> planes) {
+		ThreadContext context = getThreadContext();
+		context.planes = planes;
+		try {
+			return populateArray(corner, result, resolution);
+		} finally {
+			context.planes = BiomeDataPlane.ALL;
+		}
+	}
+
+	@Override
+	public short populateArray(
+			CoordinatesInWorld corner,
+			BiomeDataBuffer result,
+			Resolution resolution,
+			Set<BiomeDataPlane> planes,
+			BiomeClimateBuffer climate) {
+		ThreadContext context = getThreadContext();
+		climate.clear();
+		context.climate = climate;
+		try {
+			return populateArray(corner, result, resolution, planes);
+		} finally {
+			context.climate = null;
+		}
+	}
+
+	@Override
+	public short reclassify(BiomeClimateBuffer climate, BiomeDataBuffer result) {
+		BiomeClassifier biomeClassifier = getBiomeClassifier();
+		short[] data = result.getData();
+		for (int i = 0; i < data.length; i++) {
+			if (climate.isRecorded(i)) {
+				MinetestBiome biome = biomeClassifier.classify(climate.getHeat(i), climate.getHumidity(i), climate.getY(i));
+				data[i] = (short) ((data[i] & ~MASK_BITPLANES) | (biome.getIndex() & MASK_BITPLANES));
+			}
+		}
+		return MASK_BITPLANES;
+	}
+
 	public MapgenParams getMapgenParams() {
 		return params;
 	}
 
 	protected MinetestBiome[] getBiomeArray() {
+		return getBiomeArray(biomeProfile);
+	}
+
+	/**
+	 * Call this once per populateArray() and pass the result to
+	 * calcBiomeFromNoise(), so a biome profile update in between doesn't mix
+	 * the biomes of two profiles in the same fragment.
+	 */
+	protected BiomeClassifier getBiomeClassifier() {
+		BiomeProfile currentBiomeProfile = biomeProfile;
+		BiomeClassifierHolder result = biomeClassifierHolder;
+		if (result == null || result.biomeProfile != currentBiomeProfile) {
+			result = new BiomeClassifierHolder(
+					currentBiomeProfile,
+					new BiomeClassifier(getBiomeArray(currentBiomeProfile)));
+			biomeClassifierHolder = result;
+		}
+		return result.biomeClassifier;
+	}
+
+	private static MinetestBiome[] getBiomeArray(BiomeProfile biomeProfile) {
 		
 		MinetestBiome[] result;
 		
@@ -138,7 +351,7 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 		return result;
 	}
 
-	protected MinetestBiome calcBiomeAtPoint(MinetestBiome[] biomes, int x, int y, int z)
+	protected MinetestBiome calcBiomeAtPoint(BiomeClassifier biomeClassifier, int x, int y, int z)
 	{
 		float heat =
 			Noise.NoisePerlin2D(params.np_heat,           x, z, seed) +
@@ -147,52 +360,50 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 			Noise.NoisePerlin2D(params.np_humidity,       x, z, seed) +
 			Noise.NoisePerlin2D(params.np_humidity_blend, x, z, seed);
 
-		return calcBiomeFromNoise(biomes, heat, humidity, y);
+		return calcBiomeFromNoise(biomeClassifier, heat, humidity, y);
 	}	
 
-	protected MinetestBiome calcBiomeFromNoise(MinetestBiome[] biomes, float heat, float humidity, int y)
+	/**
+	 * Fills context.heatMap and context.humidityMap with the same values calcBiomeAtPoint() would
+	 * calculate for every point of the strided grid, see Noise.perlinMap2DStrided()
+	 */
+	protected void calcClimateMaps(ThreadContext context, int x, int z, int step_x, int step_z, int sx, int sz)
 	{
-		MinetestBiome biome_closest = null;
-		MinetestBiome biome_closest_blend = null;
-		float dist_min = Float.MAX_VALUE;
-		float dist_min_blend = Float.MAX_VALUE;
-
-		short biomesArrayLength = (short)biomes.length;
-		for (short i = 0; i < biomesArrayLength; i++) {
-			MinetestBiome b = biomes[i];
-			if (y > b.y_max + b.vertical_blend || y < b.y_min)
-				continue;
-
-			float d_heat = heat - b.heat_point;
-			float d_humidity = humidity - b.humidity_point;
-			float dist = (d_heat * d_heat) + (d_humidity * d_humidity);
-
-			if (y <= b.y_max) { // Within y limits of biome b
-				if (dist < dist_min) {
-					dist_min = dist;
-					biome_closest = b;
-				}
-			/* skip vertical blending, map doesn't need it
-			} else if (dist < dist_min_blend) { // Blend area above biome b
-				dist_min_blend = dist;
-				biome_closest_blend = b;*/
-			}
+		int bufsize = sx * sz;
+		if (context.heatMap.length < bufsize) {
+			context.heatMap     = new float[bufsize];
+			context.humidityMap = new float[bufsize];
+			context.blendMap    = new float[bufsize];
 		}
+		NoiseBuffers buffers = context.noiseBuffers;
+		float[] heat       = noise_heat.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.heatMap,     buffers);
+		float[] heat_blend = noise_heat_blend.perlinMap2DStrided(x, z, step_x, step_z, sx, sz, 0, 0, null, context.blendMap,    buffers);
+		for (int i = 0; i < bufsize; i++)
+			heat[i] += heat_blend[i];
 
-		/* skip vertical blending, map doesn't need it
-			
-		// Carefully tune pseudorandom seed variation to avoid single node dither
-		// and create larger scale blending patterns similar to horizontal biome
-		// blend.
-		mysrand(y + (heat + humidity) / 2);
+		float[] humidity       = noise_humidity.perlinMap2DStrided(      x, z, step_x, step_z, sx, sz, 0, 0, null, context.humidityMap, buffers);
+		float[] humidity_blend = noise_humidity_blend.perlinMap2DStrided(x, z, step_x, step_z, sx, sz, 0, 0, null, context.blendMap,    buffers);
+		for (int i = 0; i < bufsize; i++)
+			humidity[i] += humidity_blend[i];
+	}
 
-		if (biome_closest_blend &&
-				myrand_range(0, biome_closest_blend->vertical_blend) >=
-				y - biome_closest_blend->y_max)
-			return biome_closest_blend;
-		*/
+	protected MinetestBiome calcBiomeFromNoise(BiomeClassifier biomeClassifier, float heat, float humidity, int y)
+	{
+		return biomeClassifier.classify(heat, humidity, y);
+	}
 
-		return (biome_closest != null) ? biome_closest : MinetestBiome.NONE;	
+	/**
+	 * The same as calcBiomeFromNoise() above, but also records the climate of the
+	 * sample at index2d of the result, if the context is recording the climate.
+	 * The biome of the sample must only depend on the biome returned, so the
+	 * sample can be reclassified, see reclassify().
+	 */
+	protected MinetestBiome calcBiomeFromNoise(ThreadContext context, BiomeClassifier biomeClassifier, int index2d, float heat, float humidity, int y)
+	{
+		if (context.climate != null) {
+			context.climate.set(index2d, heat, humidity, y);
+		}
+		return biomeClassifier.classify(heat, humidity, y);
 	}
 	
 	public IHistogram2D getClimateHistogram() {
@@ -222,9 +433,55 @@ public abstract class MinetestBiomeDataOracle implements IBiomeDataOracle, Biome
 		return result;
 	}
 	
+	@Override
+	public String getBiomeDataCacheKey() {
+		BiomeProfile currentBiomeProfile = biomeProfile;
+		BiomeDataCacheKey result = biomeDataCacheKey;
+		if (result == null || result.biomeProfile != currentBiomeProfile) {
+			result = new BiomeDataCacheKey(
+					currentBiomeProfile,
+					createBiomeDataCacheKey(getBiomeArray(currentBiomeProfile)));
+			biomeDataCacheKey = result;
+		}
+		return result.key;
+	}
+
+	/**
+	 * Subclasses that generate different biome data for the same params
+	 * (e.g. because of constructor arguments) must override this and add
+	 * whatever makes the difference.
+	 */
+	protected String createBiomeDataCacheKey(MinetestBiome[] biomes) {
+		StringBuilder result = new StringBuilder();
+		result.append(getClass().getName()).append('\n');
+		result.append("seed = ").append(seed).append('\n');
+		result.append(createParamsCacheKey()).append('\n');
+		// Only the fields used by calcBiomeFromNoise(), so changing a biome colour
+		// doesn't invalidate the cache.
+		for (MinetestBiome biome : biomes) {
+			result.append("biome ").append(biome.getIndex())
+				.append(' ').append(biome.y_min)
+				.append(' ').append(biome.y_max)
+				.append(' ').append(Float.floatToIntBits(biome.heat_point))
+				.append(' ').append(Float.floatToIntBits(biome.humidity_point))
+				.append(' ').append(biome.vertical_blend)
+				.append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * The params the biome data depends on. Subclasses must override this if
+	 * the toString() of their params leaves out a field they read.
+	 */
+	protected String createParamsCacheKey() {
+		return params.toString();
+	}
+
 	@Override
 	public void onBiomeProfileUpdate(BiomeProfile newBiomeProfile) {
 		this.biomeProfile = newBiomeProfile;
+		getBiomeClassifier();
 	}		
 	
 	/**
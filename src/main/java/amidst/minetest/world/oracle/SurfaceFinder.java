@@ -0,0 +1,109 @@
+package amidst.minetest.world.oracle;
+
+import amidst.documentation.NotThreadSafe;
+import amidst.logging.AmidstLogger;
+import amidst.minetest.world.mapgen.NoiseColumn3D;
+import amidst.minetest.world.mapgen.NoiseParams;
+
+/**
+ * Searches a column of 3D terrain for the surface, i.e. ground with air
+ * directly above. Subclasses decide whether a height is ground, usually from
+ * the 3D noise of the column, which is evaluated by a NoiseColumn3D so the
+ * probes of one column share their lattice cells.
+ *
+ * Call setColumn() before searching a column.
+ */
+@NotThreadSafe
+abstract class SurfaceFinder {
+	/**
+	 * The height of a surface that is not known.
+	 */
+	public static final int UNKNOWN = Short.MIN_VALUE;
+
+	/**
+	 * More than enough to find any surface within the height of a Minetest
+	 * world, so this only stops searches in terrain that never ends.
+	 */
+	private static final int MAX_PROBES = 64;
+
+	protected final NoiseColumn3D noise;
+
+	protected SurfaceFinder(NoiseParams np, int seed) {
+		this.noise = new NoiseColumn3D(np, seed);
+	}
+
+	public void setColumn(int x, int z) {
+		noise.setColumn(x, z);
+	}
+
+	protected abstract boolean isGround(int y);
+
+	/**
+	 * A logarithmic-ish search for some ground with air directly above.
+	 * (If it's the top of a floating island or ground beneath an underhang then tough, but because we start
+	 * low, it should find what the player will consider the ground most of the time)
+	 *
+	 * @param hint - the surface of an adjacent column, or UNKNOWN. If the surface has the same height here,
+	 *        only one or two heights need to be tested.
+	 * @param highestGround - a height that is known to be ground
+	 * @return height of the first highest level of ground located with air directly above.
+	 */
+	public int findSurface(int hint, int highestGround) {
+		int lowestAir  = Short.MAX_VALUE;    // We don't know where the air starts
+		int testHeight = highestGround + 4;  // Seems like a good start point if we don't know anything else (most of the time this value is overwritten with the hint, so it's not too important).
+
+		if (hint != UNKNOWN) {
+			int hintAirHeight = hint + 1;
+			if (isGround(hintAirHeight)) {
+				// Nope, height has changed, we will have to do a proper search
+				highestGround = hintAirHeight;
+				testHeight = hintAirHeight + 1; // perhaps the land has only raised by 1, we can live in hope
+			} else {
+				lowestAir = hintAirHeight;
+				testHeight = hint;
+			}
+		}
+
+		int probes = 0;
+		while (highestGround + 1 < lowestAir && probes++ < MAX_PROBES) {
+			if (isGround(testHeight)) {
+				int previousHighestGround = highestGround;
+				highestGround = testHeight;
+				if (lowestAir == Short.MAX_VALUE) {
+					testHeight += 2 * (testHeight - previousHighestGround);
+				} else {
+					testHeight += (lowestAir - testHeight) / 2;
+				}
+			} else {
+				lowestAir = testHeight;
+				testHeight -= ((testHeight - highestGround) / 2);
+			}
+		}
+		if (highestGround + 1 != lowestAir) {
+			AmidstLogger.error("Ground search alg failed! highestGround: " + highestGround + ", lowestAir: " + lowestAir);
+		}
+		return highestGround;
+	}
+
+	/**
+	 * Walks from start towards the surface one height at a time: upwards if
+	 * start is ground, downwards otherwise. The walk ends at the first height
+	 * that differs from start, or after maxSteps heights.
+	 *
+	 * @return the last ground height of the walk, or UNKNOWN if the walk did
+	 *         not reach any ground
+	 */
+	public int walkToSurface(int start, int maxSteps) {
+		int result = UNKNOWN;
+		boolean isGround = isGround(start);
+		int direction = isGround ? 1 : -1;
+		for (int i = 1; i <= maxSteps; i++) {
+			int y = start + (i * direction);
+			boolean wasGround = isGround;
+			isGround = isGround(y);
+			if (isGround) result = y;
+			if (isGround != wasGround) break;
+		}
+		return result;
+	}
+}
@@ -8,6 +8,8 @@ public enum Resolution {
 	QUARTER(2),
 	NETHER(3),
 	CHUNK(4),
+	CHUNK_2X2(5),
+	CHUNK_4X4(6),
 	NETHER_CHUNK(7),
 	FRAGMENT(9);
 
@@ -0,0 +1,120 @@
+package amidst.mojangapi.world.export;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import amidst.documentation.NotThreadSafe;
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+/**
+ * Writes the exported data as a gzip compressed stream of big endian records.
+ *
+ * The header is the magic number, the format version, the seed, the flags
+ * (FLAG_ bits), whether the coordinates are left-handed, the step between two
+ * samples in blocks, the x and z coordinates of the first sample and the
+ * number of samples in each row and column. The header is followed by TILE
+ * and ICON records and a final END record.
+ *
+ * A TILE record contains the column and row of its first sample, its width
+ * and height, the biome index of each sample as a short and the bitplanes of
+ * each sample as a byte, both in row-major order and only if enabled by the
+ * flags. Each row is one step further along the world's y axis, which is
+ * towards negative z for left-handed coordinates.
+ *
+ * An ICON record contains the x and z coordinates of the icon, its name and
+ * the name of its dimension.
+ */
+@NotThreadSafe
+public class BinaryWorldDataWriter implements WorldDataWriter {
+	public static final int MAGIC = 0x414D4558;
+	public static final int VERSION = 1;
+
+	public static final byte FLAG_BIOMES = 1;
+	public static final byte FLAG_BITPLANES = 2;
+	public static final byte FLAG_ICONS = 4;
+
+	public static final byte RECORD_END = 0;
+	public static final byte RECORD_TILE = 1;
+	public static final byte RECORD_ICON = 2;
+
+	private final CoordinateSystem coordinateSystem;
+	private final DataOutputStream out;
+
+	public BinaryWorldDataWriter(
+			WorldExporterConfiguration configuration,
+			CoordinateSystem coordinateSystem,
+			long seed) throws IOException {
+		this.coordinateSystem = coordinateSystem;
+		this.out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(configuration.getFile()), 64 * 1024)));
+		writeHeader(configuration, seed);
+	}
+
+	private void writeHeader(WorldExporterConfiguration configuration, long seed) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(seed);
+		out.writeByte(getFlags(configuration));
+		out.writeBoolean(coordinateSystem == CoordinateSystem.LEFT_HANDED);
+		out.writeInt(configuration.getResolution().getStep());
+		out.writeLong(configuration.getCorner().getX());
+		out.writeLong(coordinateSystem.ConvertFromRightHanded(configuration.getCorner().getY()));
+		out.writeLong(configuration.getWidthInSamples());
+		out.writeLong(configuration.getHeightInSamples());
+	}
+
+	private static int getFlags(WorldExporterConfiguration configuration) {
+		int result = 0;
+		if (configuration.isExportBiomes()) {
+			result |= FLAG_BIOMES;
+		}
+		if (configuration.isExportBitplanes()) {
+			result |= FLAG_BITPLANES;
+		}
+		if (configuration.isExportIcons()) {
+			result |= FLAG_ICONS;
+		}
+		return result;
+	}
+
+	@Override
+	public void writeTile(ExportedTile tile) throws IOException {
+		if (tile.getBiomes() != null || tile.getBitplanes() != null) {
+			out.writeByte(RECORD_TILE);
+			out.writeInt(tile.getColumn());
+			out.writeInt(tile.getRow());
+			out.writeInt(tile.getWidth());
+			out.writeInt(tile.getHeight());
+			if (tile.getBiomes() != null) {
+				for (short biome : tile.getBiomes()) {
+					out.writeShort(biome);
+				}
+			}
+			if (tile.getBitplanes() != null) {
+				out.write(tile.getBitplanes());
+			}
+		}
+		if (tile.getIcons() != null) {
+			for (WorldIcon icon : tile.getIcons()) {
+				out.writeByte(RECORD_ICON);
+				out.writeLong(icon.getCoordinates().getX());
+				out.writeLong(coordinateSystem.ConvertFromRightHanded(icon.getCoordinates().getY()));
+				out.writeUTF(icon.getName());
+				out.writeUTF(icon.getDimension().getName());
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.writeByte(RECORD_END);
+		} finally {
+			out.close();
+		}
+	}
+}
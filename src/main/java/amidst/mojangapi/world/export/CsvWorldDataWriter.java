@@ -0,0 +1,124 @@
+package amidst.mojangapi.world.export;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import amidst.documentation.NotThreadSafe;
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+/**
+ * Writes one line for each biome sample and each icon. The kind column is
+ * either "sample" or "icon", the columns that do not apply to the kind of a
+ * line are left empty. The coordinates are the coordinates the game uses.
+ */
+@NotThreadSafe
+public class CsvWorldDataWriter implements WorldDataWriter {
+	private final CoordinateSystem coordinateSystem;
+	private final long step;
+	private final boolean hasBiomes;
+	private final boolean hasBitplanes;
+	private final boolean hasIcons;
+	private final Writer out;
+	private final StringBuilder line = new StringBuilder();
+
+	public CsvWorldDataWriter(WorldExporterConfiguration configuration, CoordinateSystem coordinateSystem)
+			throws IOException {
+		this.coordinateSystem = coordinateSystem;
+		this.step = configuration.getResolution().getStep();
+		this.hasBiomes = configuration.isExportBiomes();
+		this.hasBitplanes = configuration.isExportBitplanes();
+		this.hasIcons = configuration.isExportIcons();
+		this.out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(configuration.getFile()), StandardCharsets.UTF_8),
+				64 * 1024);
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		line.append("kind,x,z");
+		if (hasBiomes) {
+			line.append(",biome");
+		}
+		if (hasBitplanes) {
+			line.append(",river,ocean,mountain");
+		}
+		if (hasIcons) {
+			line.append(",icon,dimension");
+		}
+		writeLine();
+	}
+
+	private void writeLine() throws IOException {
+		line.append('\n');
+		out.append(line);
+		line.setLength(0);
+	}
+
+	@Override
+	public void writeTile(ExportedTile tile) throws IOException {
+		short[] biomes = tile.getBiomes();
+		byte[] bitplanes = tile.getBitplanes();
+		if (biomes != null || bitplanes != null) {
+			long cornerX = tile.getCorner().getX();
+			long cornerY = tile.getCorner().getY();
+			int i = 0;
+			for (int y = 0; y < tile.getHeight(); y++) {
+				long z = coordinateSystem.ConvertFromRightHanded(cornerY + y * step);
+				for (int x = 0; x < tile.getWidth(); x++, i++) {
+					line.append("sample,").append(cornerX + x * step).append(',').append(z);
+					if (hasBiomes) {
+						line.append(',').append(biomes[i]);
+					}
+					if (hasBitplanes) {
+						appendBitplanes(bitplanes[i]);
+					}
+					if (hasIcons) {
+						line.append(",,");
+					}
+					writeLine();
+				}
+			}
+		}
+		if (tile.getIcons() != null) {
+			for (WorldIcon icon : tile.getIcons()) {
+				line.append("icon,").append(icon.getCoordinates().getX()).append(',').append(
+						coordinateSystem.ConvertFromRightHanded(icon.getCoordinates().getY()));
+				if (hasBiomes) {
+					line.append(',');
+				}
+				if (hasBitplanes) {
+					line.append(",,,");
+				}
+				line.append(',');
+				appendQuoted(icon.getName());
+				line.append(',');
+				appendQuoted(icon.getDimension().getName());
+				writeLine();
+			}
+		}
+	}
+
+	private void appendBitplanes(byte bitplanes) {
+		line.append((bitplanes & ExportedTile.BITPLANE_RIVER) != 0 ? ",1" : ",0");
+		line.append((bitplanes & ExportedTile.BITPLANE_OCEAN) != 0 ? ",1" : ",0");
+		line.append((bitplanes & ExportedTile.BITPLANE_MOUNTAIN) != 0 ? ",1" : ",0");
+	}
+
+	private void appendQuoted(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			line.append(value);
+		} else {
+			line.append('"').append(value.replace("\"", "\"\"")).append('"');
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
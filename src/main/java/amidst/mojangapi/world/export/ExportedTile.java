@@ -0,0 +1,92 @@
+package amidst.mojangapi.world.export;
+
+import java.util.List;
+
+import amidst.documentation.Immutable;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+/**
+ * The exported data of one part of the region, which is at most the size of
+ * a fragment. The arrays must not be modified once the tile was created.
+ */
+@Immutable
+public class ExportedTile {
+	public static final byte BITPLANE_RIVER = 1;
+	public static final byte BITPLANE_OCEAN = 2;
+	public static final byte BITPLANE_MOUNTAIN = 4;
+
+	private final CoordinatesInWorld corner;
+	private final int column;
+	private final int row;
+	private final int width;
+	private final int height;
+	private final short[] biomes;
+	private final byte[] bitplanes;
+	private final List<WorldIcon> icons;
+
+	/**
+	 * @param corner
+	 *            the world coordinates of the top left sample
+	 * @param column
+	 *            the position of the top left sample in the samples of the
+	 *            region
+	 * @param row
+	 *            the position of the top left sample in the samples of the
+	 *            region
+	 * @param biomes
+	 *            the biome index of each sample in row-major order, or null
+	 * @param bitplanes
+	 *            the BITPLANE_ bits of each sample in row-major order, or null
+	 */
+	public ExportedTile(
+			CoordinatesInWorld corner,
+			int column,
+			int row,
+			int width,
+			int height,
+			short[] biomes,
+			byte[] bitplanes,
+			List<WorldIcon> icons) {
+		this.corner = corner;
+		this.column = column;
+		this.row = row;
+		this.width = width;
+		this.height = height;
+		this.biomes = biomes;
+		this.bitplanes = bitplanes;
+		this.icons = icons;
+	}
+
+	public CoordinatesInWorld getCorner() {
+		return corner;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public short[] getBiomes() {
+		return biomes;
+	}
+
+	public byte[] getBitplanes() {
+		return bitplanes;
+	}
+
+	public List<WorldIcon> getIcons() {
+		return icons;
+	}
+}
@@ -0,0 +1,155 @@
+package amidst.mojangapi.world.export;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import amidst.documentation.NotThreadSafe;
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+/**
+ * Writes a GeoJSON FeatureCollection in the coordinates the game uses, with x
+ * as the first and z as the second coordinate. Neighbouring samples of a row
+ * with the same data are merged into one rectangular Polygon feature, icons
+ * are written as Point features.
+ */
+@NotThreadSafe
+public class GeoJsonWorldDataWriter implements WorldDataWriter {
+	private final CoordinateSystem coordinateSystem;
+	private final long step;
+	private final Writer out;
+	private final StringBuilder feature = new StringBuilder();
+	private boolean isFirstFeature = true;
+
+	public GeoJsonWorldDataWriter(WorldExporterConfiguration configuration, CoordinateSystem coordinateSystem)
+			throws IOException {
+		this.coordinateSystem = coordinateSystem;
+		this.step = configuration.getResolution().getStep();
+		this.out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(configuration.getFile()), StandardCharsets.UTF_8),
+				64 * 1024);
+		out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+	}
+
+	@Override
+	public void writeTile(ExportedTile tile) throws IOException {
+		short[] biomes = tile.getBiomes();
+		byte[] bitplanes = tile.getBitplanes();
+		if (biomes != null || bitplanes != null) {
+			int width = tile.getWidth();
+			for (int y = 0; y < tile.getHeight(); y++) {
+				int rowStart = y * width;
+				int runStart = 0;
+				for (int x = 1; x <= width; x++) {
+					if (x == width || !isSameSample(biomes, bitplanes, rowStart + runStart, rowStart + x)) {
+						writeRun(tile, biomes, bitplanes, y, runStart, x, rowStart + runStart);
+						runStart = x;
+					}
+				}
+			}
+		}
+		if (tile.getIcons() != null) {
+			for (WorldIcon icon : tile.getIcons()) {
+				writeIcon(icon);
+			}
+		}
+	}
+
+	private static boolean isSameSample(short[] biomes, byte[] bitplanes, int i, int j) {
+		return (biomes == null || biomes[i] == biomes[j]) && (bitplanes == null || bitplanes[i] == bitplanes[j]);
+	}
+
+	private void writeRun(
+			ExportedTile tile,
+			short[] biomes,
+			byte[] bitplanes,
+			int y,
+			int startX,
+			int endX,
+			int index) throws IOException {
+		long x1 = tile.getCorner().getX() + startX * step;
+		long x2 = tile.getCorner().getX() + endX * step;
+		long z1 = coordinateSystem.ConvertFromRightHanded(tile.getCorner().getY() + y * step);
+		long z2 = coordinateSystem.ConvertFromRightHanded(tile.getCorner().getY() + (y + 1) * step);
+		long minZ = Math.min(z1, z2);
+		long maxZ = Math.max(z1, z2);
+		feature.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+		// counterclockwise, as recommended by RFC 7946
+		appendPosition(x1, minZ).append(',');
+		appendPosition(x2, minZ).append(',');
+		appendPosition(x2, maxZ).append(',');
+		appendPosition(x1, maxZ).append(',');
+		appendPosition(x1, minZ);
+		feature.append("]]},\"properties\":{");
+		if (biomes != null) {
+			feature.append("\"biome\":").append(biomes[index]);
+		}
+		if (bitplanes != null) {
+			if (biomes != null) {
+				feature.append(',');
+			}
+			byte value = bitplanes[index];
+			feature.append("\"river\":").append((value & ExportedTile.BITPLANE_RIVER) != 0);
+			feature.append(",\"ocean\":").append((value & ExportedTile.BITPLANE_OCEAN) != 0);
+			feature.append(",\"mountain\":").append((value & ExportedTile.BITPLANE_MOUNTAIN) != 0);
+		}
+		feature.append("}}");
+		writeFeature();
+	}
+
+	private void writeIcon(WorldIcon icon) throws IOException {
+		feature.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":");
+		appendPosition(
+				icon.getCoordinates().getX(),
+				coordinateSystem.ConvertFromRightHanded(icon.getCoordinates().getY()));
+		feature.append("},\"properties\":{\"icon\":");
+		appendString(icon.getName());
+		feature.append(",\"dimension\":");
+		appendString(icon.getDimension().getName());
+		feature.append("}}");
+		writeFeature();
+	}
+
+	private StringBuilder appendPosition(long x, long z) {
+		return feature.append('[').append(x).append(',').append(z).append(']');
+	}
+
+	private void appendString(String value) {
+		feature.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				feature.append('\\').append(c);
+			} else if (c < 0x20) {
+				feature.append(String.format("\\u%04x", (int) c));
+			} else {
+				feature.append(c);
+			}
+		}
+		feature.append('"');
+	}
+
+	private void writeFeature() throws IOException {
+		if (!isFirstFeature) {
+			out.write(",\n");
+		} else {
+			out.write('\n');
+			isFirstFeature = false;
+		}
+		out.append(feature);
+		feature.setLength(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.write("\n]}\n");
+		} finally {
+			out.close();
+		}
+	}
+}
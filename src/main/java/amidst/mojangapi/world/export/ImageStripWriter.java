@@ -0,0 +1,45 @@
+package amidst.mojangapi.world.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import amidst.util.FileExtensionChecker;
+
+/**
+ * Writes an image from top to bottom, a few rows at a time, so the whole
+ * image never has to be in memory. The image is complete when all rows were
+ * written and the writer was closed.
+ */
+public interface ImageStripWriter extends Closeable {
+	/**
+	 * Creates a writer for the format given by the file extension, which is
+	 * either png, tif or tiff.
+	 */
+	public static ImageStripWriter create(File file, int width, int height) throws IOException {
+		String name = file.getName();
+		if (FileExtensionChecker.hasFileExtension(name, "png")) {
+			return new PngStripWriter(file, width, height);
+		} else if (FileExtensionChecker.hasFileExtension(name, "tif")
+				|| FileExtensionChecker.hasFileExtension(name, "tiff")) {
+			return new TiffStripWriter(file, width, height);
+		} else {
+			throw new IOException("unsupported image format, use a .png or .tif file: " + file);
+		}
+	}
+
+	/**
+	 * Writes the next rows of the image. The alpha channel of the pixels is
+	 * ignored.
+	 *
+	 * @param argb
+	 *            the pixels, row by row, each row is getWidth() pixels long
+	 * @param rows
+	 *            the number of rows to write from argb
+	 */
+	void writeRows(int[] argb, int rows) throws IOException;
+
+	int getWidth();
+
+	int getHeight();
+}
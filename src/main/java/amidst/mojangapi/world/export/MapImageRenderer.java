@@ -0,0 +1,233 @@
+package amidst.mojangapi.world.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import amidst.documentation.ThreadSafe;
+import amidst.fragment.BiomeDataDiskCache;
+import amidst.fragment.Fragment;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.fragment.colorprovider.ColorProvider;
+import amidst.fragment.layer.LayerIds;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.threading.worker.ProgressReporter;
+
+/**
+ * Renders an area of the biome map into an ImageStripWriter. The area is
+ * split into tiles the size of a fragment. The tiles of each row are colored
+ * in parallel, while the previous row is written, so only two rows of tiles
+ * are in memory at once.
+ *
+ * The tiles are aligned to the fragments rather than to the area, so the
+ * biome data of each tile can be read from the disk cache. The tiles on the
+ * edges of the area are cropped.
+ */
+@ThreadSafe
+public class MapImageRenderer {
+	private static final int BLACK = 0xFF000000;
+
+	/**
+	 * The state each rendering thread keeps, since the color providers are
+	 * not meant to be shared between threads.
+	 */
+	private class TileContext {
+		private final Fragment fragment = new Fragment(LayerIds.NUMBER_OF_LAYERS);
+		private final List<ColorProvider> colorProviders = colorProvidersFactory.get();
+
+		private TileContext() {
+			fragment.initBiomeData(tileSize, tileSize);
+			// otherwise, a tile at world resolution would be sampled at quarter resolution and scaled up
+			fragment.setBiomeDataResolution(resolution);
+		}
+	}
+
+	private final IBiomeDataOracle biomeDataOracle;
+	private final BiomeDataDiskCache biomeDataDiskCache;
+	private final Resolution resolution;
+	private final Supplier<List<ColorProvider>> colorProvidersFactory;
+	private final int numberOfThreads;
+	private final int tileSize;
+	private final ThreadLocal<TileContext> tileContext = ThreadLocal.withInitial(TileContext::new);
+
+	/**
+	 * @param biomeDataDiskCache
+	 *            can be null
+	 * @param colorProvidersFactory
+	 *            creates the color providers of one thread. The first one
+	 *            colors the background, the others are drawn on top of it in
+	 *            the given order.
+	 */
+	public MapImageRenderer(
+			IBiomeDataOracle biomeDataOracle,
+			BiomeDataDiskCache biomeDataDiskCache,
+			Resolution resolution,
+			Supplier<List<ColorProvider>> colorProvidersFactory,
+			int numberOfThreads) {
+		this.biomeDataOracle = biomeDataOracle;
+		this.biomeDataDiskCache = biomeDataDiskCache;
+		this.resolution = resolution;
+		this.colorProvidersFactory = colorProvidersFactory;
+		this.numberOfThreads = numberOfThreads;
+		this.tileSize = resolution.getStepsPerFragment();
+	}
+
+	/**
+	 * @param corner
+	 *            the world coordinates of the top left pixel, it is rounded
+	 *            down to the resolution
+	 */
+	public void render(CoordinatesInWorld corner, ImageStripWriter writer, ProgressReporter<String> progressReporter)
+			throws IOException {
+		Area area = new Area(corner, writer.getWidth(), writer.getHeight());
+		int rows = (area.offsetY + area.height + tileSize - 1) / tileSize;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, "MapImageRenderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> pending = startRow(executor, area, 0);
+			for (int row = 0; row < rows; row++) {
+				int[] strip = waitFor(pending);
+				if (row + 1 < rows) {
+					pending = startRow(executor, area, row + 1);
+				}
+				writer.writeRows(strip, area.getRowsInStrip(row));
+				progressReporter.report("rendered " + (row + 1) + " of " + rows + " rows");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The rendered area, relative to the fragment that contains its top left
+	 * pixel. All offsets and sizes are in pixels.
+	 */
+	private class Area {
+		private final CoordinatesInWorld fragmentCorner;
+		private final int offsetX;
+		private final int offsetY;
+		private final int width;
+		private final int height;
+
+		private Area(CoordinatesInWorld corner, int width, int height) {
+			this.fragmentCorner = corner.toFragmentCorner();
+			this.offsetX = (int) corner.getXRelativeToFragmentAs(resolution);
+			this.offsetY = (int) corner.getYRelativeToFragmentAs(resolution);
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * The first row of the image that is part of the given row of tiles.
+		 */
+		private int getStripTop(int row) {
+			return Math.max(row * tileSize - offsetY, 0);
+		}
+
+		private int getRowsInStrip(int row) {
+			return Math.min((row + 1) * tileSize - offsetY, height) - getStripTop(row);
+		}
+	}
+
+	private List<Future<?>> startRow(ExecutorService executor, Area area, int row) {
+		int width = area.width;
+		int[] strip = new int[width * tileSize];
+		int rowsInStrip = area.getRowsInStrip(row);
+		int tileTop = area.getStripTop(row) - (row * tileSize - area.offsetY);
+		List<Future<?>> result = new ArrayList<>();
+		for (int column = 0; column * tileSize < area.offsetX + width; column++) {
+			int left = Math.max(column * tileSize - area.offsetX, 0);
+			int columnsInTile = Math.min((column + 1) * tileSize - area.offsetX, width) - left;
+			int tileLeft = left - (column * tileSize - area.offsetX);
+			CoordinatesInWorld tileCorner = area.fragmentCorner.add(
+					resolution.convertFromThisToWorld(column * tileSize),
+					resolution.convertFromThisToWorld(row * tileSize));
+			result.add(executor.submit(
+					() -> renderTile(tileCorner, tileLeft, tileTop, strip, width, left, columnsInTile, rowsInStrip),
+					strip));
+		}
+		return result;
+	}
+
+	private static int[] waitFor(List<Future<?>> tiles) throws IOException {
+		int[] result = null;
+		try {
+			for (Future<?> tile : tiles) {
+				result = (int[]) tile.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("rendering was interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("unable to render the map", e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the given columns and rows of the tile, starting at tileLeft and
+	 * tileTop within the tile, into the strip, starting at left.
+	 */
+	private void renderTile(
+			CoordinatesInWorld tileCorner,
+			int tileLeft,
+			int tileTop,
+			int[] strip,
+			int stripWidth,
+			int left,
+			int columns,
+			int rows) {
+		TileContext context = tileContext.get();
+		Fragment fragment = context.fragment;
+		fragment.setCorner(tileCorner);
+		if (biomeDataDiskCache != null) {
+			fragment.populateBiomeData(biomeDataOracle, biomeDataDiskCache);
+		} else {
+			fragment.populateBiomeData(biomeDataOracle);
+		}
+		long cornerX = tileCorner.getXAs(resolution);
+		long cornerY = tileCorner.getYAs(resolution);
+		List<ColorProvider> colorProviders = context.colorProviders;
+		ColorProvider background = colorProviders.get(0);
+		for (int y = 0; y < rows; y++) {
+			int index = y * stripWidth + left;
+			int tileY = tileTop + y;
+			for (int x = 0; x < columns; x++, index++) {
+				int tileX = tileLeft + x;
+				int color = blend(BLACK, background.getColorAt(Dimension.OVERWORLD, fragment, cornerX, cornerY, tileX, tileY));
+				for (int i = 1; i < colorProviders.size(); i++) {
+					color = blend(color, colorProviders.get(i).getColorAt(Dimension.OVERWORLD, fragment, cornerX, cornerY, tileX, tileY));
+				}
+				strip[index] = color;
+			}
+		}
+	}
+
+	/**
+	 * Draws the ARGB color over the opaque RGB color.
+	 */
+	private static int blend(int below, int above) {
+		int alpha = above >>> 24;
+		if (alpha == 0) {
+			return below;
+		} else if (alpha == 0xFF) {
+			return above;
+		}
+		int inverse = 0xFF - alpha;
+		int red = (((above >> 16) & 0xFF) * alpha + ((below >> 16) & 0xFF) * inverse) / 0xFF;
+		int green = (((above >> 8) & 0xFF) * alpha + ((below >> 8) & 0xFF) * inverse) / 0xFF;
+		int blue = ((above & 0xFF) * alpha + (below & 0xFF) * inverse) / 0xFF;
+		return 0xFF000000 | (red << 16) | (green << 8) | blue;
+	}
+}
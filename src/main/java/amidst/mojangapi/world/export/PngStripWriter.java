@@ -0,0 +1,161 @@
+package amidst.mojangapi.world.export;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * Writes an 8 bit RGB png file. The compressed rows are written in IDAT
+ * chunks as soon as they are available, so the memory needed does not depend
+ * on the size of the image.
+ */
+@NotThreadSafe
+public class PngStripWriter implements ImageStripWriter {
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final byte FILTER_NONE = 0;
+
+	/**
+	 * Collects the compressed image data and writes it as IDAT chunks.
+	 */
+	private class IdatOutputStream extends OutputStream {
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int length = 0;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (length == buffer.length) {
+				flushChunk();
+			}
+			buffer[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (length == buffer.length) {
+					flushChunk();
+				}
+				int count = Math.min(len, buffer.length - length);
+				System.arraycopy(b, off, buffer, length, count);
+				length += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		private void flushChunk() throws IOException {
+			if (length > 0) {
+				writeChunk("IDAT", buffer, length);
+				length = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			// the file is closed by PngStripWriter
+			flushChunk();
+		}
+	}
+
+	private final int width;
+	private final int height;
+	private final DataOutputStream out;
+	private final Deflater deflater = new Deflater();
+	private final DeflaterOutputStream idat;
+	private final byte[] row;
+	private final CRC32 crc = new CRC32();
+	private int writtenRows = 0;
+
+	public PngStripWriter(File file, int width, int height) throws IOException {
+		this.width = width;
+		this.height = height;
+		this.row = new byte[1 + width * 3];
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), CHUNK_SIZE));
+		this.idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, CHUNK_SIZE);
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		out.write(SIGNATURE);
+		byte[] ihdr = new byte[13];
+		putInt(ihdr, 0, width);
+		putInt(ihdr, 4, height);
+		ihdr[8] = 8; // bit depth
+		ihdr[9] = 2; // colour type: RGB
+		ihdr[10] = 0; // compression: deflate
+		ihdr[11] = 0; // filter method
+		ihdr[12] = 0; // no interlace
+		writeChunk("IHDR", ihdr, ihdr.length);
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		crc.reset();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	@Override
+	public void writeRows(int[] argb, int rows) throws IOException {
+		if (writtenRows + rows > height) {
+			throw new IOException("too many rows: " + (writtenRows + rows) + " > " + height);
+		}
+		row[0] = FILTER_NONE;
+		for (int y = 0; y < rows; y++) {
+			int i = y * width;
+			for (int x = 0, j = 1; x < width; x++, i++) {
+				int pixel = argb[i];
+				row[j++] = (byte) (pixel >>> 16);
+				row[j++] = (byte) (pixel >>> 8);
+				row[j++] = (byte) pixel;
+			}
+			idat.write(row);
+		}
+		writtenRows += rows;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			idat.close();
+			writeChunk("IEND", new byte[0], 0);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+		if (writtenRows != height) {
+			throw new IOException("the image is incomplete: " + writtenRows + " of " + height + " rows were written");
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package amidst.mojangapi.world.export;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.Deflater;
+
+import amidst.documentation.NotThreadSafe;
+
+/**
+ * Writes an 8 bit RGB tiff file with deflate compressed strips. The strips are
+ * written as soon as they are complete and the directory that points to them
+ * is written last, so the memory needed does not depend on the height of the
+ * image.
+ *
+ * This writes a classic tiff file, so the compressed image must be smaller
+ * than 4 GB.
+ */
+@NotThreadSafe
+public class TiffStripWriter implements ImageStripWriter {
+	private static final int ROWS_PER_STRIP = 16;
+	private static final long MAX_FILE_SIZE = 0xFFFFFFFFL;
+
+	// @formatter:off
+	private static final short TAG_IMAGE_WIDTH                = 256;
+	private static final short TAG_IMAGE_LENGTH               = 257;
+	private static final short TAG_BITS_PER_SAMPLE            = 258;
+	private static final short TAG_COMPRESSION                = 259;
+	private static final short TAG_PHOTOMETRIC_INTERPRETATION = 262;
+	private static final short TAG_STRIP_OFFSETS              = 273;
+	private static final short TAG_SAMPLES_PER_PIXEL          = 277;
+	private static final short TAG_ROWS_PER_STRIP             = 278;
+	private static final short TAG_STRIP_BYTE_COUNTS          = 279;
+	private static final short TAG_PLANAR_CONFIGURATION       = 284;
+
+	private static final short TYPE_SHORT = 3;
+	private static final short TYPE_LONG  = 4;
+
+	private static final short COMPRESSION_DEFLATE = 8;
+	private static final short PHOTOMETRIC_RGB     = 2;
+	private static final short PLANAR_CHUNKY       = 1;
+	// @formatter:on
+
+	private final File file;
+	private final int width;
+	private final int height;
+	private final OutputStream out;
+	private final Deflater deflater = new Deflater();
+	private final byte[] strip;
+	private final byte[] compressed = new byte[64 * 1024];
+	private final long[] stripOffsets;
+	private final long[] stripByteCounts;
+	private int rowsInStrip = 0;
+	private int writtenStrips = 0;
+	private int writtenRows = 0;
+	private long position = 0;
+
+	public TiffStripWriter(File file, int width, int height) throws IOException {
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		this.strip = new byte[ROWS_PER_STRIP * width * 3];
+		int numberOfStrips = (height + ROWS_PER_STRIP - 1) / ROWS_PER_STRIP;
+		this.stripOffsets = new long[numberOfStrips];
+		this.stripByteCounts = new long[numberOfStrips];
+		this.out = new BufferedOutputStream(new FileOutputStream(file), compressed.length);
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		// little endian, version 42, the directory offset is set by close()
+		write(new byte[] { 'I', 'I', 42, 0, 0, 0, 0, 0 });
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		write(bytes, bytes.length);
+	}
+
+	private void write(byte[] bytes, int length) throws IOException {
+		if (position + length > MAX_FILE_SIZE) {
+			throw new IOException("the image is too large for a tiff file, use a png file instead");
+		}
+		out.write(bytes, 0, length);
+		position += length;
+	}
+
+	@Override
+	public void writeRows(int[] argb, int rows) throws IOException {
+		if (writtenRows + rows > height) {
+			throw new IOException("too many rows: " + (writtenRows + rows) + " > " + height);
+		}
+		for (int y = 0; y < rows; y++) {
+			int i = y * width;
+			int j = rowsInStrip * width * 3;
+			for (int x = 0; x < width; x++, i++) {
+				int pixel = argb[i];
+				strip[j++] = (byte) (pixel >>> 16);
+				strip[j++] = (byte) (pixel >>> 8);
+				strip[j++] = (byte) pixel;
+			}
+			rowsInStrip++;
+			writtenRows++;
+			if (rowsInStrip == ROWS_PER_STRIP || writtenRows == height) {
+				writeStrip();
+			}
+		}
+	}
+
+	private void writeStrip() throws IOException {
+		stripOffsets[writtenStrips] = position;
+		deflater.reset();
+		deflater.setInput(strip, 0, rowsInStrip * width * 3);
+		deflater.finish();
+		while (!deflater.finished()) {
+			write(compressed, deflater.deflate(compressed));
+		}
+		stripByteCounts[writtenStrips] = position - stripOffsets[writtenStrips];
+		writtenStrips++;
+		rowsInStrip = 0;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public void close() throws IOException {
+		long directoryOffset;
+		try {
+			if (writtenRows != height) {
+				throw new IOException("the image is incomplete: " + writtenRows + " of " + height + " rows were written");
+			}
+			directoryOffset = writeDirectory();
+		} finally {
+			deflater.end();
+			out.close();
+		}
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			randomAccessFile.seek(4);
+			randomAccessFile.write(littleEndianInt(directoryOffset));
+		}
+	}
+
+	private long writeDirectory() throws IOException {
+		if ((position & 1) != 0) {
+			write(new byte[1]);
+		}
+		int numberOfEntries = 10;
+		long directoryOffset = position;
+		long bitsPerSampleOffset = directoryOffset + 2 + numberOfEntries * 12 + 4;
+		long stripOffsetsOffset = bitsPerSampleOffset + 6;
+		long stripByteCountsOffset = stripOffsetsOffset + 4L * writtenStrips;
+		boolean isSingleStrip = writtenStrips == 1;
+
+		write(littleEndianShort(numberOfEntries));
+		writeEntry(TAG_IMAGE_WIDTH, TYPE_LONG, 1, width);
+		writeEntry(TAG_IMAGE_LENGTH, TYPE_LONG, 1, height);
+		writeEntry(TAG_BITS_PER_SAMPLE, TYPE_SHORT, 3, bitsPerSampleOffset);
+		writeEntry(TAG_COMPRESSION, TYPE_SHORT, 1, COMPRESSION_DEFLATE);
+		writeEntry(TAG_PHOTOMETRIC_INTERPRETATION, TYPE_SHORT, 1, PHOTOMETRIC_RGB);
+		writeEntry(TAG_STRIP_OFFSETS, TYPE_LONG, writtenStrips, isSingleStrip ? stripOffsets[0] : stripOffsetsOffset);
+		writeEntry(TAG_SAMPLES_PER_PIXEL, TYPE_SHORT, 1, 3);
+		writeEntry(TAG_ROWS_PER_STRIP, TYPE_LONG, 1, ROWS_PER_STRIP);
+		writeEntry(
+				TAG_STRIP_BYTE_COUNTS,
+				TYPE_LONG,
+				writtenStrips,
+				isSingleStrip ? stripByteCounts[0] : stripByteCountsOffset);
+		writeEntry(TAG_PLANAR_CONFIGURATION, TYPE_SHORT, 1, PLANAR_CHUNKY);
+		write(littleEndianInt(0)); // no further directories
+
+		for (int i = 0; i < 3; i++) {
+			write(littleEndianShort(8));
+		}
+		for (int i = 0; i < writtenStrips; i++) {
+			write(littleEndianInt(stripOffsets[i]));
+		}
+		for (int i = 0; i < writtenStrips; i++) {
+			write(littleEndianInt(stripByteCounts[i]));
+		}
+		return directoryOffset;
+	}
+
+	/**
+	 * Values that fit in the entry are stored in its first bytes, so a single
+	 * short is stored in the lower half of the value.
+	 */
+	private void writeEntry(short tag, short type, int count, long value) throws IOException {
+		write(littleEndianShort(tag));
+		write(littleEndianShort(type));
+		write(littleEndianInt(count));
+		write(littleEndianInt(value));
+	}
+
+	private static byte[] littleEndianShort(int value) {
+		return new byte[] { (byte) value, (byte) (value >>> 8) };
+	}
+
+	private static byte[] littleEndianInt(long value) {
+		return new byte[] { (byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24) };
+	}
+}
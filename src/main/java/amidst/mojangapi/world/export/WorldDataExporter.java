@@ -0,0 +1,186 @@
+package amidst.mojangapi.world.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import amidst.documentation.ThreadSafe;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.Fragment;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.minetest.world.oracle.MinetestBiomeDataOracle;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.mojangapi.world.icon.WorldIcon;
+import amidst.threading.worker.ProgressReporter;
+
+/**
+ * Exports the region of a WorldExporterConfiguration to a WorldDataWriter.
+ * The region is split into tiles along the fragment borders, so the icon
+ * producers can be asked for whole fragments. The tiles of each row are
+ * evaluated in parallel, while the previous row is written, so only two rows
+ * of tiles are in memory at once.
+ */
+@ThreadSafe
+public class WorldDataExporter {
+	private final IBiomeDataOracle biomeDataOracle;
+	private final List<Function<CoordinatesInWorld, List<WorldIcon>>> iconProducers;
+	private final WorldExporterConfiguration configuration;
+	private final Resolution resolution;
+	private final long left;
+	private final long top;
+	private final long right;
+	private final long bottom;
+
+	/**
+	 * @param iconProducers
+	 *            each one returns the icons of the fragment with the given
+	 *            corner
+	 */
+	public WorldDataExporter(
+			IBiomeDataOracle biomeDataOracle,
+			List<Function<CoordinatesInWorld, List<WorldIcon>>> iconProducers,
+			WorldExporterConfiguration configuration) {
+		this.biomeDataOracle = biomeDataOracle;
+		this.iconProducers = iconProducers;
+		this.configuration = configuration;
+		this.resolution = configuration.getResolution();
+		this.left = configuration.getCorner().getX();
+		this.top = configuration.getCorner().getY();
+		this.right = left + resolution.convertFromThisToWorld(configuration.getWidthInSamples());
+		this.bottom = top + resolution.convertFromThisToWorld(configuration.getHeightInSamples());
+	}
+
+	public void export(WorldDataWriter writer, ProgressReporter<String> progressReporter) throws IOException {
+		long firstFragmentTop = configuration.getCorner().getYCornerOfFragment();
+		int rows = (int) ((bottom - firstFragmentTop + Fragment.SIZE - 1) / Fragment.SIZE);
+		ExecutorService executor = Executors.newFixedThreadPool(configuration.getNumberOfThreads(), runnable -> {
+			Thread thread = new Thread(runnable, "WorldExporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<ExportedTile>> pending = startRow(executor, firstFragmentTop);
+			for (int row = 0; row < rows; row++) {
+				List<ExportedTile> tiles = waitFor(pending);
+				if (row + 1 < rows) {
+					pending = startRow(executor, firstFragmentTop + (row + 1) * Fragment.SIZE);
+				}
+				for (ExportedTile tile : tiles) {
+					writer.writeTile(tile);
+				}
+				progressReporter.report("Exported " + (row + 1) + " of " + rows + " rows");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<Future<ExportedTile>> startRow(ExecutorService executor, long fragmentTop) {
+		List<Future<ExportedTile>> result = new ArrayList<>();
+		for (long fragmentLeft = configuration.getCorner().getXCornerOfFragment(); fragmentLeft < right; fragmentLeft += Fragment.SIZE) {
+			CoordinatesInWorld fragmentCorner = CoordinatesInWorld.from(fragmentLeft, fragmentTop);
+			result.add(executor.submit(() -> createTile(fragmentCorner)));
+		}
+		return result;
+	}
+
+	private static List<ExportedTile> waitFor(List<Future<ExportedTile>> tiles) throws IOException {
+		List<ExportedTile> result = new ArrayList<>(tiles.size());
+		try {
+			for (Future<ExportedTile> tile : tiles) {
+				result.add(tile.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("the export was interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("unable to export the world", e.getCause());
+		}
+		return result;
+	}
+
+	private ExportedTile createTile(CoordinatesInWorld fragmentCorner) {
+		long tileLeft = Math.max(left, fragmentCorner.getX());
+		long tileTop = Math.max(top, fragmentCorner.getY());
+		long tileRight = Math.min(right, fragmentCorner.getX() + Fragment.SIZE);
+		long tileBottom = Math.min(bottom, fragmentCorner.getY() + Fragment.SIZE);
+		CoordinatesInWorld corner = CoordinatesInWorld.from(tileLeft, tileTop);
+		int width = (int) resolution.convertFromWorldToThis(tileRight - tileLeft);
+		int height = (int) resolution.convertFromWorldToThis(tileBottom - tileTop);
+		short[] biomes = null;
+		byte[] bitplanes = null;
+		if (configuration.isExportBiomes() || configuration.isExportBitplanes()) {
+			BiomeDataBuffer buffer = new BiomeDataBuffer(width, height);
+			short biomeIndexMask = biomeDataOracle.populateArray(corner, buffer, resolution == Resolution.QUARTER);
+			short[] data = buffer.getData();
+			if (configuration.isExportBiomes()) {
+				biomes = data;
+				if (configuration.isExportBitplanes()) {
+					bitplanes = getBitplanes(data, biomeIndexMask);
+				}
+				for (int i = 0; i < data.length; i++) {
+					data[i] &= biomeIndexMask;
+				}
+			} else {
+				bitplanes = getBitplanes(data, biomeIndexMask);
+			}
+		}
+		return new ExportedTile(
+				corner,
+				(int) resolution.convertFromWorldToThis(tileLeft - left),
+				(int) resolution.convertFromWorldToThis(tileTop - top),
+				width,
+				height,
+				biomes,
+				bitplanes,
+				configuration.isExportIcons() ? getIcons(fragmentCorner, corner, tileRight, tileBottom) : null);
+	}
+
+	private static byte[] getBitplanes(short[] data, short biomeIndexMask) {
+		byte[] result = new byte[data.length];
+		for (int i = 0; i < data.length; i++) {
+			int bits = data[i] & ~biomeIndexMask;
+			byte value = 0;
+			if ((bits & MinetestBiomeDataOracle.BITPLANE_RIVER) != 0) {
+				value |= ExportedTile.BITPLANE_RIVER;
+			}
+			if ((bits & MinetestBiomeDataOracle.BITPLANE_OCEAN) != 0) {
+				value |= ExportedTile.BITPLANE_OCEAN;
+			}
+			if ((bits & MinetestBiomeDataOracle.BITPLANE_MOUNTAIN) != 0) {
+				value |= ExportedTile.BITPLANE_MOUNTAIN;
+			}
+			result[i] = value;
+		}
+		return result;
+	}
+
+	/**
+	 * Only keeps the icons that are in the tile, so icons that a producer
+	 * returns for several fragments are not exported twice.
+	 */
+	private List<WorldIcon> getIcons(
+			CoordinatesInWorld fragmentCorner,
+			CoordinatesInWorld corner,
+			long tileRight,
+			long tileBottom) {
+		List<WorldIcon> result = new ArrayList<>();
+		for (Function<CoordinatesInWorld, List<WorldIcon>> iconProducer : iconProducers) {
+			for (WorldIcon icon : iconProducer.apply(fragmentCorner)) {
+				CoordinatesInWorld coordinates = icon.getCoordinates();
+				if (coordinates.getX() >= corner.getX() && coordinates.getX() < tileRight
+						&& coordinates.getY() >= corner.getY() && coordinates.getY() < tileBottom) {
+					result.add(icon);
+				}
+			}
+		}
+		return result;
+	}
+}
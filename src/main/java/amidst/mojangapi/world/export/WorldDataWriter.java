@@ -0,0 +1,29 @@
+package amidst.mojangapi.world.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import amidst.gameengineabstraction.CoordinateSystem;
+
+/**
+ * Writes the tiles of an exported region to a file. The tiles are passed in
+ * row-major order, each one is written before the next one is created, so an
+ * implementation should not keep them.
+ */
+public interface WorldDataWriter extends Closeable {
+	public static WorldDataWriter create(
+			WorldExporterConfiguration configuration,
+			CoordinateSystem coordinateSystem,
+			long seed) throws IOException {
+		switch (configuration.getFormat()) {
+		case CSV:
+			return new CsvWorldDataWriter(configuration, coordinateSystem);
+		case GEOJSON:
+			return new GeoJsonWorldDataWriter(configuration, coordinateSystem);
+		default:
+			return new BinaryWorldDataWriter(configuration, coordinateSystem, seed);
+		}
+	}
+
+	public void writeTile(ExportedTile tile) throws IOException;
+}
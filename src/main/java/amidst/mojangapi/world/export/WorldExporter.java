@@ -1,20 +1,31 @@
 package amidst.mojangapi.world.export;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import amidst.documentation.AmidstThread;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.NotThreadSafe;
+import amidst.fragment.layer.LayerIds;
+import amidst.gameengineabstraction.world.versionfeatures.IVersionFeatures;
+import amidst.logging.AmidstLogger;
+import amidst.logging.AmidstMessageBox;
 import amidst.mojangapi.world.World;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.icon.WorldIcon;
+import amidst.mojangapi.world.icon.producer.WorldIconProducer;
+import amidst.mojangapi.world.oracle.EndIsland;
+import amidst.mojangapi.world.oracle.EndIslandOracle;
 import amidst.threading.WorkerExecutor;
 import amidst.threading.worker.ProgressReporter;
 
 @NotThreadSafe
 public class WorldExporter {
 	private final WorkerExecutor workerExecutor;
-	@SuppressWarnings("unused")
 	private final World world;
-	@SuppressWarnings("unused")
 	private final WorldExporterConfiguration configuration;
 	private final Consumer<String> progressListener;
 
@@ -31,19 +42,75 @@ public class WorldExporter {
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	public void export() {
-		workerExecutor.<String> run(this::doExport, progressListener, this::onFinished);
+		workerExecutor.<String> run(this::doExport, progressListener, this::onFinished, this::onException);
 	}
 
 	@CalledOnlyBy(AmidstThread.WORKER)
-	private void doExport(ProgressReporter<String> progressReporter) {
-		// TODO: implement me!
+	private void doExport(ProgressReporter<String> progressReporter) throws IOException {
 		progressReporter.report("Exporting the world ...");
-		throw new UnsupportedOperationException("implement me!");
+		WorldDataExporter exporter = new WorldDataExporter(
+				world.getBiomeDataOracle(),
+				createIconProducers(),
+				configuration);
+		try (WorldDataWriter writer = WorldDataWriter.create(
+				configuration,
+				world.getBiomeDataOracle().getNativeCoordinateSystem(),
+				world.getWorldSeed().getLong())) {
+			exporter.export(writer, progressReporter);
+		}
+		AmidstLogger.info("exported the world to '" + configuration.getFile() + "'");
+	}
+
+	/**
+	 * The players are not exported, since they are not part of the generated
+	 * world.
+	 */
+	private List<Function<CoordinatesInWorld, List<WorldIcon>>> createIconProducers() {
+		IVersionFeatures versionFeatures = world.getVersionFeatures();
+		List<Function<CoordinatesInWorld, List<WorldIcon>>> result = new ArrayList<>();
+		addIconProducer(result, versionFeatures.hasLayer(LayerIds.SPAWN), world.getSpawnProducer());
+		addIconProducer(result, versionFeatures.hasLayer(LayerIds.STRONGHOLD), world.getStrongholdProducer());
+		addIconProducer(result, versionFeatures.hasLayer(LayerIds.VILLAGE), world.getVillageProducer());
+		addIconProducer(
+				result,
+				versionFeatures.hasLayer(LayerIds.TEMPLE) || versionFeatures.hasLayer(LayerIds.MINETEST_DUNGEON),
+				world.getTempleProducer());
+		addIconProducer(result, versionFeatures.hasLayer(LayerIds.MINESHAFT), world.getMineshaftProducer());
+		addIconProducer(result, versionFeatures.hasLayer(LayerIds.OCEAN_MONUMENT), world.getOceanMonumentProducer());
+		addIconProducer(
+				result,
+				versionFeatures.hasLayer(LayerIds.WOODLAND_MANSION),
+				world.getWoodlandMansionProducer());
+		addIconProducer(
+				result,
+				versionFeatures.hasLayer(LayerIds.NETHER_FORTRESS),
+				world.getNetherFortressProducer());
+		EndIslandOracle endIslandOracle = world.getEndIslandOracle();
+		WorldIconProducer<List<EndIsland>> endCityProducer = world.getEndCityProducer();
+		if (versionFeatures.hasLayer(LayerIds.END_CITY) && endIslandOracle != null && endCityProducer != null) {
+			result.add(corner -> endCityProducer.getAt(corner, endIslandOracle.getAt(corner)));
+		}
+		return result;
+	}
+
+	private static void addIconProducer(
+			List<Function<CoordinatesInWorld, List<WorldIcon>>> iconProducers,
+			boolean hasLayer,
+			WorldIconProducer<Void> producer) {
+		if (hasLayer && producer != null) {
+			iconProducers.add(corner -> producer.getAt(corner, null));
+		}
 	}
 
 	@CalledOnlyBy(AmidstThread.EDT)
 	private void onFinished() {
-		// TODO: implement me!
 		progressListener.accept(null);
 	}
+
+	@CalledOnlyBy(AmidstThread.EDT)
+	private void onException(Exception e) {
+		progressListener.accept(null);
+		AmidstLogger.error(e, "unable to export the world to '" + configuration.getFile() + "'");
+		AmidstMessageBox.displayError("Error", e, "Unable to export the world to '" + configuration.getFile() + "'");
+	}
 }
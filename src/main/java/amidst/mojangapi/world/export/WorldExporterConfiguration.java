@@ -1,7 +1,175 @@
 package amidst.mojangapi.world.export;
 
+import java.io.File;
+import java.util.Locale;
+
 import amidst.documentation.Immutable;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
 
+/**
+ * Describes what the WorldExporter writes: the region of the world, the
+ * resolution of the biome samples, which kinds of data are included and the
+ * file and format they are written to.
+ */
 @Immutable
 public class WorldExporterConfiguration {
+	@Immutable
+	public static enum Format {
+		BINARY("bin"),
+		CSV("csv"),
+		GEOJSON("geojson");
+
+		private final String extension;
+
+		private Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		/**
+		 * @return the format that matches the extension of the file, or
+		 *         BINARY if the extension is unknown
+		 */
+		public static Format fromFile(File file) {
+			String name = file.getName().toLowerCase(Locale.ROOT);
+			if (name.endsWith(".csv")) {
+				return CSV;
+			} else if (name.endsWith(".geojson") || name.endsWith(".json")) {
+				return GEOJSON;
+			} else {
+				return BINARY;
+			}
+		}
+	}
+
+	/**
+	 * Parses an area that is entered as x1,z1,x2,z2, like the export region
+	 * or the area of the headless renderer.
+	 * 
+	 * @return the area as { x1, z1, x2, z2 } with x1 <= x2 and z1 <= z2
+	 * @throws IllegalArgumentException
+	 *             if the area cannot be parsed
+	 */
+	public static long[] parseArea(String area) {
+		String[] values = area.split(",");
+		if (values.length != 4) {
+			throw new IllegalArgumentException("the area must be given as x1,z1,x2,z2: " + area);
+		}
+		long[] result = new long[4];
+		for (int i = 0; i < 4; i++) {
+			result[i] = Long.parseLong(values[i].trim());
+		}
+		return new long[] {
+				Math.min(result[0], result[2]),
+				Math.min(result[1], result[3]),
+				Math.max(result[0], result[2]),
+				Math.max(result[1], result[3]) };
+	}
+
+	private final File file;
+	private final Format format;
+	private final CoordinatesInWorld corner;
+	private final long width;
+	private final long height;
+	private final Resolution resolution;
+	private final boolean exportBiomes;
+	private final boolean exportBitplanes;
+	private final boolean exportIcons;
+	private final int numberOfThreads;
+
+	/**
+	 * @param corner
+	 *            the top left corner of the region in world coordinates, it is
+	 *            rounded down to a multiple of the resolution
+	 * @param width
+	 *            the width of the region in blocks
+	 * @param height
+	 *            the height of the region in blocks
+	 */
+	public WorldExporterConfiguration(
+			File file,
+			Format format,
+			CoordinatesInWorld corner,
+			long width,
+			long height,
+			Resolution resolution,
+			boolean exportBiomes,
+			boolean exportBitplanes,
+			boolean exportIcons,
+			int numberOfThreads) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("the exported region is empty: " + width + "x" + height);
+		}
+		if (resolution != Resolution.WORLD && resolution != Resolution.QUARTER) {
+			throw new IllegalArgumentException("unsupported resolution: " + resolution);
+		}
+		this.file = file;
+		this.format = format;
+		this.corner = CoordinatesInWorld.from(corner.getXAs(resolution), corner.getYAs(resolution), resolution);
+		this.width = width;
+		this.height = height;
+		this.resolution = resolution;
+		this.exportBiomes = exportBiomes;
+		this.exportBitplanes = exportBitplanes;
+		this.exportIcons = exportIcons;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public CoordinatesInWorld getCorner() {
+		return corner;
+	}
+
+	public long getWidth() {
+		return width;
+	}
+
+	public long getHeight() {
+		return height;
+	}
+
+	public Resolution getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return the number of biome samples in each row of the region
+	 */
+	public long getWidthInSamples() {
+		return (width + resolution.getStep() - 1) / resolution.getStep();
+	}
+
+	/**
+	 * @return the number of rows of biome samples in the region
+	 */
+	public long getHeightInSamples() {
+		return (height + resolution.getStep() - 1) / resolution.getStep();
+	}
+
+	public boolean isExportBiomes() {
+		return exportBiomes;
+	}
+
+	public boolean isExportBitplanes() {
+		return exportBitplanes;
+	}
+
+	public boolean isExportIcons() {
+		return exportIcons;
+	}
+
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
 }
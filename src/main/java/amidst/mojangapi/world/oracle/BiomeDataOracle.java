@@ -12,6 +12,7 @@ import amidst.mojangapi.world.biome.Biome;
 import amidst.mojangapi.world.biome.UnknownBiomeIndexException;
 import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
 import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.fragment.BiomeDataBuffer;
 import amidst.fragment.IBiomeDataOracle;
 import amidst.gameengineabstraction.CoordinateSystem;
 
@@ -24,15 +25,15 @@ public class BiomeDataOracle implements IBiomeDataOracle {
 	}
 
 	@Override
-	public short populateArray(CoordinatesInWorld corner, short[][] result, boolean useQuarterResolution) {
+	public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, boolean useQuarterResolution) {
 		Resolution resolution = Resolution.from(useQuarterResolution);
-		int width = result.length;
+		int width = result.getWidth();
 		if (width > 0) {
-			int height = result[0].length;
+			int height = result.getHeight();
 			int left = (int) corner.getXAs(resolution);
 			int top = (int) corner.getYAs(resolution);
 			try {
-				copyToResult(result, width, height, getBiomeData(left, top, width, height, useQuarterResolution));
+				copyToResult(result, getBiomeData(left, top, width, height, useQuarterResolution));
 			} catch (MinecraftInterfaceException e) {
 				AmidstLogger.error(e);
 				AmidstMessageBox.displayError("Error", e);
@@ -53,11 +54,14 @@ public class BiomeDataOracle implements IBiomeDataOracle {
 	}
 	
 	
-	public static void copyToResult(short[][] result, int width, int height, int[] biomeData) {
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				result[x][y] = (short) biomeData[getBiomeDataIndex(x, y, width)];
-			}
+	/**
+	 * The biome data is in the same row by row order as the BiomeDataBuffer,
+	 * see getBiomeDataIndex().
+	 */
+	public static void copyToResult(BiomeDataBuffer result, int[] biomeData) {
+		short[] data = result.getData();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (short) biomeData[i];
 		}
 	}
 
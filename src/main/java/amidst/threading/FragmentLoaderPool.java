@@ -0,0 +1,79 @@
+package amidst.threading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledOnlyBy;
+import amidst.documentation.ThreadSafe;
+import amidst.logging.AmidstLogger;
+
+/**
+ * Runs batches of fragment loading tasks in parallel. The fragment loader
+ * thread executes one task of each batch itself, and waits until all other
+ * tasks of the batch are finished before it returns. This way, all fragment
+ * loading still happens while the fragment loader thread is inside
+ * {@link #runAll(List)}, so it behaves like a single fragment loader thread
+ * towards the rest of the application.
+ */
+@ThreadSafe
+public class FragmentLoaderPool {
+	private final ExecutorService executorService;
+	private final int numberOfLoaders;
+
+	/**
+	 * @param executorService
+	 *            can be null if numberOfLoaders is 1
+	 */
+	public FragmentLoaderPool(ExecutorService executorService, int numberOfLoaders) {
+		this.executorService = executorService;
+		this.numberOfLoaders = numberOfLoaders;
+	}
+
+	/**
+	 * The maximum number of tasks that will run at the same time, including
+	 * the fragment loader thread itself.
+	 */
+	public int getNumberOfLoaders() {
+		return numberOfLoaders;
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	public void runAll(List<Runnable> tasks) {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		List<Future<?>> futures = new ArrayList<>(tasks.size() - 1);
+		for (int i = 1; i < tasks.size(); i++) {
+			futures.add(executorService.submit(tasks.get(i)));
+		}
+		tasks.get(0).run();
+		for (Future<?> future : futures) {
+			waitFor(future);
+		}
+	}
+
+	@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
+	private void waitFor(Future<?> future) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				future.get();
+				break;
+			} catch (InterruptedException e) {
+				// we have to wait anyway, because the task uses state that is
+				// owned by the fragment loader thread
+				interrupted = true;
+			} catch (ExecutionException e) {
+				AmidstLogger.error(e.getCause(), "Error in fragment loader worker");
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
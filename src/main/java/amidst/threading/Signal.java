@@ -0,0 +1,29 @@
+package amidst.threading;
+
+import amidst.documentation.ThreadSafe;
+
+/**
+ * Wakes up a thread that waits for something to do. A signal that is raised
+ * while nobody is waiting is not lost, the next call of await returns
+ * immediately. Several signals that are raised before the waiting thread
+ * wakes up only wake it up once.
+ */
+@ThreadSafe
+public class Signal {
+	private boolean isRaised = false;
+
+	public synchronized void raise() {
+		isRaised = true;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the signal is raised and lowers it again.
+	 */
+	public synchronized void await() throws InterruptedException {
+		while (!isRaised) {
+			wait();
+		}
+		isRaised = false;
+	}
+}
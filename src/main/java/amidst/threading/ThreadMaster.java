@@ -2,17 +2,30 @@ package amidst.threading;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 import amidst.documentation.AmidstThread;
+import amidst.documentation.CalledByAny;
 import amidst.documentation.CalledOnlyBy;
 import amidst.documentation.ThreadSafe;
 import amidst.logging.AmidstLogger;
 
+/**
+ * The repainter and the fragment loader sleep until they are woken up. The
+ * fragment loader is woken up when fragments are enqueued or recycled, or
+ * when the layers or settings changed. The repainter is woken up when
+ * something on the screen changed, e.g. a fragment finished loading, and
+ * while the viewer is animated. Neither of them wakes up by itself, so
+ * anything that changes what is loaded or displayed has to wake them up.
+ */
 @ThreadSafe
 public class ThreadMaster {
+	/**
+	 * The minimal time between two repaints, so animations are not repainted
+	 * more often than 50 times per second.
+	 */
+	private static final long REPAINT_INTERVAL_MILLIS = 20;
+
 	private static final Runnable NOOP = new Runnable() {
 		@Override
 		public void run() {
@@ -20,8 +33,10 @@ public class ThreadMaster {
 		}
 	};
 
-	private final ScheduledExecutorService repaintExecutorService;
-	private final ScheduledExecutorService fragmentLoaderExecutorService;
+	private final Signal repaintSignal = new Signal();
+	private final Signal fragmentLoaderSignal = new Signal();
+	private final ExecutorService fragmentLoaderWorkerExecutorService;
+	private final FragmentLoaderPool fragmentLoaderPool;
 	private final ExecutorService workerExecutorService;
 	private final WorkerExecutor workerExecutor;
 
@@ -29,8 +44,19 @@ public class ThreadMaster {
 	private volatile Runnable onFragmentLoadTick;
 
 	public ThreadMaster() {
-		this.repaintExecutorService = createRepaintExecutorService();
-		this.fragmentLoaderExecutorService = createFragmentLoaderExecutorService();
+		this(0);
+	}
+
+	/**
+	 * @param numberOfFragmentLoaders
+	 *            the number of threads that load fragments in parallel, or a
+	 *            value less than 1 to use one less than the number of
+	 *            available processors
+	 */
+	public ThreadMaster(int numberOfFragmentLoaders) {
+		int loaders = getNumberOfFragmentLoaders(numberOfFragmentLoaders);
+		this.fragmentLoaderWorkerExecutorService = createFragmentLoaderWorkerExecutorService(loaders);
+		this.fragmentLoaderPool = new FragmentLoaderPool(fragmentLoaderWorkerExecutorService, loaders);
 		this.workerExecutorService = createWorkerExecutorService();
 		this.workerExecutor = createWorkerExecutor();
 		this.onRepaintTick = NOOP;
@@ -39,19 +65,23 @@ public class ThreadMaster {
 		startFragmentLoader();
 	}
 
-	private ScheduledExecutorService createRepaintExecutorService() {
-		return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-			@Override
-			public Thread newThread(Runnable r) {
-				Thread thread = new Thread(r);
-				thread.setDaemon(true);
-				return thread;
-			}
-		});
+	private static int getNumberOfFragmentLoaders(int numberOfFragmentLoaders) {
+		if (numberOfFragmentLoaders > 0) {
+			return numberOfFragmentLoaders;
+		} else {
+			return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		}
 	}
 
-	private ScheduledExecutorService createFragmentLoaderExecutorService() {
-		return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+	/**
+	 * The fragment loader thread runs one task of each batch itself, so the
+	 * pool only needs the remaining threads.
+	 */
+	private ExecutorService createFragmentLoaderWorkerExecutorService(int loaders) {
+		if (loaders <= 1) {
+			return null;
+		}
+		return Executors.newFixedThreadPool(loaders - 1, new ThreadFactory() {
 			@Override
 			public Thread newThread(Runnable r) {
 				Thread thread = new Thread(r);
@@ -78,39 +108,82 @@ public class ThreadMaster {
 	}
 
 	private void startRepainter() {
-		repaintExecutorService.scheduleAtFixedRate(new Runnable() {
+		Thread thread = new Thread(new Runnable() {
 			@CalledOnlyBy(AmidstThread.REPAINTER)
 			@Override
 			public void run() {
-				onRepaintTick.run();
+				try {
+					while (true) {
+						repaintSignal.await();
+						onRepaintTick.run();
+						Thread.sleep(REPAINT_INTERVAL_MILLIS);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
 			}
-		}, 0, 20, TimeUnit.MILLISECONDS);
+		}, "Repainter");
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	private void startFragmentLoader() {
-		fragmentLoaderExecutorService.scheduleWithFixedDelay(new Runnable() {
+		Thread thread = new Thread(new Runnable() {
 			@CalledOnlyBy(AmidstThread.FRAGMENT_LOADER)
 			@Override
 			public void run() {
 				try {
-					onFragmentLoadTick.run();
-				} catch (Exception e) {
-					AmidstLogger.error("Error in fragment loader thread: " + e.getMessage());
+					while (true) {
+						fragmentLoaderSignal.await();
+						try {
+							onFragmentLoadTick.run();
+						} catch (Exception e) {
+							AmidstLogger.error("Error in fragment loader thread: " + e.getMessage());
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
 				}
 			}
-		}, 0, 20, TimeUnit.MILLISECONDS);
+		}, "FragmentLoader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
 	}
 
 	public WorkerExecutor getWorkerExecutor() {
 		return workerExecutor;
 	}
 
+	public FragmentLoaderPool getFragmentLoaderPool() {
+		return fragmentLoaderPool;
+	}
+
+	/**
+	 * Causes the repainter to repaint the map, at the earliest when the
+	 * minimal time since the last repaint elapsed.
+	 */
+	@CalledByAny
+	public void requestRepaint() {
+		repaintSignal.raise();
+	}
+
+	/**
+	 * Causes the fragment loader to process the fragment queues.
+	 */
+	@CalledByAny
+	public void wakeUpFragmentLoader() {
+		fragmentLoaderSignal.raise();
+	}
+
 	public void setOnRepaintTick(Runnable onRepaintTick) {
 		this.onRepaintTick = onRepaintTick;
+		requestRepaint();
 	}
 
 	public void setOnFragmentLoadTick(Runnable onFragmentLoadTick) {
 		this.onFragmentLoadTick = onFragmentLoadTick;
+		wakeUpFragmentLoader();
 	}
 
 	public void clearOnRepaintTick() {
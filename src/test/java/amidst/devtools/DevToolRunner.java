@@ -44,6 +44,12 @@ public class DevToolRunner {
 		new GenerateWorldTestData(versionsDirectory(), librariesDirectory(), versionList()).run();
 	}
 
+	@Ignore
+	@Test
+	public void generateMinetestTestData() {
+		new GenerateMinetestTestData().run();
+	}
+
 	@Ignore
 	@Test
 	public void checkMinecraftJarFileDownloadAvailability() throws FormatException, IOException {
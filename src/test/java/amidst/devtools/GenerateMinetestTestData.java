@@ -0,0 +1,45 @@
+package amidst.devtools;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import amidst.minetest.world.testworld.MinetestTestWorld;
+import amidst.minetest.world.testworld.MinetestTestWorldDeclaration;
+
+/**
+ * Records the biome data of the current Minetest oracles. Only run this when
+ * the output of a mapgen is meant to change, e.g. to follow a change in
+ * Minetest, and check the differences reported by
+ * BiomeDataOracleRegressionTest first.
+ */
+public class GenerateMinetestTestData {
+	private final List<String> failed = new LinkedList<>();
+	private final List<String> successful = new LinkedList<>();
+
+	public void run() {
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			generate(declaration);
+		}
+		print("============ Successful ============", successful);
+		print("============== Failed ==============", failed);
+	}
+
+	private void generate(MinetestTestWorldDeclaration declaration) {
+		try {
+			MinetestTestWorld.create(declaration).write(declaration);
+			successful.add(declaration + ": " + declaration.getZipFile().length() + " bytes");
+		} catch (IOException e) {
+			e.printStackTrace();
+			failed.add(declaration.toString());
+		}
+	}
+
+	private void print(String title, Iterable<String> lines) {
+		System.out.println(title);
+		for (String line : lines) {
+			System.out.println(line);
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,93 @@
+package amidst.fragment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.minetest.world.testworld.MinetestTestWorldDeclaration;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+public class AdaptiveBiomeDataSamplerTest {
+	private static final CoordinatesInWorld CORNER = CoordinatesInWorld.from(-Fragment.SIZE, Fragment.SIZE);
+	private static final int SIZE = 128;
+
+	/**
+	 * Biome 1 left of a vertical line and 2 right of it, counts the samples.
+	 */
+	private static class HalfPlaneOracle implements IBiomeDataOracle {
+		private final long boundary;
+		private int samples = 0;
+
+		private HalfPlaneOracle(long boundary) {
+			this.boundary = boundary;
+		}
+
+		@Override
+		public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, boolean useQuarterResolution) {
+			return populateArray(corner, result, Resolution.from(useQuarterResolution));
+		}
+
+		@Override
+		public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, Resolution resolution) {
+			int shift = resolution.getShift();
+			for (int y = 0; y < result.getHeight(); y++) {
+				for (int x = 0; x < result.getWidth(); x++) {
+					result.set(x, y, (short) (corner.getX() + (x << shift) < boundary ? 1 : 2));
+				}
+			}
+			samples += result.getWidth() * result.getHeight();
+			return (short) 0xFF;
+		}
+
+		@Override
+		public boolean isSamplingCoarseResolutionsNatively() {
+			return true;
+		}
+
+		@Override
+		public CoordinateSystem getNativeCoordinateSystem() {
+			return CoordinateSystem.RIGHT_HANDED;
+		}
+	}
+
+	private static short[] populateExactly(IBiomeDataOracle oracle) {
+		BiomeDataBuffer result = new BiomeDataBuffer(SIZE, SIZE);
+		oracle.populateArray(CORNER, result, true);
+		return result.getData();
+	}
+
+	private static short[] populateAdaptively(IBiomeDataOracle oracle, double verificationDensity) {
+		BiomeDataBuffer result = new BiomeDataBuffer(SIZE, SIZE);
+		new AdaptiveBiomeDataSampler(verificationDensity)
+				.populateArray(oracle, CORNER, result, Resolution.QUARTER, BiomeDataPlane.ALL);
+		return result.getData();
+	}
+
+	@Test
+	public void shouldOnlyGenerateTheSamplesAlongTheBoundary() {
+		HalfPlaneOracle oracle = new HalfPlaneOracle(CORNER.getX() + 4 * 37 + 2);
+		short[] expected = populateExactly(oracle);
+		oracle.samples = 0;
+		assertArrayEquals(expected, populateAdaptively(oracle, 0));
+		assertTrue("generated " + oracle.samples + " samples", oracle.samples < SIZE * SIZE / 4);
+	}
+
+	@Test
+	public void shouldApproximateMinetestBiomes() {
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			IBiomeDataOracle oracle = declaration.createOracle(1);
+			short[] expected = populateExactly(oracle);
+			short[] actual = populateAdaptively(oracle, 1);
+			int differences = 0;
+			for (int i = 0; i < expected.length; i++) {
+				if (expected[i] != actual[i]) {
+					differences++;
+				}
+			}
+			assertTrue(declaration + ": " + differences + " samples differ", differences < expected.length / 50);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package amidst.fragment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+
+public class BiomeDataDiskCacheTest {
+	private static final int SIZE = 128;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static class CountingOracle implements ICacheableBiomeDataOracle {
+		String key = "a";
+		int calls = 0;
+
+		@Override
+		public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, boolean useQuarterResolution) {
+			calls++;
+			for (int y = 0; y < result.getHeight(); y++) {
+				for (int x = 0; x < result.getWidth(); x++) {
+					result.set(x, y, (short) (corner.getX() * 7 + corner.getY() * 3 + x * y + key.hashCode()));
+				}
+			}
+			return (short) 0x0FFF;
+		}
+
+		@Override
+		public CoordinateSystem getNativeCoordinateSystem() {
+			return CoordinateSystem.RIGHT_HANDED;
+		}
+
+		@Override
+		public String getBiomeDataCacheKey() {
+			return key;
+		}
+	}
+
+	private static short[] populate(BiomeDataDiskCache cache, CountingOracle oracle, long x, long y) {
+		BiomeDataBuffer result = new BiomeDataBuffer(SIZE, SIZE);
+		assertEquals((short) 0x0FFF, cache.populateArray(oracle, CoordinatesInWorld.from(x, y), result, true));
+		return result.getData();
+	}
+
+	private static short[] expected(CountingOracle oracle, long x, long y) {
+		BiomeDataBuffer result = new BiomeDataBuffer(SIZE, SIZE);
+		int calls = oracle.calls;
+		oracle.populateArray(CoordinatesInWorld.from(x, y), result, true);
+		oracle.calls = calls;
+		return result.getData();
+	}
+
+	@Test
+	public void testCachedBiomeDataIsReadBack() throws IOException {
+		File root = folder.newFolder();
+		CountingOracle oracle = new CountingOracle();
+		BiomeDataDiskCache cache = new BiomeDataDiskCache(root, Long.MAX_VALUE);
+		long[][] corners = { { 0, 0 }, { -512, 1024 }, { 30720, -30720 }, { -8192, -8192 } };
+		for (long[] corner : corners) {
+			populate(cache, oracle, corner[0], corner[1]);
+		}
+		assertEquals(corners.length, oracle.calls);
+
+		// a new instance reads the files written by the first one
+		cache = new BiomeDataDiskCache(root, Long.MAX_VALUE);
+		for (long[] corner : corners) {
+			assertArrayEquals(expected(oracle, corner[0], corner[1]), populate(cache, oracle, corner[0], corner[1]));
+		}
+		assertEquals(corners.length, oracle.calls);
+
+		oracle.key = "b";
+		assertArrayEquals(expected(oracle, 0, 0), populate(cache, oracle, 0, 0));
+		assertEquals(corners.length + 1, oracle.calls);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedRegionsAreEvicted() throws IOException {
+		File root = folder.newFolder();
+		CountingOracle oracle = new CountingOracle();
+		BiomeDataDiskCache cache = new BiomeDataDiskCache(root, Long.MAX_VALUE);
+		populate(cache, oracle, 0, 0);
+		long regionSize = cache.getSize();
+
+		// room for two region files, every corner is in a different region
+		cache = new BiomeDataDiskCache(root, regionSize * 2 + regionSize / 2);
+		populate(cache, oracle, 0, 0);
+		populate(cache, oracle, 8192, 0);
+		populate(cache, oracle, 0, 0);
+		populate(cache, oracle, 16384, 0);
+		assertEquals(3, oracle.calls);
+		assertTrue(cache.getSize() <= regionSize * 2 + regionSize / 2);
+
+		populate(cache, oracle, 0, 0);
+		assertEquals(3, oracle.calls);
+		populate(cache, oracle, 8192, 0);
+		assertEquals(4, oracle.calls);
+	}
+}
@@ -0,0 +1,77 @@
+package amidst.fragment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import amidst.fragment.layer.LayerIds;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+
+public class FragmentLoadingQueueTest {
+	private static Fragment fragmentAt(long x, long y) {
+		Fragment result = new Fragment(LayerIds.NUMBER_OF_LAYERS);
+		result.setCorner(CoordinatesInWorld.from(x * Fragment.SIZE, y * Fragment.SIZE));
+		return result;
+	}
+
+	@Test
+	public void testPollsClosestFragmentFirst() {
+		FragmentLoadingQueue queue = new FragmentLoadingQueue();
+		Fragment far = fragmentAt(5, 5);
+		Fragment near = fragmentAt(1, 0);
+		Fragment center = fragmentAt(0, 0);
+		queue.offer(far);
+		queue.offer(near);
+		queue.offer(center);
+		assertSame(center, queue.poll());
+		assertSame(near, queue.poll());
+		assertSame(far, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testSortsAgainWhenTheCenterMoves() {
+		FragmentLoadingQueue queue = new FragmentLoadingQueue();
+		Fragment left = fragmentAt(-4, 0);
+		Fragment right = fragmentAt(4, 0);
+		queue.offer(left);
+		queue.offer(right);
+		queue.setViewport(
+				CoordinatesInWorld.from(3 * Fragment.SIZE, -Fragment.SIZE),
+				CoordinatesInWorld.from(6 * Fragment.SIZE, Fragment.SIZE));
+		assertSame(right, queue.poll());
+		assertSame(left, queue.poll());
+	}
+
+	@Test
+	public void testPollsVisibleFragmentsBeforeInvisibleOnes() {
+		FragmentLoadingQueue queue = new FragmentLoadingQueue();
+		queue.setViewport(
+				CoordinatesInWorld.from(-4 * Fragment.SIZE, -Fragment.SIZE),
+				CoordinatesInWorld.from(4 * Fragment.SIZE, Fragment.SIZE));
+		Fragment prefetched = fragmentAt(0, 2);
+		Fragment visible = fragmentAt(3, 0);
+		queue.offer(prefetched);
+		queue.offer(visible);
+		assertSame(visible, queue.poll());
+		assertSame(prefetched, queue.poll());
+	}
+
+	@Test
+	public void testRemoveAndDuplicateOffers() {
+		FragmentLoadingQueue queue = new FragmentLoadingQueue();
+		Fragment first = fragmentAt(0, 0);
+		Fragment second = fragmentAt(0, 1);
+		queue.offer(first);
+		queue.offer(first);
+		queue.offer(second);
+		assertEquals(2, queue.size());
+		queue.remove(first);
+		assertEquals(1, queue.size());
+		assertSame(second, queue.poll());
+		assertNull(queue.poll());
+		assertEquals(0, queue.size());
+	}
+}
@@ -0,0 +1,56 @@
+package amidst.fragment;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+public class IBiomeDataOracleTest {
+	/**
+	 * Stores the x coordinate of the sample in quarter resolution, counts the
+	 * calls.
+	 */
+	private static class QuarterResolutionOracle implements IBiomeDataOracle {
+		private int calls = 0;
+
+		@Override
+		public short populateArray(CoordinatesInWorld corner, BiomeDataBuffer result, boolean useQuarterResolution) {
+			for (int y = 0; y < result.getHeight(); y++) {
+				for (int x = 0; x < result.getWidth(); x++) {
+					result.set(x, y, (short) (corner.getXAs(Resolution.QUARTER) + x + y));
+				}
+			}
+			calls++;
+			return (short) 0xFF;
+		}
+
+		@Override
+		public CoordinateSystem getNativeCoordinateSystem() {
+			return CoordinateSystem.RIGHT_HANDED;
+		}
+	}
+
+	@Test
+	public void shouldPickCoarseSamplesFromASingleQuarterResolutionCall() {
+		QuarterResolutionOracle oracle = new QuarterResolutionOracle();
+		Resolution resolution = Resolution.NETHER;
+		int size = resolution.getStepsPerFragment();
+		int factor = resolution.getStep() / Resolution.QUARTER.getStep();
+		CoordinatesInWorld corner = CoordinatesInWorld.from(-Fragment.SIZE, Fragment.SIZE);
+		BiomeDataBuffer result = new BiomeDataBuffer(size, size);
+
+		short biomeDataIndexMask = oracle.populateArray(corner, result, resolution);
+
+		assertEquals(1, oracle.calls);
+		assertEquals((short) 0xFF, biomeDataIndexMask);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				short expected = (short) (corner.getXAs(Resolution.QUARTER) + (x + y) * factor);
+				assertEquals(expected, result.get(x, y));
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package amidst.gui.main.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+
+import amidst.fragment.Fragment;
+import amidst.fragment.FragmentGraph;
+import amidst.fragment.FragmentGraphItem;
+import amidst.fragment.FragmentManager;
+import amidst.fragment.drawer.FragmentDrawer;
+import amidst.fragment.layer.LayerDeclaration;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.settings.Settings;
+
+public class TilePyramidTest {
+	private static final int LAYER_ID = 0;
+
+	/**
+	 * Counts the fragments it draws, either into a tile or onto the screen.
+	 */
+	private static class CountingDrawer extends FragmentDrawer {
+		private int draws = 0;
+
+		private CountingDrawer() {
+			super(createDeclaration());
+		}
+
+		private static LayerDeclaration createDeclaration() {
+			LayerDeclaration result = new LayerDeclaration(
+					LAYER_ID,
+					null,
+					false,
+					true,
+					Settings.createImmutable(true),
+					Settings.createImmutable(false));
+			result.update(Dimension.OVERWORLD);
+			return result;
+		}
+
+		@Override
+		public boolean isDrawnIntoTiles() {
+			return true;
+		}
+
+		@Override
+		public void draw(Fragment fragment, Graphics2D g2d, float time) {
+			draws++;
+		}
+	}
+
+	private final CountingDrawer drawer = new CountingDrawer();
+	private final TilePyramid tilePyramid = new TilePyramid(
+			Collections.singletonList(drawer),
+			new Graphics2DAccelerationCounter(),
+			Long.MAX_VALUE);
+	private final Graphics2D g2d = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB).createGraphics();
+	private FragmentGraph graph;
+
+	@After
+	public void dispose() {
+		g2d.dispose();
+	}
+
+	/**
+	 * A graph of 4x4 loaded and faded in fragments, with the given fragment
+	 * coordinates of the top left one.
+	 */
+	private void createGraph(long fragmentX, long fragmentY) {
+		FragmentManager fragmentManager = new FragmentManager(Collections.emptyList(), 1, Long.MAX_VALUE, () -> {
+		});
+		graph = new FragmentGraph(Collections.emptyList(), fragmentManager);
+		graph.init(CoordinatesInWorld.from(fragmentX * Fragment.SIZE, fragmentY * Fragment.SIZE));
+		graph.adjust(0, 0, 3, 3);
+		for (FragmentGraphItem item : graph) {
+			item.getFragment().setLoaded();
+			item.getFragment().setAlpha(1.0f);
+		}
+	}
+
+	private Fragment getFragment(long fragmentX, long fragmentY) {
+		CoordinatesInWorld corner = CoordinatesInWorld.from(fragmentX * Fragment.SIZE, fragmentY * Fragment.SIZE);
+		for (FragmentGraphItem item : graph) {
+			if (item.getFragment().getCorner().equals(corner)) {
+				return item.getFragment();
+			}
+		}
+		throw new IllegalArgumentException("not part of the graph: " + fragmentX + ", " + fragmentY);
+	}
+
+	private void draw(int level) {
+		tilePyramid.draw(level, graph, g2d, new AffineTransform(), 0);
+	}
+
+	@Test
+	public void testLevelMatchesTheZoom() {
+		assertEquals(0, tilePyramid.getLevel(1.0));
+		assertEquals(0, tilePyramid.getLevel(0.25));
+		assertEquals(1, tilePyramid.getLevel(0.125));
+		assertEquals(2, tilePyramid.getLevel(0.0625));
+	}
+
+	@Test
+	public void testTileIsMergedAgainWhenAFragmentImageChanges() {
+		createGraph(0, 0);
+		draw(1);
+		assertEquals(16, drawer.draws);
+		assertTrue(tilePyramid.isTileValid(1, 0, 0));
+		assertTrue(tilePyramid.isTileValid(1, 1, 1));
+
+		draw(1);
+		assertEquals(16, drawer.draws);
+
+		getFragment(3, 0).putImage(LAYER_ID, null);
+		draw(1);
+		// only the tile of the fragment is merged again
+		assertEquals(20, drawer.draws);
+		assertTrue(tilePyramid.isTileValid(1, 1, 0));
+	}
+
+	@Test
+	public void testOnlyLoadedAndFadedInFragmentsAreMerged() {
+		createGraph(0, 0);
+		getFragment(0, 0).setAlpha(0.5f);
+		getFragment(3, 3).recycle();
+		draw(1);
+		assertFalse(tilePyramid.isTileValid(1, 0, 0));
+		assertFalse(tilePyramid.isTileValid(1, 1, 1));
+		assertTrue(tilePyramid.isTileValid(1, 1, 0));
+		assertTrue(tilePyramid.isTileValid(1, 0, 1));
+		assertTrue(tilePyramid.isFragmentFading());
+		// 2 tiles are merged, the other fragments are drawn one by one,
+		// except for the one that is not loaded
+		assertEquals(8 + 4 + 3, drawer.draws);
+
+		getFragment(0, 0).setAlpha(1.0f);
+		draw(1);
+		assertTrue(tilePyramid.isTileValid(1, 0, 0));
+		assertFalse(tilePyramid.isFragmentFading());
+		assertEquals(15 + 4 + 3, drawer.draws);
+	}
+
+	@Test
+	public void testFragmentsAreDrawnOneByOneWhenTheMergeTimeIsUsedUp() {
+		TilePyramid tilePyramid = new TilePyramid(
+				Collections.singletonList(drawer),
+				new Graphics2DAccelerationCounter(),
+				-1);
+		createGraph(0, 0);
+		tilePyramid.draw(1, graph, g2d, new AffineTransform(), 0);
+		assertFalse(tilePyramid.isTileValid(1, 0, 0));
+		assertTrue(tilePyramid.isIncomplete());
+		assertEquals(16, drawer.draws);
+	}
+
+	@Test
+	public void testTilesAreKeyedByLevelAndPosition() {
+		createGraph(-4, -4);
+		draw(2);
+		assertTrue(tilePyramid.isTileValid(2, -1, -1));
+		assertTrue(tilePyramid.isTileValid(1, -2, -2));
+		assertTrue(tilePyramid.isTileValid(1, -1, -1));
+		assertFalse(tilePyramid.isTileValid(2, -2, -2));
+		assertFalse(tilePyramid.isTileValid(1, 0, 0));
+		// the level 2 tile is merged from the level 1 tiles
+		assertEquals(16, drawer.draws);
+
+		// the tiles of the other level are not used anymore
+		draw(1);
+		assertFalse(tilePyramid.isTileValid(2, -1, -1));
+		assertTrue(tilePyramid.isTileValid(1, -2, -2));
+		assertEquals(16, drawer.draws);
+	}
+}
@@ -0,0 +1,96 @@
+package amidst.minetest.world.mapgen;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NoiseTest {
+	private static final int SEED = -98765;
+
+	@Test
+	public void testStridedMapMatchesNoisePerlin2D() throws InvalidNoiseParamsException {
+		NoiseParams[] params = {
+			new NoiseParams(0, 1, new Vector3f(250, 250, 250), 5934, (short)5, 0.6f, 2.0f),
+			new NoiseParams(4, 70, new Vector3f(600, 600, 600), 5333, (short)5, 0.63f, 2.0f, Noise.FLAG_EASED | Noise.FLAG_ABSVALUE),
+			new NoiseParams(-0.5f, 1, new Vector3f(37, 53, 37), 1, (short)3, 0.5f, 2.7f, 0)
+		};
+		int[][] grids = {
+			// x, y, step_x, step_y, sx, sy
+			{      0,      0,  4, -4, 33, 17 },
+			{  -2048,   1024,  1, -1, 20, 20 },
+			{  30720, -30720, 16, 16,  9, 12 },
+			{ -30912,  30912,  4,  4, 64,  1 }
+		};
+		for (NoiseParams np : params) {
+			Noise noise = new Noise(np, SEED, 80, 80);
+			for (int[] g : grids) {
+				assertMatches(noise, g, 0, 0);
+				assertMatches(noise, g, 0.5f * np.spread.x, 0.5f * np.spread.y);
+			}
+		}
+	}
+
+	@Test
+	public void testStridedMapWithPersistenceMap() throws InvalidNoiseParamsException {
+		NoiseParams np = new NoiseParams(4, 70, new Vector3f(600, 600, 600), 5934, (short)5, 0.6f, 2.0f);
+		Noise noise = new Noise(np, SEED, 80, 80);
+		int sx = 24, sy = 16;
+		float[] persist = new float[sx * sy];
+		for (int i = 0; i < persist.length; i++)
+			persist[i] = 0.4f + (i % 7) * 0.05f;
+
+		float[] map = noise.perlinMap2DStrided(-300, 700, 4, -4, sx, sy, 0, 0, persist, new float[sx * sy], new NoiseBuffers());
+		float defaultPersist = np.persist;
+		try {
+			for (int j = 0; j < sy; j++) {
+				for (int i = 0; i < sx; i++) {
+					np.persist = persist[j * sx + i];
+					float expected = Noise.NoisePerlin2D(np, -300 + i * 4, 700 - j * 4, SEED);
+					Assert.assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(map[j * sx + i]));
+				}
+			}
+		} finally {
+			np.persist = defaultPersist;
+		}
+	}
+
+	@Test
+	public void testColumnMatchesNoisePerlin3D() {
+		NoiseParams[] params = {
+			new NoiseParams(0, 1, new Vector3f(250, 250, 250), 5934, (short)5, 0.6f, 2.0f),
+			new NoiseParams(4, 70, new Vector3f(600, 300, 600), 5333, (short)5, 0.63f, 2.0f, Noise.FLAG_EASED | Noise.FLAG_ABSVALUE),
+			new NoiseParams(-0.5f, 1, new Vector3f(37, 53, 37), 1, (short)3, 0.5f, 2.7f, 0)
+		};
+		int[][] columns = { { 0, 0 }, { -2048, 1024 }, { 30720, -30720 }, { -37, 53 } };
+		for (NoiseParams np : params) {
+			NoiseColumn3D column = new NoiseColumn3D(np, SEED);
+			for (int[] c : columns) {
+				column.setColumn(c[0], c[1]);
+				// up and down again, so cached lattice cells are left and entered again
+				for (int y = -300; y <= 300; y += 7) {
+					assertColumnMatches(column, np, c, y);
+				}
+				for (int y = 300; y >= -300; y -= 13) {
+					assertColumnMatches(column, np, c, y);
+				}
+			}
+		}
+	}
+
+	private static void assertColumnMatches(NoiseColumn3D column, NoiseParams np, int[] c, int y) {
+		float expected = Noise.NoisePerlin3D(np, c[0], y, c[1], SEED);
+		Assert.assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(column.at(y)));
+	}
+
+	private static void assertMatches(Noise noise, int[] g, float offset_x, float offset_y) {
+		float[] map = noise.perlinMap2DStrided(g[0], g[1], g[2], g[3], g[4], g[5], offset_x, offset_y, null, new float[g[4] * g[5]], new NoiseBuffers());
+		for (int j = 0; j < g[5]; j++) {
+			for (int i = 0; i < g[4]; i++) {
+				float expected = Noise.NoisePerlin2D(noise.np,
+						(g[0] + i * g[2]) + offset_x, (g[1] + j * g[3]) + offset_y, SEED);
+				Assert.assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(map[j * g[4] + i]));
+			}
+		}
+	}
+}
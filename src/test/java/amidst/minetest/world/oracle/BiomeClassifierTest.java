@@ -0,0 +1,69 @@
+package amidst.minetest.world.oracle;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import amidst.gameengineabstraction.world.biome.IBiome;
+import amidst.minetest.world.mapgen.MinetestBiome;
+import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
+import amidst.settings.biomeprofile.BiomeProfile;
+
+public class BiomeClassifierTest {
+	private static final float[] EDGE_CLIMATES = {
+			-64.01f, -64.0f, -63.99f, -0.01f, 0.0f, 0.01f, 50.0f, 191.99f, 192.0f, 1000.0f,
+			Float.NaN, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY };
+
+	private static MinetestBiome[] getBiomes(BiomeProfile profile) {
+		List<MinetestBiome> result = new ArrayList<>();
+		for (IBiome biome : profile.allBiomes()) {
+			result.add((MinetestBiome) biome);
+		}
+		return result.toArray(new MinetestBiome[result.size()]);
+	}
+
+	private static void assertClassifies(MinetestBiome[] biomes, BiomeClassifier classifier, float heat, float humidity, int y) {
+		assertSame(
+				"heat " + heat + ", humidity " + humidity + ", y " + y,
+				BiomeClassifier.scan(biomes, heat, humidity, y),
+				classifier.classify(heat, humidity, y));
+	}
+
+	@Test
+	public void shouldClassifyLikeTheScan() {
+		Random random = new Random(42);
+		for (BiomeProfile profile : MinetestBiomeProfileImpl.getDefaultProfiles()) {
+			MinetestBiome[] biomes = getBiomes(profile);
+			BiomeClassifier classifier = new BiomeClassifier(biomes);
+			List<Integer> heights = new ArrayList<>();
+			for (MinetestBiome biome : biomes) {
+				heights.add(biome.y_min - 1);
+				heights.add((int) biome.y_min);
+				heights.add((int) biome.y_max);
+				heights.add(biome.y_max + 1);
+			}
+			for (int y : heights) {
+				for (float heat : EDGE_CLIMATES) {
+					for (float humidity : EDGE_CLIMATES) {
+						assertClassifies(biomes, classifier, heat, humidity, y);
+					}
+				}
+				for (int i = 0; i < 2000; i++) {
+					float heat = (float) (random.nextGaussian() * 40 + 50);
+					float humidity = (float) (random.nextGaussian() * 40 + 50);
+					assertClassifies(biomes, classifier, heat, humidity, y);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shouldClassifyLikeTheScanWithoutBiomes() {
+		BiomeClassifier classifier = new BiomeClassifier(new MinetestBiome[0]);
+		assertSame(MinetestBiome.NONE, classifier.classify(50, 50, 0));
+	}
+}
@@ -0,0 +1,256 @@
+package amidst.minetest.world.oracle;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import amidst.fragment.BiomeClimateBuffer;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.BiomeDataPlane;
+import amidst.fragment.Fragment;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.gameengineabstraction.world.biome.IBiome;
+import amidst.minetest.world.mapgen.MinetestBiome;
+import amidst.minetest.world.mapgen.MapgenV7Params;
+import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
+import amidst.minetest.world.testworld.MinetestTestWorld;
+import amidst.minetest.world.testworld.MinetestTestWorldDeclaration;
+import amidst.mojangapi.world.biome.BiomeColor;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.settings.biomeprofile.BiomeProfile;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * Ensures the oracles still produce exactly the biome data recorded by
+ * GenerateMinetestTestData, which matches Minetest.
+ */
+public class BiomeDataOracleRegressionTest {
+	@Test
+	public void shouldGenerateRecordedBiomeData() throws IOException {
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			String difference = MinetestTestWorld.read(declaration).findDifference(MinetestTestWorld.create(declaration));
+			if (difference != null) {
+				fail("biome data changed: [mapgen: " + declaration + ", " + difference + "]");
+			}
+		}
+	}
+
+	/**
+	 * The v6 mud noise is sampled at the index of the sample rather than its
+	 * world position, so v6 does not take part.
+	 */
+	@Test
+	public void shouldSampleCoarseResolutionsAtTheQuarterResolutionSamples() {
+		CoordinatesInWorld corner = CoordinatesInWorld.from(-Fragment.SIZE, Fragment.SIZE);
+		int size = Resolution.QUARTER.getStepsPerFragment();
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			if (declaration == MinetestTestWorldDeclaration.V6) {
+				continue;
+			}
+			IBiomeDataOracle oracle = declaration.createOracle(1);
+			BiomeDataBuffer quarter = new BiomeDataBuffer(size, size);
+			oracle.populateArray(corner, quarter, true);
+			for (Resolution resolution : new Resolution[] { Resolution.CHUNK, Resolution.CHUNK_4X4 }) {
+				int coarseSize = resolution.getStepsPerFragment();
+				int scale = size / coarseSize;
+				BiomeDataBuffer coarse = new BiomeDataBuffer(coarseSize, coarseSize);
+				oracle.populateArray(corner, coarse, resolution);
+				for (int y = 0; y < coarseSize; y++) {
+					for (int x = 0; x < coarseSize; x++) {
+						assertEquals(
+								declaration + " " + resolution + " at " + x + ", " + y,
+								quarter.get(x * scale, y * scale),
+								coarse.get(x, y));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reclassifying the biome data with another biome profile must give the
+	 * same biome data as generating it with that profile. The corner is at
+	 * the edge of the world, so some samples are not recorded.
+	 */
+	@Test
+	public void shouldReclassifyLikeGeneratingWithTheNewBiomeProfile() {
+		CoordinatesInWorld corner = CoordinatesInWorld.from(30720, -2048);
+		int size = MinetestTestWorldDeclaration.SIZE;
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			MinetestBiomeDataOracle oracle = declaration.createOracle(1);
+			if (!oracle.canReclassify()) {
+				continue;
+			}
+			for (BiomeProfile profile : MinetestBiomeProfileImpl.getDefaultProfiles()) {
+				BiomeDataBuffer reclassified = new BiomeDataBuffer(size, size);
+				BiomeClimateBuffer climate = new BiomeClimateBuffer(size, size);
+				oracle.populateArray(corner, reclassified, Resolution.QUARTER, BiomeDataPlane.ALL, climate);
+				oracle.onBiomeProfileUpdate(profile);
+				oracle.reclassify(climate, reclassified);
+				BiomeDataBuffer expected = new BiomeDataBuffer(size, size);
+				oracle.populateArray(corner, expected, Resolution.QUARTER);
+				assertArrayEquals(declaration + " " + profile.getName(), expected.getData(), reclassified.getData());
+			}
+		}
+	}
+
+	/**
+	 * No biome covers the surface between y = 2 and y = 49 of this profile,
+	 * e.g. the whole flat mapgen, so those samples are MinetestBiome.NONE.
+	 */
+	private static BiomeProfile createProfileWithAGap() {
+		List<IBiome> biomes = Arrays.asList(
+				createBiome("Low", BiomeColor.from(0, 0, 255), -31000, 1, 0),
+				createBiome("High", BiomeColor.from(0, 255, 0), 50, 31000, 1));
+		return new BiomeProfile() {
+			@Override
+			public String getName() {
+				return "Gap";
+			}
+
+			@Override
+			public String getShortcut() {
+				return null;
+			}
+
+			@Override
+			public boolean validate() {
+				return true;
+			}
+
+			@Override
+			public BiomeColor[] createBiomeColorArray() {
+				return biomes.stream().map(IBiome::getDefaultColor).toArray(BiomeColor[]::new);
+			}
+
+			@Override
+			public boolean save(File file) {
+				return false;
+			}
+
+			@Override
+			public Collection<IBiome> allBiomes() {
+				return biomes;
+			}
+
+			@Override
+			public IBiome getByIndex(int index) {
+				return biomes.get(index);
+			}
+
+			@Override
+			public boolean invalidatesBiomeData() {
+				return true;
+			}
+		};
+	}
+
+	private static MinetestBiome createBiome(String name, BiomeColor color, int yMin, int yMax, int index) {
+		MinetestBiome result = new MinetestBiome(name, color, (short) yMin, (short) yMax, 50, 50) {
+		};
+		result.setIndex(index);
+		return result;
+	}
+
+	/**
+	 * The samples no biome of the new profile covers are MinetestBiome.NONE,
+	 * which is not part of the profile, and reclassify() must store it like
+	 * populateArray() does.
+	 */
+	@Test
+	public void shouldReclassifyTheSamplesWithoutABiomeLikeGeneratingThem() {
+		BiomeProfile profile = createProfileWithAGap();
+		CoordinatesInWorld corner = CoordinatesInWorld.from(-Fragment.SIZE, Fragment.SIZE);
+		int size = MinetestTestWorldDeclaration.SIZE;
+		short none = (short) (MinetestBiome.NONE.getIndex() & MinetestBiomeDataOracle.MASK_BITPLANES);
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			MinetestBiomeDataOracle oracle = declaration.createOracle(1);
+			if (!oracle.canReclassify()) {
+				continue;
+			}
+			BiomeDataBuffer reclassified = new BiomeDataBuffer(size, size);
+			BiomeClimateBuffer climate = new BiomeClimateBuffer(size, size);
+			oracle.populateArray(corner, reclassified, Resolution.QUARTER, BiomeDataPlane.ALL, climate);
+			oracle.onBiomeProfileUpdate(profile);
+			oracle.reclassify(climate, reclassified);
+			BiomeDataBuffer expected = new BiomeDataBuffer(size, size);
+			oracle.populateArray(corner, expected, Resolution.QUARTER);
+			assertArrayEquals(declaration.toString(), expected.getData(), reclassified.getData());
+			if (declaration == MinetestTestWorldDeclaration.V7_FLOATLANDS) {
+				// only the floatlands are drawn, and they are above the gap
+				continue;
+			}
+			boolean isNoneReached = false;
+			for (short value : expected.getData()) {
+				isNoneReached |= (short) (value & MinetestBiomeDataOracle.MASK_BITPLANES) == none;
+			}
+			assertTrue(declaration + " has no sample without a biome", isNoneReached);
+		}
+	}
+
+	/**
+	 * The planes that are not requested can be skipped, but the biome index
+	 * and the requested planes must stay the same.
+	 */
+	@Test
+	public void shouldGenerateTheRequestedPlanesOnly() {
+		CoordinatesInWorld corner = CoordinatesInWorld.from(-Fragment.SIZE, Fragment.SIZE);
+		int size = MinetestTestWorldDeclaration.SIZE;
+		for (MinetestTestWorldDeclaration declaration : MinetestTestWorldDeclaration.values()) {
+			MinetestBiomeDataOracle oracle = declaration.createOracle(1);
+			BiomeDataBuffer expected = new BiomeDataBuffer(size, size);
+			oracle.populateArray(corner, expected, Resolution.QUARTER, BiomeDataPlane.ALL);
+			BiomeDataBuffer withoutPlanes = new BiomeDataBuffer(size, size);
+			oracle.populateArray(corner, withoutPlanes, Resolution.QUARTER, BiomeDataPlane.NONE);
+			for (BiomeDataPlane plane : BiomeDataPlane.values()) {
+				BiomeDataBuffer actual = new BiomeDataBuffer(size, size);
+				oracle.populateArray(corner, actual, Resolution.QUARTER, Collections.singleton(plane));
+				for (int i = 0; i < expected.getData().length; i++) {
+					int mask = MinetestBiomeDataOracle.MASK_BITPLANES | plane.getMask();
+					assertEquals(declaration + " " + plane + " at " + i, expected.getData()[i] & mask, actual.getData()[i] & mask);
+					assertEquals(
+							declaration + " at " + i,
+							expected.getData()[i] & MinetestBiomeDataOracle.MASK_BITPLANES,
+							withoutPlanes.getData()[i] & MinetestBiomeDataOracle.MASK_BITPLANES);
+				}
+			}
+		}
+	}
+
+	/**
+	 * MapgenV7Params.toString() leaves out the floatland params, but the
+	 * cached biome data depends on them.
+	 */
+	@Test
+	public void shouldChangeTheCacheKeyWithTheFloatlandParams() {
+		BiomeProfileSelection selection = new BiomeProfileSelection(
+				MinetestBiomeProfileImpl.getDefaultProfiles().iterator().next());
+		String key = new BiomeDataOracleV7(true, new MapgenV7Params(), selection, 1).getBiomeDataCacheKey();
+
+		MapgenV7Params floatMountHeight = new MapgenV7Params();
+		floatMountHeight.float_mount_height *= 2;
+		assertNotEquals(key, new BiomeDataOracleV7(true, floatMountHeight, selection, 1).getBiomeDataCacheKey());
+
+		MapgenV7Params floatlandBase = new MapgenV7Params();
+		floatlandBase.np_floatland_base.offset += 1;
+		assertNotEquals(key, new BiomeDataOracleV7(true, floatlandBase, selection, 1).getBiomeDataCacheKey());
+
+		MapgenV7Params floatBaseHeight = new MapgenV7Params();
+		floatBaseHeight.np_float_base_height.offset += 1;
+		assertNotEquals(key, new BiomeDataOracleV7(true, floatBaseHeight, selection, 1).getBiomeDataCacheKey());
+
+		assertEquals(key, new BiomeDataOracleV7(true, new MapgenV7Params(), selection, 1).getBiomeDataCacheKey());
+	}
+}
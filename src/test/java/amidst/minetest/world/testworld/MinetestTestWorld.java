@@ -0,0 +1,231 @@
+package amidst.minetest.world.testworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import amidst.documentation.Immutable;
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+
+/**
+ * The biome data of one mapgen, as returned by populateArray(), for every
+ * seed, corner and resolution of its declaration. It is stored as a zip file
+ * with one binary entry per seed, so the recorded values can be compared with
+ * the values of the current oracle implementation.
+ */
+@Immutable
+public class MinetestTestWorld {
+	private static final int MAGIC = 0x414D5457; // "AMTW"
+	private static final int FORMAT_VERSION = 1;
+	private static final String ENTRY_FILE_EXTENSION = ".bin";
+
+	@Immutable
+	public static class Sample {
+		private final long seed;
+		private final long x;
+		private final long y;
+		private final boolean useQuarterResolution;
+		private final short mask;
+		private final int width;
+		private final int height;
+		private final short[] data;
+
+		private Sample(
+				long seed,
+				long x,
+				long y,
+				boolean useQuarterResolution,
+				short mask,
+				int width,
+				int height,
+				short[] data) {
+			this.seed = seed;
+			this.x = x;
+			this.y = y;
+			this.useQuarterResolution = useQuarterResolution;
+			this.mask = mask;
+			this.width = width;
+			this.height = height;
+			this.data = data;
+		}
+
+		/**
+		 * Returns a description of the first difference, or null if both
+		 * samples are equal.
+		 */
+		public String findDifference(Sample other) {
+			if (seed != other.seed || x != other.x || y != other.y || useQuarterResolution != other.useQuarterResolution
+					|| width != other.width || height != other.height) {
+				return "different sample: " + this + " vs " + other;
+			} else if (mask != other.mask) {
+				return "different mask in " + this + ": " + Integer.toHexString(mask & 0xFFFF) + " vs "
+						+ Integer.toHexString(other.mask & 0xFFFF);
+			}
+			for (int i = 0; i < data.length; i++) {
+				if (data[i] != other.data[i]) {
+					return "different value at [" + (i % width) + ", " + (i / width) + "] in " + this + ": "
+							+ Integer.toHexString(data[i] & 0xFFFF) + " vs " + Integer.toHexString(other.data[i] & 0xFFFF);
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return "[seed: " + seed + ", corner: " + x + ", " + y + ", "
+					+ (useQuarterResolution ? "quarter" : "full") + " resolution, " + width + "x" + height + "]";
+		}
+	}
+
+	/**
+	 * Calls populateArray() of the oracle created for each seed.
+	 */
+	public static MinetestTestWorld create(
+			MinetestTestWorldDeclaration declaration,
+			LongFunction<? extends IBiomeDataOracle> oracleFactory) {
+		List<Sample> samples = new ArrayList<>();
+		int size = MinetestTestWorldDeclaration.SIZE;
+		for (long seed : MinetestTestWorldDeclaration.SEEDS) {
+			IBiomeDataOracle oracle = oracleFactory.apply(seed);
+			for (boolean useQuarterResolution : new boolean[] { true, false }) {
+				for (long[] corner : MinetestTestWorldDeclaration.CORNERS) {
+					BiomeDataBuffer buffer = new BiomeDataBuffer(size, size);
+					short mask = oracle.populateArray(
+							CoordinatesInWorld.from(corner[0], corner[1]),
+							buffer,
+							useQuarterResolution);
+					samples.add(
+							new Sample(seed, corner[0], corner[1], useQuarterResolution, mask, size, size, buffer.getData()));
+				}
+			}
+		}
+		return new MinetestTestWorld(samples);
+	}
+
+	public static MinetestTestWorld create(MinetestTestWorldDeclaration declaration) {
+		return create(declaration, declaration::createOracle);
+	}
+
+	public static MinetestTestWorld read(MinetestTestWorldDeclaration declaration) throws IOException {
+		InputStream stream = MinetestTestWorld.class.getResourceAsStream(declaration.getZipResourceName());
+		if (stream == null) {
+			throw new IOException("missing test data: " + declaration.getZipResourceName());
+		}
+		List<Sample> samples = new ArrayList<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(stream))) {
+			while (zipInputStream.getNextEntry() != null) {
+				// do not close the stream, because this will also close the
+				// zip input stream
+				readEntry(new DataInputStream(zipInputStream), samples);
+			}
+		}
+		return new MinetestTestWorld(samples);
+	}
+
+	private static void readEntry(DataInputStream in, List<Sample> samples) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("unsupported test data format");
+		}
+		long seed = in.readLong();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			long x = in.readLong();
+			long y = in.readLong();
+			boolean useQuarterResolution = in.readBoolean();
+			short mask = in.readShort();
+			int width = in.readInt();
+			int height = in.readInt();
+			short[] data = new short[width * height];
+			for (int j = 0; j < data.length; j++) {
+				data[j] = in.readShort();
+			}
+			samples.add(new Sample(seed, x, y, useQuarterResolution, mask, width, height, data));
+		}
+		if (in.read() != -1) {
+			throw new EOFException("unexpected data after the last sample");
+		}
+	}
+
+	private final List<Sample> samples;
+
+	private MinetestTestWorld(List<Sample> samples) {
+		this.samples = Collections.unmodifiableList(samples);
+	}
+
+	public List<Sample> getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Returns a description of the first difference, or null if both worlds
+	 * contain the same samples.
+	 */
+	public String findDifference(MinetestTestWorld other) {
+		if (samples.size() != other.samples.size()) {
+			return "different number of samples: " + samples.size() + " vs " + other.samples.size();
+		}
+		for (int i = 0; i < samples.size(); i++) {
+			String difference = samples.get(i).findDifference(other.samples.get(i));
+			if (difference != null) {
+				return difference;
+			}
+		}
+		return null;
+	}
+
+	public void write(MinetestTestWorldDeclaration declaration) throws IOException {
+		declaration.getZipFile().getParentFile().mkdirs();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(
+				new BufferedOutputStream(new FileOutputStream(declaration.getZipFile())),
+				StandardCharsets.UTF_8)) {
+			zipOutputStream.setLevel(9);
+			for (long seed : MinetestTestWorldDeclaration.SEEDS) {
+				zipOutputStream.putNextEntry(new ZipEntry(seed + ENTRY_FILE_EXTENSION));
+				writeEntry(new DataOutputStream(zipOutputStream), seed);
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	private void writeEntry(DataOutputStream out, long seed) throws IOException {
+		List<Sample> entrySamples = new ArrayList<>();
+		for (Sample sample : samples) {
+			if (sample.seed == seed) {
+				entrySamples.add(sample);
+			}
+		}
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(seed);
+		out.writeInt(entrySamples.size());
+		for (Sample sample : entrySamples) {
+			out.writeLong(sample.x);
+			out.writeLong(sample.y);
+			out.writeBoolean(sample.useQuarterResolution);
+			out.writeShort(sample.mask);
+			out.writeInt(sample.width);
+			out.writeInt(sample.height);
+			for (short value : sample.data) {
+				out.writeShort(value);
+			}
+		}
+		// do not close the stream, because this will also close the zip
+		// output stream
+		out.flush();
+	}
+}
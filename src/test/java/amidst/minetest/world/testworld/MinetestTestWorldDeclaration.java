@@ -0,0 +1,91 @@
+package amidst.minetest.world.testworld;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.function.BiFunction;
+
+import amidst.documentation.Immutable;
+import amidst.minetest.world.mapgen.MapgenCarpathianParams;
+import amidst.minetest.world.mapgen.MapgenFlatParams;
+import amidst.minetest.world.mapgen.MapgenHallelujahParams;
+import amidst.minetest.world.mapgen.MapgenV5Params;
+import amidst.minetest.world.mapgen.MapgenV6Params;
+import amidst.minetest.world.mapgen.MapgenV7Params;
+import amidst.minetest.world.mapgen.MapgenValleysParams;
+import amidst.minetest.world.mapgen.MinetestBiomeProfileImpl;
+import amidst.minetest.world.oracle.BiomeDataOracleCarpathian;
+import amidst.minetest.world.oracle.BiomeDataOracleFlat;
+import amidst.minetest.world.oracle.BiomeDataOracleHallelujah;
+import amidst.minetest.world.oracle.BiomeDataOracleV5;
+import amidst.minetest.world.oracle.BiomeDataOracleV6;
+import amidst.minetest.world.oracle.BiomeDataOracleV7;
+import amidst.minetest.world.oracle.BiomeDataOracleValleys;
+import amidst.minetest.world.oracle.MinetestBiomeDataOracle;
+import amidst.settings.biomeprofile.BiomeProfileSelection;
+
+/**
+ * The mapgens whose biome data is recorded, see MinetestTestWorld. Each one
+ * is recorded for all SEEDS, at all CORNERS and at both resolutions, using
+ * the default mapgen parameters and the default biome profile.
+ */
+@Immutable
+public enum MinetestTestWorldDeclaration {
+	// @formatter:off
+	V5            ((selection, seed) -> new BiomeDataOracleV5(new MapgenV5Params(), selection, seed)),
+	V6            ((selection, seed) -> new BiomeDataOracleV6(new MapgenV6Params(), selection, seed)),
+	V7            ((selection, seed) -> new BiomeDataOracleV7(false, new MapgenV7Params(), selection, seed)),
+	V7_FLOATLANDS ((selection, seed) -> new BiomeDataOracleV7(true, new MapgenV7Params(), selection, seed)),
+	CARPATHIAN    ((selection, seed) -> new BiomeDataOracleCarpathian(new MapgenCarpathianParams(), selection, seed)),
+	VALLEYS       ((selection, seed) -> new BiomeDataOracleValleys(new MapgenValleysParams(), selection, seed)),
+	FLAT          ((selection, seed) -> new BiomeDataOracleFlat(new MapgenFlatParams(), selection, seed)),
+	HALLELUJAH    ((selection, seed) -> new BiomeDataOracleHallelujah(new MapgenHallelujahParams(), selection, seed));
+	// @formatter:on
+
+	public static final long[] SEEDS = { 1L, 123456789L, -98765L };
+
+	/**
+	 * Corners of the recorded areas in world coordinates. They include
+	 * negative coordinates, areas that are not aligned to fragments, and
+	 * areas near and beyond the edge of the world.
+	 */
+	public static final long[][] CORNERS = {
+			{ 0, 0 },
+			{ -512, 1024 },
+			{ 1000, -3000 },
+			{ 30720, -2048 },
+			{ -30720, -30720 } };
+
+	/**
+	 * The size of each recorded area in samples, so the area covers four
+	 * times as much of the world at quarter resolution.
+	 */
+	public static final int SIZE = 64;
+
+	private static final String RESOURCE_PREFIX = "/amidst/minetest/world/testworld/storage/";
+	private static final String ZIP_FILE_EXTENSION = ".zip";
+
+	private final BiFunction<BiomeProfileSelection, Long, MinetestBiomeDataOracle> oracleFactory;
+	private final String name;
+
+	private MinetestTestWorldDeclaration(
+			BiFunction<BiomeProfileSelection, Long, MinetestBiomeDataOracle> oracleFactory) {
+		this.oracleFactory = oracleFactory;
+		this.name = name().toLowerCase().replace('_', '-');
+	}
+
+	public MinetestBiomeDataOracle createOracle(long seed) {
+		BiomeProfileSelection selection = new BiomeProfileSelection(
+				MinetestBiomeProfileImpl.getDefaultProfiles().iterator().next());
+		return oracleFactory.apply(selection, seed);
+	}
+
+	public File getZipFile() {
+		return Paths
+				.get("src", "test", "resources", "amidst", "minetest", "world", "testworld", "storage", name + ZIP_FILE_EXTENSION)
+				.toFile();
+	}
+
+	public String getZipResourceName() {
+		return RESOURCE_PREFIX + name + ZIP_FILE_EXTENSION;
+	}
+}
@@ -0,0 +1,62 @@
+package amidst.mojangapi.world.export;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageStripWriterTest {
+	private static final int WIDTH = 37;
+	private static final int HEIGHT = 53;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static int colorAt(int x, int y) {
+		return 0xFF000000 | (x * 7 << 16) | (y * 5 << 8) | ((x ^ y) & 0xFF);
+	}
+
+	private static void writeAndCompare(File file) throws IOException {
+		try (ImageStripWriter writer = ImageStripWriter.create(file, WIDTH, HEIGHT)) {
+			// strips that do not match the rows per strip of the tiff writer
+			int[] strip = new int[WIDTH * 10];
+			for (int top = 0; top < HEIGHT; top += 10) {
+				int rows = Math.min(10, HEIGHT - top);
+				for (int y = 0; y < rows; y++) {
+					for (int x = 0; x < WIDTH; x++) {
+						strip[y * WIDTH + x] = colorAt(x, top + y);
+					}
+				}
+				writer.writeRows(strip, rows);
+			}
+		}
+		BufferedImage image = ImageIO.read(file);
+		assertEquals(WIDTH, image.getWidth());
+		assertEquals(HEIGHT, image.getHeight());
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				assertEquals(colorAt(x, y), image.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testPngIsReadBack() throws IOException {
+		writeAndCompare(folder.newFile("map.png"));
+	}
+
+	@Test
+	public void testTiffIsReadBack() throws IOException {
+		// ImageIO reads tiff files since Java 9
+		Assume.assumeTrue(ImageIO.getImageReadersBySuffix("tif").hasNext());
+		writeAndCompare(folder.newFile("map.tif"));
+	}
+}
@@ -0,0 +1,144 @@
+package amidst.mojangapi.world.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.BiomeDataDiskCache;
+import amidst.fragment.ICacheableBiomeDataOracle;
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+
+public class MapImageRendererTest {
+	// the default corner of the headless renderer, it is not a fragment corner
+	private static final CoordinatesInWorld CORNER = CoordinatesInWorld.from(-30912, -30912);
+	private static final int WIDTH = 300;
+	private static final int HEIGHT = 200;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static class CountingOracle implements ICacheableBiomeDataOracle {
+		private int calls = 0;
+
+		@Override
+		public synchronized short populateArray(
+				CoordinatesInWorld corner,
+				BiomeDataBuffer result,
+				boolean useQuarterResolution) {
+			calls++;
+			int shift = useQuarterResolution ? Resolution.QUARTER.getShift() : Resolution.WORLD.getShift();
+			for (int y = 0; y < result.getHeight(); y++) {
+				for (int x = 0; x < result.getWidth(); x++) {
+					result.set(x, y, valueAt(corner.getX() + (x << shift), corner.getY() + (y << shift)));
+				}
+			}
+			return (short) 0xFFFF;
+		}
+
+		@Override
+		public CoordinateSystem getNativeCoordinateSystem() {
+			return CoordinateSystem.RIGHT_HANDED;
+		}
+
+		@Override
+		public String getBiomeDataCacheKey() {
+			return "a";
+		}
+	}
+
+	private static short valueAt(long xInWorld, long yInWorld) {
+		return (short) (xInWorld * 7 + yInWorld * 3);
+	}
+
+	private static class MemoryStripWriter implements ImageStripWriter {
+		private final int[] pixels = new int[WIDTH * HEIGHT];
+		private int rows = 0;
+
+		@Override
+		public void writeRows(int[] argb, int rows) {
+			System.arraycopy(argb, 0, pixels, this.rows * WIDTH, rows * WIDTH);
+			this.rows += rows;
+		}
+
+		@Override
+		public int getWidth() {
+			return WIDTH;
+		}
+
+		@Override
+		public int getHeight() {
+			return HEIGHT;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static int[] render(CountingOracle oracle, BiomeDataDiskCache cache, Resolution resolution)
+			throws IOException {
+		MapImageRenderer renderer = new MapImageRenderer(
+				oracle,
+				cache,
+				resolution,
+				() -> Collections.singletonList(
+						(dimension, fragment, cornerX, cornerY, x, y) -> 0xFF000000
+								| (fragment.getBiomeDataAt(x, y) & 0xFFFF)),
+				2);
+		MemoryStripWriter writer = new MemoryStripWriter();
+		renderer.render(CORNER, writer, progress -> {
+		});
+		assertEquals(HEIGHT, writer.rows);
+		return writer.pixels;
+	}
+
+	private static int[] expected(Resolution resolution) {
+		int[] result = new int[WIDTH * HEIGHT];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				long xInWorld = CORNER.getX() + resolution.convertFromThisToWorld(x);
+				long yInWorld = CORNER.getY() + resolution.convertFromThisToWorld(y);
+				result[y * WIDTH + x] = 0xFF000000 | (valueAt(xInWorld, yInWorld) & 0xFFFF);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testTilesAreCroppedToTheArea() throws IOException {
+		assertArrayEquals(expected(Resolution.QUARTER), render(new CountingOracle(), null, Resolution.QUARTER));
+	}
+
+	@Test
+	public void testBiomeDataIsReadFromTheCache() throws IOException {
+		BiomeDataDiskCache cache = new BiomeDataDiskCache(folder.newFolder(), Long.MAX_VALUE);
+		CountingOracle oracle = new CountingOracle();
+		assertArrayEquals(expected(Resolution.QUARTER), render(oracle, cache, Resolution.QUARTER));
+		// the area is not aligned to the fragments, so it touches 3x3 of them
+		assertEquals(9, oracle.calls);
+
+		assertArrayEquals(expected(Resolution.QUARTER), render(oracle, cache, Resolution.QUARTER));
+		assertEquals(9, oracle.calls);
+	}
+
+	@Test
+	public void testWorldResolutionRendersOneBlockPerPixel() throws IOException {
+		BiomeDataDiskCache cache = new BiomeDataDiskCache(folder.newFolder(), Long.MAX_VALUE);
+		CountingOracle oracle = new CountingOracle();
+		assertArrayEquals(expected(Resolution.WORLD), render(oracle, cache, Resolution.WORLD));
+		// the corner is 320 blocks into its fragment, so the area touches 2x2 fragments
+		assertEquals(4, oracle.calls);
+
+		assertArrayEquals(expected(Resolution.WORLD), render(oracle, cache, Resolution.WORLD));
+		assertEquals(4, oracle.calls);
+	}
+}
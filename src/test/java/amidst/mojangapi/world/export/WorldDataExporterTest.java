@@ -0,0 +1,188 @@
+package amidst.mojangapi.world.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import amidst.fragment.BiomeDataBuffer;
+import amidst.fragment.Fragment;
+import amidst.fragment.IBiomeDataOracle;
+import amidst.gameengineabstraction.CoordinateSystem;
+import amidst.minetest.world.oracle.MinetestBiomeDataOracle;
+import amidst.minetest.world.testworld.MinetestTestWorldDeclaration;
+import amidst.mojangapi.world.Dimension;
+import amidst.mojangapi.world.coordinates.CoordinatesInWorld;
+import amidst.mojangapi.world.coordinates.Resolution;
+import amidst.mojangapi.world.export.WorldExporterConfiguration.Format;
+import amidst.mojangapi.world.icon.WorldIcon;
+
+public class WorldDataExporterTest {
+	// not aligned to fragments and larger than one fragment in both directions
+	private static final CoordinatesInWorld CORNER = CoordinatesInWorld.from(-700, 300);
+	private static final long WIDTH = 1000;
+	private static final long HEIGHT = 600;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final IBiomeDataOracle oracle = MinetestTestWorldDeclaration.V7.createOracle(1);
+
+	/**
+	 * Produces one icon in the middle of each fragment.
+	 */
+	private static List<WorldIcon> iconsAt(CoordinatesInWorld fragmentCorner) {
+		return Collections.singletonList(
+				new WorldIcon(
+						fragmentCorner.add(Fragment.SIZE / 2, Fragment.SIZE / 2),
+						"Test",
+						null,
+						Dimension.OVERWORLD,
+						false));
+	}
+
+	private WorldExporterConfiguration export(String filename, Format format) throws IOException {
+		WorldExporterConfiguration configuration = new WorldExporterConfiguration(
+				folder.newFile(filename),
+				format,
+				CORNER,
+				WIDTH,
+				HEIGHT,
+				Resolution.QUARTER,
+				true,
+				true,
+				true,
+				3);
+		List<Function<CoordinatesInWorld, List<WorldIcon>>> iconProducers = Collections
+				.singletonList(WorldDataExporterTest::iconsAt);
+		try (WorldDataWriter writer = WorldDataWriter.create(configuration, CoordinateSystem.LEFT_HANDED, 1)) {
+			new WorldDataExporter(oracle, iconProducers, configuration).export(writer, progress -> {
+			});
+		}
+		return configuration;
+	}
+
+	private short[] getExpectedBiomes(WorldExporterConfiguration configuration) {
+		BiomeDataBuffer buffer = new BiomeDataBuffer(
+				(int) configuration.getWidthInSamples(),
+				(int) configuration.getHeightInSamples());
+		oracle.populateArray(configuration.getCorner(), buffer, true);
+		return buffer.getData();
+	}
+
+	@Test
+	public void testBinaryContainsTheWholeRegion() throws IOException {
+		WorldExporterConfiguration configuration = export("world.bin", Format.BINARY);
+		int width = (int) configuration.getWidthInSamples();
+		int height = (int) configuration.getHeightInSamples();
+		short[] expected = getExpectedBiomes(configuration);
+		short[] biomes = new short[width * height];
+		int samples = 0;
+		int icons = 0;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(configuration.getFile()))))) {
+			assertEquals(BinaryWorldDataWriter.MAGIC, in.readInt());
+			assertEquals(BinaryWorldDataWriter.VERSION, in.readInt());
+			assertEquals(1, in.readLong());
+			assertEquals(
+					BinaryWorldDataWriter.FLAG_BIOMES | BinaryWorldDataWriter.FLAG_BITPLANES
+							| BinaryWorldDataWriter.FLAG_ICONS,
+					in.readByte());
+			assertTrue(in.readBoolean());
+			assertEquals(4, in.readInt());
+			assertEquals(-700, in.readLong());
+			assertEquals(-300, in.readLong());
+			assertEquals(width, in.readLong());
+			assertEquals(height, in.readLong());
+			for (byte record = in.readByte(); record != BinaryWorldDataWriter.RECORD_END; record = in.readByte()) {
+				if (record == BinaryWorldDataWriter.RECORD_TILE) {
+					int column = in.readInt();
+					int row = in.readInt();
+					int tileWidth = in.readInt();
+					int tileHeight = in.readInt();
+					for (int y = 0; y < tileHeight; y++) {
+						for (int x = 0; x < tileWidth; x++) {
+							biomes[(row + y) * width + column + x] = in.readShort();
+						}
+					}
+					in.skipBytes(tileWidth * tileHeight);
+					samples += tileWidth * tileHeight;
+				} else {
+					assertEquals(BinaryWorldDataWriter.RECORD_ICON, record);
+					long x = in.readLong();
+					long z = in.readLong();
+					assertEquals("Test", in.readUTF());
+					assertEquals(Dimension.OVERWORLD.getName(), in.readUTF());
+					assertTrue(x >= -700 && x < -700 + WIDTH);
+					assertTrue(z <= -300 && z > -300 - HEIGHT);
+					icons++;
+				}
+			}
+		}
+		assertEquals(width * height, samples);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals((short) (expected[i] & MinetestBiomeDataOracle.MASK_BITPLANES), biomes[i]);
+		}
+		// the middle of the fragments at x = -256 and 256, y = 768
+		assertEquals(2, icons);
+	}
+
+	@Test
+	public void testCsvHasOneLinePerSampleAndIcon() throws IOException {
+		WorldExporterConfiguration configuration = export("world.csv", Format.CSV);
+		List<String> lines = Files.readAllLines(configuration.getFile().toPath(), StandardCharsets.UTF_8);
+		assertEquals("kind,x,z,biome,river,ocean,mountain,icon,dimension", lines.get(0));
+		long samples = configuration.getWidthInSamples() * configuration.getHeightInSamples();
+		assertEquals(1 + samples + 2, lines.size());
+		for (String line : lines.subList(1, lines.size())) {
+			assertEquals(9, line.split(",", -1).length);
+		}
+	}
+
+	@Test
+	public void testGeoJsonCoversTheWholeRegion() throws IOException {
+		WorldExporterConfiguration configuration = export("world.geojson", Format.GEOJSON);
+		JsonObject collection;
+		try (Reader reader = new FileReader(configuration.getFile())) {
+			collection = new JsonParser().parse(reader).getAsJsonObject();
+		}
+		assertEquals("FeatureCollection", collection.get("type").getAsString());
+		long area = 0;
+		int icons = 0;
+		for (JsonElement feature : collection.getAsJsonArray("features")) {
+			JsonObject geometry = feature.getAsJsonObject().getAsJsonObject("geometry");
+			if (geometry.get("type").getAsString().equals("Point")) {
+				icons++;
+			} else {
+				JsonArray ring = geometry.getAsJsonArray("coordinates").get(0).getAsJsonArray();
+				JsonArray first = ring.get(0).getAsJsonArray();
+				JsonArray third = ring.get(2).getAsJsonArray();
+				long width = third.get(0).getAsLong() - first.get(0).getAsLong();
+				long height = third.get(1).getAsLong() - first.get(1).getAsLong();
+				area += width * height;
+			}
+		}
+		assertEquals(2, icons);
+		assertEquals(configuration.getWidthInSamples() * configuration.getHeightInSamples() * 16, area);
+	}
+}
@@ -0,0 +1,57 @@
+package amidst.threading;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SignalTest {
+	private static Thread startAwaiting(Signal signal, CountDownLatch woken) {
+		Thread thread = new Thread(() -> {
+			try {
+				signal.await();
+				woken.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	@Test(timeout = 5000)
+	public void shouldNotLoseASignalThatIsRaisedBeforeAwait() throws InterruptedException {
+		Signal signal = new Signal();
+		signal.raise();
+		signal.await();
+	}
+
+	@Test(timeout = 5000)
+	public void shouldWakeUpAWaitingThread() throws InterruptedException {
+		Signal signal = new Signal();
+		CountDownLatch woken = new CountDownLatch(1);
+		Thread thread = startAwaiting(signal, woken);
+		signal.raise();
+		assertTrue(woken.await(5, TimeUnit.SECONDS));
+		thread.join();
+	}
+
+	@Test(timeout = 5000)
+	public void shouldWakeUpOnlyOnceForSeveralSignals() throws InterruptedException {
+		Signal signal = new Signal();
+		signal.raise();
+		signal.raise();
+		signal.await();
+
+		CountDownLatch woken = new CountDownLatch(1);
+		Thread thread = startAwaiting(signal, woken);
+		assertFalse(woken.await(100, TimeUnit.MILLISECONDS));
+		signal.raise();
+		assertTrue(woken.await(5, TimeUnit.SECONDS));
+		thread.join();
+	}
+}